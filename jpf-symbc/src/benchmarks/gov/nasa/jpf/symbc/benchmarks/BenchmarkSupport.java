@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+/*
+ * Shared setup of the benchmarks: the solver configuration lives in static
+ * fields of SymbolicInstructionFactory, so it is initialised the same way
+ * a JPF run would, from symbolic.* properties.
+ */
+final class BenchmarkSupport {
+
+	static final int VARIABLES = 8;
+
+	private BenchmarkSupport() {
+	}
+
+	static void configure(String... args) {
+		final String[] defaults = { "+symbolic.min_int=-1000", "+symbolic.max_int=1000" };
+		final String[] all = new String[defaults.length + args.length];
+		System.arraycopy(defaults, 0, all, 0, defaults.length);
+		System.arraycopy(args, 0, all, defaults.length, args.length);
+		new SymbolicInstructionFactory(new Config(all));
+	}
+
+	static SymbolicInteger[] variables() {
+		final SymbolicInteger[] vars = new SymbolicInteger[VARIABLES];
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = new SymbolicInteger("x" + i, -1000, 1000);
+		}
+		return vars;
+	}
+
+	/*
+	 * A satisfiable PC of the given depth as symbolic execution builds it:
+	 * bounds and orderings over a few variables, interleaved. All conjuncts
+	 * differ, so none of them is dropped as a duplicate by _addDet.
+	 */
+	static PathCondition pathCondition(SymbolicInteger[] vars, int depth) {
+		final PathCondition pc = new PathCondition();
+		for (int i = 0; i < depth; i++) {
+			final SymbolicInteger x = vars[i % vars.length];
+			final SymbolicInteger y = vars[(i + 1) % vars.length];
+			switch (i % 4) {
+			case 0:
+				pc._addDet(Comparator.GE, x, -1000 + i);
+				break;
+			case 1:
+				pc._addDet(Comparator.LE, x, 1000 - i);
+				break;
+			case 2:
+				pc._addDet(Comparator.NE, x._plus(i), y);
+				break;
+			default:
+				final IntegerExpression sum = x._plus(y);
+				pc._addDet(Comparator.LT, sum, 1000 + i);
+				break;
+			}
+		}
+		return pc;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
+
+/**
+ * Translation of a path condition into the solver's own representation
+ * (PCParser.parse), without solving it. The Z3 back ends need the native
+ * Z3 library on java.library.path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PCParserBenchmark {
+
+	@Param({ "choco", "z3" })
+	public String dp;
+
+	@Param({ "10", "50" })
+	public int depth;
+
+	private PathCondition pc;
+
+	@Setup
+	public void setup() {
+		BenchmarkSupport.configure("+symbolic.dp=" + dp);
+		pc = BenchmarkSupport.pathCondition(BenchmarkSupport.variables(), depth);
+	}
+
+	@Benchmark
+	public ProblemGeneral parse() {
+		final ProblemGeneral pb = new PCParser().parse(pc, SymbolicConstraintsGeneral.createProblem(dp));
+		SymbolicConstraintsGeneral.cleanup(pb);
+		return pb;
+	}
+}
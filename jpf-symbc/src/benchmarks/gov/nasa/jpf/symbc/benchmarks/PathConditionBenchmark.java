@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+/**
+ * The path condition operations done at every symbolic branch: copying the
+ * PC of the parent, adding the branch condition and looking for an existing
+ * conjunct, at the depths reached by deep symbolic executions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathConditionBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int depth;
+
+	private SymbolicInteger[] vars;
+	private PathCondition pc;
+	private Constraint present;
+	private Constraint absent;
+
+	@Setup
+	public void setup() {
+		BenchmarkSupport.configure();
+		vars = BenchmarkSupport.variables();
+		pc = BenchmarkSupport.pathCondition(vars, depth);
+		// a conjunct half way down the list, and one that is not in the PC
+		Constraint c = pc.header;
+		for (int i = 0; i < depth / 2; i++) {
+			c = c.and;
+		}
+		present = c.copy();
+		absent = new LinearIntegerConstraint(vars[0], Comparator.EQ, vars[1]);
+	}
+
+	@Benchmark
+	public PathCondition makeCopy() {
+		return pc.make_copy();
+	}
+
+	@Benchmark
+	public PathCondition copyAndAdd() {
+		final PathCondition copy = pc.make_copy();
+		copy._addDet(Comparator.GT, vars[0], vars[1]);
+		return copy;
+	}
+
+	@Benchmark
+	public boolean hasConstraintPresent() {
+		return pc.hasConstraint(present);
+	}
+
+	@Benchmark
+	public boolean hasConstraintAbsent() {
+		return pc.hasConstraint(absent);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
+import za.ac.sun.cs.green.Instance;
+
+/**
+ * Translation of a path condition into a Green instance, done for every
+ * query when symbolic.green=true: from scratch, and for a child PC whose
+ * parent was translated already.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverTranslatorBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int depth;
+
+	private PathCondition pc;
+	private SymbolicInteger x;
+
+	private PathCondition child;
+
+	@Setup
+	public void setup() {
+		BenchmarkSupport.configure();
+		SymbolicInteger[] vars = BenchmarkSupport.variables();
+		pc = BenchmarkSupport.pathCondition(vars, depth);
+		x = vars[0];
+	}
+
+	@State(Scope.Thread)
+	public static class Cold {
+		@Setup(Level.Invocation)
+		public void forget() {
+			SolverTranslator.setCacheSize(10000);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Warm {
+		@Setup(Level.Invocation)
+		public void translateParent(SolverTranslatorBenchmark b) {
+			SolverTranslator.createInstance(b.pc.header);
+			b.child = b.pc.make_copy();
+			b.child._addDet(Comparator.NE, b.x, -1);
+		}
+	}
+
+	@Benchmark
+	public Instance createInstance(Cold cold) {
+		return SolverTranslator.createInstance(pc.header);
+	}
+
+	@Benchmark
+	public Instance extendInstance(Warm warm) {
+		return SolverTranslator.createInstance(child.header);
+	}
+}
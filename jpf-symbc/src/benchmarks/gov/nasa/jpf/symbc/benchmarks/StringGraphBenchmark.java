@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.string.SymbolicIntegerGenerator;
+import gov.nasa.jpf.symbc.string.graph.EdgeConcat;
+import gov.nasa.jpf.symbc.string.graph.EdgeContains;
+import gov.nasa.jpf.symbc.string.graph.EdgeStartsWith;
+import gov.nasa.jpf.symbc.string.graph.PreProcessGraph;
+import gov.nasa.jpf.symbc.string.graph.StringGraph;
+import gov.nasa.jpf.symbc.string.graph.Vertex;
+import gov.nasa.jpf.symbc.string.translate.TranslateToAutomata;
+
+/**
+ * The string solver pipeline of SymbolicStringConstraintsGeneral: building
+ * the string graph, preprocessing it (which solves the length constraints)
+ * and deciding it with automata. The graph is a chain of concatenations of
+ * a symbolic string with constants, constrained by startsWith and contains.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringGraphBenchmark {
+
+	@Param({ "2", "4", "8" })
+	public int width;
+
+	private StringGraph graph;
+	private PathCondition pc;
+
+	@Setup
+	public void configure() {
+		BenchmarkSupport.configure("+symbolic.string_dp=automata");
+	}
+
+	/* preprocess and isSat modify the graph, each call gets a fresh one */
+	@Setup(Level.Invocation)
+	public void prepare() {
+		graph = build(width);
+		pc = new PathCondition();
+		PreProcessGraph.preprocess(graph, pc);
+	}
+
+	@Benchmark
+	public StringGraph construct() {
+		return build(width);
+	}
+
+	@Benchmark
+	public boolean constructAndPreprocess() {
+		return PreProcessGraph.preprocess(build(width), new PathCondition());
+	}
+
+	@Benchmark
+	public boolean isSat() {
+		return TranslateToAutomata.isSat(graph, pc);
+	}
+
+	static StringGraph build(int width) {
+		final SymbolicIntegerGenerator sig = new SymbolicIntegerGenerator();
+		final StringGraph g = new StringGraph();
+		Vertex current = new Vertex("s0", sig);
+		g.addVertex(current);
+		for (int i = 1; i <= width; i++) {
+			final Vertex constant = new Vertex("CONST_ab" + i, "ab" + i, true);
+			final Vertex next = new Vertex("s" + i, sig);
+			g.addVertex(constant);
+			g.addVertex(next);
+			g.addEdge(current, constant, next, new EdgeConcat(next.getName(), current, constant, next));
+			current = next;
+		}
+		final Vertex prefix = new Vertex("CONST_xy", "xy", true);
+		final Vertex infix = new Vertex("CONST_b1a", "b1a", true);
+		g.addVertex(prefix);
+		g.addVertex(infix);
+		g.addEdge(current, prefix, new EdgeStartsWith("EdgeStartsWith_" + current.getName(), current, prefix));
+		g.addEdge(current, infix, new EdgeContains("EdgeContains_" + current.getName(), current, infix));
+		return g;
+	}
+}
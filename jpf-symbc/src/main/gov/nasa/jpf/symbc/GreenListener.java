@@ -20,6 +20,7 @@ package gov.nasa.jpf.symbc;
 
 import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
 import za.ac.sun.cs.green.util.Reporter;
 
 public class GreenListener extends ListenerAdapter {
@@ -35,6 +36,7 @@ public class GreenListener extends ListenerAdapter {
 				System.out.println(context + ":: " + message);
 			}
 		});
+		System.out.println(SolverTranslator.getInstanceCache());
 
 	}
 
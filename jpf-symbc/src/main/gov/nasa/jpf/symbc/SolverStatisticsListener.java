@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.bytecode.PathMerger;
+import gov.nasa.jpf.symbc.numeric.BranchSession;
+import gov.nasa.jpf.symbc.numeric.ExpressionPool;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.IncrementalSolver;
+import gov.nasa.jpf.symbc.numeric.solvers.LazyModel;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
+import gov.nasa.jpf.symbc.numeric.solvers.PCModel;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemPortfolio;
+import gov.nasa.jpf.symbc.search.SymbolicStateSet;
+
+/**
+ * Prints the statistics of the solver-side optimizations (caches etc.)
+ * that are enabled for this run, once the search is finished.
+ *
+ * Use with {@code listener+=,gov.nasa.jpf.symbc.SolverStatisticsListener}
+ */
+public class SolverStatisticsListener extends ListenerAdapter {
+
+	public SolverStatisticsListener() { }
+
+	@Override
+	public void searchFinished(Search s) {
+		System.out.println("====================================================== solver statistics");
+		if (SymbolicInstructionFactory.queryStatistics != null) {
+			System.out.println(SymbolicInstructionFactory.queryStatistics);
+		}
+		if (SymbolicInstructionFactory.queryRecorder != null) {
+			System.out.println(SymbolicInstructionFactory.queryRecorder);
+		}
+		if (SymbolicInstructionFactory.solverCache != null) {
+			System.out.println(SymbolicInstructionFactory.solverCache);
+		}
+		if (SymbolicInstructionFactory.persistentCache != null) {
+			System.out.println(SymbolicInstructionFactory.persistentCache);
+		}
+		if (SymbolicInstructionFactory.constraintSlicer != null) {
+			System.out.println(SymbolicInstructionFactory.constraintSlicer);
+		}
+		if (SymbolicInstructionFactory.intervalChecker != null) {
+			System.out.println(SymbolicInstructionFactory.intervalChecker);
+		}
+		if (SymbolicInstructionFactory.unsatCores != null) {
+			System.out.println(SymbolicInstructionFactory.unsatCores);
+		}
+		if (ExpressionPool.enabled) {
+			System.out.println(ExpressionPool.statistics());
+		}
+		if (SymbolicInstructionFactory.modelReuse) {
+			System.out.println(PCModel.statistics());
+		}
+		if (SymbolicInstructionFactory.multiBranch) {
+			System.out.println(BranchSession.statistics());
+		}
+		if (SymbolicInstructionFactory.merge) {
+			System.out.println(PathMerger.statistics());
+		}
+		if (s.getVM().getStateSet() instanceof SymbolicStateSet) {
+			System.out.println(SymbolicStateSet.statistics());
+		}
+		if (ProblemChoco.exhausted.get() > 0) {
+			System.out.println(ProblemChoco.statistics());
+		}
+		if (LazyModel.available.get() > 0) {
+			System.out.println(LazyModel.statistics());
+		}
+		if (SymbolicInstructionFactory.dp != null && SymbolicInstructionFactory.dp[0].equalsIgnoreCase("portfolio")) {
+			System.out.println(ProblemPortfolio.statistics());
+		}
+		if (SymbolicInstructionFactory.dp != null && (SymbolicInstructionFactory.dp[0].equalsIgnoreCase("z3inc")
+				|| SymbolicInstructionFactory.dp[0].equalsIgnoreCase("z3bitvectorinc"))) {
+			final IncrementalSolver solver = (IncrementalSolver) SymbolicConstraintsGeneral.createProblem(SymbolicInstructionFactory.dp[0]);
+			System.out.println(solver.getSession());
+		}
+	}
+
+}
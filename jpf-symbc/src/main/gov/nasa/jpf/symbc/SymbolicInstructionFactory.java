@@ -18,13 +18,28 @@
 
 package gov.nasa.jpf.symbc;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+
 import za.ac.sun.cs.green.Green;
 import za.ac.sun.cs.green.util.Configuration;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.symbc.bytecode.*;
+import gov.nasa.jpf.symbc.numeric.ExpressionPool;
 import gov.nasa.jpf.symbc.numeric.MinMax;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemCoral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemPortfolio;
+import gov.nasa.jpf.symbc.numeric.solvers.ConstraintSlicer;
+import gov.nasa.jpf.symbc.numeric.solvers.IntervalChecker;
+import gov.nasa.jpf.symbc.numeric.solvers.QueryRecorder;
+import gov.nasa.jpf.symbc.numeric.solvers.PersistentPCCache;
+import gov.nasa.jpf.symbc.numeric.solvers.QueryStatistics;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverCache;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
+import gov.nasa.jpf.symbc.numeric.solvers.UnsatCoreStore;
 import gov.nasa.jpf.util.ClassInfoFilter;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.Instruction;
@@ -558,6 +573,55 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 	 * Later we just check if this is null to know if Green is enabled
 	 */
 	static public Green greenSolver = null;
+
+	/*
+	 * Cache of satisfiability results/models for canonical path conditions
+	 * (symbolic.cache=true); null if disabled
+	 */
+	static public SolverCache solverCache = null;
+
+	/*
+	 * Results of earlier runs, kept in symbolic.cache.file; null if not
+	 * set. Also consulted for unsatisfiable string path conditions
+	 */
+	static public PersistentPCCache persistentCache = null;
+
+	/*
+	 * Sends only the conjuncts that depend on the most recent constraint
+	 * to the solver (symbolic.slicing=true); null if disabled
+	 */
+	static public ConstraintSlicer constraintSlicer = null;
+
+	/*
+	 * Evaluate new branch constraints on the model of the parent PC before
+	 * calling the solver (symbolic.model_reuse=true)
+	 */
+	static public boolean modelReuse = false;
+
+	/*
+	 * Decides simple PCs with interval bound propagation before calling
+	 * the solver (symbolic.interval_check=true); null if disabled
+	 */
+	static public IntervalChecker intervalChecker = null;
+
+	/*
+	 * Unsat cores reported by the Z3 back ends, used to prune PCs that
+	 * contain one (symbolic.unsat_cores=true); null if disabled
+	 */
+	static public UnsatCoreStore unsatCores = null;
+
+	/*
+	 * Checks the branches of a symbolic branch point with one solver, see
+	 * PathCondition.simplifyBranches (symbolic.multi_branch=true)
+	 */
+	static public boolean multiBranch = false;
+
+	/*
+	 * Merges both sides of symbolic branches over side-effect free regions
+	 * into if-then-else terms instead of branching, see PathMerger
+	 * (symbolic.merge=true)
+	 */
+	static public boolean merge = false;
 	
 	/*
 	 * Allow user to set the bitvector length for Z3bitvector and potentially other bv-based solvers.
@@ -568,6 +632,41 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 	 * Use floating point theory for reals in Z3 (or other solvers that might support this).
 	 */
 	static public boolean fp;
+
+	/*
+	 * Per-query limits of the Z3 back ends: timeout in milliseconds
+	 * (symbolic.z3.timeout) and resource limit (symbolic.z3.rlimit); 0 for none
+	 */
+	static public int z3Timeout = 0;
+	static public int z3ResourceLimit = 0;
+
+	/*
+	 * z3bitvectorinc guards the conjuncts with selector literals and checks
+	 * under assumptions instead of pushing and popping scopes
+	 * (symbolic.z3.assumptions=true)
+	 */
+	static public boolean z3Assumptions = false;
+
+	/*
+	 * What to do with a PC the decision procedure cannot decide
+	 * (symbolic.unknown): "prune" it, "keep" it as if satisfiable, or
+	 * "retry" it with symbolic.unknown.fallback (default choco)
+	 */
+	static public String unknownPolicy = "prune";
+	static public String unknownFallback = "choco";
+
+	/*
+	 * Outcomes and times of the queries sent to the decision procedure
+	 * (symbolic.query_statistics, by default on with the
+	 * SolverStatisticsListener); null if not reported
+	 */
+	static public QueryStatistics queryStatistics = null;
+
+	/*
+	 * Writes every query to a corpus for QueryReplay
+	 * (symbolic.record=<file>); null if disabled
+	 */
+	static public QueryRecorder queryRecorder = null;
 	
 	/*
 	 * Concolic mode where we concrete execute for now
@@ -604,6 +703,7 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 			//------------------------------------
 		 greenSolver = new Green();
 		 new Configuration(greenSolver, conf).configure();			
+		 SolverTranslator.setCacheSize(conf.getInt("symbolic.green.instance_cache.size", 10000));
 		 // fix to make sure when Green is used there is no NPE when poking at dp[0] in some bytecodes
 		 dp = new String[] {"green"};
 	 }
@@ -624,6 +724,27 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 
 		filter = new ClassInfoFilter(null, new String[] {/*"java.*",*/ "javax.*" },null, null);
 
+		// the solver-side optimizations of an earlier run in this JVM must not
+		// carry over; they are only configured for the non-Green solvers below
+		greenSolver = null;
+		closePersistentCache();
+		solverCache = null;
+		constraintSlicer = null;
+		modelReuse = false;
+		intervalChecker = null;
+		unsatCores = null;
+		multiBranch = false;
+
+		// nodes of earlier runs must not be shared with this one
+		ExpressionPool.clear();
+		ExpressionPool.enabled = conf.getBoolean("symbolic.hashcons", false);
+		if (debugMode) System.out.println("symbolic.hashcons=" + ExpressionPool.enabled);
+
+		if (queryRecorder != null) {
+			queryRecorder.close();
+			queryRecorder = null;
+		}
+
 		if (conf.getBoolean("symbolic.green", false)) {
 			System.out.println("Using Green Framework...");
 			setupGreen(conf);
@@ -681,13 +802,19 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 			}
 
 			if(dp[0].equalsIgnoreCase("choco") || dp[0].equalsIgnoreCase("debug") || dp[0].equalsIgnoreCase("compare") || dp == null) { // default is choco
-			  ProblemChoco.timeBound = conf.getInt("symbolic.choco_time_bound", 30000);
-			  if (debugMode) System.out.println("symbolic.choco_time_bound="+ProblemChoco.timeBound);
+			  ProblemChoco.configure(conf);
+			  if (debugMode) System.out.println("symbolic.choco_time_bound="+ProblemChoco.timeBound
+					  + " symbolic.choco_node_bound=" + ProblemChoco.nodeBound + " symbolic.choco_warm_start=" + ProblemChoco.warmStart);
 			}
 			//load CORAL's parameters
 			if (dp[0].equalsIgnoreCase("coral") || dp[0].equalsIgnoreCase("debug") || dp[0].equalsIgnoreCase("compare")) {
 				ProblemCoral.configure(conf);
 			}
+			// the portfolio configures the back ends it runs
+			if (dp[0].equalsIgnoreCase("portfolio")) {
+				ProblemPortfolio.configure(conf);
+				if (debugMode) System.out.println("symbolic.portfolio=" + conf.getString("symbolic.portfolio", "choco,z3"));
+			}
 
       maxPcLength = conf.getInt("symbolic.max_pc_length", Integer.MAX_VALUE);
       if (maxPcLength == -1) {
@@ -704,6 +831,59 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
       }
       if (debugMode) System.out.println("symbolic.max_pc_msec=" + maxPcMSec);
       startSystemMillis = System.currentTimeMillis();
+
+      if (conf.getBoolean("symbolic.cache", false) || conf.hasValue("symbolic.cache.file")) {
+        solverCache = new SolverCache(conf.getInt("symbolic.cache.size", 10000));
+        if (debugMode) System.out.println("symbolic.cache.size=" + conf.getInt("symbolic.cache.size", 10000));
+        String file = conf.getString("symbolic.cache.file");
+        if (file != null) {
+          try {
+            persistentCache = new PersistentPCCache(new File(file), solverConfiguration(conf));
+          } catch (IOException e) {
+            throw new RuntimeException("## Error: cannot open symbolic.cache.file=" + file + ": " + e);
+          }
+          solverCache.setPersistent(persistentCache);
+          if (debugMode) System.out.println("symbolic.cache.file=" + file);
+        }
+      }
+
+      modelReuse = conf.getBoolean("symbolic.model_reuse", false);
+      if (modelReuse && dp[0].toLowerCase().contains("bitvector")) {
+        // models are evaluated with unbounded integers, not with bit-vector semantics
+        System.out.println("## Warning: symbolic.model_reuse is not supported for symbolic.dp=" + dp[0]);
+        modelReuse = false;
+      }
+      if (debugMode) System.out.println("symbolic.model_reuse=" + modelReuse);
+
+      if (conf.getBoolean("symbolic.interval_check", false)) {
+        if (dp[0].toLowerCase().contains("bitvector")) {
+          // the intervals use unbounded integers, not bit-vector semantics
+          System.out.println("## Warning: symbolic.interval_check is not supported for symbolic.dp=" + dp[0]);
+          intervalChecker = null;
+        } else {
+          intervalChecker = new IntervalChecker();
+        }
+      }
+      if (debugMode) System.out.println("symbolic.interval_check=" + (intervalChecker != null));
+
+      if (conf.getBoolean("symbolic.unsat_cores", false)) {
+        if (!dp[0].equalsIgnoreCase("z3") && !dp[0].equalsIgnoreCase("z3bitvector")) {
+          // only these back ends report cores
+          System.out.println("## Warning: symbolic.unsat_cores is not supported for symbolic.dp=" + dp[0]);
+          unsatCores = null;
+        } else {
+          unsatCores = new UnsatCoreStore(conf.getInt("symbolic.unsat_cores.size", 10000));
+          if (debugMode) System.out.println("symbolic.unsat_cores.size=" + conf.getInt("symbolic.unsat_cores.size", 10000));
+        }
+      }
+
+      if (conf.getBoolean("symbolic.slicing", false)) {
+        constraintSlicer = new ConstraintSlicer();
+        if (debugMode) System.out.println("symbolic.slicing=true");
+      }
+
+      multiBranch = conf.getBoolean("symbolic.multi_branch", false);
+      if (debugMode) System.out.println("symbolic.multi_branch=" + multiBranch);
 		}
 
 		String regress = conf.getProperty("symbolic.regression_output");
@@ -715,6 +895,16 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 		
 		this.pcChoiceOptimization = conf.getBoolean("symbolic.optimizechoices", true);
 
+		PathMerger.reset();
+		merge = conf.getBoolean("symbolic.merge", false);
+		if (merge && (greenSolver != null || !pcChoiceOptimization)) {
+			// Green does not translate if-then-else terms, and only the
+			// optimized branch instructions merge
+			System.out.println("## Warning: symbolic.merge requires symbolic.optimizechoices=true and no Green");
+			merge = false;
+		}
+		if (debugMode) System.out.println("symbolic.merge=" + merge);
+
         this.symArrays = conf.getBoolean("symbolic.arrays", false);
 
 		/* load bitvector length, default to 32 */
@@ -725,6 +915,51 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 		fp = conf.getBoolean("symbolic.fp", false);
 		if (fp&&debugMode) System.out.println("Using floating point theory for reals in Z3.");
 
+		z3Timeout = conf.getInt("symbolic.z3.timeout", 0);
+		z3ResourceLimit = conf.getInt("symbolic.z3.rlimit", 0);
+		if (z3Timeout < 0 || z3ResourceLimit < 0) {
+			throw new IllegalArgumentException("symbolic.z3.timeout and symbolic.z3.rlimit must be non-negative (>=0), but were "
+					+ z3Timeout + " and " + z3ResourceLimit);
+		}
+		if (debugMode) System.out.println("symbolic.z3.timeout=" + z3Timeout + " symbolic.z3.rlimit=" + z3ResourceLimit);
+		z3Assumptions = conf.getBoolean("symbolic.z3.assumptions", false);
+		if (debugMode) System.out.println("symbolic.z3.assumptions=" + z3Assumptions);
+
+		unknownPolicy = conf.getString("symbolic.unknown", "prune").toLowerCase();
+		if (!unknownPolicy.equals("prune") && !unknownPolicy.equals("keep") && !unknownPolicy.equals("retry")) {
+			throw new IllegalArgumentException("symbolic.unknown must be prune, keep or retry, but was " + unknownPolicy);
+		}
+		unknownFallback = conf.getString("symbolic.unknown.fallback", "choco");
+		if (unknownPolicy.equals("retry")) {
+			// the fallback solves the whole PC on its own, like a portfolio member
+			if (unknownFallback.equalsIgnoreCase("choco")) {
+				ProblemChoco.configure(conf);
+			} else if (unknownFallback.equalsIgnoreCase("coral")) {
+				ProblemCoral.configure(conf);
+			} else if (unknownFallback.equalsIgnoreCase("z3inc") || unknownFallback.equalsIgnoreCase("z3bitvectorinc")
+					|| unknownFallback.equalsIgnoreCase("portfolio") || unknownFallback.equalsIgnoreCase("debug")
+					|| unknownFallback.equalsIgnoreCase("compare") || unknownFallback.equalsIgnoreCase("no_solver")) {
+				throw new RuntimeException("## Error: symbolic.dp=" + unknownFallback + " cannot be symbolic.unknown.fallback");
+			}
+		}
+		if (debugMode) System.out.println("symbolic.unknown=" + unknownPolicy
+				+ (unknownPolicy.equals("retry") ? " symbolic.unknown.fallback=" + unknownFallback : ""));
+
+		if (conf.getBoolean("symbolic.query_statistics", reportsStatistics(conf)))
+			queryStatistics = new QueryStatistics(conf.getInt("symbolic.slowest_queries", 5));
+		else
+			queryStatistics = null;
+
+		String record = conf.getString("symbolic.record");
+		if (record != null) {
+			try {
+				queryRecorder = new QueryRecorder(record);
+			} catch (IOException e) {
+				throw new RuntimeException("## Error: cannot open symbolic.record=" + record + ": " + e);
+			}
+			if (debugMode) System.out.println("symbolic.record=" + record);
+		}
+
 		MinMax.collectMinMaxInformation(conf);
 		/* no longer required here, now read in MinMax, see line above
 
@@ -758,5 +993,62 @@ public class SymbolicInstructionFactory extends gov.nasa.jpf.jvm.bytecode.Instru
 		 */
 	}
 
+	/*
+	 * The settings that decide what the solvers answer; results of runs with
+	 * other settings are not reused from symbolic.cache.file
+	 */
+	private static String solverConfiguration(Config conf) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(dp[0]).append(',').append(string_dp == null ? "none" : string_dp[0]);
+		sb.append(",bv").append(conf.getInt("symbolic.bvlength", 32));
+		TreeSet<String> bounds = new TreeSet<String>();
+		bounds.addAll(Arrays.asList(conf.getKeysStartingWith("symbolic.min_")));
+		bounds.addAll(Arrays.asList(conf.getKeysStartingWith("symbolic.max_")));
+		for (String k : bounds) {
+			sb.append(',').append(k.substring("symbolic.".length())).append('=').append(conf.getString(k));
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Whether the SolverStatisticsListener reports on this run
+	 */
+	private static boolean reportsStatistics(Config conf) {
+		final String[] listeners = conf.getStringArray("listener");
+		if (listeners != null) {
+			for (String l : listeners) {
+				if (l.equals(SolverStatisticsListener.class.getName()))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean closeOnExit = false;
+
+	/*
+	 * Closes the cache file of the previous configuration (and, at exit, of
+	 * the last one), which drops the results of changed methods from it
+	 */
+	private static synchronized void closePersistentCache() {
+		if (!closeOnExit) {
+			closeOnExit = true;
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					closePersistentCache();
+				}
+			});
+		}
+		if (persistentCache != null) {
+			try {
+				persistentCache.close();
+			} catch (IOException e) {
+				System.out.println("## Warning: cannot close symbolic.cache.file: " + e);
+			}
+			persistentCache = null;
+		}
+	}
+
 
 }
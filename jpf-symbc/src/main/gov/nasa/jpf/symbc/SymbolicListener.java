@@ -47,6 +47,7 @@ import gov.nasa.jpf.symbc.bytecode.BytecodeUtils;
 import gov.nasa.jpf.symbc.bytecode.INVOKESTATIC;
 import gov.nasa.jpf.symbc.concolic.PCAnalyzer;
 import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
 import gov.nasa.jpf.symbc.numeric.Expression;
 import gov.nasa.jpf.symbc.numeric.IntegerConstant;
 import gov.nasa.jpf.symbc.numeric.IntegerExpression;
@@ -57,14 +58,19 @@ import gov.nasa.jpf.symbc.numeric.RealExpression;
 import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
 import gov.nasa.jpf.symbc.numeric.SymbolicReal;
 import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.visitors.CollectVariableVisitor;
 //import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
 
 import gov.nasa.jpf.util.Pair;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
 
@@ -152,7 +158,7 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
 					pa.solve(pc,solver);
 				}
 				else
-					pc.solve();
+					pc.solve(shownVariables(pc, null));
 
 				Pair<String,String> pcPair = new Pair<String,String>(pc.toString(),error);//(pc.toString(),error);
 
@@ -296,8 +302,13 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
 								PCAnalyzer pa = new PCAnalyzer();
 								pa.solve(pc,solver);
 							}
-							else
-								pc.solve();
+							else {
+								Object returnAttr = null;
+								if (insn instanceof IRETURN || insn instanceof LRETURN || insn instanceof DRETURN
+										|| insn instanceof FRETURN || insn instanceof ARETURN)
+									returnAttr = ((JVMReturnInstruction) insn).getReturnAttr(ti);
+								pc.solve(shownVariables(pc, returnAttr));
+							}
 
 							if (!PathCondition.flagSolved) {
 							  return;
@@ -428,6 +439,29 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
 	
 	  
 
+	  /*
+	   * The variables whose values a summary shows: PathCondition.toString()
+	   * prints the solutions of the real variables only, and the summary adds
+	   * the value of the returned expression. The values of the other
+	   * variables are not read back from the solver.
+	   */
+	  private static Set<Expression> shownVariables(PathCondition pc, Object returnAttr) {
+		  CollectVariableVisitor visitor = new CollectVariableVisitor();
+		  for (Constraint c = pc.header; c != null; c = c.and)
+			  c.accept(visitor);
+		  Set<Expression> shown = new HashSet<Expression>();
+		  for (Expression v : visitor.getVariables()) {
+			  if (v instanceof SymbolicReal)
+				  shown.add(v);
+		  }
+		  if (returnAttr instanceof Expression) {
+			  visitor = new CollectVariableVisitor();
+			  ((Expression) returnAttr).accept(visitor);
+			  shown.addAll(visitor.getVariables());
+		  }
+		  return shown;
+	  }
+
 	  /*
 	   * The way this method works is specific to the format of the methodSummary
 	   * data structure
@@ -608,6 +642,61 @@ public class SymbolicListener extends PropertyListenerAdapter implements Publish
 
 
 
+	  /**
+	   * Returns the method summaries as plain strings, so that they can be
+	   * sent to another JVM (see gov.nasa.jpf.symbc.parallel): per method
+	   * the key, name, argument types, argument values and symbolic values,
+	   * followed by the path conditions and their results.
+	   */
+	  public List<String[]> getSummaryData() {
+		  List<String[]> data = new ArrayList<String[]>();
+		  for (Map.Entry<String,MethodSummary> me : allSummaries.entrySet()) {
+			  MethodSummary ms = me.getValue();
+			  List<?> pcs = ms.getPathConditions();
+			  String[] entry = new String[5 + 2 * pcs.size()];
+			  entry[0] = me.getKey();
+			  entry[1] = ms.getMethodName();
+			  entry[2] = ms.getArgTypes();
+			  entry[3] = ms.getArgValues();
+			  entry[4] = ms.getSymValues();
+			  int i = 5;
+			  for (Object pc : pcs) {
+				  // the pairs of a summary are (path condition, result)
+				  Pair<?,?> pcPair = (Pair<?,?>) pc;
+				  entry[i++] = (String) pcPair._1;
+				  entry[i++] = (String) pcPair._2;
+			  }
+			  data.add(entry);
+		  }
+		  return data;
+	  }
+
+	  /**
+	   * Adds the path conditions of summaries obtained with getSummaryData()
+	   * (by another run) to the summaries of this run.
+	   */
+	  public void mergeSummaryData(List<String[]> data) {
+		  for (String[] entry : data) {
+			  MethodSummary ms = allSummaries.get(entry[0]);
+			  if (ms == null) {
+				  ms = new MethodSummary();
+				  allSummaries.put(entry[0], ms);
+			  }
+			  if (ms.getMethodName().isEmpty()) {
+				  ms.setMethodName(entry[1]);
+				  ms.setArgTypes(entry[2]);
+				  ms.setArgValues(entry[3]);
+				  ms.setSymValues(entry[4]);
+			  }
+			  for (int i = 5; i + 1 < entry.length; i += 2) {
+				  Pair<String,String> pcPair = new Pair<String,String>(entry[i], entry[i + 1]);
+				  if (!ms.getPathConditions().contains(pcPair)) {
+					  ms.addPathCondition(pcPair);
+				  }
+			  }
+		  }
+	  }
+
       //	-------- the publisher interface
 	  @Override
 	  public void publishFinished (Publisher publisher) {
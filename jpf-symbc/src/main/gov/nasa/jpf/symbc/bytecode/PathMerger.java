@@ -0,0 +1,521 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.bytecode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.jvm.bytecode.BIPUSH;
+import gov.nasa.jpf.jvm.bytecode.DUP;
+import gov.nasa.jpf.jvm.bytecode.GOTO;
+import gov.nasa.jpf.jvm.bytecode.IADD;
+import gov.nasa.jpf.jvm.bytecode.IAND;
+import gov.nasa.jpf.jvm.bytecode.ICONST;
+import gov.nasa.jpf.jvm.bytecode.IINC;
+import gov.nasa.jpf.jvm.bytecode.ILOAD;
+import gov.nasa.jpf.jvm.bytecode.IMUL;
+import gov.nasa.jpf.jvm.bytecode.INEG;
+import gov.nasa.jpf.jvm.bytecode.IOR;
+import gov.nasa.jpf.jvm.bytecode.ISHL;
+import gov.nasa.jpf.jvm.bytecode.ISHR;
+import gov.nasa.jpf.jvm.bytecode.ISTORE;
+import gov.nasa.jpf.jvm.bytecode.ISUB;
+import gov.nasa.jpf.jvm.bytecode.IUSHR;
+import gov.nasa.jpf.jvm.bytecode.IXOR;
+import gov.nasa.jpf.jvm.bytecode.IfInstruction;
+import gov.nasa.jpf.jvm.bytecode.JSR;
+import gov.nasa.jpf.jvm.bytecode.JSR_W;
+import gov.nasa.jpf.jvm.bytecode.POP;
+import gov.nasa.jpf.jvm.bytecode.SIPUSH;
+import gov.nasa.jpf.jvm.bytecode.SwitchInstruction;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.ITEIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.vm.ExceptionHandler;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+/**
+ * Merges both sides of a symbolic branch into one path (veritesting), so
+ * that a method with n small if/else diamonds in a row is explored along
+ * one path instead of 2^n (symbolic.merge=true).
+ *
+ * A branch is merged if it starts a single-entry/single-exit region of the
+ * method's bytecode: an int comparison (IFxx or IF_ICMPxx) jumping forward,
+ * whose sides are straight-line code, possibly with nested regions, that
+ * only computes with ints on the operand stack and in local variables (no
+ * calls, no heap access, nothing that can throw) and that is not jumped
+ * into from anywhere else. The regions are found once per branch
+ * instruction.
+ *
+ * Both sides are then evaluated on the frame's values, and every local
+ * variable and operand they leave behind becomes the if-then-else term
+ * {@code cond ? target side : fall-through side} (see
+ * {@link ITEIntegerExpression}); execution continues at the end of the
+ * region without a choice generator. If a side computes a non-linear term
+ * or uses an operand it did not push, the branch is explored as usual.
+ */
+public final class PathMerger {
+
+	private static final Region NONE = new Region(-1, -1, -1, -1);
+
+	private static final IdentityHashMap<Instruction, Region> regions = new IdentityHashMap<Instruction, Region>();
+
+	public static final AtomicLong merged = new AtomicLong();
+	public static final AtomicLong failed = new AtomicLong();
+
+	private PathMerger() { }
+
+	/*
+	 * the target side [targetStart, exit) and the fall-through side
+	 * [fallStart, fallEnd) of a branch; fallEnd excludes the GOTO over the
+	 * target side
+	 */
+	private static class Region {
+		final int fallStart;
+		final int fallEnd;
+		final int targetStart;
+		final int exit;
+
+		Region(int fallStart, int fallEnd, int targetStart, int exit) {
+			this.fallStart = fallStart;
+			this.fallEnd = fallEnd;
+			this.targetStart = targetStart;
+			this.exit = exit;
+		}
+	}
+
+	/*
+	 * the local variables written and the operands pushed by a side
+	 */
+	private static class Values {
+		final HashMap<Integer, IntegerExpression> locals;
+		final ArrayList<IntegerExpression> stack;
+
+		Values() {
+			locals = new HashMap<Integer, IntegerExpression>();
+			stack = new ArrayList<IntegerExpression>();
+		}
+
+		Values(Values v) {
+			locals = new HashMap<Integer, IntegerExpression>(v.locals);
+			stack = new ArrayList<IntegerExpression>(v.stack);
+		}
+
+		IntegerExpression pop() {
+			return stack.isEmpty() ? null : stack.remove(stack.size() - 1);
+		}
+	}
+
+	/**
+	 * Merges the region starting at the symbolic branch {@code insn} of the
+	 * top frame of {@code ti}, and returns the instruction at its end, or
+	 * null if the branch has to be explored.
+	 */
+	public static Instruction merge(ThreadInfo ti, IfInstruction insn) {
+		final Region r = getRegion(insn);
+		if (r == NONE) {
+			return null;
+		}
+		final StackFrame sf = ti.getModifiableTopFrame();
+		final boolean binary = isBinary(insn);
+		final IntegerExpression right = binary ? operand(sf, 0) : new IntegerConstant(0);
+		final IntegerExpression left = operand(sf, binary ? 1 : 0);
+		final Values v = new Values();
+		if (left == null || right == null || !branch(sf, insn, r, left, right, v)) {
+			failed.incrementAndGet();
+			return null;
+		}
+
+		sf.pop(binary ? 2 : 1);
+		for (IntegerExpression e : v.stack) {
+			if (e instanceof IntegerConstant) {
+				sf.push((int) ((IntegerConstant) e).value, false);
+			} else {
+				sf.push(0, false); // for symbolic expressions, the concrete value does not matter
+				sf.setOperandAttr(e);
+			}
+		}
+		for (Map.Entry<Integer, IntegerExpression> l : v.locals.entrySet()) {
+			final IntegerExpression e = l.getValue();
+			if (e instanceof IntegerConstant) {
+				sf.setLocalVariable(l.getKey(), (int) ((IntegerConstant) e).value);
+				sf.setLocalAttr(l.getKey(), null);
+			} else {
+				sf.setLocalVariable(l.getKey(), 0);
+				sf.setLocalAttr(l.getKey(), e);
+			}
+		}
+		merged.incrementAndGet();
+		return insn.getMethodInfo().getInstruction(r.exit);
+	}
+
+	/*
+	 * evaluates both sides of the region of insn, on top of the values of v,
+	 * and merges them into v
+	 */
+	private static boolean branch(StackFrame sf, IfInstruction insn, Region r,
+			IntegerExpression left, IntegerExpression right, Values v) {
+		final Instruction[] code = insn.getMethodInfo().getInstructions();
+		final Comparator c = comparator(insn);
+		if (left instanceof IntegerConstant && right instanceof IntegerConstant) {
+			if (holds(c, ((IntegerConstant) left).value, ((IntegerConstant) right).value)) {
+				return run(sf, code, r.targetStart, r.exit, v);
+			} else {
+				return run(sf, code, r.fallStart, r.fallEnd, v);
+			}
+		}
+
+		final Values target = new Values(v);
+		final Values fall = new Values(v);
+		if (!run(sf, code, r.targetStart, r.exit, target) || !run(sf, code, r.fallStart, r.fallEnd, fall)) {
+			return false;
+		}
+		if (target.stack.size() != fall.stack.size()) {
+			return false; // not verifiable bytecode
+		}
+
+		final HashSet<Integer> written = new HashSet<Integer>(target.locals.keySet());
+		written.addAll(fall.locals.keySet());
+		for (int index : written) {
+			final IntegerExpression t = load(sf, index, target);
+			final IntegerExpression f = load(sf, index, fall);
+			final IntegerExpression e = t == null || f == null ? null : ITEIntegerExpression.create(c, left, right, t, f);
+			if (e == null) {
+				return false;
+			}
+			v.locals.put(index, e);
+		}
+		v.stack.clear();
+		for (int i = 0; i < target.stack.size(); i++) {
+			final IntegerExpression e = ITEIntegerExpression.create(c, left, right, target.stack.get(i), fall.stack.get(i));
+			if (e == null) {
+				return false;
+			}
+			v.stack.add(e);
+		}
+		return true;
+	}
+
+	/*
+	 * evaluates the instructions [from, to) on top of the values of v
+	 */
+	private static boolean run(StackFrame sf, Instruction[] code, int from, int to, Values v) {
+		int i = from;
+		while (i < to) {
+			final Instruction insn = code[i];
+			if (insn instanceof IfInstruction) {
+				final Region r = getRegion((IfInstruction) insn);
+				final boolean binary = isBinary((IfInstruction) insn);
+				final IntegerExpression right = binary ? v.pop() : new IntegerConstant(0);
+				final IntegerExpression left = v.pop();
+				if (left == null || right == null || !branch(sf, (IfInstruction) insn, r, left, right, v)) {
+					return false;
+				}
+				i = r.exit;
+				continue;
+			}
+			if (!step(sf, insn, v)) {
+				return false;
+			}
+			i++;
+		}
+		return true;
+	}
+
+	private static boolean step(StackFrame sf, Instruction insn, Values v) {
+		if (insn instanceof ILOAD) {
+			final IntegerExpression e = load(sf, ((ILOAD) insn).getLocalVariableIndex(), v);
+			if (e == null) {
+				return false;
+			}
+			v.stack.add(e);
+			return true;
+		}
+		if (insn instanceof ISTORE) {
+			final IntegerExpression e = v.pop();
+			if (e == null) {
+				return false;
+			}
+			v.locals.put(((ISTORE) insn).getLocalVariableIndex(), e);
+			return true;
+		}
+		if (insn instanceof IINC) {
+			final IINC iinc = (IINC) insn;
+			final IntegerExpression e = load(sf, iinc.getIndex(), v);
+			if (e == null) {
+				return false;
+			}
+			v.locals.put(iinc.getIndex(), arithmetic(insn, e, new IntegerConstant(iinc.getIncrement())));
+			return true;
+		}
+		if (insn instanceof ICONST) {
+			v.stack.add(new IntegerConstant(((ICONST) insn).getValue()));
+			return true;
+		}
+		if (insn instanceof BIPUSH) {
+			v.stack.add(new IntegerConstant(((BIPUSH) insn).getValue()));
+			return true;
+		}
+		if (insn instanceof SIPUSH) {
+			v.stack.add(new IntegerConstant(((SIPUSH) insn).getValue()));
+			return true;
+		}
+		if (insn instanceof POP) {
+			return v.pop() != null;
+		}
+		if (insn instanceof DUP) {
+			final IntegerExpression e = v.pop();
+			if (e == null) {
+				return false;
+			}
+			v.stack.add(e);
+			v.stack.add(e);
+			return true;
+		}
+		if (insn instanceof INEG) {
+			final IntegerExpression e = v.pop();
+			if (e == null) {
+				return false;
+			}
+			// 0 - e stays linear, unlike e._neg()
+			v.stack.add(e instanceof IntegerConstant ? new IntegerConstant(-(int) ((IntegerConstant) e).value) : new IntegerConstant(0)._minus(e));
+			return true;
+		}
+		final IntegerExpression r = v.pop();
+		final IntegerExpression l = v.pop();
+		if (l == null || r == null) {
+			return false;
+		}
+		v.stack.add(arithmetic(insn, l, r));
+		return true;
+	}
+
+	/*
+	 * l op r, with int semantics if both are constant
+	 */
+	private static IntegerExpression arithmetic(Instruction insn, IntegerExpression l, IntegerExpression r) {
+		if (l instanceof IntegerConstant && r instanceof IntegerConstant) {
+			final int a = (int) ((IntegerConstant) l).value;
+			final int b = (int) ((IntegerConstant) r).value;
+			if (insn instanceof IADD || insn instanceof IINC) return new IntegerConstant(a + b);
+			if (insn instanceof ISUB) return new IntegerConstant(a - b);
+			if (insn instanceof IMUL) return new IntegerConstant(a * b);
+			if (insn instanceof IAND) return new IntegerConstant(a & b);
+			if (insn instanceof IOR) return new IntegerConstant(a | b);
+			if (insn instanceof IXOR) return new IntegerConstant(a ^ b);
+			if (insn instanceof ISHL) return new IntegerConstant(a << b);
+			if (insn instanceof ISHR) return new IntegerConstant(a >> b);
+			return new IntegerConstant(a >>> b);
+		}
+		if (insn instanceof IADD || insn instanceof IINC) return l._plus(r);
+		if (insn instanceof ISUB) return l._minus(r);
+		if (insn instanceof IMUL) return l._mul(r);
+		if (insn instanceof IAND) return l._and(r);
+		if (insn instanceof IOR) return l._or(r);
+		if (insn instanceof IXOR) return l._xor(r);
+		if (insn instanceof ISHL) return l._shiftL(r);
+		if (insn instanceof ISHR) return l._shiftR(r);
+		return l._shiftUR(r);
+	}
+
+	/*
+	 * the value of a local variable, null if it is not an int
+	 */
+	private static IntegerExpression load(StackFrame sf, int index, Values v) {
+		final IntegerExpression e = v.locals.get(index);
+		if (e != null) {
+			return e;
+		}
+		final Object attr = sf.getLocalAttr(index);
+		if (attr == null) {
+			return new IntegerConstant(sf.getLocalVariable(index));
+		}
+		return attr instanceof IntegerExpression ? (IntegerExpression) attr : null;
+	}
+
+	private static IntegerExpression operand(StackFrame sf, int offset) {
+		final Object attr = sf.getOperandAttr(offset);
+		if (attr == null) {
+			return new IntegerConstant(sf.peek(offset));
+		}
+		return attr instanceof IntegerExpression ? (IntegerExpression) attr : null;
+	}
+
+	private static boolean isBinary(IfInstruction insn) {
+		return insn.getByteCode() >= 0x9f; // IF_ICMPxx
+	}
+
+	/* the condition under which insn jumps */
+	private static Comparator comparator(IfInstruction insn) {
+		switch (insn.getByteCode()) {
+		case 0x99: case 0x9f: return Comparator.EQ;
+		case 0x9a: case 0xa0: return Comparator.NE;
+		case 0x9b: case 0xa1: return Comparator.LT;
+		case 0x9c: case 0xa2: return Comparator.GE;
+		case 0x9d: case 0xa3: return Comparator.GT;
+		default: return Comparator.LE;
+		}
+	}
+
+	private static boolean holds(Comparator c, long l, long r) {
+		switch (c) {
+		case EQ: return l == r;
+		case NE: return l != r;
+		case LT: return l < r;
+		case LE: return l <= r;
+		case GT: return l > r;
+		default: return l >= r;
+		}
+	}
+
+	/*
+	 * the region starting at insn, NONE if there is none
+	 */
+	private static synchronized Region getRegion(IfInstruction insn) {
+		Region r = regions.get(insn);
+		if (r == null) {
+			r = findRegion(insn);
+			regions.put(insn, r);
+		}
+		return r;
+	}
+
+	private static Region findRegion(IfInstruction insn) {
+		final int opcode = insn.getByteCode();
+		if (opcode < 0x99 || opcode > 0xa4) {
+			return NONE; // not an int comparison
+		}
+		final MethodInfo mi = insn.getMethodInfo();
+		final Instruction[] code = mi.getInstructions();
+		final int start = insn.getInstructionIndex();
+		final int target = insn.getTarget().getInstructionIndex();
+		if (target <= start) {
+			return NONE;
+		}
+
+		final Region r;
+		final Instruction last = code[target - 1];
+		if (last instanceof GOTO) {
+			final int exit = ((GOTO) last).getTarget().getInstructionIndex();
+			if (exit < target) {
+				return NONE; // a loop
+			}
+			r = new Region(start + 1, target - 1, target, exit);
+		} else {
+			r = new Region(start + 1, target, target, target);
+		}
+		if (!isStraight(code, r.fallStart, r.fallEnd) || !isStraight(code, r.targetStart, r.exit)) {
+			return NONE;
+		}
+
+		// single entry: nothing outside jumps into the region
+		for (int i = 0; i < code.length; i++) {
+			if (i >= start && i < r.exit) {
+				continue;
+			}
+			for (int t : targets(mi, code[i])) {
+				if (t > start && t < r.exit) {
+					return NONE;
+				}
+			}
+		}
+		final ExceptionHandler[] handlers = mi.getExceptions();
+		if (handlers != null) {
+			for (ExceptionHandler h : handlers) {
+				final int t = mi.getInstructionAt(h.getHandler()).getInstructionIndex();
+				if (t > start && t < r.exit) {
+					return NONE;
+				}
+			}
+		}
+		return r;
+	}
+
+	/*
+	 * whether [from, to) only consists of int computations and of nested
+	 * regions
+	 */
+	private static boolean isStraight(Instruction[] code, int from, int to) {
+		int i = from;
+		while (i < to) {
+			final Instruction insn = code[i];
+			if (insn instanceof IfInstruction) {
+				final Region r = getRegion((IfInstruction) insn);
+				if (r == NONE || r.exit > to) {
+					return false;
+				}
+				i = r.exit;
+				continue;
+			}
+			if (!(insn instanceof ILOAD || insn instanceof ISTORE || insn instanceof IINC
+					|| insn instanceof ICONST || insn instanceof BIPUSH || insn instanceof SIPUSH
+					|| insn instanceof POP || insn instanceof DUP || insn instanceof INEG
+					|| insn instanceof IADD || insn instanceof ISUB || insn instanceof IMUL
+					|| insn instanceof IAND || insn instanceof IOR || insn instanceof IXOR
+					|| insn instanceof ISHL || insn instanceof ISHR || insn instanceof IUSHR)) {
+				return false;
+			}
+			i++;
+		}
+		return true;
+	}
+
+	/* the instruction indices insn can jump to */
+	private static int[] targets(MethodInfo mi, Instruction insn) {
+		if (insn instanceof IfInstruction) {
+			return new int[] { ((IfInstruction) insn).getTarget().getInstructionIndex() };
+		} else if (insn instanceof GOTO) {
+			return new int[] { ((GOTO) insn).getTarget().getInstructionIndex() };
+		} else if (insn instanceof JSR) {
+			return new int[] { mi.getInstructionAt(((JSR) insn).getTarget()).getInstructionIndex() };
+		} else if (insn instanceof JSR_W) {
+			return new int[] { mi.getInstructionAt(((JSR_W) insn).getTarget()).getInstructionIndex() };
+		} else if (insn instanceof SwitchInstruction) {
+			final SwitchInstruction sw = (SwitchInstruction) insn;
+			final int[] positions = sw.getTargets();
+			final int[] result = new int[positions.length + 1];
+			result[0] = mi.getInstructionAt(sw.getTarget()).getInstructionIndex();
+			for (int i = 0; i < positions.length; i++) {
+				result[i + 1] = mi.getInstructionAt(positions[i]).getInstructionIndex();
+			}
+			return result;
+		}
+		return new int[0];
+	}
+
+	public static synchronized void reset() {
+		regions.clear();
+		merged.set(0);
+		failed.set(0);
+	}
+
+	public static String statistics() {
+		return "path merging: branches merged=" + merged + " abandoned=" + failed;
+	}
+
+}
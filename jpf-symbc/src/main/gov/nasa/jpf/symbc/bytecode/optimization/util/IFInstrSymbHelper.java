@@ -24,6 +24,8 @@ package gov.nasa.jpf.symbc.bytecode.optimization.util;
 
 import gov.nasa.jpf.jvm.bytecode.IfInstruction;
 import gov.nasa.jpf.jvm.bytecode.LCMP;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.bytecode.PathMerger;
 import gov.nasa.jpf.symbc.numeric.Comparator;
 import gov.nasa.jpf.symbc.numeric.IntegerExpression;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
@@ -81,9 +83,10 @@ public class IFInstrSymbHelper {
 				thirdPC._addDet(thirdComparator,sym_v2,v1);
 			}
 			
-			boolean firstSat = firstPC.simplify();
-			boolean secSat = secPC.simplify();
-			boolean thirdSat = thirdPC.simplify();
+			boolean[] sat = PathCondition.simplifyBranches(true, firstPC, secPC, thirdPC);
+			boolean firstSat = sat[0];
+			boolean secSat = sat[1];
+			boolean thirdSat = sat[2];
 			
 			if(firstSat) {
 				if(secSat) {
@@ -94,17 +97,11 @@ public class IFInstrSymbHelper {
 						//LE (choice 0) == true, EQ (choice 1)== true
 						newPCChoice = new PCChoiceGenerator(2);
 					}
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else if(thirdSat) {
 					//LE (choice 0) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					prevPcGen.setCurrentPC(firstPC);
 					conditionValue = -1;
@@ -113,10 +110,7 @@ public class IFInstrSymbHelper {
 				if(thirdSat) {
 					//EQ (choice 1) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					conditionValue = 0;
 				}
@@ -222,9 +216,10 @@ public class IFInstrSymbHelper {
 				thirdPC._addDet(thirdComparator,sym_v2,v1);
 			}
 			
-			boolean firstSat = firstPC.simplify();
-			boolean secSat = secPC.simplify();
-			boolean thirdSat = thirdPC.simplify(); 
+			boolean[] sat = PathCondition.simplifyBranches(true, firstPC, secPC, thirdPC);
+			boolean firstSat = sat[0];
+			boolean secSat = sat[1];
+			boolean thirdSat = sat[2];
 			
 			if(firstSat) {
 				if(secSat) {
@@ -235,17 +230,11 @@ public class IFInstrSymbHelper {
 						//LE (choice 0) == true, EQ (choice 1)== true
 						newPCChoice = new PCChoiceGenerator(2);
 					}
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else if(thirdSat) {
 					//LE (choice 0) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					prevPcGen.setCurrentPC(firstPC);
 					conditionValue = -1;
@@ -254,10 +243,7 @@ public class IFInstrSymbHelper {
 				if(thirdSat) {
 					//EQ (choice 1) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					conditionValue = 0;
 				}
@@ -364,9 +350,10 @@ public class IFInstrSymbHelper {
 				thirdPC._addDet(thirdComparator,sym_v2,v1);
 			}
 			
-			boolean firstSat = firstPC.simplify();
-			boolean secSat = secPC.simplify();
-			boolean thirdSat = thirdPC.simplify();
+			boolean[] sat = PathCondition.simplifyBranches(true, firstPC, secPC, thirdPC);
+			boolean firstSat = sat[0];
+			boolean secSat = sat[1];
+			boolean thirdSat = sat[2];
 			
 			if(firstSat) {
 				if(secSat) {
@@ -377,17 +364,11 @@ public class IFInstrSymbHelper {
 						//LE (choice 0) == true, EQ (choice 1)== true
 						newPCChoice = new PCChoiceGenerator(2);
 					}
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else if(thirdSat) {
 					//LE (choice 0) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(0, 2, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					conditionValue = -1;
 				}
@@ -395,10 +376,7 @@ public class IFInstrSymbHelper {
 				if(thirdSat) {
 					//EQ (choice 1) == true, GT (choice 2)== true
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(1, 2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, firstPC, secPC, thirdPC);
 				} else {
 					conditionValue = 0;
 				}
@@ -469,6 +447,11 @@ public class IFInstrSymbHelper {
 		
 		//TODO: fix conditionValue
 		if(!ti.isFirstStepInsn()) { // first time around
+			if(SymbolicInstructionFactory.merge) {
+				Instruction merged = PathMerger.merge(ti, instr);
+				if(merged != null)
+					return merged;
+			}
 			PCChoiceGenerator prevPcGen;
 			ChoiceGenerator<?> cg = ti.getVM().getChoiceGenerator();
 			if(cg instanceof PCChoiceGenerator)
@@ -487,17 +470,15 @@ public class IFInstrSymbHelper {
 			eqPC._addDet(trueComparator, sym_v, 0);
 			nePC._addDet(falseComparator, sym_v, 0);
 			
-			boolean eqSat = eqPC.simplify();
-			boolean neSat = nePC.simplify();
+			boolean[] sat = PathCondition.simplifyBranches(true, eqPC, nePC);
+			boolean eqSat = sat[0];
+			boolean neSat = sat[1];
 			
 			if(eqSat) {
 				if(neSat) {
 					PCChoiceGenerator newPCChoice;
 					newPCChoice = new PCChoiceGenerator(2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, nePC, eqPC);
 				} else {
 					ti.getModifiableTopFrame().pop();
 					return instr.getTarget();
@@ -539,6 +520,11 @@ public class IFInstrSymbHelper {
 		
 		//TODO: fix conditionValue
 		if(!ti.isFirstStepInsn()) { // first time around
+			if(SymbolicInstructionFactory.merge) {
+				Instruction merged = PathMerger.merge(ti, instr);
+				if(merged != null)
+					return merged;
+			}
 			PCChoiceGenerator prevPcGen;
 			ChoiceGenerator<?> cg = ti.getVM().getChoiceGenerator();
 			if(cg instanceof PCChoiceGenerator)
@@ -571,16 +557,14 @@ public class IFInstrSymbHelper {
 				nePC._addDet(falseComparator, v1, sym_v2);
 			}
 
-			boolean eqSat = eqPC.simplify();
-			boolean neSat = nePC.simplify();
+			boolean[] sat = PathCondition.simplifyBranches(true, eqPC, nePC);
+			boolean eqSat = sat[0];
+			boolean neSat = sat[1];
 			
 			if(eqSat) {
 				if(neSat) {
 					PCChoiceGenerator newPCChoice = new PCChoiceGenerator(2);
-					newPCChoice.setOffset(instr.getPosition());
-					newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
-					ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
-					return instr;
+					return setNextChoice(ti, instr, newPCChoice, nePC, eqPC);
 				} else {
 					ti.getModifiableTopFrame().pop();
 					ti.getModifiableTopFrame().pop();
@@ -629,4 +613,17 @@ public class IFInstrSymbHelper {
 			}
 		}		
 	}
+
+	/*
+	 * Schedules the choice generator of a symbolic comparison; its choices
+	 * adopt the results of the branch PCs checked for them (in choice order)
+	 */
+	private static Instruction setNextChoice(ThreadInfo ti, Instruction instr, PCChoiceGenerator newPCChoice,
+											 PathCondition... checked) {
+		newPCChoice.setOffset(instr.getPosition());
+		newPCChoice.setMethodName(instr.getMethodInfo().getFullName());
+		newPCChoice.setCheckedPCs(checked);
+		ti.getVM().getSystemState().setNextChoiceGenerator(newPCChoice);
+		return instr;
+	}
 }
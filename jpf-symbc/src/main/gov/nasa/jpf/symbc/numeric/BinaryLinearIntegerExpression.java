@@ -1,21 +1,21 @@
-/*
- * Copyright (C) 2014, United States Government, as represented by the
- * Administrator of the National Aeronautics and Space Administration.
- * All rights reserved.
- *
- * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
- * Version 2.0 (the "License"); you may not use this file except
- * in compliance with the License. You may obtain a copy of the License at
- * 
- *        http://www.apache.org/licenses/LICENSE-2.0. 
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and 
- * limitations under the License.
- */
-
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
 //
 //Copyright (C) 2005 United States Government as represented by the
 //Administrator of the National Aeronautics and Space Administration
@@ -44,6 +44,7 @@ public class BinaryLinearIntegerExpression extends LinearIntegerExpression
 	IntegerExpression left;
 	Operator   op;
 	IntegerExpression right;
+	private int hash = 0; // 0: not computed yet, the operands never change
 
 	public BinaryLinearIntegerExpression (IntegerExpression l, Operator o, IntegerExpression r)
 	{
@@ -103,18 +104,20 @@ public class BinaryLinearIntegerExpression extends LinearIntegerExpression
 
 	@Override
 	public int hashCode() {
-		return 23232 ^ (left.hashCode() << 2) ^ (op.hashCode() << 4) ^ (right.hashCode() << 7);
+		if (hash == 0)
+			hash = 23232 ^ (left.hashCode() << 2) ^ (op.hashCode() << 4) ^ (right.hashCode() << 7);
+		return hash;
 	}
 	
 	public String toString ()
 	{
 		return "(" + left.toString() + op.toString() + right.toString() + ")";
 	}
-
-	public String prefix_notation ()
-	{
-		return "(" + op.prefix_notation() + " "+left.prefix_notation()  + " "+right.prefix_notation() + ")";
-	}
+
+	public String prefix_notation ()
+	{
+		return "(" + op.prefix_notation() + " "+left.prefix_notation()  + " "+right.prefix_notation() + ")";
+	}
 	
 	public String stringPC ()
 	{
@@ -135,10 +138,14 @@ public class BinaryLinearIntegerExpression extends LinearIntegerExpression
 
 	@Override
 	public boolean equals(Object o) {
+	    if (o == this)
+	        return true;
+	    // operands from the pool are compared by reference, see ExpressionPool
 	    return ((o instanceof BinaryLinearIntegerExpression) &&
-	            ((BinaryLinearIntegerExpression) o).left.equals(this.left) &&
+	            o.hashCode() == hashCode() &&
 	            ((BinaryLinearIntegerExpression) o).op.equals(this.op) &&
-	            ((BinaryLinearIntegerExpression) o).right.equals(this.right));
+	            ExpressionPool.equalOperands(((BinaryLinearIntegerExpression) o).left, this.left) &&
+	            ExpressionPool.equalOperands(((BinaryLinearIntegerExpression) o).right, this.right));
 	}
 
 	//protected void finalize() throws Throwable {
@@ -1,21 +1,21 @@
-/*
- * Copyright (C) 2014, United States Government, as represented by the
- * Administrator of the National Aeronautics and Space Administration.
- * All rights reserved.
- *
- * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
- * Version 2.0 (the "License"); you may not use this file except
- * in compliance with the License. You may obtain a copy of the License at
- * 
- *        http://www.apache.org/licenses/LICENSE-2.0. 
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and 
- * limitations under the License.
- */
-
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
 //
 //Copyright (C) 2005 United States Government as represented by the
 //Administrator of the National Aeronautics and Space Administration
@@ -44,6 +44,7 @@ public class BinaryRealExpression extends RealExpression
 	RealExpression left;
 	Operator   op;
 	RealExpression right;
+	private int hash = 0; // 0: not computed yet
 
 	public BinaryRealExpression (RealExpression l, Operator o, RealExpression r) 
 	{
@@ -79,11 +80,11 @@ public class BinaryRealExpression extends RealExpression
 	{
 		return "(" + left.toString() + op.toString() + right.toString() + ")";
 	}
-
-	public String prefix_notation ()
-	{
-		return "(" + op.prefix_notation() + " "+left.prefix_notation()+" "  + right.prefix_notation() + ")";
-	}
+
+	public String prefix_notation ()
+	{
+		return "(" + op.prefix_notation() + " "+left.prefix_notation()+" "  + right.prefix_notation() + ")";
+	}
 	
 	public Operator getOp() {
 		return op;
@@ -122,4 +123,22 @@ public class BinaryRealExpression extends RealExpression
 			return getClass().getCanonicalName().compareTo(expr.getClass().getCanonicalName());
 		}
 	}
+
+	@Override
+	public int hashCode() {
+		if (hash == 0)
+			hash = 45454 ^ (left.hashCode() << 2) ^ (op.hashCode() << 4) ^ (right.hashCode() << 7);
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this)
+			return true;
+		if (!(o instanceof BinaryRealExpression) || o.hashCode() != hashCode())
+			return false;
+		final BinaryRealExpression e = (BinaryRealExpression) o;
+		return op == e.op && ExpressionPool.equalOperands(left, e.left)
+				&& ExpressionPool.equalOperands(right, e.right);
+	}
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.solvers.BranchingSolver;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3BitVector;
+import gov.nasa.jpf.symbc.numeric.solvers.UnsatCoreSolver;
+
+/**
+ * The parent PC of a symbolic branch point, asserted once into a decision
+ * procedure with scopes (symbolic.multi_branch=true).
+ *
+ * The PCs of the branches share all their conjuncts but the header with
+ * the parent, so checking them one by one parses and asserts the parent
+ * once per branch. The session parses it once, and checks the header of
+ * each branch in a scope of its own that is popped before the next branch
+ * is checked. The values of the last branch checked can be read until the
+ * next one is checked or the session is closed.
+ *
+ * The session solves on a context of its own (see ProblemZ3.forBranches),
+ * since a branch whose PC does not extend the prefix, e.g. because its
+ * condition was already a conjunct, is checked on its own meanwhile.
+ */
+public class BranchSession {
+
+	/* the conjuncts shared by the branches */
+	final Constraint prefix;
+
+	private final ProblemGeneral pb;
+	private final PCParser parser;
+
+	/* the parser's state once the prefix is asserted, restored for each branch */
+	private final HashMap<SymbolicInteger, Object> intVars;
+	private final HashMap<SymbolicReal, Object> realVars;
+	private final int tempVars;
+
+	private boolean pushed = false;
+
+	/* statistics over all sessions (and threads) */
+	public static final AtomicLong sessions = new AtomicLong();
+	public static final AtomicLong branches = new AtomicLong();
+	public static final AtomicLong deduced = new AtomicLong();
+
+	private BranchSession(Constraint prefix, ProblemGeneral pb, PCParser parser) {
+		this.prefix = prefix;
+		this.pb = pb;
+		this.parser = parser;
+		intVars = new HashMap<SymbolicInteger, Object>(parser.symIntegerVar);
+		realVars = new HashMap<SymbolicReal, Object>(parser.symRealVar);
+		tempVars = parser.tempVars;
+	}
+
+	/**
+	 * Asserts the conjuncts from {@code prefix} on into {@code pb}. Returns
+	 * null, and releases pb, if they cannot be asserted.
+	 */
+	static BranchSession open(Constraint prefix, ProblemGeneral pb) {
+		final PathCondition parent = new PathCondition();
+		parent.header = prefix;
+		parent.recomputeCount();
+		final PCParser parser = new PCParser();
+		if (parser.parse(parent, pb) == null) {
+			SymbolicConstraintsGeneral.cleanup(pb);
+			return null;
+		}
+		sessions.incrementAndGet();
+		return new BranchSession(prefix, pb, parser);
+	}
+
+	/**
+	 * Returns whether the decision procedure keeps assertions in scopes.
+	 */
+	static boolean supports(String dp) {
+		return dp.equalsIgnoreCase("z3") || dp.equalsIgnoreCase("z3bitvector");
+	}
+
+	/**
+	 * Creates the problem of a session with the given decision procedure,
+	 * which must be supported.
+	 */
+	static ProblemGeneral createProblem(String dp) {
+		if (dp.equalsIgnoreCase("z3bitvector"))
+			return ProblemZ3BitVector.forBranches();
+		return ProblemZ3.forBranches();
+	}
+
+	/**
+	 * Checks the prefix and {@code branch}, the header of the PC of a branch;
+	 * null if the decision procedure cannot decide it.
+	 */
+	Boolean check(Constraint branch) {
+		reset();
+		((BranchingSolver) pb).push();
+		pushed = true;
+		branches.incrementAndGet();
+		if (SymbolicInstructionFactory.unsatCores != null && pb instanceof UnsatCoreSolver) {
+			((UnsatCoreSolver) pb).track(branch);
+		}
+		if (!parser.addConstraint(branch)) {
+			return Boolean.FALSE;
+		}
+		return pb.solve();
+	}
+
+	/*
+	 * pops the scope of the last branch and forgets its variables
+	 */
+	private void reset() {
+		if (pushed) {
+			((BranchingSolver) pb).pop();
+			pushed = false;
+		}
+		parser.symIntegerVar = new HashMap<SymbolicInteger, Object>(intVars);
+		parser.symRealVar = new HashMap<SymbolicReal, Object>(realVars);
+		parser.tempVars = tempVars;
+	}
+
+	ProblemGeneral getProblem() {
+		return pb;
+	}
+
+	PCParser getParser() {
+		return parser;
+	}
+
+	void close() {
+		SymbolicConstraintsGeneral.cleanup(pb);
+	}
+
+	public static String statistics() {
+		return "multi-branch checks: sessions=" + sessions + " branches checked in a session=" + branches
+				+ " branches deduced=" + deduced;
+	}
+
+}
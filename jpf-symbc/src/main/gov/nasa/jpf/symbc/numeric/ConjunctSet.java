@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+/**
+ * An immutable set of constraints (compared with equals), used by
+ * {@link PathCondition} to find repeated conjuncts without walking its
+ * list.
+ *
+ * The set is a hash array mapped trie: adding a constraint copies only the
+ * path from the root to the new entry, so the copies of a path condition
+ * share the set of their common conjuncts, and both lookups and additions
+ * take a constant number of steps (at most seven levels for 32 bit hash
+ * codes).
+ */
+final class ConjunctSet {
+
+	static final ConjunctSet EMPTY = new ConjunctSet(null, 0, 0);
+
+	private final Node root;
+	private final int size;
+	private final int hash; // of the elements, independent of their order
+
+	private ConjunctSet(Node root, int size, int hash) {
+		this.root = root;
+		this.size = size;
+		this.hash = hash;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/*
+	 * the same for equal sets, whatever the order of the additions
+	 */
+	int hash() {
+		return hash;
+	}
+
+	boolean contains(Constraint c) {
+		return root != null && root.contains(c, c.hashCode(), 0);
+	}
+
+	/**
+	 * Returns the set holding the elements of this set and {@code c}.
+	 */
+	ConjunctSet add(Constraint c) {
+		final int h = c.hashCode();
+		if (root == null)
+			return new ConjunctSet(Node.EMPTY.add(c, h, 0), 1, h);
+		if (root.contains(c, h, 0))
+			return this;
+		return new ConjunctSet(root.add(c, h, 0), size + 1, hash ^ h);
+	}
+
+	/*
+	 * A trie node: the slots hold constraints and sub-tries, indexed by five
+	 * bits of the hash codes at each level; below the last level the slots
+	 * hold the constraints whose hash codes collide.
+	 */
+	private static final class Node {
+		static final Node EMPTY = new Node(0, new Object[0]);
+
+		final int bitmap;
+		final Object[] slots;
+
+		Node(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		boolean contains(Constraint c, int h, int shift) {
+			if (shift >= 32) {
+				for (Object o : slots) {
+					if (c.equals(o))
+						return true;
+				}
+				return false;
+			}
+			final int bit = 1 << ((h >>> shift) & 31);
+			if ((bitmap & bit) == 0)
+				return false;
+			final Object o = slots[Integer.bitCount(bitmap & (bit - 1))];
+			if (o instanceof Node)
+				return ((Node) o).contains(c, h, shift + 5);
+			return c.equals(o);
+		}
+
+		/*
+		 * c is not in this node
+		 */
+		Node add(Constraint c, int h, int shift) {
+			if (shift >= 32) {
+				final Object[] s = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, s, 0, slots.length);
+				s[slots.length] = c;
+				return new Node(0, s);
+			}
+			final int bit = 1 << ((h >>> shift) & 31);
+			final int i = Integer.bitCount(bitmap & (bit - 1));
+			if ((bitmap & bit) == 0) {
+				final Object[] s = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, s, 0, i);
+				s[i] = c;
+				System.arraycopy(slots, i, s, i + 1, slots.length - i);
+				return new Node(bitmap | bit, s);
+			}
+			final Object o = slots[i];
+			final Node child;
+			if (o instanceof Node) {
+				child = ((Node) o).add(c, h, shift + 5);
+			} else {
+				final Constraint e = (Constraint) o;
+				child = EMPTY.add(e, e.hashCode(), shift + 5).add(c, h, shift + 5);
+			}
+			final Object[] s = slots.clone();
+			s[i] = child;
+			return new Node(bitmap, s);
+		}
+	}
+
+}
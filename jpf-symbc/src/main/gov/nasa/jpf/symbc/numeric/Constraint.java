@@ -48,6 +48,8 @@ public abstract class Constraint implements Comparable<Constraint> {
 
   public Constraint and;
 
+  private int hash = 0; // 0: not computed yet, see setComparator
+
   public Constraint(Expression l, Comparator c, Expression r) {
     left = l;
     comp = c;
@@ -78,6 +80,7 @@ public abstract class Constraint implements Comparable<Constraint> {
 
   public void setComparator(Comparator c) {
 	    comp = c;
+	    hash = 0;
 	  }
   /**
    * Returns the negation of this constraint, but without the tail.
@@ -109,7 +112,10 @@ public abstract class Constraint implements Comparable<Constraint> {
   }
 
   public boolean equals(Object o) {
-    if (!(o instanceof Constraint)) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof Constraint) || o.hashCode() != hashCode()) {
       return false;
     }
 
@@ -119,6 +125,9 @@ public abstract class Constraint implements Comparable<Constraint> {
   }
 
   public int hashCode() {
+	  if (hash != 0) {
+		  return hash;
+	  }
 	  int result = Integer.MAX_VALUE;
 	  if (left != null) {
 		  result = result ^ left.hashCode();
@@ -129,6 +138,7 @@ public abstract class Constraint implements Comparable<Constraint> {
 	  if (right != null) {
 		  result = result ^ right.hashCode();
 	  }
+	  hash = result;
 	  return result;
 	  //return left.hashCode() ^ comp.hashCode() ^ right.hashCode();
   }
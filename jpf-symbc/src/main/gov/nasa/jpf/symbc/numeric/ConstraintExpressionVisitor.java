@@ -135,6 +135,9 @@ public abstract class ConstraintExpressionVisitor {
 	public void preVisit(BinaryNonLinearIntegerExpression expr) {
 	}
 
+	public void preVisit(ITEIntegerExpression expr) {
+	}
+
 	public void preVisit(SpecialIntegerExpression expr) {
 	}
 
@@ -198,6 +201,9 @@ public abstract class ConstraintExpressionVisitor {
 	public void postVisit(BinaryNonLinearIntegerExpression expr) {
 	}
 
+	public void postVisit(ITEIntegerExpression expr) {
+	}
+
 	public void postVisit(SpecialIntegerExpression expr) {
 	}
 
@@ -48,5 +48,7 @@ public abstract class Expression implements Comparable<Expression> {
     public abstract void getVarsVals(Map<String,Object> varsVals);
 	public abstract void accept(ConstraintExpressionVisitor visitor);
 	public String prefix_notation() {throw new RuntimeException("error printing");}
+	// the generation of ExpressionPool this node was interned in (0: never)
+	int pool = 0;
 	
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash-consing of the binary expression nodes built by the arithmetic
+ * helpers of {@link IntegerExpression}, {@link LinearIntegerExpression},
+ * {@link IntegerConstant} and {@link RealExpression} ({@code _plus},
+ * {@code _mul}, {@code _minus}, ...).
+ *
+ * Structurally equal nodes built by the helpers are the same object, so
+ * the expression trees of a path condition form a DAG. The equals methods
+ * of the binary nodes compare their (cached) hash codes first; operands
+ * that are both nodes of the pool are then compared by reference instead
+ * of walking their trees (see {@link #equalOperands}). All other operands,
+ * and all nodes when the pool is off, are compared structurally.
+ *
+ * The pool only holds weak references, so nodes that are no longer part of
+ * any path condition are collected as usual. Constraints are not interned:
+ * they are the cells of the path condition lists. The pool is split into
+ * stripes by hash code, each with its own lock, so that threads building
+ * expressions rarely wait for each other. Off by default; enabled with
+ * {@code symbolic.hashcons=true}, since it changes which nodes of a run
+ * are the same object.
+ */
+public final class ExpressionPool {
+
+	public static boolean enabled = false;
+
+	private static final int STRIPES = 64; // a power of two
+
+	private static final Stripe[] stripes = new Stripe[STRIPES];
+	static {
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe();
+	}
+
+	// marks the nodes added to the pool; clear() starts a new generation,
+	// whose nodes are not the same objects as the equal ones of the old one
+	private static volatile int generation = 1;
+
+	private static final AtomicLong created = new AtomicLong();
+	private static final AtomicLong shared = new AtomicLong();
+
+	private static final class Stripe {
+		final WeakHashMap<Expression, WeakReference<Expression>> pool =
+				new WeakHashMap<Expression, WeakReference<Expression>>();
+	}
+
+	private ExpressionPool() { }
+
+	private static Stripe stripe(Expression e) {
+		final int h = e.hashCode();
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	/**
+	 * Returns the node of the pool that is equal to {@code e}, adding
+	 * {@code e} if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Expression> T intern(T e) {
+		if (!enabled)
+			return e;
+		final Stripe s = stripe(e);
+		synchronized (s) {
+			final WeakReference<Expression> ref = s.pool.get(e);
+			if (ref != null) {
+				final Expression canonical = ref.get();
+				if (canonical != null) {
+					shared.incrementAndGet();
+					return (T) canonical;
+				}
+			}
+			e.pool = generation;
+			s.pool.put(e, new WeakReference<Expression>(e));
+		}
+		created.incrementAndGet();
+		return e;
+	}
+
+	/**
+	 * Whether the operands {@code a} and {@code b} of two expression nodes
+	 * are equal. Two nodes of the current pool are equal iff they are the
+	 * same object.
+	 */
+	static boolean equalOperands(Expression a, Expression b) {
+		if (a == b)
+			return true;
+		final int g = generation;
+		if (a.pool == g && b.pool == g)
+			return false;
+		return a.equals(b);
+	}
+
+	public static void clear() {
+		generation++;
+		for (Stripe s : stripes) {
+			synchronized (s) {
+				s.pool.clear();
+			}
+		}
+		created.set(0);
+		shared.set(0);
+	}
+
+	public static String statistics() {
+		int live = 0;
+		for (Stripe s : stripes) {
+			synchronized (s) {
+				live += s.pool.size();
+			}
+		}
+		return "hash-consing: nodes=" + created + " shared=" + shared + " live=" + live;
+	}
+
+}
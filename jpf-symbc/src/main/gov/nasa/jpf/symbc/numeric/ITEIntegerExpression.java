@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.util.Map;
+
+/**
+ * The if-then-else term {@code (left comparator right) ? then : else},
+ * built when both sides of a branch are merged into one path (see
+ * {@code symbolic.merge}).
+ *
+ * All operands are linear, so the term is piecewise linear and constraints
+ * over it stay linear constraints: solvers without a native if-then-else
+ * get a fresh variable that is equal to one of the branches under the
+ * condition and its negation (see {@link PCParser}).
+ */
+public class ITEIntegerExpression extends LinearIntegerExpression {
+
+	final Comparator comparator;
+	final IntegerExpression left;
+	final IntegerExpression right;
+	final IntegerExpression thenExpr;
+	final IntegerExpression elseExpr;
+	private int hash = 0; // 0: not computed yet, the operands never change
+
+	private ITEIntegerExpression(Comparator c, IntegerExpression l, IntegerExpression r,
+			IntegerExpression t, IntegerExpression e) {
+		comparator = c;
+		left = l;
+		right = r;
+		thenExpr = t;
+		elseExpr = e;
+	}
+
+	/**
+	 * Returns the term {@code (l c r) ? t : e}, simplified if both branches
+	 * are the same, or null if one of the operands is not linear.
+	 */
+	public static IntegerExpression create(Comparator c, IntegerExpression l, IntegerExpression r,
+			IntegerExpression t, IntegerExpression e) {
+		if (!(l instanceof LinearIntegerExpression && r instanceof LinearIntegerExpression
+				&& t instanceof LinearIntegerExpression && e instanceof LinearIntegerExpression))
+			return null;
+		if (t.equals(e))
+			return t;
+		return ExpressionPool.intern(new ITEIntegerExpression(c, l, r, t, e));
+	}
+
+	public Comparator getComparator() {
+		return comparator;
+	}
+
+	public IntegerExpression getLeft() {
+		return left;
+	}
+
+	public IntegerExpression getRight() {
+		return right;
+	}
+
+	public IntegerExpression getThen() {
+		return thenExpr;
+	}
+
+	public IntegerExpression getElse() {
+		return elseExpr;
+	}
+
+	public boolean condition(long l, long r) {
+		switch (comparator) {
+		case EQ: return l == r;
+		case NE: return l != r;
+		case LT: return l < r;
+		case LE: return l <= r;
+		case GT: return l > r;
+		default: return l >= r;
+		}
+	}
+
+	public long solution() {
+		return condition(left.solution(), right.solution()) ? thenExpr.solution() : elseExpr.solution();
+	}
+
+	public void getVarsVals(Map<String, Object> varsVals) {
+		left.getVarsVals(varsVals);
+		right.getVarsVals(varsVals);
+		thenExpr.getVarsVals(varsVals);
+		elseExpr.getVarsVals(varsVals);
+	}
+
+	public String stringPC() {
+		return "(" + left.stringPC() + comparator.toString() + right.stringPC() + " ? "
+				+ thenExpr.stringPC() + " : " + elseExpr.stringPC() + ")";
+	}
+
+	public String toString() {
+		return "(" + left.toString() + comparator.toString() + right.toString() + " ? "
+				+ thenExpr.toString() + " : " + elseExpr.toString() + ")";
+	}
+
+	public String prefix_notation() {
+		return "(ite (" + comparator.toString().trim() + " " + left.prefix_notation() + " "
+				+ right.prefix_notation() + ") " + thenExpr.prefix_notation() + " "
+				+ elseExpr.prefix_notation() + ")";
+	}
+
+	@Override
+	public void accept(ConstraintExpressionVisitor visitor) {
+		visitor.preVisit(this);
+		left.accept(visitor);
+		right.accept(visitor);
+		thenExpr.accept(visitor);
+		elseExpr.accept(visitor);
+		visitor.postVisit(this);
+	}
+
+	@Override
+	public int compareTo(Expression expr) {
+		if (expr instanceof ITEIntegerExpression) {
+			ITEIntegerExpression e = (ITEIntegerExpression) expr;
+			int r = comparator.compareTo(e.comparator);
+			if (r == 0) {
+				r = left.compareTo(e.left);
+			}
+			if (r == 0) {
+				r = right.compareTo(e.right);
+			}
+			if (r == 0) {
+				r = thenExpr.compareTo(e.thenExpr);
+			}
+			if (r == 0) {
+				r = elseExpr.compareTo(e.elseExpr);
+			}
+			return r;
+		} else {
+			return getClass().getCanonicalName().compareTo(expr.getClass().getCanonicalName());
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		if (hash == 0)
+			hash = 52361 ^ (comparator.hashCode() << 3) ^ (left.hashCode() << 5) ^ (right.hashCode() << 9)
+					^ (thenExpr.hashCode() << 13) ^ (elseExpr.hashCode() << 17);
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this)
+			return true;
+		if (!(o instanceof ITEIntegerExpression) || o.hashCode() != hashCode())
+			return false;
+		final ITEIntegerExpression e = (ITEIntegerExpression) o;
+		return comparator == e.comparator && ExpressionPool.equalOperands(left, e.left)
+				&& ExpressionPool.equalOperands(right, e.right)
+				&& ExpressionPool.equalOperands(thenExpr, e.thenExpr)
+				&& ExpressionPool.equalOperands(elseExpr, e.elseExpr);
+	}
+
+}
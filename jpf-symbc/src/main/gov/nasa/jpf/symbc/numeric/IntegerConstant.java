@@ -128,7 +128,7 @@ public class IntegerConstant extends LinearIntegerExpression {
     if (e instanceof IntegerConstant) {
       return new IntegerConstant(value * ((IntegerConstant) e).value);
     } else if (e instanceof LinearIntegerExpression) {
-      return new BinaryLinearIntegerExpression(this, MUL, e);
+      return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, MUL, e));
     } else {
       return super._mul(e);
     }
@@ -180,7 +180,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 			}
 			return new IntegerConstant(value & ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, AND, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, AND, e));
 	}
 
 	public IntegerExpression _or (long i) {
@@ -197,7 +197,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 			}
 			return new IntegerConstant(value | ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, OR, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, OR, e));
 	}
 
 	public IntegerExpression _xor (long i) {
@@ -208,7 +208,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 		if (e instanceof IntegerConstant) {
 			return new IntegerConstant(value ^ ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, XOR, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, XOR, e));
 	}
 
 
@@ -220,7 +220,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 		if (e instanceof IntegerConstant) {
 			return new IntegerConstant(value << ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, SHIFTL, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTL, e));
 	}
 
 	public IntegerExpression _shiftR (long i) {
@@ -231,7 +231,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 		if (e instanceof IntegerConstant) {
 			return new IntegerConstant(value >> ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, SHIFTR, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTR, e));
 	}
 
 	public IntegerExpression _shiftUR (long i) {
@@ -242,7 +242,7 @@ public class IntegerConstant extends LinearIntegerExpression {
 		if (e instanceof IntegerConstant) {
 			return new IntegerConstant(value >>> ((IntegerConstant) e).value);
 		}
-		return new BinaryLinearIntegerExpression(this, SHIFTUR, e);
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTUR, e));
 	}
 
 	@Override
@@ -43,7 +43,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 
    public IntegerExpression _minus_reverse (long i)
    {
-	return new BinaryLinearIntegerExpression(new IntegerConstant(i), MINUS, this);
+	return ExpressionPool.intern(new BinaryLinearIntegerExpression(new IntegerConstant(i), MINUS, this));
    }
 
     public IntegerExpression _minus (long i) {
@@ -51,7 +51,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		if (i == 0)
 			return this;
 
-		return new BinaryLinearIntegerExpression(this, MINUS, new IntegerConstant(i));
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, MINUS, new IntegerConstant(i)));
     }
 
     public IntegerExpression _minus (IntegerExpression e) {
@@ -65,7 +65,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 			return new IntegerConstant(0);
 
 	if (e instanceof LinearIntegerExpression) {
-	    return new BinaryLinearIntegerExpression(this, MINUS, e);
+	    return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, MINUS, e));
 	} else {
 	    return super._minus(e);
 	}
@@ -78,7 +78,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		if (i == 0)
 			return new IntegerConstant(0);
 
-	return new BinaryLinearIntegerExpression(this, MUL, new IntegerConstant(i));
+	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, MUL, new IntegerConstant(i)));
     }
 
     public IntegerExpression _mul (IntegerExpression e)
@@ -93,7 +93,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		}
 
 	if (e instanceof IntegerConstant)
-	    return new BinaryLinearIntegerExpression(this, MUL, e);
+	    return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, MUL, e));
 	else {
 	    return super._mul(e);
 	}
@@ -106,7 +106,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		assert (i != 0);
 		if (i == 1)
 			return this;
-		return new BinaryLinearIntegerExpression(this, DIV, new IntegerConstant(i));
+		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, DIV, new IntegerConstant(i)));
 	}
 
 	public IntegerExpression _div (IntegerExpression e)
@@ -138,7 +138,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		if (i == 0)
 			return this;
 
-	return new BinaryLinearIntegerExpression(this, PLUS, new IntegerConstant(i));
+	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, PLUS, new IntegerConstant(i)));
     }
 
     public IntegerExpression _plus (IntegerExpression e) {
@@ -150,7 +150,7 @@ abstract class LinearIntegerExpression extends IntegerExpression
 		}
 
 	if (e instanceof LinearIntegerExpression) {
-	    return new BinaryLinearIntegerExpression(this, PLUS, e);
+	    return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, PLUS, e));
 	} else {
 	    return super._plus(e);
 	}
@@ -158,14 +158,14 @@ abstract class LinearIntegerExpression extends IntegerExpression
 
     public IntegerExpression _neg()
     {
-	return new BinaryLinearIntegerExpression(new IntegerConstant(0), MINUS, this);
+	return ExpressionPool.intern(new BinaryLinearIntegerExpression(new IntegerConstant(0), MINUS, this));
     }
 
     public IntegerExpression _and(long i) {
     	if(i == 0) {
     		return new IntegerConstant(0);
     	}
-    	return new BinaryLinearIntegerExpression(this, AND, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, AND, new IntegerConstant(i)));
     }
 
     public IntegerExpression _and(IntegerExpression e) {
@@ -174,19 +174,19 @@ abstract class LinearIntegerExpression extends IntegerExpression
     		if(ic.value == 0) {
     			return new IntegerConstant(0);
     		}
-    		return new BinaryLinearIntegerExpression(this, AND, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, AND, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, AND, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, AND, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, AND, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, AND, e));
     }
 
     public IntegerExpression _or(long i) {
     	if(i == 0) {
     		return this;
     	}
-    	return new BinaryLinearIntegerExpression(this, OR, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, OR, new IntegerConstant(i)));
     }
 
     public IntegerExpression _or(IntegerExpression e) {
@@ -195,33 +195,33 @@ abstract class LinearIntegerExpression extends IntegerExpression
     		if(ic.value == 0) {
     			return this;
     		}
-    		return new BinaryLinearIntegerExpression(this, OR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, OR, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, OR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, OR, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, OR, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, OR, e));
     }
 
     public IntegerExpression _xor(long i) {
-    	return new BinaryLinearIntegerExpression(this, XOR, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, XOR, new IntegerConstant(i)));
     }
 
     public IntegerExpression _xor(IntegerExpression e) {
     	if(e instanceof IntegerConstant) {
-    		return new BinaryLinearIntegerExpression(this, XOR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, XOR, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, XOR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, XOR, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, XOR, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, XOR, e));
     }
 
     public IntegerExpression _shiftR(long i) {
     	if(i == 0) {
     		return this;
     	}
-    	return new BinaryLinearIntegerExpression(this, SHIFTR, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTR, new IntegerConstant(i)));
     }
 
     public IntegerExpression _shiftR(IntegerExpression e) {
@@ -230,19 +230,19 @@ abstract class LinearIntegerExpression extends IntegerExpression
     		if(ic.value == 0) {
     			return this;
     		}
-    		return new BinaryLinearIntegerExpression(this, SHIFTR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTR, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, SHIFTR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTR, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, SHIFTR, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, SHIFTR, e));
     }
 
     public IntegerExpression _shiftUR(long i) {
     	if(i == 0) {
     		return this;
     	}
-    	return new BinaryLinearIntegerExpression(this, SHIFTUR, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTUR, new IntegerConstant(i)));
     }
 
     public IntegerExpression _shiftUR(IntegerExpression e) {
@@ -251,19 +251,19 @@ abstract class LinearIntegerExpression extends IntegerExpression
     		if(ic.value == 0) {
     			return this;
     		}
-    		return new BinaryLinearIntegerExpression(this, SHIFTUR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTUR, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, SHIFTUR, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTUR, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, SHIFTUR, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, SHIFTUR, e));
     }
 
     public IntegerExpression _shiftL(long i) {
     	if(i == 0) {
     		return this;
     	}
-    	return new BinaryLinearIntegerExpression(this, SHIFTL, new IntegerConstant(i));
+    	return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTL, new IntegerConstant(i)));
     }
 
     public IntegerExpression _shiftL(IntegerExpression e) {
@@ -272,12 +272,12 @@ abstract class LinearIntegerExpression extends IntegerExpression
     		if(ic.value == 0) {
     			return this;
     		}
-    		return new BinaryLinearIntegerExpression(this, SHIFTL, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTL, e));
     	}
     	if(e instanceof LinearIntegerExpression) {
-    		return new BinaryLinearIntegerExpression(this, SHIFTL, e);
+    		return ExpressionPool.intern(new BinaryLinearIntegerExpression(this, SHIFTL, e));
     	}
-    	return new BinaryNonLinearIntegerExpression(this, SHIFTL, e);
+    	return ExpressionPool.intern(new BinaryNonLinearIntegerExpression(this, SHIFTL, e));
     }
     
     //protected void finalize() throws Throwable {
@@ -39,6 +39,7 @@ package gov.nasa.jpf.symbc.numeric;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import gov.nasa.jpf.Config;
 
 public class MinMax {
@@ -51,11 +52,16 @@ public class MinMax {
 	public static int Debug_no_path_constraints_sat = 0;
 	public static int Debug_no_path_constraints_unsat = 0;
 
-	public static int UniqueId = 0; // Unique id for each SymbolicInteger or
-									// SymbolicReal created
+	// Unique id for each SymbolicInteger or SymbolicReal created; atomic
+	// since PCs may be built and solved on several threads
+	private static final AtomicInteger UniqueId = new AtomicInteger(0);
+
+	public static int nextUniqueId() {
+		return UniqueId.getAndIncrement();
+	}
 
 	public static void reset() {
-		UniqueId = 0;
+		UniqueId.set(0);
 	}
 	
 	/**
@@ -1,21 +1,21 @@
-/*
- * Copyright (C) 2014, United States Government, as represented by the
- * Administrator of the National Aeronautics and Space Administration.
- * All rights reserved.
- *
- * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
- * Version 2.0 (the "License"); you may not use this file except
- * in compliance with the License. You may obtain a copy of the License at
- * 
- *        http://www.apache.org/licenses/LICENSE-2.0. 
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and 
- * limitations under the License.
- */
-
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
 //
 // Copyright (C) 2007 United States Government as represented by the
 // Administrator of the National Aeronautics and Space Administration
@@ -39,6 +39,7 @@ package gov.nasa.jpf.symbc.numeric;
 import java.util.HashMap;
 import java.util.HashSet;
 
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.vm.IntChoiceGenerator;
 import gov.nasa.jpf.vm.choice.IntIntervalGenerator;
 
@@ -49,6 +50,9 @@ public class PCChoiceGenerator extends IntIntervalGenerator {
 
 	//protected PathCondition[] PC;
 	protected HashMap<Integer, PathCondition> PC;
+	// PCs checked before this CG was registered, whose models are handed
+	// to the PCs rebuilt for the choices (symbolic.model_reuse=true)
+	protected HashMap<Integer, PathCondition> checkedPC;
 	boolean isReverseOrder;
 
 	int offset; // to be used in the CFG
@@ -107,9 +111,25 @@ public class PCChoiceGenerator extends IntIntervalGenerator {
 
 	// sets the PC constraints for the current choice
 	public void setCurrentPC(PathCondition pc) {
+		if (checkedPC != null) {
+			PathCondition checked = checkedPC.get(getNextChoice());
+			if (checked != null)
+				pc.adoptChecked(checked);
+		}
 		PC.put(getNextChoice(),pc);
 
 	}
+
+	// remembers the PCs that were checked for the choices 0, 1, ... before
+	// this choice generator was created
+	public void setCheckedPCs(PathCondition... checked) {
+		if (!SymbolicInstructionFactory.modelReuse && SymbolicInstructionFactory.constraintSlicer == null
+				&& !SymbolicInstructionFactory.multiBranch)
+			return;
+		checkedPC = new HashMap<Integer, PathCondition>();
+		for (int choice = 0; choice < checked.length; choice++)
+			checkedPC.put(choice, checked[choice]);
+	}
 	// sets the PC constraints for the specified choice
 	public void setPC(PathCondition pc, int choice) {
 			PC.put(new Integer(choice),pc);
@@ -38,7 +38,6 @@
 package gov.nasa.jpf.symbc.numeric;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
-import gov.nasa.jpf.symbc.numeric.solvers.IncrementalListener;
 import gov.nasa.jpf.symbc.numeric.solvers.IncrementalSolver;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemCoral;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
@@ -51,6 +50,7 @@ import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3BitVector;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3BitVectorIncremental;
 import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3Incremental;
+import gov.nasa.jpf.symbc.numeric.solvers.UnsatCoreSolver;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -63,16 +63,19 @@ import gov.nasa.jpf.symbc.numeric.solvers.ProblemZ3;
 
 
 // parses PCs
+// a parser holds the state of one query (the DP and its variables), so
+// that different threads can parse and solve PCs at the same time
 
 public class PCParser {
-  static ProblemGeneral pb;
-  static public Map<SymbolicReal, Object>	symRealVar; // a map between symbolic real variables and DP variables
-  static Map<SymbolicInteger,Object>	symIntegerVar; // a map between symbolic variables and DP variables
-  //static Boolean result; // tells whether result is satisfiable or not
-  static int tempVars = 0; //Used to construct "or" clauses
+  ProblemGeneral pb;
+  public Map<SymbolicReal, Object>	symRealVar; // a map between symbolic real variables and DP variables
+  public Map<SymbolicInteger,Object>	symIntegerVar; // a map between symbolic variables and DP variables
+  //Boolean result; // tells whether result is satisfiable or not
+  int tempVars = 0; //Used to construct "or" clauses
+  Map<ITEIntegerExpression,Object> iteVars = new HashMap<ITEIntegerExpression,Object>(); // shared if-then-else terms are translated once
 
   //	 Converts IntegerExpression's into DP's IntExp's
-  static Object getExpression(IntegerExpression eRef) {
+  Object getExpression(IntegerExpression eRef) {
     assert eRef != null;
     assert !(eRef instanceof IntegerConstant);
 
@@ -86,6 +89,15 @@ public class PCParser {
       return dp_var;
     }
 
+    if (eRef instanceof ITEIntegerExpression) {
+      Object dp_ite = iteVars.get(eRef);
+      if (dp_ite == null) {
+        dp_ite = getITE((ITEIntegerExpression)eRef);
+        iteVars.put((ITEIntegerExpression)eRef, dp_ite);
+      }
+      return dp_ite;
+    }
+
     Operator    opRef;
     IntegerExpression	e_leftRef;
     IntegerExpression	e_rightRef;
@@ -223,8 +235,145 @@ public class PCParser {
   }
 
 
+  // Z3 has a native if-then-else; for the other solvers the term is a fresh
+  // variable that equals the then-branch if the condition holds and the
+  // else-branch otherwise, posted as two disjunctions
+  Object getITE(ITEIntegerExpression eRef) {
+    if(pb instanceof ProblemZ3 || pb instanceof ProblemZ3BitVector ||  pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental) {
+      return pb.ite(getComparison(eRef.getComparator(), eRef.getLeft(), eRef.getRight()),
+          getOperand(eRef.getThen()), getOperand(eRef.getElse()));
+    }
+    Object tempVar = makeTempVar(eRef);
+    pb.postLogicalOR(new Object[] {
+        getComparison(eRef.getComparator().not(), eRef.getLeft(), eRef.getRight()),
+        getEquality(tempVar, eRef.getThen()) });
+    pb.postLogicalOR(new Object[] {
+        getComparison(eRef.getComparator(), eRef.getLeft(), eRef.getRight()),
+        getEquality(tempVar, eRef.getElse()) });
+    return tempVar;
+  }
+
+  Object getOperand(IntegerExpression eRef) {
+    if (eRef instanceof IntegerConstant)
+      return pb.makeIntConst(((IntegerConstant)eRef).value);
+    return getTempVar(eRef);
+  }
+
+  // a variable equal to eRef, so that the constraints over it can be
+  // combined into disjunctions (see createDPLinearOrIntegerConstraint)
+  Object getTempVar(IntegerExpression eRef) {
+    if (eRef instanceof SymbolicInteger || pb instanceof ProblemZ3 || pb instanceof ProblemZ3BitVector ||  pb instanceof ProblemZ3Incremental || pb instanceof ProblemZ3BitVectorIncremental)
+      return getExpression(eRef);
+    Object tempVar = makeTempVar(eRef);
+    pb.post(pb.eq(tempVar, getExpression(eRef)));
+    return tempVar;
+  }
+
+  // terms are not bounded by the ranges of the symbolic variables, and
+  // finite domain solvers need tight domains for their temporaries
+  Object makeTempVar(IntegerExpression eRef) {
+    long[] bounds = getBounds(eRef);
+    Object tempVar;
+    if (bounds != null && bounds[0] >= Integer.MIN_VALUE && bounds[1] <= Integer.MAX_VALUE)
+      tempVar = pb.makeIntVar("mytemp" + tempVars, bounds[0], bounds[1]);
+    else
+      tempVar = pb.makeIntVar("mytemp" + tempVars, MinMax.getVarMinInt(""), MinMax.getVarMaxInt(""));
+    tempVars++;
+    return tempVar;
+  }
+
+  // interval of the values of a linear term, null if unknown
+  static long[] getBounds(IntegerExpression eRef) {
+    try {
+      if (eRef instanceof IntegerConstant) {
+        long v = ((IntegerConstant)eRef).value;
+        return new long[] {v, v};
+      }
+      if (eRef instanceof SymbolicInteger) {
+        return new long[] {((SymbolicInteger)eRef)._min, ((SymbolicInteger)eRef)._max};
+      }
+      if (eRef instanceof ITEIntegerExpression) {
+        long[] t = getBounds(((ITEIntegerExpression)eRef).getThen());
+        long[] e = getBounds(((ITEIntegerExpression)eRef).getElse());
+        if (t == null || e == null)
+          return null;
+        return new long[] {Math.min(t[0], e[0]), Math.max(t[1], e[1])};
+      }
+      if (eRef instanceof BinaryLinearIntegerExpression) {
+        BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression)eRef;
+        long[] l = getBounds(b.left);
+        long[] r = getBounds(b.right);
+        if (l == null || r == null)
+          return null;
+        switch(b.op) {
+          case PLUS:
+            return new long[] {Math.addExact(l[0], r[0]), Math.addExact(l[1], r[1])};
+          case MINUS:
+            return new long[] {Math.subtractExact(l[0], r[1]), Math.subtractExact(l[1], r[0])};
+          case MUL:
+            long a = Math.multiplyExact(l[0], r[0]);
+            long b1 = Math.multiplyExact(l[0], r[1]);
+            long c = Math.multiplyExact(l[1], r[0]);
+            long d = Math.multiplyExact(l[1], r[1]);
+            return new long[] {Math.min(Math.min(a, b1), Math.min(c, d)), Math.max(Math.max(a, b1), Math.max(c, d))};
+          default:
+            return null;
+        }
+      }
+    } catch (ArithmeticException e) {
+      // overflow
+    }
+    return null;
+  }
+
+  Object getEquality(Object var, IntegerExpression eRef) {
+    if (eRef instanceof IntegerConstant)
+      return pb.eq(var, ((IntegerConstant)eRef).value);
+    return pb.eq(var, getTempVar(eRef));
+  }
+
+  // the condition "l c r" of an if-then-else term
+  Object getComparison(Comparator c, IntegerExpression l, IntegerExpression r) {
+    if (l instanceof IntegerConstant && r instanceof IntegerConstant)
+      throw new RuntimeException("## Error: this is not a symbolic expression"); //
+    if (l instanceof IntegerConstant) {
+      long value = ((IntegerConstant)l).value;
+      Object exp = getTempVar(r);
+      switch(c) {
+        case EQ: return pb.eq(value, exp);
+        case NE: return pb.neq(value, exp);
+        case LT: return pb.lt(value, exp);
+        case LE: return pb.leq(value, exp);
+        case GT: return pb.gt(value, exp);
+        default: return pb.geq(value, exp);
+      }
+    }
+    if (r instanceof IntegerConstant) {
+      long value = ((IntegerConstant)r).value;
+      Object exp = getTempVar(l);
+      switch(c) {
+        case EQ: return pb.eq(exp, value);
+        case NE: return pb.neq(exp, value);
+        case LT: return pb.lt(exp, value);
+        case LE: return pb.leq(exp, value);
+        case GT: return pb.gt(exp, value);
+        default: return pb.geq(exp, value);
+      }
+    }
+    Object exp1 = getTempVar(l);
+    Object exp2 = getTempVar(r);
+    switch(c) {
+      case EQ: return pb.eq(exp1, exp2);
+      case NE: return pb.neq(exp1, exp2);
+      case LT: return pb.lt(exp1, exp2);
+      case LE: return pb.leq(exp1, exp2);
+      case GT: return pb.gt(exp1, exp2);
+      default: return pb.geq(exp1, exp2);
+    }
+  }
+
   // Converts RealExpression's into DP RealExp's
-  static Object getExpression(RealExpression eRef) {
+  Object getExpression(RealExpression eRef) {
     assert eRef != null;
     assert !(eRef instanceof RealConstant);
 
@@ -349,7 +498,7 @@ public class PCParser {
   //}
 
 
-  static public boolean createDPMixedConstraint(MixedConstraint cRef) { // TODO
+  public boolean createDPMixedConstraint(MixedConstraint cRef) { // TODO
 
     Comparator c_compRef = cRef.getComparator();
     RealExpression c_leftRef = (RealExpression)cRef.getLeft();
@@ -385,7 +534,7 @@ public class PCParser {
     return true;
   }
 
-  static public boolean createDPRealConstraint(RealConstraint cRef) {
+  public boolean createDPRealConstraint(RealConstraint cRef) {
 
     Comparator c_compRef = cRef.getComparator();
     RealExpression c_leftRef = (RealExpression)cRef.getLeft();
@@ -493,7 +642,7 @@ public class PCParser {
   }
 
   //Added by Gideon, to handle CNF style constraints??? 
-  static public boolean createDPLinearOrIntegerConstraint (LogicalORLinearIntegerConstraints c) {
+  public boolean createDPLinearOrIntegerConstraint (LogicalORLinearIntegerConstraints c) {
     List<Object> orList = new ArrayList<Object>();
 
     for (LinearIntegerConstraint cRef: c.getList()) {
@@ -683,7 +832,7 @@ public class PCParser {
 
   }
 
-  static public boolean createDPLinearIntegerConstraint(LinearIntegerConstraint cRef) {
+  public boolean createDPLinearIntegerConstraint(LinearIntegerConstraint cRef) {
 
     Comparator c_compRef = cRef.getComparator();
 
@@ -791,7 +940,7 @@ public class PCParser {
     return true;
   }
 
-  static public boolean createDPNonLinearIntegerConstraint(NonLinearIntegerConstraint cRef) {
+  public boolean createDPNonLinearIntegerConstraint(NonLinearIntegerConstraint cRef) {
 
     Comparator c_compRef = cRef.getComparator();
 
@@ -901,7 +1050,7 @@ public class PCParser {
   //static Map<String,Boolean> dpMap = new HashMap<String,Boolean>();
 
   // result is in pb
-  public static ProblemGeneral parse(PathCondition pc, ProblemGeneral pbtosolve) {
+  public ProblemGeneral parse(PathCondition pc, ProblemGeneral pbtosolve) {
     pb=pbtosolve;
 
 
@@ -909,23 +1058,26 @@ public class PCParser {
     symIntegerVar = new HashMap<SymbolicInteger,Object>();
     //result = null;
     tempVars = 0;
+    iteVars = new HashMap<ITEIntegerExpression,Object>();
 
     Constraint cRef = pc.header;
 
     if(pb instanceof IncrementalSolver) {
-      //If we use an incremental solver, then we push the context
-      //*before* adding the constraint header
-      ((IncrementalSolver)pb).push();
-      
-      //Note that for an incremental solver
-      //we only add the constraint header
-      if(addConstraint(cRef) == false) {
+      //For an incremental solver, the session keeps the conjuncts
+      //the PC shares with the previous query on the solver's stack
+      //and only adds the new ones, each in its own scope
+      if(((IncrementalSolver)pb).getSession().assertPC(pc, this) == false) {
         return null;
       }
     } else {
       //For a non-incremental solver,
       //we submit the *entire* pc to the solver
+      //(each conjunct tracked on its own if unsat cores are collected)
+      final boolean track = SymbolicInstructionFactory.unsatCores != null && pb instanceof UnsatCoreSolver;
       while (cRef != null) {
+        if(track) {
+          ((UnsatCoreSolver)pb).track(cRef);
+        }
         if(addConstraint(cRef) == false) {
           return null;
         }
@@ -936,7 +1088,7 @@ public class PCParser {
     return pb;
   }
 
-  private static boolean addConstraint(Constraint cRef) {
+  boolean addConstraint(Constraint cRef) {
     boolean constraintResult = true;
 
     if (cRef instanceof RealConstraint)
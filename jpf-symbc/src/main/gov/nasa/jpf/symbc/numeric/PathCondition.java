@@ -45,6 +45,7 @@ import gov.nasa.jpf.symbc.arrays.RealStoreExpression;
 import gov.nasa.jpf.symbc.arrays.StoreExpression;
 import gov.nasa.jpf.symbc.arrays.SelectExpression;
 import gov.nasa.jpf.symbc.concolic.PCAnalyzer;
+import gov.nasa.jpf.symbc.numeric.solvers.PCModel;
 import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
 import gov.nasa.jpf.symbc.numeric.visitors.CollectVariableVisitor;
 import gov.nasa.jpf.symbc.string.StringPathCondition;
@@ -69,6 +70,20 @@ public class PathCondition implements Comparable<PathCondition> {
     protected int solverCalls = 0;
 
     private Instance instance = null;
+
+    // satisfying assignment of the constraints rooted in modelHeader, shared
+    // by the copies of this PC (symbolic.model_reuse=true); null if unknown
+    PCModel model = null;
+    Constraint modelHeader = null;
+
+    // the header of the last copy of this PC that was proved satisfiable
+    // (null: the empty PC), see extendsProvedPC()
+    Constraint provedHeader = null;
+
+    // the constraints rooted in conjunctsHeader, shared by the copies of
+    // this PC; rebuilt when header was changed behind our back
+    private ConjunctSet conjuncts = ConjunctSet.EMPTY;
+    private Constraint conjunctsHeader = null;
     
     // TODO: to review
     public StringPathCondition spc = new StringPathCondition(this);
@@ -104,6 +119,11 @@ public class PathCondition implements Comparable<PathCondition> {
 	    pc_new.spc = this.spc.make_copy(pc_new); // TODO: to review
 	    pc_new.solverCalls = this.solverCalls;
         pc_new.arrayExpressions = this.arrayExpressions;
+        pc_new.model = this.model;
+        pc_new.modelHeader = this.modelHeader;
+        pc_new.provedHeader = this.provedHeader;
+        pc_new.conjuncts = this.conjuncts;
+        pc_new.conjunctsHeader = this.conjunctsHeader;
 		return pc_new;
 	}
 
@@ -144,10 +164,7 @@ public class PathCondition implements Comparable<PathCondition> {
 		//throw new RuntimeException ("Not being used right now");
 		if (!this.hasConstraint(loic)) {
 			flagSolved = false;
-			Constraint t = (Constraint) loic;
-			t.and = header;
-			header = t;
-			count++;
+			prepend(loic);
 		}
 	}
 
@@ -244,9 +261,7 @@ public class PathCondition implements Comparable<PathCondition> {
     	// since we assume the last constraint added is always the header
         if ((SymbolicInstructionFactory.greenSolver != null)
         		|| !hasConstraint(t)) {
-            t.and = header;
-            header = t;
-            count++;
+            prepend(t);
             // remember that the most recently added constraint is not a string one
     	    spc.setRecentlyAddedConstraintNumeric();
             return true;
@@ -255,6 +270,29 @@ public class PathCondition implements Comparable<PathCondition> {
         }
     }
 
+    private void prepend(Constraint t) {
+        final ConjunctSet set = conjuncts().add(t);
+        t.and = header;
+        header = t;
+        count++;
+        conjuncts = set;
+        conjunctsHeader = t;
+    }
+
+    /*
+     * the set of the constraints of this PC
+     */
+    private ConjunctSet conjuncts() {
+        if (conjunctsHeader != header) {
+            ConjunctSet set = ConjunctSet.EMPTY;
+            for (Constraint c = header; c != null; c = c.and)
+                set = set.add(c);
+            conjuncts = set;
+            conjunctsHeader = header;
+        }
+        return conjuncts;
+    }
+
     public void prependAllConjuncts(Constraint t) {
        t.last().and = header;
        header = t;
@@ -265,6 +303,9 @@ public class PathCondition implements Comparable<PathCondition> {
         Constraint tmp = header.last();
         tmp.and = t;
         count= length(header);
+        model = null; // the new conjuncts are not above modelHeader
+        provedHeader = null; // nor were they proved with it
+        conjunctsHeader = null; // nor in conjuncts
      }
 
      public void appendPathcondition(PathCondition pc) {
@@ -295,17 +336,16 @@ public class PathCondition implements Comparable<PathCondition> {
 	 * Returns whether this path condition contains the constraint.
 	 */
 	public boolean hasConstraint(Constraint c) {
-		Constraint t = header;
-
-		while (t != null) {
-			if (c.equals(t)) {
-				return true;
-			}
-
-			t = t.and;
-		}
+		return conjuncts().contains(c);
+	}
 
-		return false;
+	/**
+	 * Returns whether the conjuncts below the header were proved
+	 * satisfiable, i.e. whether this PC adds one conjunct to a PC that was
+	 * checked (and not only assumed satisfiable).
+	 */
+	public boolean extendsProvedPC() {
+		return header != null && header.and == provedHeader;
 	}
 
 	public Constraint last() {
@@ -342,6 +382,39 @@ public class PathCondition implements Comparable<PathCondition> {
 		return result1;
 	}
 
+	/**
+	 * Solves the PC like solve(), but reads back from the decision procedure
+	 * only the values of {@code vars}, e.g. the variables a listener prints;
+	 * the other variables keep their previous solution. With Green, all the
+	 * values are read.
+	 */
+	public boolean solve(Iterable<? extends Expression> vars) {
+		if (SymbolicInstructionFactory.greenSolver != null)
+			return solveGreen();
+
+		SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+
+		boolean result1 = solver.solve(this, vars);
+		solver.cleanup();
+		PathCondition.flagSolved = true;
+
+		boolean result2 = spc.solve(); // TODO: to review
+		return result1 && result2;
+	}
+
+	/**
+	 * Like solveWithValuation(), but reads back and returns only the values
+	 * of {@code vars}.
+	 */
+	public Map<String, Object> solveWithValuation(Iterable<? extends Expression> vars) {
+		SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+
+		Map<String,Object> result1 = solver.solveWithSolution(this, vars);
+		solver.cleanup();
+		PathCondition.flagSolved = true;
+		return result1;
+	}
+
 	private boolean solveWithSolution() {
 		//
 		// PEND: Why does this if check for instance==null?
@@ -378,7 +451,7 @@ public class PathCondition implements Comparable<PathCondition> {
 			}
 			
 			// Translate both constraints to Instances
-			Instance instance_num = SolverTranslator.createInstance(header);
+			Instance instance_num = SolverTranslator.flatten(SolverTranslator.createInstance(header));
 			Instance instance_str = SolverTranslator.createStringInstance(spc.header);
 			
 			// Merge them into a single Instance, making sure to put the one with the
@@ -442,19 +515,94 @@ public class PathCondition implements Comparable<PathCondition> {
 		if(isReplay){
 			return true;
 		}
+		return simplifyStrings(checkNumeric(null));
+	}
 
-		SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+	/**
+	 * Simplifies the PCs of the branches of one symbolic branch point, in
+	 * order; each holds the PC of the branch point plus the condition of its
+	 * branch. With symbolic.multi_branch=true they are checked with one
+	 * solver, which asserts the PC of the branch point only once if it can
+	 * (see SymbolicConstraintsGeneral.beginBranches). If the conditions are
+	 * {@code exhaustive}, the PC of the branch point was proved satisfiable
+	 * (not only assumed so, see symbolic.unknown=keep) and all the other
+	 * branches were proved unsatisfiable by that solver (in its session, if
+	 * it has one), the last branch is satisfiable without a check.
+	 */
+	public static boolean[] simplifyBranches(boolean exhaustive, PathCondition... branches) {
+		final boolean[] sat = new boolean[branches.length];
+		if (!SymbolicInstructionFactory.multiBranch || SymbolicInstructionFactory.greenSolver != null
+				|| SymbolicInstructionFactory.concolicMode) {
+			for (int i = 0; i < branches.length; i++)
+				sat[i] = branches[i].simplify();
+			return sat;
+		}
+
+		final SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+		final boolean replay = PathCondition.isReplay;
+		solver.beginBranches();
+		try {
+			boolean othersUnsat = exhaustive;
+			for (int i = 0; i < branches.length; i++) {
+				final PathCondition pc = branches[i];
+				if (replay) {
+					sat[i] = true;
+					othersUnsat = false;
+					continue;
+				}
+				final boolean result1;
+				if (othersUnsat && i == branches.length - 1 && pc.extendsProvedPC()) {
+					result1 = true;
+					pc.provedHeader = pc.header;
+					BranchSession.deduced.incrementAndGet();
+				} else {
+					result1 = pc.checkNumeric(solver);
+					othersUnsat = othersUnsat && !result1 && solver.provedUnsatisfiable()
+							&& solver.checkedInSession();
+				}
+				sat[i] = pc.simplifyStrings(result1);
+			}
+		} finally {
+			solver.endBranches();
+		}
+		return sat;
+	}
+
+	/*
+	 * Checks the numeric part of this PC; with the solver of a branch point
+	 * if shared is not null
+	 */
+	private boolean checkNumeric(SymbolicConstraintsGeneral shared) {
 		boolean result1;
 
-		if (SymbolicInstructionFactory.concolicMode) {
-			PCAnalyzer pa = new PCAnalyzer();
-			result1 = pa.isSatisfiable(this,solver);
+		if (SymbolicInstructionFactory.modelReuse && model != null
+				&& model.satisfies(header, modelHeader)) {
+			// the conjuncts added since the last check hold on the parent's model
+			result1 = true;
+			modelHeader = header;
+			provedHeader = header;
+		} else {
+			SymbolicConstraintsGeneral solver = (shared != null) ? shared : new SymbolicConstraintsGeneral();
+
+			if (SymbolicInstructionFactory.concolicMode) {
+				PCAnalyzer pa = new PCAnalyzer();
+				result1 = pa.isSatisfiable(this,solver);
+			}
+			else
+				result1 = solver.isSatisfiable(this);
+			solverCalls++;
+			if (result1 && !solver.assumedSatisfiable())
+				provedHeader = header;
+			if (SymbolicInstructionFactory.modelReuse) {
+				model = result1 ? solver.getModel() : null;
+				modelHeader = header;
+			}
+			solver.cleanup();
 		}
-		else
-			result1 = solver.isSatisfiable(this);
-		solverCalls++;
-		solver.cleanup();
+		return result1;
+	}
 
+	private boolean simplifyStrings(boolean result1) {
 		if (SymbolicInstructionFactory.debugMode) {
 			MinMax.Debug_no_path_constraints ++;
 			if (result1)
@@ -469,6 +617,22 @@ public class PathCondition implements Comparable<PathCondition> {
 		return result1  && result2;
 	}
 
+	/*
+	 * Takes over the model and the proof of satisfiability of checked, a
+	 * PC with the same new conjunct on the same parent that was simplified
+	 * before this PC was rebuilt
+	 */
+	void adoptChecked(PathCondition checked) {
+		if (header == null || checked.header == null || header.and != checked.header.and || !header.equals(checked.header))
+			return;
+		if (checked.model != null && checked.modelHeader == checked.header) {
+			model = checked.model;
+			modelHeader = header;
+		}
+		if (checked.provedHeader == checked.header)
+			provedHeader = header;
+	}
+
 	public String stringPC() {
 		return "constraint # = " + count + ((header == null) ? "" : "\n" + header.stringPC());
 	}
@@ -519,9 +683,23 @@ public class PathCondition implements Comparable<PathCondition> {
 		if (count != p.count) {
 			return false;
 		}
+		if (header == p.header) {
+			return true;
+		}
+		// equal lists hold equal sets of conjuncts; most mismatches differ
+		// in the size or the hash of the sets
+		final ConjunctSet s = conjuncts();
+		final ConjunctSet ps = p.conjuncts();
+		if (s.size() != ps.size() || s.hash() != ps.hash()) {
+			return false;
+		}
 		Constraint c = header;
 		Constraint pc = p.header;
 		while (c != null) {
+			if (c == pc) {
+				// copies share the conjuncts below the ones added to them
+				return true;
+			}
 			if (pc == null) {
 				return false;
 			}
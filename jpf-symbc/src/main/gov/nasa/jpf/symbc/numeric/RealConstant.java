@@ -162,6 +162,11 @@ public class RealConstant extends RealExpression {
     return value == ((RealConstant) o).value;
   }
 
+  @Override
+  public int hashCode() { // consistent with equals: 0.0 == -0.0
+    return (value == 0.0) ? 0 : Double.valueOf(value).hashCode();
+  }
+
   public String toString () {
     return "CONST_" + value + "";
   }
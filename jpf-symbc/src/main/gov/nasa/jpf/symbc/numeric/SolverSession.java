@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.solvers.AssumptionSolver;
+import gov.nasa.jpf.symbc.numeric.solvers.IncrementalSolver;
+
+/**
+ * The assertion stack of an incremental decision procedure (z3inc,
+ * z3bitvectorinc), kept in step with the path conditions it is asked about.
+ *
+ * Every conjunct of the PC being checked lives in its own solver scope, the
+ * oldest conjunct at the bottom. A path condition shares its older
+ * conjuncts with the PC of the {@link PCChoiceGenerator} it was created
+ * from, so when the search advances only the new conjuncts are pushed, and
+ * when it backtracks the scopes of the abandoned branch are popped before
+ * the conjuncts of the next branch are pushed. Conjuncts are compared by
+ * identity, so the stack never holds a conjunct that is not part of the PC
+ * that is being checked, no matter which choice generators were advanced or
+ * backtracked in between. IncrementalListener only pops the scopes of a
+ * branch as soon as it is backtracked instead of at the next query.
+ *
+ * The session also remembers the DP variables declared in each scope, so
+ * that the parser maps every variable of the PC, not only those of the new
+ * conjuncts, and the models of z3inc cover the whole PC.
+ *
+ * With an {@link AssumptionSolver} (symbolic.z3.assumptions=true) popping
+ * a scope retracts nothing: the DP variables stay declared, and a conjunct
+ * the solver has seen before is pushed without being parsed again.
+ */
+public class SolverSession {
+
+	private final IncrementalSolver solver;
+	private final AssumptionSolver assumptions; // null unless it uses assumptions
+	private final ArrayList<Scope> scopes = new ArrayList<Scope>();
+
+	/* the DP variables declared in the scopes on the stack */
+	private final ScopedMap<SymbolicInteger> intVars = new ScopedMap<SymbolicInteger>();
+	private final ScopedMap<SymbolicReal> realVars = new ScopedMap<SymbolicReal>();
+	private int tempVars = 0;
+
+	/* statistics */
+	private long queries = 0;
+	private long pushes = 0;
+	private long pops = 0;
+	private long reused = 0;
+	private long reasserted = 0;
+
+	private static class Scope {
+		final Constraint conjunct;
+		final int tempVars; // PCParser.tempVars before the conjunct was added
+		final List<Object> declared = new ArrayList<Object>();
+
+		Scope(Constraint conjunct, int tempVars) {
+			this.conjunct = conjunct;
+			this.tempVars = tempVars;
+		}
+	}
+
+	/*
+	 * records the variables declared while a conjunct is added
+	 */
+	@SuppressWarnings("serial")
+	private class ScopedMap<K> extends HashMap<K, Object> {
+		@Override
+		public Object put(K key, Object value) {
+			final Object old = super.put(key, value);
+			if (old == null && !scopes.isEmpty())
+				scopes.get(scopes.size() - 1).declared.add(key);
+			return old;
+		}
+	}
+
+	public SolverSession(IncrementalSolver solver) {
+		this.solver = solver;
+		this.assumptions = (solver instanceof AssumptionSolver && ((AssumptionSolver) solver).usesAssumptions())
+				? (AssumptionSolver) solver : null;
+	}
+
+	/**
+	 * Brings the solver's stack in line with {@code pc} and adds its new
+	 * conjuncts with {@code parser}. Returns false if a conjunct is trivially
+	 * unsatisfiable (see PCParser); the solver then holds the satisfiable
+	 * prefix of the PC.
+	 */
+	boolean assertPC(PathCondition pc, PCParser parser) {
+		queries++;
+		final ArrayList<Constraint> conjuncts = conjuncts(pc);
+		final int n = conjuncts.size();
+		final int shared = shared(conjuncts);
+		popTo(shared);
+		reused += shared;
+
+		parser.symIntegerVar = intVars;
+		parser.symRealVar = realVars;
+		parser.tempVars = tempVars;
+		for (int i = n - 1 - shared; i >= 0; i--) {
+			final Constraint c = conjuncts.get(i);
+			pushes++;
+			scopes.add(new Scope(c, parser.tempVars));
+			if (assumptions == null) {
+				solver.push();
+			} else if (assumptions.push(c)) {
+				reasserted++;
+				continue;
+			}
+			boolean added = false;
+			try {
+				added = parser.addConstraint(c);
+			} finally {
+				if (!added) {
+					if (assumptions != null)
+						assumptions.discard(c);
+					popTo(scopes.size() - 1);
+				}
+			}
+			if (!added) {
+				parser.tempVars = tempVars;
+				return false;
+			}
+			tempVars = parser.tempVars;
+		}
+		return true;
+	}
+
+	/**
+	 * Pops the scopes of the conjuncts that are not part of {@code pc}, e.g.
+	 * after the search backtracked to an older choice.
+	 */
+	public void retain(PathCondition pc) {
+		popTo(shared(conjuncts(pc)));
+	}
+
+	/*
+	 * the conjuncts of pc, newest first
+	 */
+	private static ArrayList<Constraint> conjuncts(PathCondition pc) {
+		final ArrayList<Constraint> conjuncts = new ArrayList<Constraint>();
+		for (Constraint c = (pc == null) ? null : pc.header; c != null; c = c.and)
+			conjuncts.add(c);
+		return conjuncts;
+	}
+
+	/*
+	 * the number of scopes (oldest first) that hold the oldest conjuncts
+	 */
+	private int shared(ArrayList<Constraint> conjuncts) {
+		final int n = conjuncts.size();
+		int shared = 0;
+		while (shared < scopes.size() && shared < n
+				&& scopes.get(shared).conjunct == conjuncts.get(n - 1 - shared))
+			shared++;
+		return shared;
+	}
+
+	private void popTo(int depth) {
+		while (scopes.size() > depth) {
+			final Scope s = scopes.remove(scopes.size() - 1);
+			if (assumptions == null) {
+				for (Object var : s.declared) {
+					intVars.remove(var);
+					realVars.remove(var);
+				}
+				// with assumptions the temporaries of the conjunct stay in the solver
+				tempVars = s.tempVars;
+			}
+			solver.pop();
+			pops++;
+		}
+	}
+
+	public int depth() {
+		return scopes.size();
+	}
+
+	public String toString() {
+		return "incremental solving: queries=" + queries + " pushes=" + pushes + " pops=" + pops
+				+ " conjuncts kept on the stack=" + reused
+				+ (assumptions != null ? " assumed again=" + reasserted : "");
+	}
+
+}
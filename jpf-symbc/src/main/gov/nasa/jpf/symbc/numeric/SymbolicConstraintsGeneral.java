@@ -62,9 +62,31 @@ import java.util.Map.Entry;
 
 public class SymbolicConstraintsGeneral {
 	  protected ProblemGeneral pb;
+	  private ProblemPortfolio portfolio; // routes the last query instead of pb
+	  protected PCParser parser; // state of the last query, see getParser()
 	  protected Boolean result; // tells whether result is satisfiable or not
+	  private PCModel model = null; // see getModel()
+	  private boolean branchMode = false; // see beginBranches()
+	  private BranchSession session = null;
+	  private boolean sessionOpened = false;
+	  private boolean unsat = false; // see provedUnsatisfiable()
+	  private boolean assumed = false; // see assumedSatisfiable()
+	  private boolean inSession = false; // see checkedInSession()
 	  
 	public boolean isSatisfiable(final PathCondition pc) {
+		return isSatisfiable(pc, true);
+	}
+
+	/*
+	 * checkOnly: only satisfiability is asked for, so the query may be
+	 * answered from the cache or on the slice of the PC that depends on
+	 * its header; solve() and solveWithSolution() need the full PC
+	 */
+	private boolean isSatisfiable(PathCondition pc, boolean checkOnly) {
+		model = null;
+		unsat = false;
+		assumed = false;
+		inSession = false;
 		if (pc == null || pc.count == 0) {
 			if (SymbolicInstructionFactory.debugMode)
 				System.out.println("## Warning: empty path condition");
@@ -85,58 +107,242 @@ public class SymbolicConstraintsGeneral {
 //		if (SymbolicInstructionFactory.debugMode)
 //			System.out.println("checking: PC "+pc);
 
+		final PathCondition original = pc;
+		final ConstraintSlicer slicer = SymbolicInstructionFactory.constraintSlicer;
+		if (checkOnly && slicer != null && !isIncremental() && !sharesPrefix()) {
+			pc = slicer.slice(pc);
+		}
+
+		final SolverCache cache = SymbolicInstructionFactory.solverCache;
+		CanonicalPC cpc = null;
+		if (checkOnly && cache != null) {
+			cpc = CanonicalPC.create(pc.header);
+			if (cpc != null) {
+				final SolverCache.Entry e = cache.lookup(cpc);
+				if (e != null) {
+					if (SymbolicInstructionFactory.debugMode)
+						System.out.println("numeric PC (cached): " + pc + " -> " + e.sat + "\n");
+					unsat = !e.sat;
+					return e.sat;
+				}
+			}
+		}
+
+		final IntervalChecker intervals = SymbolicInstructionFactory.intervalChecker;
+		if (checkOnly && intervals != null) {
+			final IntervalChecker.Decision d = intervals.check(pc, pc == original ? null : original.model);
+			if (d != null) {
+				if (SymbolicInstructionFactory.debugMode)
+					System.out.println("numeric PC (intervals): " + pc + " -> " + d.sat + "\n");
+				if (cpc != null)
+					cache.putResult(cpc, d.sat);
+				if (SymbolicInstructionFactory.modelReuse)
+					model = d.witness;
+				unsat = !d.sat;
+				return d.sat;
+			}
+		}
+
+		final UnsatCoreStore cores = SymbolicInstructionFactory.unsatCores;
+		if (cores != null && cores.subsumes(pc)) {
+			if (SymbolicInstructionFactory.debugMode)
+				System.out.println("numeric PC (unsat core): " + pc + " -> false\n");
+			if (cpc != null)
+				cache.putResult(cpc, false);
+			result = Boolean.FALSE;
+			unsat = true;
+			return false;
+		}
+
+		result = null;
+		final boolean sat = checkSatisfiable(pc, checkOnly);
+		unsat = (result == Boolean.FALSE);
+		if (cpc != null && result != null) {
+			cache.putResult(cpc, sat);
+		}
+		if (cores != null && result == Boolean.FALSE && pb instanceof UnsatCoreSolver) {
+			cores.add(((UnsatCoreSolver) pb).getUnsatCore());
+		}
+		if (checkOnly && sat && result != null && SymbolicInstructionFactory.modelReuse) {
+			model = extractModel(pc == original ? null : original.model);
+		}
+		return sat;
+	}
+
+	/*
+	 * Reads the values of the variables of the last query back from the
+	 * decision procedure; the slice's values are added to the model of the
+	 * PC the slice was taken from
+	 */
+	private PCModel extractModel(final PCModel base) {
+		final PCModel m = (base == null) ? new PCModel() : new PCModel(base);
+		try {
+			for (Entry<SymbolicInteger,Object> e : parser.symIntegerVar.entrySet())
+				m.put(e.getKey(), values().getIntValue(e.getValue()));
+			for (Entry<SymbolicReal,Object> e : parser.symRealVar.entrySet())
+				m.put(e.getKey(), values().getRealValue(e.getValue()));
+		} catch (final Exception exp) {
+			// the decision procedure does not provide (all) the values
+			return null;
+		}
+		return m;
+	}
+
+	/*
+	 * where the values of the last query are read from
+	 */
+	private ModelSource values() {
+		return (portfolio != null) ? portfolio.getModel() : pb;
+	}
+
+	/**
+	 * Returns whether the last {@link #isSatisfiable(PathCondition)} query
+	 * answered satisfiable without deciding the PC (symbolic.unknown=keep,
+	 * symbolic.dp=no_solver).
+	 */
+	public boolean assumedSatisfiable() {
+		return assumed;
+	}
+
+	/**
+	 * Returns whether the last {@link #isSatisfiable(PathCondition)} query
+	 * found the PC unsatisfiable, rather than giving up on it (too long,
+	 * timed out, undecided).
+	 */
+	public boolean provedUnsatisfiable() {
+		return unsat;
+	}
+
+	/**
+	 * Returns whether the last {@link #isSatisfiable(PathCondition)} query
+	 * was decided by the solver of the branch point (see beginBranches()):
+	 * in its session if the decision procedure has sessions.
+	 */
+	public boolean checkedInSession() {
+		return inSession;
+	}
+
+	/**
+	 * Returns the parser of the last query, which maps the PC's variables
+	 * to the variables of the decision procedure.
+	 */
+	public PCParser getParser() {
+		return parser;
+	}
+
+	/**
+	 * Returns the satisfying assignment found by the last satisfiable
+	 * {@link #isSatisfiable(PathCondition)} query that called the decision
+	 * procedure, or null (symbolic.model_reuse=true only).
+	 */
+	public PCModel getModel() {
+		return model;
+	}
+
+	/*
+	 * incremental solvers keep the conjuncts shared with the previous query
+	 * on their stack and only receive the new ones, see SolverSession
+	 */
+	private static boolean isIncremental() {
 		final String[] dp = SymbolicInstructionFactory.dp;
-		if(dp == null) { // default: use choco
-			pb = new ProblemChoco();
-		} else if(dp[0].equalsIgnoreCase("choco")){
+		return dp != null && (dp[0].equalsIgnoreCase("z3inc") || dp[0].equalsIgnoreCase("z3bitvectorinc"));
+	}
+
+	/**
+	 * Creates the back end for the decision procedure with the given name
+	 * (one of the values of symbolic.dp that solve a PC on their own).
+	 */
+	public static ProblemGeneral createProblem(final String dp) {
+		if(dp.equalsIgnoreCase("choco")){
+			return new ProblemChoco();
+//		} else if(dp.equalsIgnoreCase("choco2")){
+//			return new ProblemChoco2();
+		} else if(dp.equalsIgnoreCase("coral")){
+			return new ProblemCoral();
+		} else if(dp.equalsIgnoreCase("dreal")){
+			// Added for dReal by Nima
+			return ProblemDReal.createInstance(new Config(new String[]{}));
+		} else if(dp.equalsIgnoreCase("iasolver")){
+			return new ProblemIAsolver();
+		} else if(dp.equalsIgnoreCase("cvc3")){
+			return new ProblemCVC3();
+		} else if (dp.equalsIgnoreCase("cvc3bitvec")) {
+			return new ProblemCVC3BitVector();
+		} else if (dp.equalsIgnoreCase("yices")) {
+			return new ProblemYices();
+		} else if(dp.equalsIgnoreCase("z3")){
+			return new ProblemZ3();
+		} else if(dp.equalsIgnoreCase("z3inc")){
+			return new ProblemZ3Incremental();
+		} else if(dp.equalsIgnoreCase("z3bitvectorinc")){
+			return new ProblemZ3BitVectorIncremental();
+		} else if (dp.equalsIgnoreCase("z3bitvector")){
+			return new ProblemZ3BitVector();
+		}
+		throw new RuntimeException("## Error: unknown decision procedure symbolic.dp="+dp+
+				"\n(use choco or IAsolver or CVC3)");
+	}
+
+	private boolean checkSatisfiable(final PathCondition pc, final boolean checkOnly) {
+		final String[] dp = SymbolicInstructionFactory.dp;
+		final BranchSession branches = checkOnly ? session(pc) : null;
+		portfolio = null;
+		if (branches != null) {
+			pb = branches.getProblem();
+		} else if(dp == null) { // default: use choco
 			pb = new ProblemChoco();
-//		} else if(dp[0].equalsIgnoreCase("choco2")){
-//			pb = new ProblemChoco2();
-    } else if(dp[0].equalsIgnoreCase("coral")){
-      pb = new ProblemCoral();
-    } else if(dp[0].equalsIgnoreCase("dreal")){
-      // Added for dReal by Nima
-      pb = ProblemDReal.createInstance(new Config(new String[]{}));
-    }
-		else if(dp[0].equalsIgnoreCase("iasolver")){
-			pb = new ProblemIAsolver();
-		} else if(dp[0].equalsIgnoreCase("cvc3")){
-			pb = new ProblemCVC3();
-		} else if (dp[0].equalsIgnoreCase("cvc3bitvec")) {
-			pb = new ProblemCVC3BitVector();
-		} else if (dp[0].equalsIgnoreCase("yices")) {
-	    	pb = new ProblemYices();
-		} else if(dp[0].equalsIgnoreCase("z3")){
-			pb = new ProblemZ3();
-		} else if(dp[0].equalsIgnoreCase("z3inc")){
-	        pb = new ProblemZ3Incremental();
-		}  else if(dp[0].equalsIgnoreCase("z3bitvectorinc")){
-          pb = new ProblemZ3BitVectorIncremental();
-        } else if (dp[0].equalsIgnoreCase("debug")) {
+		} else if (dp[0].equalsIgnoreCase("debug")) {
 			pb = new DebugSolvers(pc);
 		} else if (dp[0].equalsIgnoreCase("compare")){
 			pb = new ProblemCompare(pc, this);
-		} else if (dp[0].equalsIgnoreCase("z3bitvector")){
-			pb = new ProblemZ3BitVector();
+		} else if (dp[0].equalsIgnoreCase("portfolio")){
+			portfolio = new ProblemPortfolio(pc);
+			pb = null;
 		}
-		
-		
-		
 		// added option to have no-solving
 		// as a result symbolic execution will explore an over-approximation of the program paths
 		// equivalent to a CFG analysis
 		else if (dp[0].equalsIgnoreCase("no_solver")) {
+			assumed = true;
 			return true;
 		}
 		else
-			throw new RuntimeException("## Error: unknown decision procedure symbolic.dp="+dp[0]+
-					"\n(use choco or IAsolver or CVC3)");
-		
-		pb = PCParser.parse(pc,pb);
-		if(pb==null)
-			result = Boolean.FALSE;
-		else
-			result = pb.solve();
+			pb = createProblem(dp[0]);
+
+		inSession = branches != null || !sharesPrefix();
+		final long start = System.nanoTime();
+		if (branches != null) {
+			result = branches.check(pc.header);
+			parser = branches.getParser();
+		} else if (portfolio != null) {
+			// the back ends of the portfolio parse the PC themselves
+			result = portfolio.solve();
+			parser = portfolio.getParser();
+		} else {
+			result = parseAndSolve(pc);
+		}
+		final QueryStatistics stats = SymbolicInstructionFactory.queryStatistics;
+		final long time = System.nanoTime() - start;
+		if (stats != null)
+			stats.record(dp == null ? "choco" : dp[0], pc, result, time);
+		final QueryRecorder recorder = SymbolicInstructionFactory.queryRecorder;
+		if (recorder != null)
+			recorder.record(dp == null ? "choco" : dp[0], pc, result, time);
+
+		if (result == null && (pb != null || portfolio != null) && SymbolicInstructionFactory.unknownPolicy.equals("retry")) {
+			// give the PC to the fallback decision procedure
+			final ProblemGeneral undecided = pb;
+			portfolio = null;
+			inSession = false;
+			pb = createProblem(SymbolicInstructionFactory.unknownFallback);
+			result = parseAndSolve(pc);
+			if (branches == null)
+				cleanup(undecided);
+			if (stats != null)
+				stats.retried(result);
+			if (SymbolicInstructionFactory.debugMode)
+				System.out.println("## Warning: retried undecided PC with " + SymbolicInstructionFactory.unknownFallback + " -> " + result);
+		}
 
 		if (SymbolicInstructionFactory.debugMode)
 			System.out.println("numeric PC: " + pc + " -> " + result+"\n");
@@ -149,6 +355,14 @@ public class SymbolicConstraintsGeneral {
 		}
 
 		if(result == null) {
+			if (checkOnly && SymbolicInstructionFactory.unknownPolicy.equals("keep")) {
+				// explore the path; there is no model to report for it
+				System.out.println("## Warning: timed out/ don't know (returned PC satisfiable) "+pc);
+				if (stats != null)
+					stats.kept();
+				assumed = true;
+				return true;
+			}
 			System.out.println("## Warning: timed out/ don't know (returned PC not-satisfiable) "+pc);
 			return false;
 		}
@@ -162,6 +376,62 @@ public class SymbolicConstraintsGeneral {
 
 	}
 
+	/**
+	 * Starts checking the branches of a symbolic branch point with this
+	 * object: the PCs checked until {@link #endBranches()} share all the
+	 * conjuncts but their header. If the decision procedure keeps
+	 * assertions in scopes, the shared conjuncts are asserted only once
+	 * (see BranchSession); otherwise each PC is checked on its own.
+	 */
+	public void beginBranches() {
+		branchMode = true;
+	}
+
+	public void endBranches() {
+		branchMode = false;
+		sessionOpened = false;
+		if (session != null) {
+			session.close();
+			session = null;
+		}
+	}
+
+	/*
+	 * whether the PCs are checked in a session, which does not slice them
+	 */
+	private boolean sharesPrefix() {
+		final String[] dp = SymbolicInstructionFactory.dp;
+		return branchMode && dp != null && BranchSession.supports(dp[0]);
+	}
+
+	/*
+	 * The session pc is checked in, opened for the first branch; null if
+	 * pc does not extend the prefix of the session
+	 */
+	private BranchSession session(final PathCondition pc) {
+		if (!sharesPrefix() || pc.header == null)
+			return null;
+		if (!sessionOpened) {
+			sessionOpened = true;
+			session = BranchSession.open(pc.header.and, BranchSession.createProblem(SymbolicInstructionFactory.dp[0]));
+		}
+		if (session == null || session.prefix != pc.header.and)
+			return null;
+		return session;
+	}
+
+	/*
+	 * Parses pc into pb and solves it; null if the decision procedure
+	 * cannot decide it
+	 */
+	private Boolean parseAndSolve(final PathCondition pc) {
+		parser = new PCParser();
+		pb = parser.parse(pc,pb);
+		if(pb==null)
+			return Boolean.FALSE;
+		return pb.solve();
+	}
+
 	public boolean isSatisfiableGreen(final PathCondition pc) {
 		if (pc == null || pc.count == 0) {
 			if (SymbolicInstructionFactory.debugMode)
@@ -189,6 +459,15 @@ public class SymbolicConstraintsGeneral {
 	
 	
    public void cleanup () {
+	   // the problem of a session is released by endBranches()
+	   if (session == null || pb != session.getProblem())
+		   cleanup(pb);
+   }
+
+   /**
+    * Releases the resources of a back end once its result has been read.
+    */
+   public static void cleanup (final ModelSource pb) {
 	   if(pb instanceof ProblemCVC3) {
 		   ((ProblemCVC3) pb).cleanup();
 	   } else if (pb instanceof ProblemCoral) {
@@ -202,167 +481,117 @@ public class SymbolicConstraintsGeneral {
 
 
 	public boolean solve(final PathCondition pc) {
-		//if (SymbolicInstructionFactory.debugMode)
-			//System.out.println("solving: PC " + pc);
-
-
-		if (pc == null || pc.count == 0) return true;
-
-		final String[] dp = SymbolicInstructionFactory.dp;
-		if (dp[0].equalsIgnoreCase("no_solver"))
-			return true;
-
-		if(isSatisfiable(pc)) {
-
-			// compute solutions for real variables:
-			Set<Entry<SymbolicReal,Object>> sym_realvar_mappings = PCParser.symRealVar.entrySet();
-			Iterator<Entry<SymbolicReal,Object>> i_real = sym_realvar_mappings.iterator();
-			// first set inf / sup values
-//			while(i_real.hasNext()) {
-//				Entry<SymbolicReal,Object> e = i_real.next();
-//				SymbolicReal pcVar = e.getKey();
-//				Object dpVar = e.getValue();
-//				pcVar.solution_inf=pb.getRealValueInf(dpVar);
-//				pcVar.solution_sup=pb.getRealValueSup(dpVar);
-//			}
-
-			try{
-				sym_realvar_mappings = PCParser.symRealVar.entrySet();
-				i_real = sym_realvar_mappings.iterator();
-				while(i_real.hasNext()) {
-					final Entry<SymbolicReal,Object> e = i_real.next();
-					final SymbolicReal pcVar = e.getKey();
-					final Object dpVar = e.getValue();
-					pcVar.solution=pb.getRealValue(dpVar); // may be undefined: throws an exception
-				}
-			} catch (final Exception exp) {
-				this.catchBody(PCParser.symRealVar, pb, pc);
-			} // end catch
+		final LazyModel model = solveLazily(pc);
+		if (model == null)
+			return false;
+		model.resolveAll();
+		model.release();
+		return true;
+	}
 
+	/**
+	 * Like {@link #solve(PathCondition)}, but reads back only the values of
+	 * {@code vars}; the other variables keep their previous solution.
+	 */
+	public boolean solve(final PathCondition pc, final Iterable<? extends Expression> vars) {
+		final LazyModel model = solveLazily(pc);
+		if (model == null)
+			return false;
+		model.resolve(vars);
+		model.release();
+		return true;
+	}
 
-			// compute solutions for integer variables
-			final Set<Entry<SymbolicInteger,Object>> sym_intvar_mappings = PCParser.symIntegerVar.entrySet();
-			final Iterator<Entry<SymbolicInteger,Object>> i_int = sym_intvar_mappings.iterator();
-			//try {
-				while(i_int.hasNext()) {
-					final Entry<SymbolicInteger,Object> e =  i_int.next();
-					e.getKey().solution=pb.getIntValue(e.getValue());
+	public Map<String, Object> solveWithSolution(PathCondition pc) {
+		final LazyModel model = solveLazily(pc);
+		if (model == null)
+			return new HashMap<String, Object>();
+		final Map<String, Object> valuation = model.getValuation();
+		model.release();
+		return valuation;
+	}
 
-				}
-			//}
-				/*
-			catch (Exception exp) {
-				Boolean isSolvable = true;
-				sym_intvar_mappings = symIntegerVar.entrySet();
-				i_int = sym_intvar_mappings.iterator();
-
-				while(i_int.hasNext() && isSolvable) {
-					Entry<SymbolicInteger,Object> e = i_int.next();
-					SymbolicInteger pcVar = e.getKey();
-					Object dpVar = e.getValue();
-					// cast
-					pcVar.solution=(int)(pb.getRealValueInf(dpVar) + pb.getRealValueSup(dpVar)) / 2;
-					//(int)pcVar.solution_inf;
-
-					pb.post(pb.eq(dpVar, pcVar.solution));
-					isSolvable = pb.solve();
-					if (isSolvable == null)
-						isSolvable = Boolean.FALSE;
-				}
-				if(!isSolvable)
-					System.err.println("# Warning: PC "+pc.stringPC()+" is solvable but could not find the solution!");
-			} // end catch
-*/
-			cleanup();
-			return true;
-		}
-		else
-			return false;
-		}
+	/**
+	 * Like {@link #solveWithSolution(PathCondition)}, but reads back and
+	 * returns only the values of {@code vars}.
+	 */
+	public Map<String, Object> solveWithSolution(PathCondition pc, Iterable<? extends Expression> vars) {
+		final LazyModel model = solveLazily(pc);
+		if (model == null)
+			return new HashMap<String, Object>();
+		final Map<String, Object> valuation = model.getValuation(vars);
+		model.release();
+		return valuation;
+	}
 
-    public Map<String, Object> solveWithSolution(PathCondition pc) {
+	/**
+	 * Solves {@code pc} without reading the values of its variables back
+	 * from the decision procedure: they are read when the caller asks the
+	 * returned model for them, see {@link LazyModel}. Returns null if the
+	 * PC is not satisfiable. The caller has to release the model.
+	 *
+	 * With the solver cache on, the values of all the variables are read
+	 * to store the model in the cache.
+	 */
+	public LazyModel solveLazily(final PathCondition pc) {
 		//if (SymbolicInstructionFactory.debugMode)
 			//System.out.println("solving: PC " + pc);
-        Map<String, Object> result = new HashMap<String, Object>();
-
 
-		if (pc == null || pc.count == 0) return result;
+		if (pc == null || pc.count == 0) return LazyModel.empty();
 
-		String[] dp = SymbolicInstructionFactory.dp;
+		final String[] dp = SymbolicInstructionFactory.dp;
 		if (dp[0].equalsIgnoreCase("no_solver"))
-			return result;
-
-		if(isSatisfiable(pc)) {
-
-			// compute solutions for real variables:
-			Set<Entry<SymbolicReal,Object>> sym_realvar_mappings = PCParser.symRealVar.entrySet();
-			Iterator<Entry<SymbolicReal,Object>> i_real = sym_realvar_mappings.iterator();
-			// first set inf / sup values
-//			while(i_real.hasNext()) {
-//				Entry<SymbolicReal,Object> e = i_real.next();
-//				SymbolicReal pcVar = e.getKey();
-//				Object dpVar = e.getValue();
-//				pcVar.solution_inf=pb.getRealValueInf(dpVar);
-//				pcVar.solution_sup=pb.getRealValueSup(dpVar);
-//			}
-
-			try{
-				sym_realvar_mappings = PCParser.symRealVar.entrySet();
-				i_real = sym_realvar_mappings.iterator();
-				while(i_real.hasNext()) {
-					Entry<SymbolicReal,Object> e = i_real.next();
-					SymbolicReal pcVar = e.getKey();
-					Object dpVar = e.getValue();
-                    double e_value = pb.getRealValue(dpVar);
-					pcVar.solution=e_value; // may be undefined: throws an exception
-                    result.put(pcVar.getName(), e_value);
-				}
-			} catch (Exception exp) {
-				this.catchBody(PCParser.symRealVar, pb, pc);
-			} // end catch
+			return LazyModel.empty();
 
+		final CanonicalPC cpc = lookupModel(pc);
+		if (cachedResult != null) {
+			return cachedResult ? LazyModel.solved(cpc.getIntVars(), cpc.getRealVars()) : null;
+		}
+
+		if(isSatisfiable(pc, false)) {
+			final LazyModel model = new LazyModel(values(), parser.symIntegerVar, parser.symRealVar);
+			if (cpc != null) {
+				model.resolve(cpc.getRealVars());
+				model.resolve(cpc.getIntVars());
+				SymbolicInstructionFactory.solverCache.putModel(cpc);
+			}
+			return model;
+		}
+		else {
+			if (cpc != null && result != null)
+				SymbolicInstructionFactory.solverCache.putResult(cpc, false);
+			return null;
+		}
+	}
 
-			// compute solutions for integer variables
-			Set<Entry<SymbolicInteger,Object>> sym_intvar_mappings = PCParser.symIntegerVar.entrySet();
-			Iterator<Entry<SymbolicInteger,Object>> i_int = sym_intvar_mappings.iterator();
-			//try {
-				while(i_int.hasNext()) {
-					Entry<SymbolicInteger,Object> e =  i_int.next();
-                    long e_value = pb.getIntValue(e.getValue());
-					e.getKey().solution=e_value;
-                    result.put(e.getKey().getName(), e_value);
+	/* set by lookupModel when the cache fully answers a solve request */
+	private Boolean cachedResult;
 
-				}
-			//}
-				/*
-			catch (Exception exp) {
-				Boolean isSolvable = true;
-				sym_intvar_mappings = symIntegerVar.entrySet();
-				i_int = sym_intvar_mappings.iterator();
-
-				while(i_int.hasNext() && isSolvable) {
-					Entry<SymbolicInteger,Object> e = i_int.next();
-					SymbolicInteger pcVar = e.getKey();
-					Object dpVar = e.getValue();
-					// cast
-					pcVar.solution=(int)(pb.getRealValueInf(dpVar) + pb.getRealValueSup(dpVar)) / 2;
-					//(int)pcVar.solution_inf;
-
-					pb.post(pb.eq(dpVar, pcVar.solution));
-					isSolvable = pb.solve();
-					if (isSolvable == null)
-						isSolvable = Boolean.FALSE;
-				}
-				if(!isSolvable)
-					System.err.println("# Warning: PC "+pc.stringPC()+" is solvable but could not find the solution!");
-			} // end catch
-*/
-			cleanup();
-			return result;
+	/**
+	 * Consults the solver cache (if enabled) before solving {@code pc} with a
+	 * model. If the cache knows the path condition is unsatisfiable, or has a
+	 * model for it, the model is written into the variables of {@code pc} and
+	 * {@link #cachedResult} is set. Returns the canonical form, so that the
+	 * caller can record the outcome of solving, or {@code null} if the path
+	 * condition cannot be cached.
+	 */
+	private CanonicalPC lookupModel(final PathCondition pc) {
+		cachedResult = null;
+		final SolverCache cache = SymbolicInstructionFactory.solverCache;
+		if (cache == null || pc.count() > SymbolicInstructionFactory.maxPcLength)
+			return null;
+		final CanonicalPC cpc = CanonicalPC.create(pc.header);
+		if (cpc == null)
+			return null;
+		final SolverCache.Entry e = cache.lookup(cpc);
+		if (e != null && !e.sat) {
+			cachedResult = Boolean.FALSE;
+		} else if (e != null && e.hasModel()) {
+			cpc.setSolutions(e.intModel, e.realModel);
+			cachedResult = Boolean.TRUE;
 		}
-		else
-			return result;
-    }
+		return cpc;
+	}
 
 	/**
 	 * The "ProblemCompare" solver calls this to
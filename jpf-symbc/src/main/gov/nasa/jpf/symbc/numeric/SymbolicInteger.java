@@ -56,7 +56,7 @@ public class SymbolicInteger extends LinearIntegerExpression
 
 	public SymbolicInteger () {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		PathCondition.flagSolved=false;
 		name = "INT_" + hashCode();
 		_min = MinMax.getVarMinInt(name);
@@ -67,7 +67,7 @@ public class SymbolicInteger extends LinearIntegerExpression
 
 	public SymbolicInteger (String s) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		//PathCondition.flagSolved=false;
 		name = s;
 		_min = MinMax.getVarMinInt(name);
@@ -79,7 +79,7 @@ public class SymbolicInteger extends LinearIntegerExpression
 
 	public SymbolicInteger (long l, long u) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		_min = l;
 		_max = u;
 		//PathCondition.flagSolved=false;
@@ -90,7 +90,7 @@ public class SymbolicInteger extends LinearIntegerExpression
 
 	public SymbolicInteger (String s, long l, long u) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		_min = l;
 		_max = u;
 		name = s;
@@ -57,7 +57,7 @@ public class SymbolicReal extends RealExpression {
 
 	public SymbolicReal () {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		//PathCondition.flagSolved = false;
 		name = "REAL_" + hashCode();
 		_min = MinMax.getVarMinDouble(name);
@@ -66,7 +66,7 @@ public class SymbolicReal extends RealExpression {
 
 	public SymbolicReal (String s) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		//PathCondition.flagSolved = false;
 		name = s;
 		_min = MinMax.getVarMinDouble(name);
@@ -76,7 +76,7 @@ public class SymbolicReal extends RealExpression {
 
 	public SymbolicReal (double l, double u) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		_min = l;
 		_max = u;
 		//PathCondition.flagSolved = false;
@@ -85,7 +85,7 @@ public class SymbolicReal extends RealExpression {
 
 	public SymbolicReal (String s, double l, double u) {
 		super();
-		unique_id = MinMax.UniqueId++;
+		unique_id = MinMax.nextUniqueId();
 		_min = l;
 		_max = u;
 		name = s;
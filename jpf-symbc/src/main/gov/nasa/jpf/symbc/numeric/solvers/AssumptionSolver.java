@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+
+/**
+ * An incremental decision procedure that does not forget what it learned
+ * when the search backtracks. Each conjunct is asserted once, guarded by a
+ * selector literal, and a query is checked under the assumption that the
+ * literals of the conjuncts on the {@link gov.nasa.jpf.symbc.numeric.SolverSession}
+ * stack hold; popping a scope only stops assuming its literal. A conjunct
+ * that comes back (e.g. the first branch of a branch point, after both
+ * branches were checked) is assumed again instead of being parsed again,
+ * and the DP variables are kept for the whole run.
+ */
+public interface AssumptionSolver extends IncrementalSolver {
+
+	/**
+	 * Whether the solver works with assumptions; if not, it is used with
+	 * push and pop like any {@link IncrementalSolver}.
+	 */
+	public boolean usesAssumptions();
+
+	/**
+	 * Opens the scope of the conjunct {@code c}, as push() does. Returns
+	 * true if {@code c} was asserted before and is assumed again, so it
+	 * must not be parsed.
+	 */
+	public boolean push(Constraint c);
+
+	/**
+	 * {@code c} was not asserted completely (see PCParser): its literal
+	 * must never be assumed again. Called before the scope is popped.
+	 */
+	public void discard(Constraint c);
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+/**
+ * A decision procedure whose assertions can be scoped, so that the parent
+ * PC of a symbolic branch point is asserted once and the condition of each
+ * branch is checked in its own scope on top of it, see
+ * {@link gov.nasa.jpf.symbc.numeric.BranchSession}.
+ */
+public interface BranchingSolver {
+	public void push();
+	public void pop();
+}
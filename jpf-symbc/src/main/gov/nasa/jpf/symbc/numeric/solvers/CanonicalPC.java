@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.ITEIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.MathRealExpression;
+import gov.nasa.jpf.symbc.numeric.MixedConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.RealExpression;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * A canonical, name-independent representation of a numeric path condition.
+ *
+ * Two path conditions that differ only in the names (identities) of their
+ * symbolic variables, in the order of their conjuncts, or in trivially
+ * equivalent constant forms (e.g. {@code 5 < x} vs. {@code x >= 6}) map to
+ * the same {@link #getKey() key}. The variables of the path condition are
+ * numbered in canonical order, so that a model found for one path condition
+ * can be transferred to any other path condition with the same key.
+ *
+ * Only constraints and expressions that are understood by {@code PCParser}'s
+ * numeric back ends are supported; for anything else (arrays, disjunctions,
+ * string-derived expressions, ...) {@link #create(Constraint)} returns
+ * {@code null} and the caller should not cache.
+ */
+public class CanonicalPC {
+
+	private final String key;
+
+	private final List<SymbolicInteger> intVars;
+
+	private final List<SymbolicReal> realVars;
+
+	private CanonicalPC(String key, List<SymbolicInteger> intVars, List<SymbolicReal> realVars) {
+		this.key = key;
+		this.intVars = intVars;
+		this.realVars = realVars;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public List<SymbolicInteger> getIntVars() {
+		return intVars;
+	}
+
+	public List<SymbolicReal> getRealVars() {
+		return realVars;
+	}
+
+	/**
+	 * Reads the current solutions of the variables, in canonical order.
+	 */
+	public long[] getIntSolutions() {
+		long[] values = new long[intVars.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = intVars.get(i).solution;
+		}
+		return values;
+	}
+
+	public double[] getRealSolutions() {
+		double[] values = new double[realVars.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = realVars.get(i).solution;
+		}
+		return values;
+	}
+
+	/**
+	 * Writes a model, given in canonical order, back into the variables of
+	 * this path condition.
+	 */
+	public void setSolutions(long[] intValues, double[] realValues) {
+		assert intValues.length == intVars.size() && realValues.length == realVars.size();
+		for (int i = 0; i < intValues.length; i++) {
+			intVars.get(i).solution = intValues[i];
+		}
+		for (int i = 0; i < realValues.length; i++) {
+			realVars.get(i).solution = realValues[i];
+		}
+	}
+
+	/**
+	 * Builds the canonical form of the conjunction rooted at {@code header}.
+	 *
+	 * The conjuncts are first rendered with anonymous variables and sorted
+	 * on that rendering; variables are then numbered in order of first
+	 * occurrence in the sorted conjunction. Conjuncts with equal anonymous
+	 * renderings may still be ordered differently for equivalent path
+	 * conditions, which only costs a cache miss, never a wrong answer.
+	 *
+	 * @return the canonical form, or {@code null} if the path condition
+	 *         contains constructs that are not supported
+	 */
+	public static CanonicalPC create(Constraint header) {
+		List<Constraint> conjuncts = new ArrayList<Constraint>();
+		List<String> shapes = new ArrayList<String>();
+		for (Constraint c = header; c != null; c = c.and) {
+			Constraint n = normalize(c);
+			if (n == null) {
+				return null;
+			}
+			StringBuilder sb = new StringBuilder();
+			if (!render(n, sb, null)) {
+				return null;
+			}
+			conjuncts.add(n);
+			shapes.add(sb.toString());
+		}
+
+		Integer[] order = new Integer[conjuncts.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final List<String> s = shapes;
+		Arrays.sort(order, new java.util.Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return s.get(a).compareTo(s.get(b));
+			}
+		});
+
+		Numbering numbering = new Numbering();
+		List<String> rendered = new ArrayList<String>();
+		for (Integer i : order) {
+			StringBuilder sb = new StringBuilder();
+			render(conjuncts.get(i), sb, numbering);
+			rendered.add(sb.toString());
+		}
+		// conjunct order among equal shapes is arbitrary; sort again on the
+		// numbered rendering and drop repeated conjuncts
+		Collections.sort(rendered);
+		StringBuilder key = new StringBuilder();
+		String previous = null;
+		for (String r : rendered) {
+			if (!r.equals(previous)) {
+				key.append(r).append(';');
+			}
+			previous = r;
+		}
+		// the bounds of the variables are part of the problem
+		for (SymbolicInteger v : numbering.intVars) {
+			key.append("|i[").append(v._min).append(',').append(v._max).append(']');
+		}
+		for (SymbolicReal v : numbering.realVars) {
+			key.append("|r[").append(v._min).append(',').append(v._max).append(']');
+		}
+		return new CanonicalPC(key.toString(), numbering.intVars, numbering.realVars);
+	}
+
+	/*
+	 * Moves constants to the right hand side and turns strict integer bounds
+	 * into non-strict ones, so that e.g. "5 < x", "x > 5" and "x >= 6" all
+	 * become "x >= 6".
+	 */
+	private static Constraint normalize(Constraint c) {
+		if (c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint) {
+			Expression l = c.getLeft();
+			Expression r = c.getRight();
+			Comparator comp = c.getComparator();
+			if (l instanceof IntegerConstant && !(r instanceof IntegerConstant)) {
+				Expression t = l;
+				l = r;
+				r = t;
+				comp = flip(comp);
+			}
+			if (r instanceof IntegerConstant && !(l instanceof IntegerConstant)) {
+				long v = ((IntegerConstant) r).value;
+				if (comp == Comparator.GT && v != Long.MAX_VALUE) {
+					comp = Comparator.GE;
+					r = new IntegerConstant(v + 1);
+				} else if (comp == Comparator.LT && v != Long.MIN_VALUE) {
+					comp = Comparator.LE;
+					r = new IntegerConstant(v - 1);
+				}
+			}
+			if (l == c.getLeft() && r == c.getRight() && comp == c.getComparator()) {
+				return c;
+			}
+			if (c instanceof LinearIntegerConstraint) {
+				return new LinearIntegerConstraint((IntegerExpression) l, comp, (IntegerExpression) r);
+			}
+			return new NonLinearIntegerConstraint((IntegerExpression) l, comp, (IntegerExpression) r);
+		} else if (c instanceof RealConstraint) {
+			Expression l = c.getLeft();
+			Expression r = c.getRight();
+			if (l instanceof RealConstant && !(r instanceof RealConstant)) {
+				return new RealConstraint((RealExpression) r, flip(c.getComparator()), (RealExpression) l);
+			}
+			return c;
+		} else if (c instanceof MixedConstraint) {
+			return c;
+		}
+		return null;
+	}
+
+	private static Comparator flip(Comparator c) {
+		switch (c) {
+		case LT:
+			return Comparator.GT;
+		case LE:
+			return Comparator.GE;
+		case GT:
+			return Comparator.LT;
+		case GE:
+			return Comparator.LE;
+		default:
+			return c;
+		}
+	}
+
+	private static String kind(Constraint c) {
+		if (c instanceof RealConstraint) {
+			return "R";
+		} else if (c instanceof MixedConstraint) {
+			return "M";
+		} else {
+			return "I";
+		}
+	}
+
+	private static boolean render(Constraint c, StringBuilder sb, Numbering numbering) {
+		sb.append(kind(c)).append('(');
+		if (!render(c.getLeft(), sb, numbering)) {
+			return false;
+		}
+		sb.append(c.getComparator().toString().trim());
+		if (!render(c.getRight(), sb, numbering)) {
+			return false;
+		}
+		sb.append(')');
+		return true;
+	}
+
+	/*
+	 * Renders an expression in prefix form. With a null numbering, variables
+	 * are rendered anonymously (but typed).
+	 */
+	private static boolean render(Expression e, StringBuilder sb, Numbering numbering) {
+		if (e instanceof IntegerConstant) {
+			sb.append(((IntegerConstant) e).value);
+		} else if (e instanceof RealConstant) {
+			double v = ((RealConstant) e).value;
+			sb.append('d').append(v == 0.0 ? 0.0 : v); // -0.0 == 0.0
+		} else if (e instanceof SymbolicInteger) {
+			sb.append("$i");
+			if (numbering != null) {
+				sb.append(numbering.number((SymbolicInteger) e));
+			}
+		} else if (e instanceof SymbolicReal) {
+			sb.append("$r");
+			if (numbering != null) {
+				sb.append(numbering.number((SymbolicReal) e));
+			}
+		} else if (e instanceof BinaryLinearIntegerExpression) {
+			BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			return renderBinary(b.getOp().toString(), b.getLeft(), b.getRight(), sb, numbering);
+		} else if (e instanceof BinaryNonLinearIntegerExpression) {
+			BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			return renderBinary(b.op.toString(), b.left, b.right, sb, numbering);
+		} else if (e instanceof BinaryRealExpression) {
+			BinaryRealExpression b = (BinaryRealExpression) e;
+			return renderBinary(b.getOp().toString(), b.getLeft(), b.getRight(), sb, numbering);
+		} else if (e instanceof ITEIntegerExpression) {
+			ITEIntegerExpression ite = (ITEIntegerExpression) e;
+			sb.append("(ite ");
+			if (!renderBinary(ite.getComparator().toString(), ite.getLeft(), ite.getRight(), sb, numbering)) {
+				return false;
+			}
+			sb.append(' ');
+			if (!render(ite.getThen(), sb, numbering)) {
+				return false;
+			}
+			sb.append(' ');
+			if (!render(ite.getElse(), sb, numbering)) {
+				return false;
+			}
+			sb.append(')');
+		} else if (e instanceof MathRealExpression) {
+			MathRealExpression m = (MathRealExpression) e;
+			sb.append('(').append(m.op.toString().trim());
+			sb.append(' ');
+			if (!render(m.arg1, sb, numbering)) {
+				return false;
+			}
+			if (m.arg2 != null) {
+				sb.append(' ');
+				if (!render(m.arg2, sb, numbering)) {
+					return false;
+				}
+			}
+			sb.append(')');
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean renderBinary(String op, Expression l, Expression r, StringBuilder sb, Numbering numbering) {
+		sb.append('(').append(op.trim()).append(' ');
+		if (!render(l, sb, numbering)) {
+			return false;
+		}
+		sb.append(' ');
+		if (!render(r, sb, numbering)) {
+			return false;
+		}
+		sb.append(')');
+		return true;
+	}
+
+	private static class Numbering {
+		final Map<SymbolicInteger, Integer> ints = new IdentityHashMap<SymbolicInteger, Integer>();
+		final Map<SymbolicReal, Integer> reals = new IdentityHashMap<SymbolicReal, Integer>();
+		final List<SymbolicInteger> intVars = new ArrayList<SymbolicInteger>();
+		final List<SymbolicReal> realVars = new ArrayList<SymbolicReal>();
+
+		int number(SymbolicInteger v) {
+			Integer n = ints.get(v);
+			if (n == null) {
+				n = intVars.size();
+				ints.put(v, n);
+				intVars.add(v);
+			}
+			return n;
+		}
+
+		int number(SymbolicReal v) {
+			Integer n = reals.get(v);
+			if (n == null) {
+				n = realVars.size();
+				reals.put(v, n);
+				realVars.add(v);
+			}
+			return n;
+		}
+	}
+}
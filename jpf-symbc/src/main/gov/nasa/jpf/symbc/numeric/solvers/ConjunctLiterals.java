@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+
+/**
+ * The selector literals of the conjuncts an {@link AssumptionSolver} has
+ * asserted, by conjunct identity.
+ *
+ * The conjuncts are only weakly referenced: once no path condition holds
+ * a conjunct any more it cannot be asked about again, and its literal is
+ * handed out by {@link #expunged()} so that the solver can assert its
+ * negation and let the guarded clauses go.
+ */
+public class ConjunctLiterals<L> {
+
+	private static final class Ref<L> extends WeakReference<Constraint> {
+		final int hash;
+		final L literal;
+
+		Ref(Constraint c, L literal, ReferenceQueue<Constraint> queue) {
+			super(c, queue);
+			this.hash = System.identityHashCode(c);
+			this.literal = literal;
+		}
+	}
+
+	private final HashMap<Integer, ArrayList<Ref<L>>> buckets = new HashMap<Integer, ArrayList<Ref<L>>>();
+	private final ReferenceQueue<Constraint> queue = new ReferenceQueue<Constraint>();
+	private int size = 0;
+
+	/**
+	 * Returns the literal of {@code c}, or null.
+	 */
+	public L get(Constraint c) {
+		final ArrayList<Ref<L>> bucket = buckets.get(System.identityHashCode(c));
+		if (bucket != null) {
+			for (Ref<L> r : bucket) {
+				if (r.get() == c)
+					return r.literal;
+			}
+		}
+		return null;
+	}
+
+	public void put(Constraint c, L literal) {
+		final int hash = System.identityHashCode(c);
+		ArrayList<Ref<L>> bucket = buckets.get(hash);
+		if (bucket == null) {
+			bucket = new ArrayList<Ref<L>>(1);
+			buckets.put(hash, bucket);
+		}
+		bucket.add(new Ref<L>(c, literal, queue));
+		size++;
+	}
+
+	/**
+	 * Forgets the literal of {@code c} and returns it, or null.
+	 */
+	public L remove(Constraint c) {
+		final ArrayList<Ref<L>> bucket = buckets.get(System.identityHashCode(c));
+		if (bucket != null) {
+			for (Ref<L> r : bucket) {
+				if (r.get() == c) {
+					unlink(r);
+					r.clear();
+					return r.literal;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Forgets the literals of the conjuncts that were garbage collected and
+	 * returns them.
+	 */
+	public List<L> expunged() {
+		List<L> result = null;
+		for (Reference<? extends Constraint> ref; (ref = queue.poll()) != null;) {
+			@SuppressWarnings("unchecked")
+			final Ref<L> r = (Ref<L>) ref;
+			if (unlink(r)) {
+				if (result == null)
+					result = new ArrayList<L>();
+				result.add(r.literal);
+			}
+		}
+		return result;
+	}
+
+	private boolean unlink(Ref<L> r) {
+		final ArrayList<Ref<L>> bucket = buckets.get(r.hash);
+		if (bucket == null || !bucket.remove(r))
+			return false;
+		if (bucket.isEmpty())
+			buckets.remove(r.hash);
+		size--;
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import gov.nasa.jpf.symbc.concolic.FunctionExpression;
+import gov.nasa.jpf.symbc.mixednumstrg.SpecialIntegerExpression;
+import gov.nasa.jpf.symbc.mixednumstrg.SpecialRealExpression;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
+import gov.nasa.jpf.symbc.numeric.MixedConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.visitors.CollectVariableVisitor;
+import gov.nasa.jpf.symbc.string.DerivedStringExpression;
+import gov.nasa.jpf.symbc.string.StringConstant;
+import gov.nasa.jpf.symbc.string.StringSymbolic;
+import gov.nasa.jpf.symbc.string.SymbolicStringBuilder;
+
+/**
+ * Independent-constraint slicing for the non-Green solver path.
+ *
+ * If the conjuncts below the header of a path condition were proved
+ * satisfiable, only the conjuncts that (transitively) share a variable with
+ * the header can change the outcome of a satisfiability check. The slicer
+ * computes the connected components of the variables with a union-find and
+ * returns a path condition holding only the header's slice.
+ *
+ * PCs that add more than one conjunct to the last PC proved satisfiable, or
+ * extend a PC that was only assumed satisfiable (symbolic.unknown=keep),
+ * are not sliced (see PathCondition.extendsProvedPC).
+ *
+ * Enabled with {@code symbolic.slicing=true}. Path conditions containing
+ * constraints or expressions the slicer does not understand (arrays,
+ * strings, uninterpreted functions) are handed to the solver unchanged.
+ */
+public class ConstraintSlicer {
+
+	private long queries = 0;
+	private long sliced = 0;
+	private long conjunctsIn = 0;
+	private long conjunctsOut = 0;
+
+	/**
+	 * Returns a path condition holding the header of {@code pc} and all the
+	 * conjuncts that depend on it, or {@code pc} itself if nothing can be
+	 * removed or the path condition cannot be sliced.
+	 */
+	public PathCondition slice(final PathCondition pc) {
+		if (!pc.extendsProvedPC()) {
+			record(pc.count(), pc.count());
+			return pc;
+		}
+		final List<Constraint> conjuncts = new ArrayList<Constraint>();
+		final List<Set<Expression>> vars = new ArrayList<Set<Expression>>();
+		final UnionFind uf = new UnionFind();
+		for (Constraint c = pc.header; c != null; c = c.and) {
+			final Set<Expression> cv = collect(c);
+			if (cv == null) {
+				record(pc.count(), pc.count());
+				return pc;
+			}
+			Expression first = null;
+			for (Expression v : cv) {
+				if (first == null) {
+					first = v;
+					uf.find(v);
+				} else {
+					uf.union(first, v);
+				}
+			}
+			conjuncts.add(c);
+			vars.add(cv);
+		}
+
+		final Set<Expression> headerVars = vars.get(0);
+		final Expression root = headerVars.isEmpty() ? null : uf.find(headerVars.iterator().next());
+
+		// keep the original order of the conjuncts; the header is always kept
+		Constraint first = null;
+		Constraint last = null;
+		int kept = 0;
+		for (int i = 0; i < conjuncts.size(); i++) {
+			final Set<Expression> cv = vars.get(i);
+			if (i > 0 && (root == null || cv.isEmpty() || uf.find(cv.iterator().next()) != root)) {
+				continue;
+			}
+			final Constraint copy = conjuncts.get(i).copy();
+			if (first == null) {
+				first = copy;
+			} else {
+				last.and = copy;
+			}
+			last = copy;
+			kept++;
+		}
+
+		record(conjuncts.size(), kept);
+		if (kept == conjuncts.size()) {
+			return pc;
+		}
+
+		final PathCondition result = new PathCondition();
+		result.header = first;
+		result.arrayExpressions = pc.arrayExpressions;
+		result.recomputeCount();
+		return result;
+	}
+
+	/*
+	 * Returns the numeric variables of c, or null if c cannot be sliced
+	 */
+	private static Set<Expression> collect(final Constraint c) {
+		final VariableCollector collector = new VariableCollector();
+		if (c instanceof LogicalORLinearIntegerConstraints) {
+			for (LinearIntegerConstraint lic : ((LogicalORLinearIntegerConstraints) c).getList()) {
+				lic.accept(collector);
+			}
+		} else if (c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint
+				|| c instanceof RealConstraint || c instanceof MixedConstraint) {
+			c.accept(collector);
+		} else {
+			return null;
+		}
+		return collector.supported ? collector.getVariables() : null;
+	}
+
+	private static class VariableCollector extends CollectVariableVisitor {
+		boolean supported = true;
+
+		@Override
+		public void preVisit(FunctionExpression expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(SpecialIntegerExpression expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(SpecialRealExpression expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(DerivedStringExpression expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(StringConstant expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(StringSymbolic expr) {
+			supported = false;
+		}
+
+		@Override
+		public void preVisit(SymbolicStringBuilder expr) {
+			supported = false;
+		}
+	}
+
+	private static class UnionFind {
+		private final Map<Expression, Expression> parent = new HashMap<Expression, Expression>();
+
+		Expression find(Expression e) {
+			Expression p = parent.get(e);
+			if (p == null) {
+				parent.put(e, e);
+				return e;
+			}
+			if (p != e) {
+				p = find(p);
+				parent.put(e, p);
+			}
+			return p;
+		}
+
+		void union(Expression a, Expression b) {
+			final Expression ra = find(a);
+			final Expression rb = find(b);
+			if (ra != rb) {
+				parent.put(rb, ra);
+			}
+		}
+	}
+
+	// the slicer is shared by all threads that solve PCs
+	private synchronized void record(int in, int out) {
+		queries++;
+		if (out < in)
+			sliced++;
+		conjunctsIn += in;
+		conjunctsOut += out;
+	}
+
+	public synchronized long getQueries() {
+		return queries;
+	}
+
+	public synchronized long getSlicedQueries() {
+		return sliced;
+	}
+
+	public synchronized String toString() {
+		return "constraint slicing: queries=" + queries + " sliced=" + sliced
+				+ " conjuncts=" + conjunctsIn + " sent to solver=" + conjunctsOut
+				+ (conjunctsIn > 0 ? " (" + (100 * conjunctsOut / conjunctsIn) + "%)" : "");
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.logging.Level;
+
+import za.ac.sun.cs.green.Green;
+import za.ac.sun.cs.green.store.BasicStore;
+import za.ac.sun.cs.green.util.Reporter;
+
+/**
+ * A Green store kept in a local file instead of a redis server, so that
+ * Green's results carry over to later runs without any service running:
+ *
+ * <pre>
+ * green.store = gov.nasa.jpf.symbc.numeric.solvers.GreenFileStore
+ * green.store.file = green-store.db
+ * </pre>
+ *
+ * The keys are Green's canonical instances, the values are serialized
+ * with Java serialization like in the redis store. See PersistentStore
+ * for how runs share the file and how it is compacted.
+ */
+public class GreenFileStore extends BasicStore {
+
+	private static final String DEFAULT_FILE = "green-store.db";
+
+	private final PersistentStore store;
+
+	private int retrievalCount = 0;
+	private int hitCount = 0;
+	private int insertionCount = 0;
+
+	public GreenFileStore(Green solver, Properties properties) {
+		super(solver);
+		final File file = new File(properties.getProperty("green.store.file", DEFAULT_FILE));
+		try {
+			store = new PersistentStore(file);
+		} catch (IOException e) {
+			throw new RuntimeException("## Error: cannot open Green store " + file + ": " + e, e);
+		}
+	}
+
+	@Override
+	public synchronized Object get(String key) {
+		retrievalCount++;
+		final byte[] value = store.get(key);
+		if (value == null)
+			return null;
+		try {
+			final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value));
+			try {
+				final Object o = in.readObject();
+				hitCount++;
+				return o;
+			} finally {
+				in.close();
+			}
+		} catch (IOException x) {
+			log.log(Level.SEVERE, "io problem", x);
+		} catch (ClassNotFoundException x) {
+			log.log(Level.SEVERE, "class not found problem", x);
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void put(String key, Serializable value) {
+		insertionCount++;
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			store.put(key, bytes.toByteArray());
+		} catch (IOException x) {
+			log.log(Level.SEVERE, "io problem", x);
+		}
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		try {
+			store.close();
+		} catch (IOException x) {
+			log.log(Level.SEVERE, "io problem", x);
+		}
+	}
+
+	@Override
+	public void report(Reporter reporter) {
+		reporter.report(getClass().getSimpleName(), "retrievalCount = " + retrievalCount);
+		reporter.report(getClass().getSimpleName(), "hitCount = " + hitCount);
+		reporter.report(getClass().getSimpleName(), "insertionCount = " + insertionCount);
+		reporter.report(getClass().getSimpleName(), store.toString());
+	}
+
+}
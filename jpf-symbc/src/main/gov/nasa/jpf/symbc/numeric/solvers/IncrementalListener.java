@@ -24,6 +24,7 @@ import gov.nasa.jpf.PropertyListenerAdapter;
 import gov.nasa.jpf.search.Search;
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
 
 public class IncrementalListener extends PropertyListenerAdapter {
   
@@ -41,10 +42,13 @@ public class IncrementalListener extends PropertyListenerAdapter {
     }
 
   }
+  // the scopes of the abandoned branch are popped right away; without the
+  // listener they are popped at the next query, see SolverSession
   @Override
   public void stateBacktracked(Search search) {
-    if(search.getVM().getSystemState().getChoiceGenerator() instanceof PCChoiceGenerator) {
-      solver.pop();
+    ChoiceGenerator<?> cg = search.getVM().getSystemState().getChoiceGenerator();
+    if(cg instanceof PCChoiceGenerator) {
+      solver.getSession().retain(((PCChoiceGenerator) cg).getCurrentPC());
     }
   }
 }
@@ -17,7 +17,16 @@
  */
 package gov.nasa.jpf.symbc.numeric.solvers;
 
+import gov.nasa.jpf.symbc.numeric.SolverSession;
+
 public interface IncrementalSolver {
   public void push();
   public void pop();
+
+  /**
+   * Returns the session that keeps the solver's stack in line with the
+   * path conditions it is asked about; shared by all instances that use
+   * the same underlying solver.
+   */
+  public SolverSession getSession();
 }
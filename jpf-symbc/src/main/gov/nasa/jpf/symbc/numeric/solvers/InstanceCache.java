@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import za.ac.sun.cs.green.Instance;
+
+/**
+ * Bounded LRU cache of the Green instances SolverTranslator made, by the
+ * conjunct their path condition starts with.
+ *
+ * Path conditions share their tails, so the instance of a child PC has
+ * the instance of its parent (the tail below its header) as its Green
+ * parent, and only the header is translated. The key is the identity
+ * of the first conjunct; an entry also remembers the last conjunct of
+ * the chain, and is dropped once conjuncts were appended to it (see
+ * PathCondition.appendAllConjuncts). At most
+ * {@code symbolic.green.instance_cache.size} instances (default 10000)
+ * are kept; the least recently used ones are dropped first.
+ */
+public class InstanceCache {
+
+	public static final class Entry {
+		public final Instance instance;
+		public final Constraint last;
+
+		Entry(Instance instance, Constraint last) {
+			this.instance = instance;
+			this.last = last;
+		}
+	}
+
+	/* compares conjuncts by identity, the chain behind them may differ */
+	private static final class Key {
+		final Constraint c;
+
+		Key(Constraint c) {
+			this.c = c;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof Key) && ((Key) o).c == c;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(c);
+		}
+	}
+
+	private final int capacity;
+
+	private final LinkedHashMap<Key, Entry> entries;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public InstanceCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("symbolic.green.instance_cache.size must be positive (>0), but was " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if (size() > InstanceCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the entry for the conjuncts from {@code first} on, or
+	 * {@code null}, and updates the hit/miss counters.
+	 */
+	public synchronized Entry lookup(Constraint first) {
+		final Key key = new Key(first);
+		final Entry e = entries.get(key);
+		if (e != null && e.last.and == null) {
+			hits++;
+			return e;
+		}
+		if (e != null)
+			entries.remove(key);
+		misses++;
+		return null;
+	}
+
+	public synchronized void put(Constraint first, Constraint last, Instance instance) {
+		entries.put(new Key(first), new Entry(instance, last));
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized String toString() {
+		long total = hits + misses;
+		return "green instance cache: hits=" + hits + " misses=" + misses
+				+ " hit-rate=" + (total == 0 ? 0 : (100 * hits / total)) + "%"
+				+ " size=" + entries.size() + "/" + capacity + " evictions=" + evictions;
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.RealExpression;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Interval bound propagation, run before the decision procedure
+ * (symbolic.interval_check=true).
+ *
+ * Every integer variable starts with the bounds it is declared with (see
+ * MinMax and symbolic.min_int/max_int), and every real variable with its
+ * declared bounds. The bounds are then narrowed with the linear integer
+ * conjuncts of the path condition and with the real conjuncts that compare
+ * a variable with a constant, until nothing changes (or a fixed number of
+ * rounds). An empty interval, or two conjuncts that bound the same linear
+ * term from opposite sides with no room in between, prove the PC
+ * unsatisfiable. Otherwise a few
+ * assignments taken from the intervals are evaluated on all the conjuncts,
+ * and one that satisfies them all proves the PC satisfiable. In all other
+ * cases the decision procedure is called.
+ *
+ * Integer arithmetic is exact (an overflow makes the checker give up on the
+ * conjunct), so the checker is not used with bit-vector decision
+ * procedures.
+ */
+public class IntervalChecker {
+
+	private static final int MAX_ROUNDS = 16;
+
+	private long queries = 0;
+	private long unsat = 0;
+	private long sat = 0;
+
+	/**
+	 * The outcome of a check that decided the PC.
+	 */
+	public static class Decision {
+		public final boolean sat;
+		public final PCModel witness; // null for unsat
+
+		Decision(boolean sat, PCModel witness) {
+			this.sat = sat;
+			this.witness = witness;
+		}
+	}
+
+	private static final Decision UNSAT = new Decision(false, null);
+
+	/*
+	 * sum(coefficient * variable) + constant <= 0
+	 */
+	private static class Linear {
+		final Map<SymbolicInteger, Long> coefficients = new HashMap<SymbolicInteger, Long>();
+		long constant = 0;
+	}
+
+	/*
+	 * the bounds of a real variable
+	 */
+	private static class RealInterval {
+		double lo, hi;
+		boolean loStrict = false, hiStrict = false;
+
+		RealInterval(double lo, double hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		boolean isEmpty() {
+			return lo > hi || (lo == hi && (loStrict || hiStrict));
+		}
+	}
+
+	/**
+	 * Returns whether {@code pc} is satisfiable, or null if the intervals do
+	 * not tell. A witness is built on top of the values of {@code base}.
+	 */
+	public Decision check(PathCondition pc, PCModel base) {
+		final List<Linear> linear = new ArrayList<Linear>();
+		final Map<SymbolicInteger, long[]> ints = new HashMap<SymbolicInteger, long[]>();
+		final Map<SymbolicReal, RealInterval> reals = new HashMap<SymbolicReal, RealInterval>();
+
+		for (Constraint c = pc.header; c != null; c = c.and) {
+			if (c instanceof LinearIntegerConstraint) {
+				addLinear((LinearIntegerConstraint) c, linear, ints);
+			} else if (c instanceof RealConstraint) {
+				if (!addBound((RealConstraint) c, reals)) {
+					record(UNSAT);
+					return UNSAT;
+				}
+			}
+		}
+
+		if (opposite(linear) || !propagate(linear, ints)) {
+			record(UNSAT);
+			return UNSAT;
+		}
+
+		// lower bounds, upper bounds, midpoints
+		for (int choice = 0; choice < 3; choice++) {
+			final PCModel m = (base == null) ? new PCModel() : new PCModel(base);
+			for (Map.Entry<SymbolicInteger, long[]> e : ints.entrySet())
+				m.put(e.getKey(), pick(e.getValue(), choice));
+			for (Map.Entry<SymbolicReal, RealInterval> e : reals.entrySet())
+				m.put(e.getKey(), pick(e.getValue(), choice));
+			if (m.holds(pc.header)) {
+				final Decision d = new Decision(true, m);
+				record(d);
+				return d;
+			}
+		}
+		record(null);
+		return null;
+	}
+
+	private static void addLinear(LinearIntegerConstraint c, List<Linear> linear, Map<SymbolicInteger, long[]> ints) {
+		final Linear l = new Linear();
+		final Linear r = new Linear();
+		try {
+			if (!linearize(c.getLeft(), 1, l) || !linearize(c.getRight(), 1, r))
+				return;
+			// l - r, as a new Linear in l
+			for (Map.Entry<SymbolicInteger, Long> e : r.coefficients.entrySet())
+				add(l, e.getKey(), Math.negateExact(e.getValue()));
+			l.constant = Math.subtractExact(l.constant, r.constant);
+
+			switch (c.getComparator()) {
+			case LE: linear.add(l); break;
+			case LT: l.constant = Math.addExact(l.constant, 1); linear.add(l); break;
+			case GE: linear.add(negate(l)); break;
+			case GT: { final Linear n = negate(l); n.constant = Math.addExact(n.constant, 1); linear.add(n); break; }
+			case EQ: linear.add(l); linear.add(negate(l)); break;
+			default: // NE only holds on the witness
+			}
+		} catch (ArithmeticException e) {
+			return;
+		}
+		for (SymbolicInteger v : l.coefficients.keySet()) {
+			if (!ints.containsKey(v))
+				ints.put(v, new long[] {v._min, v._max});
+		}
+	}
+
+	/*
+	 * adds factor * e to l; false if e is not linear
+	 */
+	private static boolean linearize(IntegerExpression e, long factor, Linear l) {
+		if (e instanceof IntegerConstant) {
+			l.constant = Math.addExact(l.constant, Math.multiplyExact(factor, ((IntegerConstant) e).value));
+			return true;
+		}
+		if (e instanceof SymbolicInteger) {
+			add(l, (SymbolicInteger) e, factor);
+			return true;
+		}
+		if (e instanceof BinaryLinearIntegerExpression) {
+			final BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			switch (b.getOp()) {
+			case PLUS:
+				return linearize(b.getLeft(), factor, l) && linearize(b.getRight(), factor, l);
+			case MINUS:
+				return linearize(b.getLeft(), factor, l) && linearize(b.getRight(), Math.negateExact(factor), l);
+			case MUL:
+				if (b.getLeft() instanceof IntegerConstant)
+					return linearize(b.getRight(), Math.multiplyExact(factor, ((IntegerConstant) b.getLeft()).value), l);
+				if (b.getRight() instanceof IntegerConstant)
+					return linearize(b.getLeft(), Math.multiplyExact(factor, ((IntegerConstant) b.getRight()).value), l);
+				return false;
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private static void add(Linear l, SymbolicInteger v, long a) {
+		final Long old = l.coefficients.get(v);
+		final long sum = (old == null) ? a : Math.addExact(old, a);
+		if (sum == 0)
+			l.coefficients.remove(v);
+		else
+			l.coefficients.put(v, sum);
+	}
+
+	private static Linear negate(Linear l) {
+		final Linear n = new Linear();
+		for (Map.Entry<SymbolicInteger, Long> e : l.coefficients.entrySet())
+			n.coefficients.put(e.getKey(), Math.negateExact(e.getValue()));
+		n.constant = Math.negateExact(l.constant);
+		return n;
+	}
+
+	/*
+	 * Returns whether two conjuncts bound the same linear term from both
+	 * sides with an empty range, e.g. x < y and x >= y; the intervals alone
+	 * only find that after many rounds, if at all
+	 */
+	private static boolean opposite(List<Linear> linear) {
+		// the largest constant c of the conjuncts term + c <= 0, per term
+		final Map<Map<SymbolicInteger, Long>, Long> strongest = new HashMap<Map<SymbolicInteger, Long>, Long>();
+		for (Linear l : linear) {
+			final Long c = strongest.get(l.coefficients);
+			if (c == null || c < l.constant)
+				strongest.put(l.coefficients, l.constant);
+		}
+		for (Map.Entry<Map<SymbolicInteger, Long>, Long> e : strongest.entrySet()) {
+			final Map<SymbolicInteger, Long> negated = new HashMap<SymbolicInteger, Long>();
+			try {
+				for (Map.Entry<SymbolicInteger, Long> t : e.getKey().entrySet())
+					negated.put(t.getKey(), Math.negateExact(t.getValue()));
+				final Long c = strongest.get(negated);
+				// term <= -e and term >= c
+				if (c != null && Math.addExact(e.getValue(), c) > 0)
+					return true;
+			} catch (ArithmeticException exp) {
+				// cannot be compared exactly
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * narrows the intervals with the conjuncts; false if one becomes empty
+	 */
+	private static boolean propagate(List<Linear> linear, Map<SymbolicInteger, long[]> ints) {
+		boolean changed = true;
+		for (int round = 0; changed && round < MAX_ROUNDS; round++) {
+			changed = false;
+			for (Linear l : linear) {
+				try {
+					// the smallest value the left hand side can take
+					long min = l.constant;
+					for (Map.Entry<SymbolicInteger, Long> e : l.coefficients.entrySet())
+						min = Math.addExact(min, minTerm(e.getValue(), ints.get(e.getKey())));
+					if (min > 0)
+						return false;
+					for (Map.Entry<SymbolicInteger, Long> e : l.coefficients.entrySet()) {
+						final long a = e.getValue();
+						final long[] bounds = ints.get(e.getKey());
+						// a * x <= -(min - minTerm(a, x))
+						final long rest = Math.negateExact(Math.subtractExact(min, minTerm(a, bounds)));
+						if (a > 0) {
+							final long hi = Math.floorDiv(rest, a);
+							if (hi < bounds[1]) {
+								bounds[1] = hi;
+								changed = true;
+							}
+						} else {
+							final long lo = Math.negateExact(Math.floorDiv(rest, Math.negateExact(a)));
+							if (lo > bounds[0]) {
+								bounds[0] = lo;
+								changed = true;
+							}
+						}
+						if (bounds[0] > bounds[1])
+							return false;
+					}
+				} catch (ArithmeticException e) {
+					// bounds too large for exact arithmetic; skip the conjunct
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long minTerm(long a, long[] bounds) {
+		return Math.multiplyExact(a, (a > 0) ? bounds[0] : bounds[1]);
+	}
+
+	/*
+	 * narrows the interval of the variable of a "variable op constant"
+	 * conjunct; false if the interval becomes empty
+	 */
+	private static boolean addBound(RealConstraint c, Map<SymbolicReal, RealInterval> reals) {
+		final RealExpression left = c.getLeft();
+		final RealExpression right = c.getRight();
+		Comparator comp = c.getComparator();
+		SymbolicReal v;
+		double k;
+		if (left instanceof SymbolicReal && right instanceof RealConstant) {
+			v = (SymbolicReal) left;
+			k = ((RealConstant) right).value;
+		} else if (right instanceof SymbolicReal && left instanceof RealConstant) {
+			v = (SymbolicReal) right;
+			k = ((RealConstant) left).value;
+			comp = flip(comp);
+		} else {
+			return true;
+		}
+		if (Double.isNaN(k))
+			return true;
+		RealInterval i = reals.get(v);
+		if (i == null) {
+			i = new RealInterval(v._min, v._max);
+			reals.put(v, i);
+		}
+		switch (comp) {
+		case LT: lowerHi(i, k, true); break;
+		case LE: lowerHi(i, k, false); break;
+		case GT: raiseLo(i, k, true); break;
+		case GE: raiseLo(i, k, false); break;
+		case EQ: lowerHi(i, k, false); raiseLo(i, k, false); break;
+		default:
+		}
+		return !i.isEmpty();
+	}
+
+	private static Comparator flip(Comparator c) {
+		switch (c) {
+		case LT: return Comparator.GT;
+		case LE: return Comparator.GE;
+		case GT: return Comparator.LT;
+		case GE: return Comparator.LE;
+		default: return c;
+		}
+	}
+
+	private static void lowerHi(RealInterval i, double k, boolean strict) {
+		if (k < i.hi || (k == i.hi && strict)) {
+			i.hi = k;
+			i.hiStrict = strict;
+		}
+	}
+
+	private static void raiseLo(RealInterval i, double k, boolean strict) {
+		if (k > i.lo || (k == i.lo && strict)) {
+			i.lo = k;
+			i.loStrict = strict;
+		}
+	}
+
+	private static long pick(long[] bounds, int choice) {
+		switch (choice) {
+		case 0: return bounds[0];
+		case 1: return bounds[1];
+		default: return bounds[0] / 2 + bounds[1] / 2;
+		}
+	}
+
+	private static double pick(RealInterval i, int choice) {
+		final double mid = i.lo / 2 + i.hi / 2;
+		switch (choice) {
+		case 0: return i.loStrict ? mid : i.lo;
+		case 1: return i.hiStrict ? mid : i.hi;
+		default: return mid;
+		}
+	}
+
+	// the checker is shared by all threads that solve PCs
+	private synchronized void record(Decision d) {
+		queries++;
+		if (d == UNSAT)
+			unsat++;
+		else if (d != null)
+			sat++;
+	}
+
+	public synchronized long getDecided() {
+		return sat + unsat;
+	}
+
+	public synchronized String toString() {
+		return "interval check: queries=" + queries + " unsat=" + unsat + " sat=" + sat
+				+ (queries > 0 ? " decided=" + (100 * (sat + unsat) / queries) + "%" : "");
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * The model of a satisfiable path condition, left in the decision procedure
+ * until values are asked for.
+ *
+ * Reading a value back is a round trip into the solver (JNI for Z3 and
+ * CVC3), and a PC may hold hundreds of intermediate variables when the
+ * caller needs only a few of them. A value is read the first time it is
+ * asked for and written into the variable's {@code solution}; variables
+ * that are never asked for keep their previous solution.
+ *
+ * The model holds on to the decision procedure: {@link #release()} must be
+ * called once the values have been read. Values not read by then stay
+ * undefined.
+ */
+public class LazyModel {
+
+	private ModelSource pb;
+	private final Map<SymbolicInteger, Object> intVars;
+	private final Map<SymbolicReal, Object> realVars;
+	private final Set<Expression> resolved = new HashSet<Expression>();
+
+	// the back end only gives ranges for reals, see SymbolicConstraintsGeneral.catchBody
+	private boolean realInf = false;
+
+	/* statistics over all models (and threads) */
+	public static final AtomicLong available = new AtomicLong();
+	public static final AtomicLong extracted = new AtomicLong();
+
+	/**
+	 * A model to be read from {@code pb} through the variable mappings of
+	 * the parser that translated the PC, or a model whose values are
+	 * already in the variables if {@code pb} is null.
+	 */
+	public LazyModel(ModelSource pb, Map<SymbolicInteger, Object> intVars, Map<SymbolicReal, Object> realVars) {
+		this.pb = pb;
+		this.intVars = intVars;
+		this.realVars = realVars;
+		if (pb != null)
+			available.addAndGet(intVars.size() + realVars.size());
+	}
+
+	/**
+	 * A model whose values have already been written into the variables,
+	 * e.g. by the solver cache.
+	 */
+	public static LazyModel solved(Iterable<SymbolicInteger> ints, Iterable<SymbolicReal> reals) {
+		final Map<SymbolicInteger, Object> intVars = new HashMap<SymbolicInteger, Object>();
+		for (SymbolicInteger v : ints)
+			intVars.put(v, null);
+		final Map<SymbolicReal, Object> realVars = new HashMap<SymbolicReal, Object>();
+		for (SymbolicReal v : reals)
+			realVars.put(v, null);
+		return new LazyModel(null, intVars, realVars);
+	}
+
+	public static LazyModel empty() {
+		return new LazyModel(null, Collections.<SymbolicInteger, Object>emptyMap(),
+				Collections.<SymbolicReal, Object>emptyMap());
+	}
+
+	public long valueOf(SymbolicInteger v) {
+		if (pb != null && intVars.containsKey(v) && resolved.add(v)) {
+			v.solution = pb.getIntValue(intVars.get(v));
+			extracted.incrementAndGet();
+		}
+		return v.solution;
+	}
+
+	public double valueOf(SymbolicReal v) {
+		if (pb != null && realVars.containsKey(v) && resolved.add(v)) {
+			final Object dpVar = realVars.get(v);
+			if (!realInf) {
+				try {
+					v.solution = pb.getRealValue(dpVar);
+				} catch (final Exception e) {
+					// may be undefined
+					realInf = true;
+				}
+			}
+			if (realInf)
+				v.solution = pb.getRealValueInf(dpVar);
+			extracted.incrementAndGet();
+		}
+		return v.solution;
+	}
+
+	/**
+	 * Reads the values of the given variables; other expressions are
+	 * ignored. The values are read one after the other from the same model,
+	 * which the Z3 back ends fetch only once per query.
+	 */
+	public void resolve(Iterable<? extends Expression> vars) {
+		for (Expression e : vars) {
+			if (e instanceof SymbolicInteger)
+				valueOf((SymbolicInteger) e);
+			else if (e instanceof SymbolicReal)
+				valueOf((SymbolicReal) e);
+		}
+	}
+
+	/**
+	 * Reads the values of all the variables of the PC, as solve() does.
+	 */
+	public void resolveAll() {
+		resolve(realVars.keySet());
+		resolve(intVars.keySet());
+	}
+
+	/**
+	 * Returns the values of all the variables of the PC, by name.
+	 */
+	public Map<String, Object> getValuation() {
+		resolveAll();
+		final Map<String, Object> valuation = new HashMap<String, Object>();
+		for (SymbolicReal v : realVars.keySet())
+			valuation.put(v.getName(), v.solution);
+		for (SymbolicInteger v : intVars.keySet())
+			valuation.put(v.getName(), v.solution);
+		return valuation;
+	}
+
+	/**
+	 * Returns the values of the given variables of the PC, by name; the
+	 * other variables are not read.
+	 */
+	public Map<String, Object> getValuation(Iterable<? extends Expression> vars) {
+		resolve(vars);
+		final Map<String, Object> valuation = new HashMap<String, Object>();
+		for (Expression e : vars) {
+			if (realVars.containsKey(e))
+				valuation.put(((SymbolicReal) e).getName(), ((SymbolicReal) e).solution);
+			else if (intVars.containsKey(e))
+				valuation.put(((SymbolicInteger) e).getName(), ((SymbolicInteger) e).solution);
+		}
+		return valuation;
+	}
+
+	/**
+	 * Releases the decision procedure; values that have not been read are
+	 * no longer available.
+	 */
+	public void release() {
+		if (pb != null) {
+			SymbolicConstraintsGeneral.cleanup(pb);
+			pb = null;
+		}
+	}
+
+	public static String statistics() {
+		final long avail = available.get();
+		final long read = extracted.get();
+		return "lazy models: values available=" + avail + " read=" + read + " not read=" + (avail - read);
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+/**
+ * The values of the DP variables of a query found satisfiable, see
+ * {@link LazyModel}. The back ends provide the values of their own
+ * variables; {@link ProblemPortfolio} those of the back end that won.
+ */
+public interface ModelSource {
+
+	public long getIntValue(Object dpVar);
+
+	public double getRealValue(Object dpVar);
+
+	/**
+	 * The lower bound of the value, for back ends that only give ranges
+	 * for reals, see SymbolicConstraintsGeneral.catchBody
+	 */
+	public double getRealValueInf(Object dpVar);
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.ITEIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
+import gov.nasa.jpf.symbc.numeric.MixedConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * A satisfying assignment of (some of) the variables of a path condition,
+ * as returned by the decision procedure when the PC was last checked.
+ *
+ * Copies of a path condition share its model, so a branch that adds a
+ * conjunct to an already solved PC can first evaluate the new conjunct on
+ * the parent's model: if it holds, the extended PC is satisfiable and the
+ * solver is not called (symbolic.model_reuse=true).
+ *
+ * The evaluation is deliberately conservative: only +, - and * over
+ * integers (without overflow) and reals, and integer if-then-else terms
+ * are evaluated, and real
+ * (dis)equalities are left to the solver. Anything else reports "unknown"
+ * and the solver decides.
+ */
+public class PCModel {
+
+	private final HashMap<SymbolicInteger, Long> intValues;
+	private final HashMap<SymbolicReal, Double> realValues;
+
+	/* statistics over all models (and threads) */
+	public static final AtomicLong reused = new AtomicLong();
+	public static final AtomicLong failed = new AtomicLong();
+
+	public PCModel() {
+		intValues = new HashMap<SymbolicInteger, Long>();
+		realValues = new HashMap<SymbolicReal, Double>();
+	}
+
+	/*
+	 * Copies the values of parent; used to extend the model of the PC a
+	 * slice was taken from with the values found for the slice
+	 */
+	public PCModel(PCModel parent) {
+		intValues = new HashMap<SymbolicInteger, Long>(parent.intValues);
+		realValues = new HashMap<SymbolicReal, Double>(parent.realValues);
+	}
+
+	public void put(SymbolicInteger var, long value) {
+		intValues.put(var, value);
+	}
+
+	public void put(SymbolicReal var, double value) {
+		realValues.put(var, value);
+	}
+
+	/**
+	 * Returns whether the conjuncts from {@code first} up to (excluding)
+	 * {@code last} all evaluate to true on this model.
+	 */
+	public boolean satisfies(Constraint first, Constraint last) {
+		for (Constraint c = first; c != last; c = c.and) {
+			if (c == null || !satisfies(c)) {
+				failed.incrementAndGet();
+				return false;
+			}
+		}
+		reused.incrementAndGet();
+		return true;
+	}
+
+	/*
+	 * Returns whether all the conjuncts from first on evaluate to true,
+	 * without counting it as reuse (see IntervalChecker)
+	 */
+	boolean holds(Constraint first) {
+		for (Constraint c = first; c != null; c = c.and) {
+			if (!satisfies(c))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean satisfies(Constraint c) {
+		try {
+			if (c instanceof LogicalORLinearIntegerConstraints) {
+				for (LinearIntegerConstraint lic : ((LogicalORLinearIntegerConstraints) c).getList()) {
+					if (satisfies(lic))
+						return true;
+				}
+				return false;
+			}
+			if (c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint) {
+				final long l = intValue(c.getLeft());
+				final long r = intValue(c.getRight());
+				switch (c.getComparator()) {
+				case EQ: return l == r;
+				case NE: return l != r;
+				case LT: return l < r;
+				case LE: return l <= r;
+				case GT: return l > r;
+				case GE: return l >= r;
+				}
+				return false;
+			}
+			if (c instanceof RealConstraint || c instanceof MixedConstraint) {
+				final Comparator comp = c.getComparator();
+				if (comp == Comparator.EQ || comp == Comparator.NE)
+					return false;
+				final double l = realValue(c.getLeft());
+				final double r = realValue(c.getRight());
+				switch (comp) {
+				case LT: return l < r;
+				case LE: return l <= r;
+				case GT: return l > r;
+				case GE: return l >= r;
+				default: return false;
+				}
+			}
+		} catch (Unknown e) {
+			// fall through
+		} catch (ArithmeticException e) {
+			// overflow
+		}
+		return false;
+	}
+
+	private long intValue(Expression e) throws Unknown {
+		if (e instanceof IntegerConstant) {
+			return ((IntegerConstant) e).value;
+		}
+		if (e instanceof SymbolicInteger) {
+			final Long v = intValues.get(e);
+			if (v == null)
+				throw Unknown.INSTANCE;
+			return v;
+		}
+		if (e instanceof BinaryLinearIntegerExpression) {
+			final BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			return intOp(b.getOp(), intValue(b.getLeft()), intValue(b.getRight()));
+		}
+		if (e instanceof BinaryNonLinearIntegerExpression) {
+			final BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			return intOp(b.op, intValue(b.left), intValue(b.right));
+		}
+		if (e instanceof ITEIntegerExpression) {
+			final ITEIntegerExpression ite = (ITEIntegerExpression) e;
+			return ite.condition(intValue(ite.getLeft()), intValue(ite.getRight()))
+					? intValue(ite.getThen()) : intValue(ite.getElse());
+		}
+		throw Unknown.INSTANCE;
+	}
+
+	private static long intOp(Operator op, long l, long r) throws Unknown {
+		switch (op) {
+		case PLUS: return Math.addExact(l, r);
+		case MINUS: return Math.subtractExact(l, r);
+		case MUL: return Math.multiplyExact(l, r);
+		default: throw Unknown.INSTANCE;
+		}
+	}
+
+	private double realValue(Expression e) throws Unknown {
+		if (e instanceof RealConstant) {
+			return ((RealConstant) e).value;
+		}
+		if (e instanceof SymbolicReal) {
+			final Double v = realValues.get(e);
+			if (v == null)
+				throw Unknown.INSTANCE;
+			return v;
+		}
+		if (e instanceof BinaryRealExpression) {
+			final BinaryRealExpression b = (BinaryRealExpression) e;
+			final double l = realValue(b.getLeft());
+			final double r = realValue(b.getRight());
+			switch (b.getOp()) {
+			case PLUS: return l + r;
+			case MINUS: return l - r;
+			case MUL: return l * r;
+			default: throw Unknown.INSTANCE;
+			}
+		}
+		// integer sub-terms of mixed constraints
+		return intValue(e);
+	}
+
+	/*
+	 * the model cannot decide the constraint
+	 */
+	@SuppressWarnings("serial")
+	private static class Unknown extends Exception {
+		static final Unknown INSTANCE = new Unknown();
+
+		private Unknown() {
+			super(null, null, false, false);
+		}
+	}
+
+	public static String statistics() {
+		return "model reuse: solver calls avoided=" + reused + " model evaluations failed=" + failed;
+	}
+
+}
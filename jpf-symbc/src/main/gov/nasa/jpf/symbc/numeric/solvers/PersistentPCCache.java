@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+import gov.nasa.jpf.jvm.ClassFile;
+import gov.nasa.jpf.jvm.ClassFileReaderAdapter;
+import gov.nasa.jpf.jvm.JVMByteCodePrinter;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+/**
+ * Satisfiability results (and models) of path conditions that are kept in
+ * a file, so that a run can reuse what earlier runs of the same code found
+ * (symbolic.cache.file=&lt;file&gt;). It is the second level of the
+ * {@link SolverCache}, and also remembers unsatisfiable string path
+ * conditions.
+ *
+ * Results are stored per method: the key of a result is the method whose
+ * branch asked for it, the digest of that method's bytecode, the solver
+ * configuration and the canonical path condition. The file also records
+ * the digest each method had when it was last seen; when a run finds that
+ * a method's bytecode changed, the results of the old version are no
+ * longer found, and they are dropped from the file when it is closed.
+ *
+ * The digest is taken over the method's code as the class file has it,
+ * with the constants it uses spelled out instead of their constant pool
+ * indices, so that editing another method of the class does not
+ * invalidate it. Results asked for outside of a method, or from one whose
+ * class file cannot be read (from a file or jar), are not persisted.
+ */
+public class PersistentPCCache {
+
+	private static final String METHOD = "m|";
+	private static final String RESULT = "p|";
+
+	private final PersistentStore store;
+	private final String config;
+
+	/* the digests of the methods seen by this run (method -> digest) */
+	private final HashMap<String, String> methods = new HashMap<String, String>();
+
+	/* the digests of the methods of the classes seen so far */
+	private final HashMap<ClassInfo, HashMap<String, String>> classes = new HashMap<ClassInfo, HashMap<String, String>>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long stores = 0;
+	private long invalidated = 0;
+
+	/**
+	 * Opens (or creates) the cache in {@code file}; {@code config} describes
+	 * the solver configuration the results are valid for.
+	 */
+	public PersistentPCCache(File file, String config) throws IOException {
+		this.store = new PersistentStore(file);
+		this.config = config;
+	}
+
+	/**
+	 * Returns what is known about the path condition with the given key in
+	 * the method that is currently executing, or null.
+	 */
+	public synchronized SolverCache.Entry lookup(String key) {
+		final MethodInfo mi = currentMethod();
+		if (mi == null)
+			return null;
+		final String digest = digest(mi);
+		if (digest == null)
+			return null;
+		return lookup(mi.getFullName(), digest, key);
+	}
+
+	/**
+	 * Records what is known about the path condition with the given key in
+	 * the method that is currently executing.
+	 */
+	public synchronized void put(String key, SolverCache.Entry entry) {
+		final MethodInfo mi = currentMethod();
+		if (mi == null)
+			return;
+		final String digest = digest(mi);
+		if (digest == null)
+			return;
+		put(mi.getFullName(), digest, key, entry);
+	}
+
+	public synchronized SolverCache.Entry lookup(String method, String digest, String key) {
+		register(method, digest);
+		final byte[] value = store.get(resultKey(method, digest, key));
+		if (value == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return decode(value);
+	}
+
+	public synchronized void put(String method, String digest, String key, SolverCache.Entry entry) {
+		register(method, digest);
+		try {
+			store.put(resultKey(method, digest, key), encode(entry));
+			stores++;
+		} catch (IOException x) {
+			System.out.println("## Warning: cannot write to the solver cache file: " + x.getMessage());
+		}
+	}
+
+	private String resultKey(String method, String digest, String key) {
+		return RESULT + method + '|' + digest + '|' + config + '|' + key;
+	}
+
+	/*
+	 * Records the digest of method in the file, the first time this run
+	 * sees it; a different digest in the file means the method changed
+	 */
+	private void register(String method, String digest) {
+		if (digest.equals(methods.get(method)))
+			return;
+		methods.put(method, digest);
+		final byte[] stored = store.get(METHOD + method);
+		final String previous = stored == null ? null : new String(stored, StandardCharsets.UTF_8);
+		if (digest.equals(previous))
+			return;
+		if (previous != null)
+			invalidated++;
+		try {
+			store.put(METHOD + method, digest.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException x) {
+			System.out.println("## Warning: cannot write to the solver cache file: " + x.getMessage());
+		}
+	}
+
+	/*
+	 * Whether a record of the file belongs to the current version of its
+	 * method
+	 */
+	private boolean isCurrent(String key) {
+		if (!key.startsWith(RESULT))
+			return true;
+		final int m = key.indexOf('|', RESULT.length());
+		final int d = key.indexOf('|', m + 1);
+		if (m < 0 || d < 0)
+			return false;
+		final byte[] stored = store.get(METHOD + key.substring(RESULT.length(), m));
+		return stored != null && new String(stored, StandardCharsets.UTF_8).equals(key.substring(m + 1, d));
+	}
+
+	private static MethodInfo currentMethod() {
+		final ThreadInfo ti = ThreadInfo.getCurrentThread();
+		return ti == null ? null : ti.getTopFrameMethodInfo();
+	}
+
+	/*
+	 * Returns the digest of the bytecode of mi, or null if its class file
+	 * cannot be read
+	 */
+	private String digest(MethodInfo mi) {
+		final ClassInfo ci = mi.getClassInfo();
+		if (ci == null)
+			return null;
+		HashMap<String, String> digests = classes.get(ci);
+		if (digests == null) {
+			digests = new HashMap<String, String>();
+			final byte[] data = classFile(ci);
+			if (data != null) {
+				try {
+					digests = digests(data);
+				} catch (ClassParseException x) {
+					// not persisted
+				}
+			}
+			classes.put(ci, digests);
+		}
+		return digests.get(mi.getUniqueName());
+	}
+
+	private static byte[] classFile(ClassInfo ci) {
+		final String url = ci.getClassFileUrl();
+		if (url == null || !(url.startsWith("file:") || url.startsWith("jar:")))
+			return null;
+		try {
+			final InputStream in = new URL(url).openStream();
+			try {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final byte[] buffer = new byte[4096];
+				for (int n; (n = in.read(buffer)) > 0;)
+					bytes.write(buffer, 0, n);
+				return bytes.toByteArray();
+			} finally {
+				in.close();
+			}
+		} catch (IOException x) {
+			return null; // not persisted
+		}
+	}
+
+	/**
+	 * Returns the digests of the bytecode of the methods in the given class
+	 * file, by unique name (name and signature).
+	 */
+	public static HashMap<String, String> digests(byte[] classFile) throws ClassParseException {
+		final HashMap<String, String> digests = new HashMap<String, String>();
+		final ClassFile cf = new ClassFile(classFile);
+		cf.parse(new ClassFileReaderAdapter() {
+			String method;
+			StringWriter code;
+
+			@Override
+			public void setMethod(ClassFile cf, int methodIndex, int accessFlags, String name, String descriptor) {
+				method = name + descriptor;
+				code = null;
+			}
+
+			@Override
+			public void setMethodAttribute(ClassFile cf, int methodIndex, int attrIndex, String name, int attrLength) {
+				if (name == ClassFile.CODE_ATTR)
+					cf.parseCodeAttr(this, null);
+			}
+
+			@Override
+			public void setCode(ClassFile cf, Object tag, int maxStack, int maxLocals, int codeLength) {
+				code = new StringWriter();
+				code.append(method).append(" stack=" + maxStack + " locals=" + maxLocals + "\n");
+				final PrintWriter pw = new PrintWriter(code);
+				cf.parseBytecode(new JVMByteCodePrinter(pw, cf, ""), tag, codeLength);
+				pw.flush();
+			}
+
+			@Override
+			public void setExceptionHandler(ClassFile cf, Object tag, int exceptionIndex,
+					int startPc, int endPc, int handlerPc, String catchType) {
+				code.append("handler " + startPc + ".." + endPc + " -> " + handlerPc + " " + catchType + "\n");
+			}
+
+			@Override
+			public void setMethodDone(ClassFile cf, int methodIndex) {
+				if (code != null) {
+					// the printer shows constant pool indices next to the constants
+					digests.put(method, sha1(code.toString().replaceAll("@\\d+\\(", "(")));
+				}
+			}
+		});
+		return digests;
+	}
+
+	private static String sha1(String text) {
+		try {
+			final byte[] hash = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder sb = new StringBuilder();
+			for (byte b : hash)
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException x) {
+			throw new IllegalStateException(x);
+		}
+	}
+
+	private static byte[] encode(SolverCache.Entry e) {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+			out.writeBoolean(e.sat);
+			if (e.hasModel()) {
+				out.writeInt(e.intModel.length);
+				for (long v : e.intModel)
+					out.writeLong(v);
+				out.writeInt(e.realModel.length);
+				for (double v : e.realModel)
+					out.writeDouble(v);
+			} else {
+				out.writeInt(-1);
+			}
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException x) {
+			throw new IllegalStateException(x);
+		}
+	}
+
+	private static SolverCache.Entry decode(byte[] value) {
+		try {
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+			final SolverCache.Entry e = new SolverCache.Entry(in.readBoolean());
+			final int ints = in.readInt();
+			if (ints >= 0) {
+				e.intModel = new long[ints];
+				for (int i = 0; i < ints; i++)
+					e.intModel[i] = in.readLong();
+				e.realModel = new double[in.readInt()];
+				for (int i = 0; i < e.realModel.length; i++)
+					e.realModel[i] = in.readDouble();
+			}
+			return e;
+		} catch (IOException x) {
+			throw new IllegalStateException(x);
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getInvalidated() {
+		return invalidated;
+	}
+
+	public synchronized int size() {
+		return store.size();
+	}
+
+	/**
+	 * Releases the file; the results of methods that changed are dropped
+	 * from it.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			if (invalidated > 0) {
+				store.compact(new PersistentStore.KeyFilter() {
+					@Override
+					public boolean retain(String key) {
+						return isCurrent(key);
+					}
+				});
+			}
+		} finally {
+			store.close();
+		}
+	}
+
+	public synchronized String toString() {
+		return "persistent solver cache: hits=" + hits + " misses=" + misses + " stores=" + stores
+				+ " changed methods=" + invalidated + " (" + store + ")";
+	}
+
+}
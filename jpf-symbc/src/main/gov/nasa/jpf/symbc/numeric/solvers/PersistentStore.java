@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A key/value store kept in a single file, so that results survive the
+ * JPF run that computed them.
+ *
+ * The file is a log of records (key, value and checksum); a key written
+ * again supersedes its earlier records. Opening the store maps the file
+ * and indexes its records, and values are read from the mapping when
+ * they are asked for. New records are appended under an exclusive file
+ * lock, so several runs can share the file; each run sees the records
+ * that were in the file when it opened it, plus its own. A record that
+ * was cut short (a run killed while writing) ends the log.
+ *
+ * Once more than half of the file is superseded records, closing the
+ * store rewrites the file with only the current ones, and replaces the
+ * old file atomically; a run still writing to the old file notices and
+ * reopens it. The old file is recognized by its file key where the file
+ * system has one, and by a mark in its header that the compaction sets
+ * once the new file is in place.
+ */
+public class PersistentStore {
+
+	private static final byte[] MAGIC = "SPFSTORE2".getBytes(StandardCharsets.US_ASCII);
+
+	/* the header byte after MAGIC, set in a file replaced by a compaction */
+	private static final int REPLACED = MAGIC.length;
+
+	/* where the records start */
+	private static final int START = MAGIC.length + 1;
+
+	/* key length, value length and checksum precede key and value */
+	private static final int HEADER = 12;
+
+	private final File file;
+	private RandomAccessFile raf;
+	private Object fileKey; // null if the file system has none
+
+	/* the file as it was when the store was opened */
+	private MappedByteBuffer mapped;
+
+	/* offsets of the current records in mapped */
+	private final HashMap<String, Integer> offsets = new HashMap<String, Integer>();
+
+	/* the values written since the store was opened */
+	private final HashMap<String, byte[]> written = new HashMap<String, byte[]>();
+
+	private long records = 0;
+	private long bytes = 0;
+	private long liveBytes = 0;
+	private long compactions = 0;
+
+	public PersistentStore(File file) throws IOException {
+		this.file = file;
+		final File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("cannot create " + dir);
+		}
+		// the file must not be compacted before it is indexed
+		final FileLock lock = open();
+		try {
+			final long size = raf.length();
+			if (size > Integer.MAX_VALUE) {
+				lock.release();
+				raf.close();
+				throw new IOException(file + " is too large to map (" + size + " bytes)");
+			}
+			mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+			final int end = scan(mapped, offsets);
+			if (end < size) {
+				// a record cut short; records appended after it would be lost
+				raf.setLength(end);
+			}
+		} finally {
+			if (lock.isValid())
+				lock.release();
+		}
+	}
+
+	/*
+	 * Opens the file, creating it if need be; returns holding its lock
+	 */
+	private FileLock open() throws IOException {
+		while (true) {
+			raf = new RandomAccessFile(file, "rw");
+			final FileLock lock = raf.getChannel().lock();
+			fileKey = fileKey(file);
+			if (raf.length() == 0) {
+				raf.write(MAGIC);
+				raf.write(0);
+				return lock;
+			}
+			final byte[] magic = new byte[MAGIC.length];
+			raf.seek(0);
+			if (raf.read(magic) != MAGIC.length || !Arrays.equals(magic, MAGIC) || raf.length() < START) {
+				lock.release();
+				raf.close();
+				throw new IOException(file + " is not a store");
+			}
+			if (!replaced())
+				return lock;
+			// compacted between opening and locking it
+			lock.release();
+			raf.close();
+		}
+	}
+
+	private static Object fileKey(File file) throws IOException {
+		return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+	}
+
+	/*
+	 * Whether the open file was replaced by a compaction; with its lock held
+	 */
+	private boolean replaced() throws IOException {
+		if (fileKey != null && !fileKey.equals(fileKey(file)))
+			return true;
+		raf.seek(REPLACED);
+		return raf.read() != 0;
+	}
+
+	/*
+	 * Indexes the valid records of buffer; returns where the log ends
+	 */
+	private int scan(ByteBuffer buffer, Map<String, Integer> index) {
+		int pos = START;
+		final int limit = buffer.limit();
+		while (pos + HEADER <= limit) {
+			final int keyLength = buffer.getInt(pos);
+			final int valueLength = buffer.getInt(pos + 4);
+			if (keyLength < 0 || valueLength < 0 || (long) pos + HEADER + keyLength + valueLength > limit)
+				break;
+			final byte[] key = new byte[keyLength];
+			final ByteBuffer b = buffer.duplicate();
+			b.position(pos + HEADER);
+			b.get(key);
+			final CRC32 crc = new CRC32();
+			crc.update(key);
+			final byte[] value = new byte[valueLength];
+			b.get(value);
+			crc.update(value);
+			if ((int) crc.getValue() != buffer.getInt(pos + 8))
+				break;
+			final int length = HEADER + keyLength + valueLength;
+			final Integer previous = index.put(new String(key, StandardCharsets.UTF_8), pos);
+			if (previous != null)
+				liveBytes -= recordLength(buffer, previous);
+			liveBytes += length;
+			records++;
+			pos += length;
+		}
+		bytes = pos;
+		return pos;
+	}
+
+	private static int recordLength(ByteBuffer buffer, int offset) {
+		return HEADER + buffer.getInt(offset) + buffer.getInt(offset + 4);
+	}
+
+	/**
+	 * Returns the value last stored under {@code key}, or null.
+	 */
+	public synchronized byte[] get(String key) {
+		final byte[] value = written.get(key);
+		if (value != null)
+			return value;
+		final Integer offset = offsets.get(key);
+		if (offset == null)
+			return null;
+		final int keyLength = mapped.getInt(offset);
+		final byte[] result = new byte[mapped.getInt(offset + 4)];
+		final ByteBuffer b = mapped.duplicate();
+		b.position(offset + HEADER + keyLength);
+		b.get(result);
+		return result;
+	}
+
+	/**
+	 * Stores {@code value} under {@code key}, in this run and in the file.
+	 */
+	public synchronized void put(String key, byte[] value) throws IOException {
+		final byte[] k = key.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer record = ByteBuffer.allocate(HEADER + k.length + value.length);
+		final CRC32 crc = new CRC32();
+		crc.update(k);
+		crc.update(value);
+		record.putInt(k.length).putInt(value.length).putInt((int) crc.getValue()).put(k).put(value);
+		record.flip();
+
+		FileLock lock = raf.getChannel().lock();
+		try {
+			if (replaced()) {
+				// compacted by another run: append to the new file
+				lock.release();
+				raf.close();
+				lock = open();
+			}
+			final FileChannel channel = raf.getChannel();
+			long end = channel.size();
+			while (record.hasRemaining())
+				end += channel.write(record, end);
+		} finally {
+			if (lock.isValid())
+				lock.release();
+		}
+
+		final byte[] previous = written.put(key, value);
+		final Integer offset = offsets.remove(key);
+		if (previous != null)
+			liveBytes -= HEADER + k.length + previous.length;
+		else if (offset != null)
+			liveBytes -= recordLength(mapped, offset);
+		liveBytes += record.limit();
+		bytes += record.limit();
+		records++;
+	}
+
+	public synchronized int size() {
+		return offsets.size() + written.size();
+	}
+
+	public synchronized long getCompactions() {
+		return compactions;
+	}
+
+	/**
+	 * Releases the file, rewriting it first if more than half of it is
+	 * superseded records.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			if (liveBytes * 2 < bytes - START)
+				compact();
+		} finally {
+			raf.close();
+			mapped = null;
+		}
+	}
+
+	/**
+	 * Decides which records survive a compaction.
+	 */
+	public interface KeyFilter {
+		boolean retain(String key);
+	}
+
+	/**
+	 * Rewrites the file with only its current records.
+	 */
+	public synchronized void compact() throws IOException {
+		compact(null);
+	}
+
+	/**
+	 * Rewrites the file with only the current records that {@code filter}
+	 * retains (all of them if it is null). Records dropped this way are
+	 * still visible to this run, but not to the runs that open the file
+	 * later.
+	 */
+	public synchronized void compact(KeyFilter filter) throws IOException {
+		final FileLock lock = raf.getChannel().lock();
+		try {
+			if (replaced())
+				return; // another run compacted it already
+			// the file may have grown since it was mapped
+			final FileChannel channel = raf.getChannel();
+			final MappedByteBuffer current = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			final HashMap<String, Integer> index = new HashMap<String, Integer>();
+			records = 0;
+			liveBytes = 0;
+			scan(current, index);
+
+			final File tmp = new File(file.getPath() + ".tmp");
+			final RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+			int kept = 0;
+			try {
+				out.setLength(0);
+				out.write(MAGIC);
+				out.write(0);
+				for (Map.Entry<String, Integer> e : index.entrySet()) {
+					final int offset = e.getValue();
+					if (filter != null && !filter.retain(e.getKey())) {
+						liveBytes -= recordLength(current, offset);
+						continue;
+					}
+					final byte[] record = new byte[recordLength(current, offset)];
+					final ByteBuffer b = current.duplicate();
+					b.position(offset);
+					b.get(record);
+					out.write(record);
+					kept++;
+				}
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			// runs still holding the old file append to the new one from now on
+			raf.seek(REPLACED);
+			raf.write(1);
+			compactions++;
+			bytes = START + liveBytes;
+			records = kept;
+		} finally {
+			if (lock.isValid())
+				lock.release();
+		}
+	}
+
+	public synchronized String toString() {
+		return "persistent store " + file + ": entries=" + size() + " records=" + records + " bytes=" + bytes
+				+ " compactions=" + compactions;
+	}
+
+}
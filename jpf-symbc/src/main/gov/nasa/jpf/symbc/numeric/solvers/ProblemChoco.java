@@ -38,27 +38,95 @@
 package gov.nasa.jpf.symbc.numeric.solvers;
 
 //import choco.Problem;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.Config;
 import gov.nasa.jpf.symbc.numeric.RealProblem;
+import choco.Solver;
+import choco.Var;
 import choco.integer.*;
+import choco.integer.search.ValIterator;
 import choco.integer.var.IntTerm;
 import choco.integer.var.IntTerm.*;
 import choco.real.*;
 import choco.real.constraint.MixedEqXY;
+import choco.search.AbstractGlobalSearchLimit;
+import choco.search.AbstractGlobalSearchSolver;
+import choco.search.GlobalSearchLimit;
 
 /* Rody: add typecasts long->int everywhere now. Needs a nice solution where the user
  * is notified to use another solver with longs.
  */
-public class ProblemChoco extends ProblemGeneral {
+public class ProblemChoco extends ProblemGeneral implements InterruptibleSolver {
 	RealProblem pb;
+
+	/*
+	 * The default budget of a query: milliseconds (symbolic.choco_time_bound)
+	 * and search nodes (symbolic.choco_node_bound); 0 for no limit
+	 */
 	public static int timeBound;// = 30000;
+	public static int nodeBound = 0;
+
+	/*
+	 * Try the values of the previous solution found by the thread first
+	 * (symbolic.choco_warm_start=true)
+	 */
+	public static boolean warmStart = false;
+
+	/* queries that ran out of their budget */
+	public static final AtomicLong exhausted = new AtomicLong();
+
+	/* the values of the last solution of each thread, by variable name */
+	private static final ThreadLocal<HashMap<String, Integer>> lastSolution = new ThreadLocal<HashMap<String, Integer>>();
+
+	private int timeLimit = timeBound;
+	private int nodeLimit = nodeBound;
+	// see interrupt()
+	private volatile boolean interrupted = false;
+
+	/* the integer variables of the query and their previous values, for warm starts */
+	private final ArrayList<IntDomainVar> intVars = new ArrayList<IntDomainVar>();
+	private final ArrayList<String> intNames = new ArrayList<String>();
+	private final HashMap<Var, Integer> hints = new HashMap<Var, Integer>();
+
 	public ProblemChoco() {
 		pb = new RealProblem();
 		//pb.setPrecision(1e-8);// need to check this
 	}
 
+	public static void configure(Config conf) {
+		timeBound = conf.getInt("symbolic.choco_time_bound", 30000);
+		nodeBound = conf.getInt("symbolic.choco_node_bound", 0);
+		if (timeBound < 0 || nodeBound < 0) {
+			throw new IllegalArgumentException("symbolic.choco_time_bound and symbolic.choco_node_bound must be non-negative (>=0), but were "
+					+ timeBound + " and " + nodeBound);
+		}
+		warmStart = conf.getBoolean("symbolic.choco_warm_start", false);
+	}
+
+	/**
+	 * Sets the budget of this query, in milliseconds and search nodes; 0
+	 * for no limit. Solving returns null (don't know) once it is exhausted.
+	 */
+	public void setBudget(int timeLimit, int nodeLimit) {
+		this.timeLimit = timeLimit;
+		this.nodeLimit = nodeLimit;
+	}
+
 	public IntDomainVar makeIntVar(String name, long min, long max) {
 		assert(min>=Integer.MIN_VALUE && max<=Integer.MAX_VALUE);
-		return pb.makeBoundIntVar(name, (int) min, (int) max);
+		final IntDomainVar v = pb.makeBoundIntVar(name, (int) min, (int) max);
+		if (warmStart) {
+			intVars.add(v);
+			intNames.add(name);
+			final HashMap<String, Integer> previous = lastSolution.get();
+			final Integer h = (previous != null) ? previous.get(name) : null;
+			if (h != null)
+				hints.put(v, h);
+		}
+		return v;
 	}
 
 	public RealVar makeRealVar(String name, double min, double max) {
@@ -321,14 +389,108 @@ public class ProblemChoco extends ProblemGeneral {
 	}
 
 	public Boolean solve() {
-        pb.getSolver().setTimeLimit(ProblemChoco.timeBound);
-
-        Boolean result = pb.solve();
+        if (timeLimit > 0)
+        	pb.getSolver().setTimeLimit(timeLimit);
+        if (nodeLimit > 0)
+        	pb.getSolver().setNodeLimit(nodeLimit);
+        if (warmStart && !hints.isEmpty())
+        	pb.getSolver().setValIterator(new PreviousSolution(hints));
+
+        // as pb.solve(), with a limit that stops the search once interrupted
+        final Solver solver = pb.getSolver();
+        solver.setFirstSolution(true);
+        solver.generateSearchSolver(pb);
+        addLimit(solver.getSearchSolver(), new Interruption(solver.getSearchSolver()));
+        solver.launch();
+        Boolean result = pb.isFeasible();
 //        if (result == null)
  //       	System.out.println("Choco PC"+pb.pretty());
+        if (result == null && solver.isEncounteredLimit() && !interrupted)
+        	exhausted.incrementAndGet();
+        if (warmStart && result == Boolean.TRUE) {
+        	final HashMap<String, Integer> values = new HashMap<String, Integer>();
+        	for (int i = 0; i < intVars.size(); i++) {
+        		if (intVars.get(i).isInstantiated())
+        			values.put(intNames.get(i), intVars.get(i).getVal());
+        	}
+        	lastSolution.set(values);
+        }
 
 		return result;
 	}
+
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addLimit(AbstractGlobalSearchSolver solver, GlobalSearchLimit limit) {
+		solver.limits.add(limit);
+	}
+
+	/*
+	 * Ends the search at the next node once the query is interrupted; choco
+	 * then answers null, as for the other limits
+	 */
+	private class Interruption extends AbstractGlobalSearchLimit {
+		Interruption(AbstractGlobalSearchSolver solver) {
+			super(solver, Integer.MAX_VALUE);
+			unit = "interruption";
+		}
+
+		public boolean newNode(AbstractGlobalSearchSolver solver) {
+			return !interrupted;
+		}
+
+		public boolean endNode(AbstractGlobalSearchSolver solver) {
+			return true;
+		}
+	}
+
+	public static String statistics() {
+		return "choco: queries over budget=" + exhausted;
+	}
+
+	/*
+	 * Branches on the value a variable had in the previous solution first,
+	 * then on the rest of its domain in increasing order. Bound domains
+	 * cannot have holes, so the values are enumerated rather than removed.
+	 */
+	private static class PreviousSolution implements ValIterator {
+		private final HashMap<Var, Integer> values;
+
+		PreviousSolution(HashMap<Var, Integer> values) {
+			this.values = values;
+		}
+
+		/* the previous value of x, if it is still in its domain */
+		private Integer hint(IntDomainVar x) {
+			final Integer h = values.get(x);
+			return (h != null && x.canBeInstantiatedTo(h)) ? h : null;
+		}
+
+		public int getFirstVal(Var v) {
+			final IntDomainVar x = (IntDomainVar) v;
+			final Integer h = hint(x);
+			return (h != null) ? h : x.getInf();
+		}
+
+		public boolean hasNextVal(Var v, int val) {
+			return next((IntDomainVar) v, val) <= ((IntDomainVar) v).getSup();
+		}
+
+		public int getNextVal(Var v, int val) {
+			return (int) next((IntDomainVar) v, val);
+		}
+
+		private long next(IntDomainVar x, int val) {
+			final Integer h = hint(x);
+			long n = (h != null && val == h) ? x.getInf() : (long) val + 1;
+			if (h != null && n == h)
+				n++;
+			return n;
+		}
+	}
 	public void post(Object constraint) {
 		pb.post((choco.Constraint)constraint);
 	}
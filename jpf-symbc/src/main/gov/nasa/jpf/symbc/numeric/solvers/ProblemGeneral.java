@@ -37,7 +37,7 @@
 
 package gov.nasa.jpf.symbc.numeric.solvers;
 
-public abstract class ProblemGeneral{
+public abstract class ProblemGeneral implements ModelSource {
 	public abstract Object makeIntVar(String name, long _min, long _max);
 	public abstract Object makeRealVar(String name, double min, double max);
 
@@ -228,6 +228,11 @@ public abstract class ProblemGeneral{
         throw new RuntimeException("## Error : makeRealConst not supported");
     }
 
+    // the integer term "cond ? exp1 : exp2"
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        throw new RuntimeException("## Error : ite not supported");
+    }
+
 	public abstract Object mixed(Object exp1, Object exp2);
 
 	public abstract Boolean solve();
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Portfolio decision procedure (symbolic.dp=portfolio).
+ *
+ * The PC is handed to every back end listed in symbolic.portfolio (default
+ * choco,z3) at the same time; the first definitive SAT/UNSAT answer is
+ * taken, the back ends that have not started yet are cancelled and those
+ * still running are interrupted if they can be ({@link InterruptibleSolver}).
+ * A back end that times out, answers "don't know" or fails simply does not
+ * win.
+ *
+ * Each back end runs on its own thread, so it never solves two PCs at once
+ * and its per-thread state (e.g. the Z3 context) is reused across queries.
+ * A back end that cannot be interrupted finishes the query that was
+ * already answered before it starts the next one.
+ *
+ * Unlike {@link DebugSolvers} and {@link ProblemCompare} this class does not
+ * build constraints itself, so it is not a {@link ProblemGeneral}: the back
+ * ends parse the PC with their own {@link PCParser}, and the model of the
+ * winner is read back from {@link #getModel()} through {@link #getParser()},
+ * whose "DP variables" are the symbolic variables.
+ */
+public class ProblemPortfolio {
+
+	private static String[] solvers = {"choco", "z3"};
+	private static ExecutorService[] executors;
+
+	/* statistics, per back end */
+	private static long[] wins;
+	private static long[] answers;
+	private static long[] errors;
+	private static long queries = 0;
+	private static long undecided = 0;
+
+	private final PathCondition pc;
+	private Outcome winner = null;
+
+	public static void configure(Config conf) {
+		String[] s = conf.getStringArray("symbolic.portfolio");
+		if (s != null && s.length > 0)
+			solvers = s;
+		for (String dp : solvers) {
+			if (dp.equalsIgnoreCase("choco")) {
+				ProblemChoco.configure(conf);
+			} else if (dp.equalsIgnoreCase("coral")) {
+				ProblemCoral.configure(conf);
+			} else if (dp.equalsIgnoreCase("z3inc") || dp.equalsIgnoreCase("z3bitvectorinc")
+					|| dp.equalsIgnoreCase("portfolio") || dp.equalsIgnoreCase("debug")
+					|| dp.equalsIgnoreCase("compare") || dp.equalsIgnoreCase("no_solver")) {
+				throw new RuntimeException("## Error: symbolic.dp=" + dp + " cannot be part of symbolic.portfolio");
+			}
+		}
+		shutdown();
+		executors = new ExecutorService[solvers.length];
+		for (int i = 0; i < solvers.length; i++) {
+			final String name = solvers[i];
+			executors[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(final Runnable r) {
+					// the thread closes its Z3 contexts when the executor is shut down
+					Thread t = new Thread(new Runnable() {
+						public void run() {
+							try {
+								r.run();
+							} finally {
+								Z3Contexts.closeCurrentThread();
+							}
+						}
+					}, "portfolio-" + name);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		wins = new long[solvers.length];
+		answers = new long[solvers.length];
+		errors = new long[solvers.length];
+		queries = 0;
+		undecided = 0;
+	}
+
+	private static void shutdown() {
+		if (executors != null) {
+			for (ExecutorService e : executors)
+				e.shutdownNow();
+			executors = null;
+		}
+	}
+
+	public ProblemPortfolio(PathCondition pc) {
+		if (executors == null)
+			throw new RuntimeException("## Error: ProblemPortfolio is not configured (symbolic.dp=portfolio)");
+		this.pc = pc;
+	}
+
+	/*
+	 * result of one back end for one query; values only for a SAT result
+	 */
+	private static class Outcome implements ModelSource {
+		final int solver;
+		Boolean result = null;
+		final Map<SymbolicInteger, Long> intValues = new HashMap<SymbolicInteger, Long>();
+		final Map<SymbolicReal, Double> realValues = new HashMap<SymbolicReal, Double>();
+		// the problem of the back end while it solves the query, see interrupt()
+		private ProblemGeneral running = null;
+
+		Outcome(int solver) {
+			this.solver = solver;
+		}
+
+		synchronized void setRunning(ProblemGeneral pb) {
+			running = pb;
+		}
+
+		synchronized void interrupt() {
+			if (running instanceof InterruptibleSolver)
+				((InterruptibleSolver) running).interrupt();
+		}
+
+		public long getIntValue(Object dpVar) {
+			final Long v = intValues.get(dpVar);
+			if (v == null)
+				throw new RuntimeException("## Error: no value for " + dpVar);
+			return v;
+		}
+
+		public double getRealValue(Object dpVar) {
+			final Double v = realValues.get(dpVar);
+			if (v == null)
+				throw new RuntimeException("## Error: no value for " + dpVar);
+			return v;
+		}
+
+		public double getRealValueInf(Object dpVar) {
+			return getRealValue(dpVar);
+		}
+	}
+
+	/**
+	 * Solves the PC; null if no back end decided it.
+	 */
+	public Boolean solve() {
+		final LinkedBlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<Outcome>();
+		final AtomicBoolean decided = new AtomicBoolean(false);
+		final Outcome[] started = new Outcome[solvers.length];
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < solvers.length; i++) {
+			final Outcome o = started[i] = new Outcome(i);
+			futures.add(executors[i].submit(new Runnable() {
+				public void run() {
+					try {
+						solveWith(o, decided);
+					} finally {
+						// also if the back end failed with an Error: an outcome
+						// is taken from every back end until one decides
+						outcomes.add(o);
+					}
+				}
+			}));
+		}
+
+		try {
+			for (int n = 0; n < solvers.length && winner == null; n++) {
+				final Outcome o = outcomes.take();
+				if (o.result != null)
+					winner = o;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		decided.set(true);
+		for (int i = 0; i < solvers.length; i++) {
+			futures.get(i).cancel(false);
+			started[i].interrupt();
+		}
+
+		synchronized (ProblemPortfolio.class) {
+			queries++;
+			if (winner != null)
+				wins[winner.solver]++;
+			else
+				undecided++;
+		}
+		return (winner == null) ? null : winner.result;
+	}
+
+	private void solveWith(Outcome o, AtomicBoolean decided) {
+		final int solver = o.solver;
+		if (decided.get())
+			return;
+		ProblemGeneral pb = null;
+		try {
+			pb = SymbolicConstraintsGeneral.createProblem(solvers[solver]);
+			final PCParser parser = new PCParser();
+			if (parser.parse(pc, pb) == null) {
+				o.result = Boolean.FALSE;
+			} else {
+				o.setRunning(pb);
+				final Boolean result;
+				try {
+					result = decided.get() ? null : pb.solve();
+				} finally {
+					o.setRunning(null);
+				}
+				if (result == Boolean.TRUE) {
+					for (Map.Entry<SymbolicInteger, Object> e : parser.symIntegerVar.entrySet())
+						o.intValues.put(e.getKey(), pb.getIntValue(e.getValue()));
+					for (Map.Entry<SymbolicReal, Object> e : parser.symRealVar.entrySet()) {
+						double value;
+						try {
+							value = pb.getRealValue(e.getValue());
+						} catch (Exception exp) {
+							// see SymbolicConstraintsGeneral.catchBody
+							value = pb.getRealValueInf(e.getValue());
+						}
+						o.realValues.put(e.getKey(), value);
+					}
+				}
+				o.result = result;
+			}
+			if (o.result != null) {
+				synchronized (ProblemPortfolio.class) {
+					answers[solver]++;
+				}
+			}
+		} catch (RuntimeException | LinkageError e) {
+			// e.g. a constraint the back end does not support, or its
+			// native library is missing
+			o.result = null;
+			synchronized (ProblemPortfolio.class) {
+				errors[solver]++;
+			}
+		} finally {
+			SymbolicConstraintsGeneral.cleanup(pb);
+		}
+	}
+
+	/**
+	 * Returns a parser whose maps hold the variables of the PC, to be used
+	 * with {@link #getModel()}.
+	 */
+	public PCParser getParser() {
+		final PCParser parser = new PCParser();
+		parser.symIntegerVar = new HashMap<SymbolicInteger, Object>();
+		parser.symRealVar = new HashMap<SymbolicReal, Object>();
+		if (winner != null) {
+			for (SymbolicInteger v : winner.intValues.keySet())
+				parser.symIntegerVar.put(v, v);
+			for (SymbolicReal v : winner.realValues.keySet())
+				parser.symRealVar.put(v, v);
+		}
+		return parser;
+	}
+
+	/**
+	 * The values found by the winner, null if no back end decided the PC.
+	 */
+	public ModelSource getModel() {
+		return winner;
+	}
+
+	public String getWinner() {
+		return (winner == null) ? null : solvers[winner.solver];
+	}
+
+	public static synchronized long getQueries() {
+		return queries;
+	}
+
+	/**
+	 * Returns how many queries were decided by the given back end.
+	 */
+	public static synchronized long getWins(String dp) {
+		for (int i = 0; i < solvers.length && wins != null; i++) {
+			if (solvers[i].equalsIgnoreCase(dp))
+				return wins[i];
+		}
+		return 0;
+	}
+
+	public static synchronized String statistics() {
+		final StringBuilder sb = new StringBuilder("portfolio: queries=" + queries + " undecided=" + undecided);
+		for (int i = 0; i < solvers.length && wins != null; i++) {
+			sb.append("\n  ").append(solvers[i]).append(": wins=").append(wins[i]);
+			sb.append(" (").append(queries == 0 ? 0 : 100 * wins[i] / queries).append("%)");
+			sb.append(" answers=").append(answers[i]).append(" errors=").append(errors[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -46,9 +46,10 @@ import java.util.*;
 import com.microsoft.z3.*;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Constraint;
 import symlib.Util;
 
-public class ProblemZ3 extends ProblemGeneral {
+public class ProblemZ3 extends ProblemGeneral implements UnsatCoreSolver, BranchingSolver, InterruptibleSolver {
 
   //This class acts as a safeguard to prevent
   //issues when referencing ProblemZ3 in case the z3 libs are
@@ -58,14 +59,42 @@ public class ProblemZ3 extends ProblemGeneral {
 	private static class Z3Wrapper {
 		private Context ctx;
 		private Solver solver;
+		private final Z3Limits limits = new Z3Limits();
 
-		private static Z3Wrapper instance = null;
+		// one context/solver per thread, so that PCs can be solved concurrently,
+		// and one more for the branch sessions of the thread, see forBranches()
+		private static final ThreadLocal<Z3Wrapper> instance = new ThreadLocal<Z3Wrapper>();
+		private static final ThreadLocal<Z3Wrapper> branchInstance = new ThreadLocal<Z3Wrapper>();
 
 		public static Z3Wrapper getInstance() {
-			if (instance != null) {
-				return instance;
+			return get(instance);
+		}
+
+		static Z3Wrapper getBranchInstance() {
+			return get(branchInstance);
+		}
+
+		private static Z3Wrapper get(ThreadLocal<Z3Wrapper> local) {
+			Z3Wrapper z3 = local.get();
+			if (z3 == null) {
+				z3 = new Z3Wrapper();
+				local.set(z3);
+			}
+			return z3;
+		}
+
+		// closes the contexts of the calling thread, if it has any
+		static void close() {
+			close(instance);
+			close(branchInstance);
+		}
+
+		private static void close(ThreadLocal<Z3Wrapper> local) {
+			final Z3Wrapper z3 = local.get();
+			if (z3 != null) {
+				local.remove();
+				z3.ctx.close();
 			}
-			return instance = new Z3Wrapper();
 		}
 
 		private Z3Wrapper() {
@@ -84,25 +113,57 @@ public class ProblemZ3 extends ProblemGeneral {
 		}
 	}
 
+	/*
+	 * Closes the Z3 context of the calling thread, see Z3Contexts
+	 */
+	static void closeContext() {
+		Z3Wrapper.close();
+	}
+
 	private Solver solver;
+	// the last check was satisfiable, and its model if values were read; see model()
+	private boolean satisfiable = false;
+	private Model checkedModel = null;
 	private Context ctx;
 
 	// Do we use the floating point theory or linear arithmetic over reals
 	private boolean useFpForReals = false;
 
+	// tracking literal of the conjunct being posted and the conjuncts of
+	// all the literals, see track(); null unless unsat cores are used
+	private BoolExpr trackLiteral = null;
+	private HashMap<BoolExpr, Constraint> tracked = null;
+
 	public ProblemZ3() {
-		Z3Wrapper z3 = Z3Wrapper.getInstance();
+		this(Z3Wrapper.getInstance());
+	}
+
+	/**
+	 * A problem for the session of a branch point, see BranchSession. It is
+	 * on a context of its own, so the problems created while the session is
+	 * open, e.g. for a PC that does not extend its prefix, neither see the
+	 * session's assertions nor pop its scopes.
+	 */
+	public static ProblemZ3 forBranches() {
+		return new ProblemZ3(Z3Wrapper.getBranchInstance());
+	}
+
+	private ProblemZ3(Z3Wrapper z3) {
 		solver = z3.getSolver();
 		ctx = z3.getCtx();
+		z3.limits.apply(ctx, solver);
 		solver.push();
 		useFpForReals = SymbolicInstructionFactory.fp;
 	}
 
 	public void cleanup() {
+		resetModel();
 		int scopes = solver.getNumScopes();
 		if (scopes > 0) {
 			solver.pop(scopes);
 		}
+		trackLiteral = null;
+		tracked = null;
 	}
 
 //	public ProblemZ3() {
@@ -118,6 +179,7 @@ public class ProblemZ3 extends ProblemGeneral {
 //	}
 
 	public Object makeIntVar(String name, long min, long max) {
+		resetModel();
 		try {
 			IntExpr intConst = ctx.mkIntConst(name);
 			solver.add(ctx.mkGe(intConst, ctx.mkInt(min)));
@@ -130,6 +192,7 @@ public class ProblemZ3 extends ProblemGeneral {
 	}
 
 	public Object makeRealVar(String name, double min, double max) {
+		resetModel();
 		try {
 			if (useFpForReals) {
 				Expr expr = ctx.mkConst(name, ctx.mkFPSortDouble());
@@ -667,9 +730,8 @@ public class ProblemZ3 extends ProblemGeneral {
 
 	public long getIntValue(Object dpVar) {
 		try {
-			Model model = null;
-			 if (Status.SATISFIABLE == solver.check()) {
-				 model = solver.getModel();
+			Model model = model();
+			 if (model != null) {
 	             return Long.parseLong((model.evaluate((IntExpr)dpVar,false)).toString());
 	         }
 	         else {
@@ -692,32 +754,95 @@ public class ProblemZ3 extends ProblemGeneral {
 		return eq;
 	}
 
+	/*
+	 * The model of the last solve(), fetched once for all the values read
+	 * back; checks again if constraints were added since
+	 */
+	private Model model() {
+		if (checkedModel == null && (satisfiable || Status.SATISFIABLE == solver.check())) {
+			checkedModel = solver.getModel();
+			satisfiable = true;
+		}
+		return checkedModel;
+	}
+
+	private Boolean checked(Boolean result) {
+		satisfiable = (result == Boolean.TRUE);
+		return result;
+	}
+
+	private void resetModel() {
+		checkedModel = null;
+		satisfiable = false;
+	}
+
 	public Boolean solve() {
+		resetModel();
         try {
         	/* find model for the constraints above */
-            Model model = null;                
-            
-            if (Status.SATISFIABLE == solver.check()) {   
-                return true;
-            } else {       
-                return false;
-            }
+            return checked(Z3Limits.result(solver, solver.check()));
         } catch(Exception e){
         	e.printStackTrace();
         	throw new RuntimeException("## Error Z3: " + e);
         }
 	}
 
+	/*
+	 * Called from another thread while solve() runs, see ProblemPortfolio
+	 */
+	public void interrupt() {
+		ctx.interrupt();
+	}
+
 	public void post(Object constraint) {
+		resetModel();
 		try{
 			//solver.Assert((BoolExpr)constraint);
-			solver.add((BoolExpr)constraint);
+			if (trackLiteral != null)
+				solver.assertAndTrack((BoolExpr)constraint, trackLiteral);
+			else
+				solver.add((BoolExpr)constraint);
 		} catch (Exception e) {
 			e.printStackTrace();
         	throw new RuntimeException("## Error posting constraint to Z3 \n" + e);
 	    }
 	}
 
+	public void push() {
+		resetModel();
+		solver.push();
+	}
+
+	public void pop() {
+		resetModel();
+		solver.pop();
+	}
+
+	public void track(Constraint c) {
+		if (tracked == null)
+			tracked = new HashMap<BoolExpr, Constraint>();
+		trackLiteral = ctx.mkBoolConst("__track" + tracked.size());
+		tracked.put(trackLiteral, c);
+	}
+
+	public List<Constraint> getUnsatCore() {
+		if (tracked == null)
+			return null;
+		try {
+			List<Constraint> core = new ArrayList<Constraint>();
+			for (BoolExpr literal : solver.getUnsatCore()) {
+				Constraint c = tracked.get(literal);
+				if (c == null)
+					return null;
+				core.add(c);
+			}
+			return core;
+		} catch (Exception e) {
+			// no core for this query
+			return null;
+		}
+	}
+
 	@Override
 	public Object eq(double value, Object exp) {
 		try {
@@ -1097,9 +1222,8 @@ public class ProblemZ3 extends ProblemGeneral {
 	@Override
 	public double getRealValueInf(Object dpvar) {
 		try {
-			Model model = null;
-			if (Status.SATISFIABLE == solver.check()) {
-				model = solver.getModel();
+			Model model = model();
+			if (model != null) {
 				// TODO: clean this up
 				String strResult = model.eval((Expr)dpvar, true).toString().replaceAll("\\s+","");
 				Expr temp = model.eval((Expr)dpvar, false);
@@ -1210,6 +1334,16 @@ public class ProblemZ3 extends ProblemGeneral {
         }
     }
 
+    @Override
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        try {
+            return ctx.mkITE((BoolExpr) cond, (Expr) exp1, (Expr) exp2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
     @Override
     public Object makeRealConst(double value) {
         try {
@@ -38,15 +38,18 @@
 package gov.nasa.jpf.symbc.numeric.solvers;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.microsoft.z3.*;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Constraint;
 import gov.nasa.jpf.symbc.string.translate.BVExpr;
 
-public class ProblemZ3BitVector extends ProblemGeneral {
+public class ProblemZ3BitVector extends ProblemGeneral implements UnsatCoreSolver, BranchingSolver, InterruptibleSolver {
 
     //This class acts as a safeguard to prevent
     //issues when referencing ProblemZ3 in case the z3 libs are
@@ -56,15 +59,42 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     private static class Z3Wrapper {
         private Context ctx;
         private Solver solver;
+        private final Z3Limits limits = new Z3Limits();
 
-        private static Z3Wrapper instance = null;
+        // one context/solver per thread, so that PCs can be solved concurrently,
+        // and one more for the branch sessions of the thread, see forBranches()
+        private static final ThreadLocal<Z3Wrapper> instance = new ThreadLocal<Z3Wrapper>();
+        private static final ThreadLocal<Z3Wrapper> branchInstance = new ThreadLocal<Z3Wrapper>();
 
         public static Z3Wrapper getInstance() {
-            if (instance != null) {
-                return instance;
+            return get(instance);
+        }
+
+        static Z3Wrapper getBranchInstance() {
+            return get(branchInstance);
+        }
+
+        private static Z3Wrapper get(ThreadLocal<Z3Wrapper> local) {
+            Z3Wrapper z3 = local.get();
+            if (z3 == null) {
+                z3 = new Z3Wrapper();
+                local.set(z3);
             }
+            return z3;
+        }
 
-            return instance = new Z3Wrapper();
+        // closes the contexts of the calling thread, if it has any
+        static void close() {
+            close(instance);
+            close(branchInstance);
+        }
+
+        private static void close(ThreadLocal<Z3Wrapper> local) {
+            final Z3Wrapper z3 = local.get();
+            if (z3 != null) {
+                local.remove();
+                z3.ctx.close();
+            }
         }
 
         private Z3Wrapper() {
@@ -83,7 +113,17 @@ public class ProblemZ3BitVector extends ProblemGeneral {
         }
     }
 
+    /*
+     * Closes the Z3 context of the calling thread, see Z3Contexts
+     */
+    static void closeContext() {
+        Z3Wrapper.close();
+    }
+
     private Solver solver;
+    // the last check was satisfiable, and its model if values were read; see model()
+    private boolean satisfiable = false;
+    private Model checkedModel = null;
     private Context ctx;
 
     // Do we use the floating point theory or linear arithmetic over reals
@@ -94,10 +134,29 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     private long minAllowed;
     private long maxAllowed;
 
+    // tracking literal of the conjunct being posted and the conjuncts of
+    // all the literals, see track(); null unless unsat cores are used
+    private BoolExpr trackLiteral = null;
+    private HashMap<BoolExpr, Constraint> tracked = null;
+
     public ProblemZ3BitVector() {
-        Z3Wrapper z3 = Z3Wrapper.getInstance();
+        this(Z3Wrapper.getInstance());
+    }
+
+    /**
+     * A problem for the session of a branch point, see BranchSession. It is
+     * on a context of its own, so the problems created while the session is
+     * open, e.g. for a PC that does not extend its prefix, neither see the
+     * session's assertions nor pop its scopes.
+     */
+    public static ProblemZ3BitVector forBranches() {
+        return new ProblemZ3BitVector(Z3Wrapper.getBranchInstance());
+    }
+
+    private ProblemZ3BitVector(Z3Wrapper z3) {
         solver = z3.getSolver();
         ctx = z3.getCtx();
+        z3.limits.apply(ctx, solver);
         solver.push();
         
         // load bitvector length (default = 32 bit), then calculate allowed min-max values
@@ -113,10 +172,13 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     }
 
     public void cleanup() {
+        resetModel();
         int scopes = solver.getNumScopes();
         if (scopes > 0) {
             solver.pop(scopes);
         }
+        trackLiteral = null;
+        tracked = null;
     }
 
 //	public ProblemZ3BitVector() {
@@ -143,9 +205,8 @@ public class ProblemZ3BitVector extends ProblemGeneral {
 
     public long getIntValue(Object dpVar) {
         try {
-            Model model = null;
-            if (Status.SATISFIABLE == solver.check()) {
-                model = solver.getModel();
+            Model model = model();
+            if (model != null) {
                 String strResult = model.eval((Expr)dpVar, false).toString();
                 return new BigInteger(strResult).longValue();
             }
@@ -163,42 +224,112 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     	return solver.toString();
     }
     
+    /*
+     * The model of the last solve(), fetched once for all the values read
+     * back; checks again if constraints were added since
+     */
+    private Model model() {
+        if (checkedModel == null && (satisfiable || Status.SATISFIABLE == solver.check())) {
+            checkedModel = solver.getModel();
+            satisfiable = true;
+        }
+        return checkedModel;
+    }
+
+    private Boolean checked(Boolean result) {
+        satisfiable = (result == Boolean.TRUE);
+        return result;
+    }
+
+    private void resetModel() {
+        checkedModel = null;
+        satisfiable = false;
+    }
+
     @Override
     public Boolean solve() {
+        resetModel();
         try {
-        	boolean result = false;
+        	Boolean result;
         	if(SymbolicInstructionFactory.debugMode == true){
         		System.out.println("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>");
         		System.out.println(solver.toString());
         		long z3time = 0;
                 long t1 = System.nanoTime();
-                result = solver.check() == Status.SATISFIABLE ? true : false;
+                result = Z3Limits.result(solver, solver.check());
                 z3time += System.nanoTime()-t1;
                 System.out.println("\nSolving time of z3 bitvector is " + TimeUnit.NANOSECONDS.toMillis(z3time) + " ms");
                 System.out.println(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n\n");
         	}
         	else{
-        		result = solver.check() == Status.SATISFIABLE ? true : false;
+        		result = Z3Limits.result(solver, solver.check());
         	}
-            return result;
+            return checked(result);
         } catch(Exception e){
             e.printStackTrace();
             throw new RuntimeException("## Error Z3: solve() failed.\n" + e);
         }
     }
 
+    /*
+     * Called from another thread while solve() runs, see ProblemPortfolio
+     */
+    public void interrupt() {
+        ctx.interrupt();
+    }
+
     @Override
     public void post(Object constraint) {
+        resetModel();
         try{
-            solver.add((BoolExpr)constraint);
+            if (trackLiteral != null)
+                solver.assertAndTrack((BoolExpr)constraint, trackLiteral);
+            else
+                solver.add((BoolExpr)constraint);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("## Error Z3: post(Object) failed.\n" + e);
         }
     }
 
+    public void push() {
+        resetModel();
+        solver.push();
+    }
+
+    public void pop() {
+        resetModel();
+        solver.pop();
+    }
+
+    public void track(Constraint c) {
+        if (tracked == null)
+            tracked = new HashMap<BoolExpr, Constraint>();
+        trackLiteral = ctx.mkBoolConst("__track" + tracked.size());
+        tracked.put(trackLiteral, c);
+    }
+
+    public List<Constraint> getUnsatCore() {
+        if (tracked == null)
+            return null;
+        try {
+            List<Constraint> core = new ArrayList<Constraint>();
+            for (BoolExpr literal : solver.getUnsatCore()) {
+                Constraint c = tracked.get(literal);
+                if (c == null)
+                    return null;
+                core.add(c);
+            }
+            return core;
+        } catch (Exception e) {
+            // no core for this query
+            return null;
+        }
+    }
+
     @Override
     public Object makeIntVar(String name, long min, long max) {
+        resetModel();
     	checkBounds(min);
     	checkBounds(max);
         try {
@@ -227,6 +358,7 @@ public class ProblemZ3BitVector extends ProblemGeneral {
 //    }
 
     public Object makeRealVar(String name, double min, double max) {
+        resetModel();
         try {
             if (useFpForReals) {
             	if (this.bitVectorLength == 32) {
@@ -1392,8 +1524,7 @@ public class ProblemZ3BitVector extends ProblemGeneral {
 		}
     }
 
-    private double getFPValue(FPExpr fpExpr) {
-    	Model model = solver.getModel();
+    private double getFPValue(Model model, FPExpr fpExpr) {
     	String rawValue = model.getConstInterp(fpExpr.getFuncDecl()).toString();
     	String[] pieces = rawValue.split(" ");
     	
@@ -1410,13 +1541,12 @@ public class ProblemZ3BitVector extends ProblemGeneral {
     @Override
     public double getRealValueInf(Object dpvar) {
         try {
-            Model model = null;
-            if (Status.SATISFIABLE == solver.check()) {
+            Model model = model();
+            if (model != null) {
             	if (dpvar instanceof FPExpr) {
-            		return getFPValue((FPExpr)dpvar);
+            		return getFPValue(model, (FPExpr)dpvar);
             	}
             	
-                model = solver.getModel();
                 // TODO: clean this up
                 String strResult = model.eval((Expr)dpvar, true).toString().replaceAll("\\s+","");
                 Expr temp = model.eval((Expr)dpvar, false);
@@ -1539,6 +1669,16 @@ public class ProblemZ3BitVector extends ProblemGeneral {
         }
     }
 
+    @Override
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        try {
+            return ctx.mkITE((BoolExpr) cond, (Expr) exp1, (Expr) exp2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
     @Override
     public Object makeRealConst(double value) {
         try {
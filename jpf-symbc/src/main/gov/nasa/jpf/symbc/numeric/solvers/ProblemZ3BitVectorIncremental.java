@@ -19,15 +19,19 @@
 package gov.nasa.jpf.symbc.numeric.solvers;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.microsoft.z3.*;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.SolverSession;
 import gov.nasa.jpf.symbc.string.translate.BVExpr;
 
-public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements IncrementalSolver {
+public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements AssumptionSolver {
 
   //This class acts as a safeguard to prevent
   //issues when referencing ProblemZ3 in case the z3 libs are
@@ -37,15 +41,40 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
   private static class Z3Wrapper {
     private Context ctx;
     private Solver solver;
-
-    private static Z3Wrapper instance = null;
+    private SolverSession session;
+    private final Z3Limits limits = new Z3Limits();
+    private int bvCount = 0;
+
+    // symbolic.z3.assumptions: the literals of the conjuncts on the
+    // session's stack (oldest first), the literals of all the conjuncts
+    // asserted, and the bounds the DP variables were declared with
+    private final boolean assumptions;
+    private final ArrayList<BoolExpr> active = new ArrayList<BoolExpr>();
+    private final ConjunctLiterals<BoolExpr> literals = new ConjunctLiterals<BoolExpr>();
+    private final HashMap<String, String> declared = new HashMap<String, String>();
+    private int literalCount = 0;
+
+    // one context/solver/session per thread, so that PCs can be solved concurrently
+    private static final ThreadLocal<Z3Wrapper> instance = new ThreadLocal<Z3Wrapper>();
 
     public static Z3Wrapper getInstance() {
-      if (instance != null) {
-        return instance;
+      Z3Wrapper z3 = instance.get();
+      if (z3 == null || z3.assumptions != SymbolicInstructionFactory.z3Assumptions) {
+        if (z3 != null)
+          z3.ctx.close();
+        z3 = new Z3Wrapper();
+        instance.set(z3);
       }
+      return z3;
+    }
 
-      return instance = new Z3Wrapper();
+    // closes the context of the calling thread, if it has one
+    static void close() {
+      final Z3Wrapper z3 = instance.get();
+      if (z3 != null) {
+        instance.remove();
+        z3.ctx.close();
+      }
     }
 
     private Z3Wrapper() {
@@ -53,6 +82,7 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
       cfg.put("model", "true");
       ctx = new Context(cfg);
       solver = ctx.mkSolver();
+      assumptions = SymbolicInstructionFactory.z3Assumptions;
     }
 
     public Solver getSolver() {
@@ -64,8 +94,20 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
     }
   }
 
+  /*
+   * Closes the Z3 context of the calling thread, see Z3Contexts
+   */
+  static void closeContext() {
+    Z3Wrapper.close();
+  }
+
+  private final Z3Wrapper z3;
   private Solver solver;
+  // the last check was satisfiable, and its model if values were read; see model()
+  private boolean satisfiable = false;
+  private Model checkedModel = null;
   private Context ctx;
+  private SolverSession session;
 
   // Do we use the floating point theory or linear arithmetic over reals
   private boolean useFpForReals;
@@ -76,9 +118,14 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
   private long maxAllowed;
 
   public ProblemZ3BitVectorIncremental() {
-    Z3Wrapper z3 = Z3Wrapper.getInstance();
+    z3 = Z3Wrapper.getInstance();
     solver = z3.getSolver();
     ctx = z3.getCtx();
+    z3.limits.apply(ctx, solver);
+    if (z3.session == null) {
+      z3.session = new SolverSession(this);
+    }
+    session = z3.session;
 
     // load bitvector length (default = 32 bit), then calculate allowed min-max values
     bitVectorLength = SymbolicInstructionFactory.bvlength;
@@ -94,15 +141,105 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
 
   @Override
   public void push() {
-    solver.push();
+    resetModel();
+    if (z3.assumptions) {
+      z3.active.add(newLiteral());
+    } else {
+      solver.push();
+    }
+  }
+
+  @Override
+  public boolean usesAssumptions() {
+    return z3.assumptions;
+  }
+
+  @Override
+  public boolean push(Constraint c) {
+    resetModel();
+    retireUnreachable();
+    BoolExpr literal = z3.literals.get(c);
+    if (literal != null) {
+      z3.active.add(literal);
+      return true;
+    }
+    literal = newLiteral();
+    z3.literals.put(c, literal);
+    z3.active.add(literal);
+    return false;
+  }
+
+  @Override
+  public void discard(Constraint c) {
+    BoolExpr literal = z3.literals.remove(c);
+    if (literal != null) {
+      solver.add(ctx.mkNot(literal));
+    }
+  }
+
+  private BoolExpr newLiteral() {
+    return ctx.mkBoolConst("__assume" + z3.literalCount++);
+  }
+
+  /*
+   * The conjuncts no path condition refers to any more will not be assumed
+   * again; asserting the negation of their literals lets Z3 drop the
+   * clauses they guard
+   */
+  private void retireUnreachable() {
+    List<BoolExpr> unreachable = z3.literals.expunged();
+    if (unreachable != null) {
+      for (BoolExpr literal : unreachable) {
+        solver.add(ctx.mkNot(literal));
+      }
+    }
+  }
+
+  /*
+   * Checks the assertions, under the literals of the active conjuncts if
+   * assumptions are used
+   */
+  private Status check() {
+    if (z3.assumptions) {
+      return solver.check(z3.active.toArray(new BoolExpr[z3.active.size()]));
+    }
+    return solver.check();
+  }
+
+  /*
+   * With assumptions, the DP variables are declared once for the whole run
+   * and their bounds asserted unconditionally. A name declared before with
+   * other bounds gets a constant of its own.
+   */
+  private String declare(String name, String bounds) {
+    if (!z3.assumptions) {
+      return name;
+    }
+    String unique = name;
+    for (int i = 1; z3.declared.containsKey(unique) && !bounds.equals(z3.declared.get(unique)); i++) {
+      unique = name + "!" + i;
+    }
+    z3.declared.put(unique, bounds);
+    return unique;
+  }
+
+  @Override
+  public SolverSession getSession() {
+    return session;
   }
 
   @Override
   public void pop() {
-    solver.pop();
+    resetModel();
+    if (z3.assumptions) {
+      z3.active.remove(z3.active.size() - 1);
+    } else {
+      solver.pop();
+    }
   }
 
   public void cleanup() {
+    resetModel();
     // nothing to be done here
   }
 
@@ -118,9 +255,8 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
 
   public long getIntValue(Object dpVar) {
     try {
-      Model model = null;
-      if (Status.SATISFIABLE == solver.check()) {
-        model = solver.getModel();
+      Model model = model();
+      if (model != null) {
         String strResult = model.eval((Expr)dpVar, false).toString();
         return new BigInteger(strResult).longValue();
       }
@@ -134,24 +270,47 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
     }
   }
 
+  /*
+   * The model of the last solve(), fetched once for all the values read
+   * back; checks again if constraints were added since
+   */
+  private Model model() {
+    if (checkedModel == null && (satisfiable || Status.SATISFIABLE == check())) {
+      checkedModel = solver.getModel();
+      satisfiable = true;
+    }
+    return checkedModel;
+  }
+
+  private Boolean checked(Boolean result) {
+    satisfiable = (result == Boolean.TRUE);
+    return result;
+  }
+
+  private void resetModel() {
+    checkedModel = null;
+    satisfiable = false;
+  }
+
   @Override
   public Boolean solve() {
+    resetModel();
     try {
-      boolean result = false;
+      Boolean result;
       if(SymbolicInstructionFactory.debugMode == true){
         System.out.println("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>");
         System.out.println(solver.toString());
         long z3time = 0;
         long t1 = System.nanoTime();
-        result = solver.check() == Status.SATISFIABLE ? true : false;
+        result = Z3Limits.result(solver, check());
         z3time += System.nanoTime()-t1;
         System.out.println("\nSolving time of z3 bitvector is " + TimeUnit.NANOSECONDS.toMillis(z3time) + " ms");
         System.out.println(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n\n");
       }
       else{
-        result = solver.check() == Status.SATISFIABLE ? true : false;
+        result = Z3Limits.result(solver, check());
       }
-      return result;
+      return checked(result);
     } catch(Exception e){
       e.printStackTrace();
       throw new RuntimeException("## Error Z3: solve() failed.\n" + e);
@@ -160,8 +319,14 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
 
   @Override
   public void post(Object constraint) {
+    resetModel();
     try{
-      solver.add((BoolExpr)constraint);
+      if (z3.assumptions && !z3.active.isEmpty()) {
+        // part of the conjunct of the innermost scope
+        solver.add(ctx.mkImplies(z3.active.get(z3.active.size() - 1), (BoolExpr)constraint));
+      } else {
+        solver.add((BoolExpr)constraint);
+      }
     } catch (Exception e) {
       e.printStackTrace();
       throw new RuntimeException("## Error Z3: post(Object) failed.\n" + e);
@@ -170,11 +335,12 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
 
   @Override
   public Object makeIntVar(String name, long min, long max) {
+    resetModel();
     checkBounds(min);
     checkBounds(max);
     try {
       //return ctx.mkIntConst(name);
-      BitVecExpr bv = ctx.mkBVConst(name, this.bitVectorLength);
+      BitVecExpr bv = ctx.mkBVConst(declare(name, "bv " + min + ".." + max), this.bitVectorLength);
       solver.add(ctx.mkBVSGE(bv, ctx.mkBV(min, this.bitVectorLength)));
       solver.add(ctx.mkBVSLE(bv, ctx.mkBV(max, this.bitVectorLength)));
       return bv;
@@ -198,6 +364,8 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
   //    }
 
   public Object makeRealVar(String name, double min, double max) {
+    resetModel();
+    name = declare(name, "real " + min + ".." + max);
     try {
       if (useFpForReals) {
         if (this.bitVectorLength == 32) {
@@ -1300,8 +1468,6 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
     }
   }
 
-  private int bvCount = 0;
-
   @Override
   public Object mixed(Object exp1, Object exp2) {
     BitVecExpr bvExpr = null;
@@ -1331,12 +1497,12 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
       IntExpr sub = null;
 
       sort = ctx.mkBitVecSort(this.bitVectorLength);
-      exprAlias = (BitVecExpr)ctx.mkBVConst("__bv2i" + bvCount++, this.bitVectorLength);
+      exprAlias = (BitVecExpr)ctx.mkBVConst("__bv2i" + z3.bvCount++, this.bitVectorLength);
 
       eq1 = ctx.mkEq(exprAlias, bvExpr);
       solver.add(eq1);
       bv2i = ctx.mkBV2Int(exprAlias, false);
-      unsigned = ctx.mkIntConst("__bv2i" + bvCount++);
+      unsigned = ctx.mkIntConst("__bv2i" + z3.bvCount++);
       eq2 = ctx.mkEq(bv2i, unsigned);
       solver.add(eq2);
 
@@ -1351,8 +1517,7 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
     }
   }
 
-  private double getFPValue(FPExpr fpExpr) {
-    Model model = solver.getModel();
+  private double getFPValue(Model model, FPExpr fpExpr) {
     String rawValue = model.getConstInterp(fpExpr.getFuncDecl()).toString();
     String[] pieces = rawValue.split(" ");
 
@@ -1369,13 +1534,12 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
   @Override
   public double getRealValueInf(Object dpvar) {
     try {
-      Model model = null;
-      if (Status.SATISFIABLE == solver.check()) {
+      Model model = model();
+      if (model != null) {
         if (dpvar instanceof FPExpr) {
-          return getFPValue((FPExpr)dpvar);
+          return getFPValue(model, (FPExpr)dpvar);
         }
 
-        model = solver.getModel();
         // TODO: clean this up
         String strResult = model.eval((Expr)dpvar, true).toString().replaceAll("\\s+","");
         Expr temp = model.eval((Expr)dpvar, false);
@@ -1498,6 +1662,16 @@ public class ProblemZ3BitVectorIncremental extends ProblemGeneral implements Inc
         }
     }
 
+    @Override
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        try {
+            return ctx.mkITE((BoolExpr) cond, (Expr) exp1, (Expr) exp2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
     @Override
     public Object makeRealConst(double value) {
         try {
@@ -27,6 +27,7 @@ import java.util.*;
 import com.microsoft.z3.*;
 
 import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.SolverSession;
 import symlib.Util;
 
 public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalSolver  {
@@ -39,14 +40,28 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
   private static class Z3Wrapper {
     private Context ctx;
     private Solver solver;
+    private SolverSession session;
+    private final Z3Limits limits = new Z3Limits();
 
-    private static Z3Wrapper instance = null;
+    // one context/solver/session per thread, so that PCs can be solved concurrently
+    private static final ThreadLocal<Z3Wrapper> instance = new ThreadLocal<Z3Wrapper>();
 
     public static Z3Wrapper getInstance() {
-      if (instance != null) {
-        return instance;
+      Z3Wrapper z3 = instance.get();
+      if (z3 == null) {
+        z3 = new Z3Wrapper();
+        instance.set(z3);
+      }
+      return z3;
+    }
+
+    // closes the context of the calling thread, if it has one
+    static void close() {
+      final Z3Wrapper z3 = instance.get();
+      if (z3 != null) {
+        instance.remove();
+        z3.ctx.close();
       }
-      return instance = new Z3Wrapper();
     }
 
     private Z3Wrapper() {
@@ -65,8 +80,19 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
     }
   }
 
+  /*
+   * Closes the Z3 context of the calling thread, see Z3Contexts
+   */
+  static void closeContext() {
+    Z3Wrapper.close();
+  }
+
   private Solver solver;
+  // the last check was satisfiable, and its model if values were read; see model()
+  private boolean satisfiable = false;
+  private Model checkedModel = null;
   private Context ctx;
+  private SolverSession session;
 
   // Do we use the floating point theory or linear arithmetic over reals
   private boolean useFpForReals = false;
@@ -75,26 +101,40 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
     Z3Wrapper z3 = Z3Wrapper.getInstance();
     solver = z3.getSolver();
     ctx = z3.getCtx();
+    z3.limits.apply(ctx, solver);
+    if (z3.session == null) {
+      z3.session = new SolverSession(this);
+    }
+    session = z3.session;
     useFpForReals = SymbolicInstructionFactory.fp;
   }
 
   @Override
   public void push() {
+    resetModel();
     solver.push();
   }
 
+  @Override
+  public SolverSession getSession() {
+    return session;
+  }
+
   @Override
   public void pop() {
+    resetModel();
     solver.pop();
 
   }
 
   public void cleanup() {
+    resetModel();
     // nothing to be done here
   }
 
 
   public Object makeIntVar(String name, long min, long max) {
+    resetModel();
     try {
       IntExpr intConst = ctx.mkIntConst(name);
       solver.add(ctx.mkGe(intConst, ctx.mkInt(min)));
@@ -107,6 +147,7 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
   }
 
   public Object makeRealVar(String name, double min, double max) {
+    resetModel();
     try {
       if (useFpForReals) {
         Expr expr = ctx.mkConst(name, ctx.mkFPSortDouble());
@@ -644,9 +685,8 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
 
   public long getIntValue(Object dpVar) {
     try {
-      Model model = null;
-      if (Status.SATISFIABLE == solver.check()) {
-        model = solver.getModel();
+      Model model = model();
+      if (model != null) {
         return Long.parseLong((model.evaluate((IntExpr)dpVar,false)).toString());
       }
       else {
@@ -669,16 +709,33 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
     return eq;
   }
 
+  /*
+   * The model of the last solve(), fetched once for all the values read
+   * back; checks again if constraints were added since
+   */
+  private Model model() {
+    if (checkedModel == null && (satisfiable || Status.SATISFIABLE == solver.check())) {
+      checkedModel = solver.getModel();
+      satisfiable = true;
+    }
+    return checkedModel;
+  }
+
+  private Boolean checked(Boolean result) {
+    satisfiable = (result == Boolean.TRUE);
+    return result;
+  }
+
+  private void resetModel() {
+    checkedModel = null;
+    satisfiable = false;
+  }
+
   public Boolean solve() {
+    resetModel();
     try {
       /* find model for the constraints above */
-      Model model = null;                
-
-      if (Status.SATISFIABLE == solver.check()) {   
-        return true;
-      } else {       
-        return false;
-      }
+      return checked(Z3Limits.result(solver, solver.check()));
     } catch(Exception e){
       e.printStackTrace();
       throw new RuntimeException("## Error Z3: " + e);
@@ -686,6 +743,7 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
   }
 
   public void post(Object constraint) {
+    resetModel();
     try{
       //solver.Assert((BoolExpr)constraint);
       solver.add((BoolExpr)constraint);
@@ -1074,9 +1132,8 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
   @Override
   public double getRealValueInf(Object dpvar) {
     try {
-      Model model = null;
-      if (Status.SATISFIABLE == solver.check()) {
-        model = solver.getModel();
+      Model model = model();
+      if (model != null) {
         // TODO: clean this up
         String strResult = model.eval((Expr)dpvar, true).toString().replaceAll("\\s+","");
         Expr temp = model.eval((Expr)dpvar, false);
@@ -1187,6 +1244,16 @@ public class ProblemZ3Incremental extends ProblemGeneral implements IncrementalS
         }
     }
 
+    @Override
+    public Object ite(Object cond, Object exp1, Object exp2) {
+        try {
+            return ctx.mkITE((BoolExpr) cond, (Expr) exp1, (Expr) exp2);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("## Error Z3 : Exception caught in Z3 JNI: " + e);
+        }
+    }
+
     @Override
     public Object makeRealConst(double value) {
         try {
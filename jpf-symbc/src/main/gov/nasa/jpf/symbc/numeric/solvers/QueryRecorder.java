@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryNonLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.BinaryRealExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.ITEIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Appends every query sent to the decision procedure to a gzip compressed
+ * corpus (symbolic.record=&lt;file&gt;), which {@link QueryReplay} runs
+ * again offline against any back end.
+ *
+ * Each query is one SMT-LIB2 script, preceded by a comment with the
+ * decision procedure, its answer and the time it took:
+ * <pre>
+ * ; query dp=z3 result=sat time_us=1234
+ * (declare-fun x () Int)
+ * (assert (&lt;= (- 100) x 100))
+ * (assert (&gt; x 0))
+ * (check-sat)
+ * </pre>
+ * Every declaration is followed by the bounds of the variable. Like
+ * {@code SMTLIBTranslator}, the translation walks the constraints and
+ * expressions directly; PCs with constructs other than integer and real
+ * arithmetic (+, -, *, div, rem, /) are counted as skipped. Every run
+ * adds a new gzip member to the file, and each query is flushed so that
+ * the corpus stays readable if the run is killed.
+ */
+public class QueryRecorder {
+
+	private final String file;
+	private final Writer out;
+
+	private long recorded = 0;
+	private long skipped = 0;
+	private boolean closed = false;
+
+	public QueryRecorder(String file) throws IOException {
+		this.file = file;
+		this.out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file, true), 8192, true),
+				StandardCharsets.UTF_8);
+		// the gzip trailer must be written for the next run to append to the file
+		Runtime.getRuntime().addShutdownHook(new Thread("query-recorder") {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
+	public synchronized void record(String dp, PathCondition pc, Boolean result, long nanos) {
+		final String smt = toSMTLIB(pc);
+		if (smt == null || closed) {
+			skipped++;
+			return;
+		}
+		try {
+			out.write("; query dp=" + dp + " result=" + (result == null ? "unknown" : result ? "sat" : "unsat")
+					+ " time_us=" + (nanos / 1000) + "\n");
+			out.write(smt);
+			out.flush();
+			recorded++;
+		} catch (IOException e) {
+			System.out.println("## Warning: cannot record query in " + file + ": " + e);
+			skipped++;
+		}
+	}
+
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			out.close();
+		} catch (IOException e) {
+			System.out.println("## Warning: cannot close " + file + ": " + e);
+		}
+	}
+
+	public synchronized String toString() {
+		return "query recorder: file=" + file + " recorded=" + recorded + " skipped=" + skipped;
+	}
+
+	/**
+	 * Returns the SMT-LIB2 script of pc, or null if it cannot be
+	 * translated.
+	 */
+	public static String toSMTLIB(PathCondition pc) {
+		final Map<String, String> declarations = new LinkedHashMap<String, String>();
+		final StringBuilder asserts = new StringBuilder();
+		for (Constraint c = pc.header; c != null; c = c.and) {
+			if (!(c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint
+					|| c instanceof RealConstraint))
+				return null;
+			final String l = expression(c.getLeft(), declarations);
+			final String r = expression(c.getRight(), declarations);
+			if (l == null || r == null)
+				return null;
+			asserts.append("(assert (").append(comparator(c.getComparator())).append(' ').append(l).append(' ').append(r).append("))\n");
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (String d : declarations.values())
+			sb.append(d);
+		sb.append(asserts).append("(check-sat)\n");
+		return sb.toString();
+	}
+
+	private static String comparator(Comparator c) {
+		switch (c) {
+		case EQ: return "=";
+		case NE: return "distinct";
+		case LT: return "<";
+		case LE: return "<=";
+		case GT: return ">";
+		default: return ">=";
+		}
+	}
+
+	private static String expression(Expression e, Map<String, String> declarations) {
+		if (e instanceof IntegerConstant)
+			return integer(((IntegerConstant) e).value);
+		if (e instanceof RealConstant)
+			return real(((RealConstant) e).value);
+		if (e instanceof SymbolicInteger) {
+			final SymbolicInteger v = (SymbolicInteger) e;
+			final String name = symbol(v.getName());
+			if (name != null && !declarations.containsKey(name))
+				declarations.put(name, "(declare-fun " + name + " () Int)\n(assert (<= "
+						+ integer(v._min) + " " + name + " " + integer(v._max) + "))\n");
+			return name;
+		}
+		if (e instanceof SymbolicReal) {
+			final SymbolicReal v = (SymbolicReal) e;
+			final String name = symbol(v.getName());
+			final String min = real(v._min);
+			final String max = real(v._max);
+			if (name == null || min == null || max == null)
+				return null;
+			if (!declarations.containsKey(name))
+				declarations.put(name, "(declare-fun " + name + " () Real)\n(assert (<= "
+						+ min + " " + name + " " + max + "))\n");
+			return name;
+		}
+		if (e instanceof BinaryLinearIntegerExpression) {
+			final BinaryLinearIntegerExpression b = (BinaryLinearIntegerExpression) e;
+			return binary(b.getOp(), false, b.getLeft(), b.getRight(), declarations);
+		}
+		if (e instanceof BinaryNonLinearIntegerExpression) {
+			final BinaryNonLinearIntegerExpression b = (BinaryNonLinearIntegerExpression) e;
+			return binary(b.op, false, b.left, b.right, declarations);
+		}
+		if (e instanceof BinaryRealExpression) {
+			final BinaryRealExpression b = (BinaryRealExpression) e;
+			return binary(b.getOp(), true, b.getLeft(), b.getRight(), declarations);
+		}
+		if (e instanceof ITEIntegerExpression) {
+			final ITEIntegerExpression ite = (ITEIntegerExpression) e;
+			final String l = expression(ite.getLeft(), declarations);
+			final String r = expression(ite.getRight(), declarations);
+			final String t = expression(ite.getThen(), declarations);
+			final String f = expression(ite.getElse(), declarations);
+			if (l == null || r == null || t == null || f == null)
+				return null;
+			return "(ite (" + comparator(ite.getComparator()) + " " + l + " " + r + ") " + t + " " + f + ")";
+		}
+		return null;
+	}
+
+	private static String binary(Operator op, boolean real, Expression left, Expression right,
+			Map<String, String> declarations) {
+		final String f;
+		switch (op) {
+		case PLUS: f = "+"; break;
+		case MINUS: f = "-"; break;
+		case MUL: f = "*"; break;
+		case DIV: f = real ? "/" : "div"; break;
+		case REM: f = real ? null : "rem"; break;
+		default: f = null;
+		}
+		if (f == null)
+			return null;
+		final String l = expression(left, declarations);
+		final String r = expression(right, declarations);
+		if (l == null || r == null)
+			return null;
+		return "(" + f + " " + l + " " + r + ")";
+	}
+
+	static String integer(long value) {
+		return value < 0 ? "(- " + Long.toString(value).substring(1) + ")" : Long.toString(value);
+	}
+
+	/* exact decimal value of the double, null for NaN and infinities */
+	static String real(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return null;
+		String s = new BigDecimal(Math.abs(value)).toPlainString();
+		if (s.indexOf('.') < 0)
+			s = s + ".0";
+		return value < 0 ? "(- " + s + ")" : s;
+	}
+
+	/* the name as an SMT-LIB symbol, quoted if necessary; null if impossible */
+	static String symbol(String name) {
+		if (name.matches("[A-Za-z_][A-Za-z0-9_.$]*"))
+			return name;
+		if (name.indexOf('|') >= 0 || name.indexOf('\\') >= 0)
+			return null;
+		return "|" + name + "|";
+	}
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Expression;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstant;
+import gov.nasa.jpf.symbc.numeric.RealExpression;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Runs a corpus written by {@link QueryRecorder} against a decision
+ * procedure, without JPF, and prints throughput and latency percentiles:
+ * <pre>
+ * java gov.nasa.jpf.symbc.numeric.solvers.QueryReplay queries.smt2.gz +symbolic.dp=z3 [+key=value ...]
+ * </pre>
+ * The properties configure the back end as for a JPF run (symbolic.dp,
+ * symbolic.z3.timeout, symbolic.choco_time_bound, ...). Each query is
+ * parsed back into a path condition and solved with {@link PCParser} and
+ * a fresh back end, so the times are comparable with the recorded ones.
+ * Answers that differ from the recorded ones are reported.
+ */
+public class QueryReplay {
+
+	private static final int MAX_MISMATCHES_SHOWN = 10;
+
+	/** A recorded query. */
+	public static class Query {
+		public final String dp;
+		public final Boolean result;
+		public final long micros;
+		public final String script;
+
+		Query(String dp, Boolean result, long micros, String script) {
+			this.dp = dp;
+			this.result = result;
+			this.micros = micros;
+			this.script = script;
+		}
+	}
+
+	/**
+	 * Reads all the queries of a corpus. Every run appended a gzip member to
+	 * it; a run that was killed left its member without an end. Such a
+	 * member is read up to the last query that was flushed, and the members
+	 * after it are read as usual.
+	 */
+	public static List<Query> read(String file) throws IOException {
+		final List<Query> queries = new ArrayList<Query>();
+		final byte[] data = Files.readAllBytes(Paths.get(file));
+		int start = 0;
+		while (start < data.length) {
+			final int end = nextMember(data, start + 1);
+			final Truncated gz = new Truncated(new GZIPInputStream(new ByteArrayInputStream(data, start, end - start)));
+			final int before = queries.size();
+			read(new BufferedReader(new InputStreamReader(gz, StandardCharsets.UTF_8)), queries);
+			if (gz.cause != null)
+				System.out.println("## Warning: " + file + " has a truncated run at byte " + start + ", read "
+						+ (queries.size() - before) + " queries of it: " + gz.cause);
+			start = end;
+		}
+		return queries;
+	}
+
+	/*
+	 * the header GZIPOutputStream starts each member with
+	 */
+	private static final byte[] MEMBER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0 };
+
+	/*
+	 * the offset of the first member header at or after from, or the end
+	 */
+	private static int nextMember(byte[] data, int from) {
+		for (int i = from; i <= data.length - MEMBER.length; i++) {
+			int j = 0;
+			while (j < MEMBER.length && data[i + j] == MEMBER[j])
+				j++;
+			if (j == MEMBER.length)
+				return i;
+		}
+		return data.length;
+	}
+
+	/*
+	 * adds the complete queries of one member
+	 */
+	private static void read(BufferedReader in, List<Query> queries) throws IOException {
+		try {
+			String header = null;
+			StringBuilder script = new StringBuilder();
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("; query ")) {
+					header = line;
+					script.setLength(0);
+				} else if (header != null) {
+					script.append(line).append('\n');
+					if (line.equals("(check-sat)")) {
+						queries.add(query(header, script.toString()));
+						header = null;
+					}
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * Ends a member where its decompression fails: at the end of a member
+	 * that was never finished (EOFException), or at data that is corrupt
+	 * (ZipException). The queries were flushed one by one, so the data
+	 * before that point is complete.
+	 */
+	private static class Truncated extends FilterInputStream {
+		IOException cause = null;
+
+		Truncated(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (cause != null)
+				return -1;
+			try {
+				return super.read();
+			} catch (EOFException e) {
+				cause = e;
+			} catch (ZipException e) {
+				cause = e;
+			}
+			return -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (cause != null)
+				return -1;
+			try {
+				return super.read(b, off, len);
+			} catch (EOFException e) {
+				cause = e;
+			} catch (ZipException e) {
+				cause = e;
+			}
+			return -1;
+		}
+	}
+
+	private static Query query(String header, String script) {
+		String dp = null;
+		Boolean result = null;
+		long micros = 0;
+		for (String field : header.substring("; query ".length()).split(" ")) {
+			final int eq = field.indexOf('=');
+			if (eq < 0)
+				continue;
+			final String key = field.substring(0, eq);
+			final String value = field.substring(eq + 1);
+			if (key.equals("dp"))
+				dp = value;
+			else if (key.equals("result"))
+				result = value.equals("sat") ? Boolean.TRUE : value.equals("unsat") ? Boolean.FALSE : null;
+			else if (key.equals("time_us"))
+				micros = Long.parseLong(value);
+		}
+		return new Query(dp, result, micros, script);
+	}
+
+	/**
+	 * Parses the SMT-LIB2 script of a query (as written by
+	 * {@link QueryRecorder#toSMTLIB(PathCondition)}) back into a path
+	 * condition.
+	 */
+	public static PathCondition parse(String script) {
+		final Map<String, String> sorts = new HashMap<String, String>();
+		final Map<String, Expression> vars = new HashMap<String, Expression>();
+		final List<Object[]> conjuncts = new ArrayList<Object[]>();
+		for (Object command : new SExpressionReader(script).readAll()) {
+			final List<?> c = list(command);
+			final String head = atom(c.get(0));
+			if (head.equals("declare-fun")) {
+				sorts.put(atom(c.get(1)), atom(c.get(3)));
+			} else if (head.equals("assert")) {
+				final List<?> a = list(c.get(1));
+				final String op = atom(a.get(0));
+				if (a.size() == 4 && op.equals("<=") && a.get(2) instanceof String
+						&& sorts.containsKey(a.get(2)) && !vars.containsKey(a.get(2))) {
+					// the bounds of a variable, right after its declaration
+					final String name = (String) a.get(2);
+					final Expression lo = expression(a.get(1), sorts, vars);
+					final Expression hi = expression(a.get(3), sorts, vars);
+					if (sorts.get(name).equals("Int"))
+						vars.put(name, new SymbolicInteger(name, ((IntegerConstant) lo).value, ((IntegerConstant) hi).value));
+					else
+						vars.put(name, new SymbolicReal(name, ((RealConstant) lo).value, ((RealConstant) hi).value));
+				} else {
+					conjuncts.add(new Object[] { comparator(op),
+							expression(a.get(1), sorts, vars), expression(a.get(2), sorts, vars) });
+				}
+			}
+		}
+		// the header of the PC is the first conjunct of the script
+		final PathCondition pc = new PathCondition();
+		for (int i = conjuncts.size() - 1; i >= 0; i--) {
+			final Object[] c = conjuncts.get(i);
+			pc._addDet((Comparator) c[0], (Expression) c[1], (Expression) c[2]);
+		}
+		return pc;
+	}
+
+	private static Comparator comparator(String op) {
+		if (op.equals("=")) return Comparator.EQ;
+		if (op.equals("distinct")) return Comparator.NE;
+		if (op.equals("<")) return Comparator.LT;
+		if (op.equals("<=")) return Comparator.LE;
+		if (op.equals(">")) return Comparator.GT;
+		if (op.equals(">=")) return Comparator.GE;
+		throw new IllegalArgumentException("unsupported comparison " + op);
+	}
+
+	private static Expression expression(Object e, Map<String, String> sorts, Map<String, Expression> vars) {
+		if (e instanceof String) {
+			final String s = (String) e;
+			if (Character.isDigit(s.charAt(0)))
+				return s.indexOf('.') < 0 ? new IntegerConstant(Long.parseLong(s))
+						: new RealConstant(new BigDecimal(s).doubleValue());
+			Expression v = vars.get(s);
+			if (v == null) {
+				// declared without bounds: the defaults of MinMax
+				final String sort = sorts.get(s);
+				if (sort == null)
+					throw new IllegalArgumentException("undeclared variable " + s);
+				v = sort.equals("Int") ? new SymbolicInteger(s) : new SymbolicReal(s);
+				vars.put(s, v);
+			}
+			return v;
+		}
+		final List<?> l = list(e);
+		final String op = atom(l.get(0));
+		if (op.equals("-") && l.size() == 2) {
+			if (l.get(1) instanceof String && Character.isDigit(((String) l.get(1)).charAt(0))) {
+				final String s = (String) l.get(1);
+				return s.indexOf('.') < 0 ? new IntegerConstant(Long.parseLong("-" + s))
+						: new RealConstant(-new BigDecimal(s).doubleValue());
+			}
+			final Expression x = expression(l.get(1), sorts, vars);
+			return x instanceof IntegerExpression ? ((IntegerExpression) x)._neg() : ((RealExpression) x)._neg();
+		}
+		if (l.size() != 3)
+			throw new IllegalArgumentException("unsupported term " + e);
+		final Expression left = expression(l.get(1), sorts, vars);
+		final Expression right = expression(l.get(2), sorts, vars);
+		if (left instanceof IntegerExpression && right instanceof IntegerExpression) {
+			final IntegerExpression a = (IntegerExpression) left;
+			final IntegerExpression b = (IntegerExpression) right;
+			if (op.equals("+")) return a._plus(b);
+			if (op.equals("-")) return a._minus(b);
+			if (op.equals("*")) return a._mul(b);
+			if (op.equals("div")) return a._div(b);
+			if (op.equals("rem")) return a._rem(b);
+		} else if (left instanceof RealExpression && right instanceof RealExpression) {
+			final RealExpression a = (RealExpression) left;
+			final RealExpression b = (RealExpression) right;
+			if (op.equals("+")) return a._plus(b);
+			if (op.equals("-")) return a._minus(b);
+			if (op.equals("*")) return a._mul(b);
+			if (op.equals("/")) return a._div(b);
+		}
+		throw new IllegalArgumentException("unsupported term " + e);
+	}
+
+	private static List<?> list(Object o) {
+		if (!(o instanceof List))
+			throw new IllegalArgumentException("expected a list: " + o);
+		return (List<?>) o;
+	}
+
+	private static String atom(Object o) {
+		if (!(o instanceof String))
+			throw new IllegalArgumentException("expected an atom: " + o);
+		return (String) o;
+	}
+
+	/*
+	 * the s-expressions of a script: atoms are Strings (quoted symbols
+	 * without their bars), lists are Lists
+	 */
+	private static class SExpressionReader {
+		private final String s;
+		private int pos = 0;
+
+		SExpressionReader(String s) {
+			this.s = s;
+		}
+
+		List<Object> readAll() {
+			final List<Object> result = new ArrayList<Object>();
+			skip();
+			while (pos < s.length()) {
+				result.add(read());
+				skip();
+			}
+			return result;
+		}
+
+		private void skip() {
+			while (pos < s.length()) {
+				final char c = s.charAt(pos);
+				if (c == ';') {
+					while (pos < s.length() && s.charAt(pos) != '\n')
+						pos++;
+				} else if (Character.isWhitespace(c)) {
+					pos++;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private Object read() {
+			final char c = s.charAt(pos);
+			if (c == '(') {
+				pos++;
+				final List<Object> l = new ArrayList<Object>();
+				skip();
+				while (pos < s.length() && s.charAt(pos) != ')') {
+					l.add(read());
+					skip();
+				}
+				if (pos >= s.length())
+					throw new IllegalArgumentException("unbalanced parentheses");
+				pos++;
+				return l;
+			}
+			if (c == '|') {
+				final int end = s.indexOf('|', pos + 1);
+				if (end < 0)
+					throw new IllegalArgumentException("unterminated symbol");
+				final String atom = s.substring(pos + 1, end);
+				pos = end + 1;
+				return atom;
+			}
+			final int start = pos;
+			while (pos < s.length() && s.charAt(pos) != '(' && s.charAt(pos) != ')'
+					&& !Character.isWhitespace(s.charAt(pos)))
+				pos++;
+			return s.substring(start, pos);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("usage: QueryReplay <corpus> [+symbolic.dp=<dp>] [+key=value ...]");
+			return;
+		}
+		new SymbolicInstructionFactory(new Config(Arrays.copyOfRange(args, 1, args.length)));
+		final String dp = SymbolicInstructionFactory.dp == null ? "choco" : SymbolicInstructionFactory.dp[0];
+
+		final List<Query> queries = read(args[0]);
+		final long[] times = new long[queries.size()];
+		final long[] recorded = new long[queries.size()];
+		long sat = 0, unsat = 0, unknown = 0, mismatches = 0, errors = 0;
+		int n = 0;
+		final long start = System.nanoTime();
+		for (Query q : queries) {
+			final long t;
+			Boolean result;
+			try {
+				final PathCondition pc = parse(q.script);
+				t = System.nanoTime();
+				final ProblemGeneral pb = new PCParser().parse(pc, SymbolicConstraintsGeneral.createProblem(dp));
+				result = (pb == null) ? Boolean.FALSE : pb.solve();
+				times[n] = System.nanoTime() - t;
+				SymbolicConstraintsGeneral.cleanup(pb);
+			} catch (RuntimeException e) {
+				System.out.println("## Warning: cannot replay query " + (n + 1) + ": " + e);
+				errors++;
+				continue;
+			}
+			recorded[n] = q.micros * 1000;
+			n++;
+			if (result == null)
+				unknown++;
+			else if (result)
+				sat++;
+			else
+				unsat++;
+			if (result != null && q.result != null && !result.equals(q.result)) {
+				if (mismatches++ < MAX_MISMATCHES_SHOWN)
+					System.out.println("## Warning: " + dp + " answered " + result + ", " + q.dp + " answered "
+							+ q.result + " for\n" + q.script);
+			}
+		}
+		final long total = System.nanoTime() - start;
+
+		System.out.println("replayed " + n + " of " + queries.size() + " queries from " + args[0] + " with " + dp
+				+ " (errors=" + errors + ")");
+		System.out.println("answers: sat=" + sat + " unsat=" + unsat + " unknown=" + unknown
+				+ " different from recorded=" + mismatches);
+		System.out.println("throughput: " + (total == 0 ? 0 : (long) (n * 1e9 / total)) + " queries/s");
+		System.out.println("latency " + percentiles(Arrays.copyOf(times, n)));
+		System.out.println("recorded latency " + percentiles(Arrays.copyOf(recorded, n)));
+	}
+
+	/**
+	 * Returns the 50th, 90th and 99th percentile and the maximum of the
+	 * given times (in ns), in milliseconds.
+	 */
+	public static String percentiles(long[] nanos) {
+		if (nanos.length == 0)
+			return "(ms): no queries";
+		Arrays.sort(nanos);
+		return "(ms): p50=" + ms(percentile(nanos, 0.50)) + " p90=" + ms(percentile(nanos, 0.90))
+				+ " p99=" + ms(percentile(nanos, 0.99)) + " max=" + ms(nanos[nanos.length - 1]);
+	}
+
+	static long percentile(long[] sorted, double p) {
+		final int i = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+	}
+
+	private static String ms(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+}
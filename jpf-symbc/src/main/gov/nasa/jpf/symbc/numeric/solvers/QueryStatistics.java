@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+/**
+ * Outcomes and running times of the queries sent to the decision
+ * procedure, with the slowest ones (at most {@code symbolic.slowest_queries},
+ * default 5). UNKNOWN answers (timeouts, resource limits, incomplete
+ * theories) are counted together with how they were handled, see
+ * {@code symbolic.unknown}. Shared by all threads that solve PCs.
+ */
+public class QueryStatistics {
+
+	private static final int MAX_PC_LENGTH = 500;
+
+	private static class Query implements Comparable<Query> {
+		final long nanos;
+		final String dp;
+		final String pc;
+
+		Query(long nanos, String dp, String pc) {
+			this.nanos = nanos;
+			this.dp = dp;
+			this.pc = pc;
+		}
+
+		public int compareTo(Query o) {
+			return Long.compare(nanos, o.nanos);
+		}
+	}
+
+	private final int slowest;
+	private final PriorityQueue<Query> slow = new PriorityQueue<Query>(); // fastest of the slowest first
+
+	private long sat = 0;
+	private long unsat = 0;
+	private long unknown = 0;
+	private long kept = 0;
+	private long retried = 0;
+	private long retriesDecided = 0;
+	private long nanos = 0;
+
+	public QueryStatistics(int slowest) {
+		if (slowest < 0) {
+			throw new IllegalArgumentException("symbolic.slowest_queries must be non-negative (>=0), but was " + slowest);
+		}
+		this.slowest = slowest;
+	}
+
+	/**
+	 * Records a query to the decision procedure dp that answered result
+	 * (null: unknown) after the given time.
+	 */
+	public synchronized void record(String dp, PathCondition pc, Boolean result, long time) {
+		if (result == null)
+			unknown++;
+		else if (result)
+			sat++;
+		else
+			unsat++;
+		nanos += time;
+		if (slowest > 0 && (slow.size() < slowest || slow.peek().nanos < time)) {
+			String s = pc.toString();
+			if (s.length() > MAX_PC_LENGTH)
+				s = s.substring(0, MAX_PC_LENGTH) + "...";
+			slow.add(new Query(time, dp, s));
+			if (slow.size() > slowest)
+				slow.poll();
+		}
+	}
+
+	/** An unknown PC was explored as if satisfiable. */
+	public synchronized void kept() {
+		kept++;
+	}
+
+	/** An unknown PC was given to the fallback decision procedure. */
+	public synchronized void retried(Boolean result) {
+		retried++;
+		if (result != null)
+			retriesDecided++;
+	}
+
+	public synchronized long getUnknown() {
+		return unknown;
+	}
+
+	public synchronized long getKept() {
+		return kept;
+	}
+
+	public synchronized long getRetried() {
+		return retried;
+	}
+
+	public synchronized long getQueries() {
+		return sat + unsat + unknown;
+	}
+
+	public synchronized String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("solver queries: total=").append(sat + unsat + unknown)
+			.append(" sat=").append(sat).append(" unsat=").append(unsat)
+			.append(" unknown=").append(unknown)
+			.append(" (kept=").append(kept).append(" retried=").append(retried)
+			.append(" decided by retry=").append(retriesDecided).append(")")
+			.append(" time=").append(nanos / 1000000).append("ms");
+		final List<Query> queries = new ArrayList<Query>(slow);
+		Collections.sort(queries, Collections.reverseOrder());
+		for (Query q : queries) {
+			sb.append("\n  ").append(q.nanos / 1000000).append("ms [").append(q.dp).append("] ").append(q.pc);
+		}
+		return sb.toString();
+	}
+}
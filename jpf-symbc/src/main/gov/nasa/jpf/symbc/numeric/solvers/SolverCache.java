@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of satisfiability results (and models, when known) for
+ * canonical path conditions, see {@link CanonicalPC}.
+ *
+ * Enabled with {@code symbolic.cache=true}; the number of entries is bounded
+ * by {@code symbolic.cache.size} (default 10000). The cache is shared by
+ * all threads that solve PCs.
+ *
+ * With {@code symbolic.cache.file=<file>} the results are also written to
+ * a {@link PersistentPCCache}, which is consulted when this cache misses.
+ */
+public class SolverCache {
+
+	public static class Entry {
+		public final boolean sat;
+		/* model in canonical variable order; null if only sat is known */
+		public long[] intModel;
+		public double[] realModel;
+
+		public Entry(boolean sat) {
+			this.sat = sat;
+		}
+
+		public boolean hasModel() {
+			return intModel != null;
+		}
+	}
+
+	private final int capacity;
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long persistentHits = 0;
+
+	/* second level, null if results are not persisted */
+	private PersistentPCCache persistent;
+
+	public SolverCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("symbolic.cache.size must be positive (>0), but was " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > SolverCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public synchronized void setPersistent(PersistentPCCache persistent) {
+		this.persistent = persistent;
+	}
+
+	/**
+	 * Returns the entry for the given canonical path condition, or
+	 * {@code null}, and updates the hit/miss counters.
+	 */
+	public synchronized Entry lookup(CanonicalPC cpc) {
+		Entry e = entries.get(cpc.getKey());
+		if (e == null && persistent != null) {
+			e = persistent.lookup(cpc.getKey());
+			if (e != null) {
+				persistentHits++;
+				entries.put(cpc.getKey(), e);
+			}
+		}
+		if (e == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return e;
+	}
+
+	public synchronized void putResult(CanonicalPC cpc, boolean sat) {
+		Entry e = entries.get(cpc.getKey());
+		if (e == null || e.sat != sat) {
+			e = new Entry(sat);
+			entries.put(cpc.getKey(), e);
+			if (persistent != null)
+				persistent.put(cpc.getKey(), e);
+		}
+	}
+
+	/**
+	 * Records a satisfiable path condition together with the solutions that
+	 * are currently stored in its variables.
+	 */
+	public synchronized void putModel(CanonicalPC cpc) {
+		Entry e = new Entry(true);
+		e.intModel = cpc.getIntSolutions();
+		e.realModel = cpc.getRealSolutions();
+		entries.put(cpc.getKey(), e);
+		if (persistent != null)
+			persistent.put(cpc.getKey(), e);
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized String toString() {
+		long total = hits + misses;
+		return "solver cache: hits=" + hits + " misses=" + misses
+				+ " hit-rate=" + (total == 0 ? 0 : (100 * hits / total)) + "%"
+				+ " size=" + entries.size() + "/" + capacity + " evictions=" + evictions
+				+ (persistent != null ? " from file=" + persistentHits : "");
+	}
+}
@@ -18,8 +18,7 @@
 
 package gov.nasa.jpf.symbc.numeric.solvers;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.Stack;
 
 import za.ac.sun.cs.green.Instance;
@@ -83,7 +82,20 @@ import gov.nasa.jpf.symbc.string.SymbolicLastIndexOfChar2Integer;
 
 public class SolverTranslator {
 
-	private static Map<ConstraintSequence, Instance> instanceCache = new HashMap<ConstraintSequence, Instance>();
+	/* the instances made by createInstance, see setCacheSize() */
+	private static InstanceCache instanceCache = new InstanceCache(10000);
+
+	/**
+	 * Keeps at most {@code size} instances for the PCs translated later
+	 * (symbolic.green.instance_cache.size); forgets the ones kept so far.
+	 */
+	public static void setCacheSize(int size) {
+		instanceCache = new InstanceCache(size);
+	}
+
+	public static InstanceCache getInstanceCache() {
+		return instanceCache;
+	}
 
 	public static Instance createStringInstance(StringConstraint c) {
 		Expression e = null;
@@ -107,61 +119,52 @@ public class SolverTranslator {
 	}
 	
 
+	/**
+	 * Returns the instance of the conjuncts from c on. The tail below c is
+	 * usually the PC of the parent, translated already: its instance is
+	 * the parent of the result, and only the conjuncts above it are
+	 * translated. Instance.merge needs a flat instance, see flatten().
+	 */
 	public static Instance createInstance(Constraint c) {
-		Expression e = null;
-		
-		while (c != null) {
-			Translator translator = new Translator();
-			c.accept(translator);
-			
-			Expression tmp = translator.getExpression();
-			
-			if (e == null){
-				e = tmp; 
-			}
-			else{
-				e = new Operation(Operation.Operator.AND,e,tmp);
-			}
-			c = c.and;
-		}
-		Instance greenPC = new Instance(SymbolicInstructionFactory.greenSolver, null, e);
-		return greenPC; 
-	}
-
-
-	private final static class ConstraintSequence {
-
-		private final Constraint sequence;
-
-		public ConstraintSequence(Constraint sequence) {
-			this.sequence = sequence;
+		if (c == null) {
+			return new Instance(SymbolicInstructionFactory.greenSolver, null, null);
 		}
-
-		@Override
-		public boolean equals(Object object) {
-			Constraint z = ((ConstraintSequence) object).sequence;
-			Constraint s = sequence;
-			while ((s != null) && (z != null)) {
-				if (!s.equals(z)) {
-					return false;
-				}
-				s = s.getTail();
-				z = z.getTail();
-			}
-			return (s == null) && (z == null);
+		final InstanceCache cache = instanceCache;
+
+		// the conjuncts above the first tail that was translated already
+		final ArrayDeque<Constraint> untranslated = new ArrayDeque<Constraint>();
+		InstanceCache.Entry translated = null;
+		Constraint last = null;
+		for (Constraint t = c; t != null; t = t.and) {
+			translated = cache.lookup(t);
+			if (translated != null)
+				break;
+			untranslated.push(t);
+			last = t;
 		}
 
-		@Override
-		public int hashCode() {
-			int h = 0;
-			Constraint s = sequence;
-			while (s != null) {
-				h ^= s.hashCode();
-				s = s.getTail();
-			}
-			return h;
+		Instance greenPC = (translated == null) ? null : translated.instance;
+		if (translated != null)
+			last = translated.last;
+		while (!untranslated.isEmpty()) {
+			final Constraint t = untranslated.pop();
+			Translator translator = new Translator();
+			t.accept(translator);
+			greenPC = new Instance(SymbolicInstructionFactory.greenSolver, greenPC, translator.getExpression());
+			// bottom up, so that Green does not recurse down the whole chain
+			greenPC.getFullExpression();
+			cache.put(t, last, greenPC);
 		}
+		return greenPC;
+	}
 
+	/**
+	 * Returns an instance without parent for the same conjuncts.
+	 */
+	public static Instance flatten(Instance instance) {
+		if (instance.getParent() == null)
+			return instance;
+		return new Instance(SymbolicInstructionFactory.greenSolver, null, instance.getFullExpression());
 	}
 
 	private final static class Translator extends ConstraintExpressionVisitor {
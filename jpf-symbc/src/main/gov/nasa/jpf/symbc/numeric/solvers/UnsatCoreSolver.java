@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+
+/**
+ * A decision procedure that can tell which conjuncts of an unsatisfiable
+ * path condition contradict each other, see {@link UnsatCoreStore}.
+ */
+public interface UnsatCoreSolver {
+
+	/**
+	 * The constraints posted from now on encode the conjunct {@code c} of
+	 * the path condition being parsed.
+	 */
+	public void track(Constraint c);
+
+	/**
+	 * After {@link ProblemGeneral#solve()} returned false: the tracked
+	 * conjuncts that are unsatisfiable together, or null if unknown.
+	 */
+	public List<Constraint> getUnsatCore();
+}
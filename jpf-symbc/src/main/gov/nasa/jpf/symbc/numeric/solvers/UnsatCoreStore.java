@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+/**
+ * Unsatisfiable cores of earlier queries, used to prune path conditions
+ * that contain one of them without calling the solver.
+ *
+ * The Z3 back ends assert every conjunct under its own tracking literal
+ * and report the conjuncts of the core when a PC is unsatisfiable; any
+ * later PC that contains all of them is unsatisfiable too. This catches
+ * the same contradiction (say {@code i < n} and {@code i >= n}) on sibling
+ * paths, where the rest of the PC, and so the solver cache key, differs.
+ *
+ * Each core is indexed under one of its conjuncts, so a lookup only
+ * inspects the cores whose indexed conjunct is in the PC. Enabled with
+ * {@code symbolic.unsat_cores=true}; at most {@code symbolic.unsat_cores.size}
+ * cores (default 10000) are kept, the oldest are dropped first. The store
+ * is shared by all threads that solve PCs.
+ */
+public class UnsatCoreStore {
+
+	private final int capacity;
+
+	private final HashMap<Constraint, List<Constraint[]>> index = new HashMap<Constraint, List<Constraint[]>>();
+	private final ArrayDeque<Constraint[]> cores = new ArrayDeque<Constraint[]>();
+
+	private long queries = 0;
+	private long pruned = 0;
+	private long evictions = 0;
+
+	public UnsatCoreStore(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("symbolic.unsat_cores.size must be positive (>0), but was " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns whether {@code pc} contains all the conjuncts of a stored
+	 * core, i.e. is known to be unsatisfiable.
+	 */
+	public synchronized boolean subsumes(final PathCondition pc) {
+		queries++;
+		if (cores.isEmpty())
+			return false;
+		for (Constraint c = pc.header; c != null; c = c.and) {
+			final List<Constraint[]> candidates = index.get(c);
+			if (candidates == null)
+				continue;
+			for (Constraint[] core : candidates) {
+				if (containsAll(pc, core)) {
+					pruned++;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsAll(final PathCondition pc, final Constraint[] core) {
+		// core[0] is the conjunct the core was found under
+		for (int i = 1; i < core.length; i++) {
+			if (!pc.hasConstraint(core[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Records the core of an unsatisfiable PC; its conjuncts are copied,
+	 * so the PC itself is not kept alive.
+	 */
+	public synchronized void add(final List<Constraint> core) {
+		if (core == null || core.isEmpty())
+			return;
+		final Constraint[] copy = new Constraint[core.size()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = core.get(i).copy();
+		}
+		List<Constraint[]> candidates = index.get(copy[0]);
+		if (candidates == null) {
+			candidates = new ArrayList<Constraint[]>(2);
+			index.put(copy[0], candidates);
+		}
+		candidates.add(copy);
+		cores.addLast(copy);
+		if (cores.size() > capacity) {
+			final Constraint[] eldest = cores.removeFirst();
+			final List<Constraint[]> l = index.get(eldest[0]);
+			l.remove(eldest);
+			if (l.isEmpty())
+				index.remove(eldest[0]);
+			evictions++;
+		}
+	}
+
+	public synchronized long getQueries() {
+		return queries;
+	}
+
+	public synchronized long getPruned() {
+		return pruned;
+	}
+
+	public synchronized int size() {
+		return cores.size();
+	}
+
+	public synchronized String toString() {
+		return "unsat cores: queries=" + queries + " pruned=" + pruned
+				+ " size=" + cores.size() + "/" + capacity + " evictions=" + evictions;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+/**
+ * Closes the Z3 contexts of a thread. The Z3 back ends keep one context
+ * per thread that solves with them, and its native memory is only
+ * reclaimed when it is closed; a thread that stops solving (e.g. a
+ * thread of the portfolio) closes its contexts with closeCurrentThread().
+ */
+public final class Z3Contexts {
+
+	private Z3Contexts() {
+	}
+
+	public static void closeCurrentThread() {
+		try {
+			ProblemZ3.closeContext();
+			ProblemZ3BitVector.closeContext();
+			ProblemZ3Incremental.closeContext();
+			ProblemZ3BitVectorIncremental.closeContext();
+		} catch (LinkageError e) {
+			// the Z3 libraries are missing, so the thread has no context
+		}
+	}
+}
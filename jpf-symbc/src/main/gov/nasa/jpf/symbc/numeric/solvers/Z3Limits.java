@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.numeric.solvers;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Params;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Status;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+
+/*
+ * Per-query limits of a Z3 solver (symbolic.z3.timeout and
+ * symbolic.z3.rlimit) and the translation of its answers, shared by the
+ * Z3 back ends. Each solver object has its own instance, which remembers
+ * the limits it set so that they are only sent to Z3 when they change.
+ */
+final class Z3Limits {
+
+	private int timeout = 0;
+	private int rlimit = 0;
+
+	void apply(Context ctx, Solver solver) {
+		final int t = SymbolicInstructionFactory.z3Timeout;
+		final int r = SymbolicInstructionFactory.z3ResourceLimit;
+		if (t == timeout && r == rlimit)
+			return;
+		final Params p = ctx.mkParams();
+		p.add("timeout", t > 0 ? t : -1); // -1 is UINT_MAX for Z3: no timeout
+		p.add("rlimit", r); // 0: no limit
+		solver.setParameters(p);
+		timeout = t;
+		rlimit = r;
+	}
+
+	/*
+	 * SATISFIABLE -> true, UNSATISFIABLE -> false, UNKNOWN (timeout,
+	 * resource limit, incomplete theory) -> null
+	 */
+	static Boolean result(Solver solver, Status status) {
+		if (status == Status.SATISFIABLE)
+			return Boolean.TRUE;
+		if (status == Status.UNSATISFIABLE)
+			return Boolean.FALSE;
+		if (SymbolicInstructionFactory.debugMode)
+			System.out.println("## Warning: Z3 returned UNKNOWN (" + solver.getReasonUnknown() + ")");
+		return null;
+	}
+}
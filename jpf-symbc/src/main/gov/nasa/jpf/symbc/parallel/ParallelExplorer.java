@@ -0,0 +1,502 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.report.Reporter;
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.SymbolicListener;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Parallel symbolic execution by static partitioning of the search tree.
+ *
+ * The driver (the JPF run this listener is added to) explores the tree
+ * until a path has gone through symbolic.parallel.depth PCChoiceGenerators.
+ * It records the choices made on that path (the choice prefix), hands it
+ * to a worker and backtracks; paths that end before that depth are
+ * explored by the driver itself. The workers are separate JVMs
+ * (symbolic.parallel.workers, default: one per processor) that connect to
+ * the driver over a local socket. A worker explores a prefix with a JPF
+ * instance of its own, configured like the driver plus
+ * symbolic.parallel.prefix; in that instance this listener forces every
+ * choice generator of the prefix to its recorded choice, so the search
+ * explores the subtree below the prefix only. When the search of the
+ * driver is finished, it waits for the workers and merges their method
+ * summaries (SymbolicListener) and search statistics into its own, before
+ * they are reported.
+ *
+ * The states of a prefix are counted once by the driver and once more by
+ * the worker replaying it.
+ *
+ * Static partitioning balances the load poorly when the tree is skewed.
+ * With symbolic.parallel.steal=true, a worker that is idle makes the
+ * driver ask the busy worker that has been busy longest for work: at the
+ * next state that has a branch with choices left below its prefix, that
+ * worker gives away the choices it has not taken yet at the topmost such
+ * branch (each as a prefix of its own) and marks the generator done, so
+ * it goes on with the path it is on only.
+ * The donated prefixes are replayed like the others.
+ *
+ * Use with {@code listener+=,gov.nasa.jpf.symbc.parallel.ParallelExplorer}.
+ * symbolic.parallel.jvm_args adds options to the worker JVMs, and
+ * symbolic.parallel.log keeps their output in the given directory.
+ */
+public class ParallelExplorer extends ListenerAdapter {
+
+	/* the prefix a worker replays; set by the worker only */
+	public static final String PREFIX = "symbolic.parallel.prefix";
+
+	/* how long the driver waits for a worker to connect */
+	private static final int CONNECT_TIMEOUT = 60000;
+
+	/* how often an idle worker asks for a donation */
+	private static final int STEAL_INTERVAL = 50;
+
+	private final Config conf;
+	private final JPF jpf;
+
+	/* worker: the choices to force, one per choice generator from the root on */
+	private final int[] replay;
+
+	/* driver */
+	private final int depth;
+	private final int nWorkers;
+	private final boolean steal;
+	private WorkPool pool;
+	private ServerSocket server;
+	private final List<Process> processes = new ArrayList<Process>();
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private final AtomicInteger stealRequests = new AtomicInteger();
+	private final AtomicInteger donated = new AtomicInteger();
+	private final List<WorkResult> results = new ArrayList<WorkResult>();
+	private final List<String> failures = new ArrayList<String>();
+	private long start;
+
+	public ParallelExplorer(Config conf, JPF jpf) {
+		this.conf = conf;
+		this.jpf = jpf;
+		final String prefix = conf.getString(PREFIX);
+		replay = prefix == null ? null : WorkPool.decode(prefix);
+		depth = conf.getInt("symbolic.parallel.depth", 4);
+		nWorkers = conf.getInt("symbolic.parallel.workers", Runtime.getRuntime().availableProcessors());
+		steal = conf.getBoolean("symbolic.parallel.steal", false);
+	}
+
+	@Override
+	public void searchStarted(Search search) {
+		if (replay != null || nWorkers <= 0) {
+			return;
+		}
+		start = System.currentTimeMillis();
+		try {
+			server = new ServerSocket(0, nWorkers, InetAddress.getLoopbackAddress());
+			server.setSoTimeout(CONNECT_TIMEOUT);
+			pool = new WorkPool();
+			for (int i = 0; i < nWorkers; i++) {
+				processes.add(startWorker(i, server.getLocalPort()));
+				connections.add(new Connection(i));
+			}
+			for (Connection connection : connections) {
+				connection.start();
+			}
+		} catch (IOException e) {
+			System.out.println("## Warning: cannot start parallel workers, exploring sequentially (" + e + ")");
+			shutdown();
+			pool = null;
+		}
+	}
+
+	private Process startWorker(int id, int port) throws IOException {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(classPath());
+		final String libraryPath = System.getProperty("java.library.path");
+		if (libraryPath != null) {
+			cmd.add("-Djava.library.path=" + libraryPath);
+		}
+		for (String arg : conf.getStringArray("symbolic.parallel.jvm_args", new String[0])) {
+			cmd.add(arg);
+		}
+		cmd.add(ParallelWorker.class.getName());
+		cmd.add(InetAddress.getLoopbackAddress().getHostAddress());
+		cmd.add(String.valueOf(port));
+
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		final String logDir = conf.getString("symbolic.parallel.log");
+		if (logDir != null) {
+			new File(logDir).mkdirs();
+			pb.redirectOutput(new File(logDir, "worker-" + id + ".log"));
+		} else {
+			pb.redirectOutput(new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null"));
+		}
+		return pb.start();
+	}
+
+	/*
+	 * the JPF classes are usually loaded by the JPFClassLoader (RunJPF), so
+	 * the worker needs its URLs in addition to the class path of this JVM
+	 */
+	private static String classPath() {
+		final LinkedHashSet<String> entries = new LinkedHashSet<String>();
+		for (ClassLoader cl = ParallelExplorer.class.getClassLoader(); cl != null; cl = cl.getParent()) {
+			if (cl instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) cl).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						entries.add(new File(url.getPath()).getAbsolutePath());
+					}
+				}
+			}
+		}
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (!entry.isEmpty()) {
+				entries.add(new File(entry).getAbsolutePath());
+			}
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (String entry : entries) {
+			if (sb.length() > 0)
+				sb.append(File.pathSeparatorChar);
+			sb.append(entry);
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * the driver's end of a worker: hands out prefixes until the pool is
+	 * exhausted, and collects the results and donations of the worker
+	 */
+	private class Connection extends Thread {
+
+		private ObjectOutputStream out;
+
+		/* the prefix the worker is exploring, and since when */
+		private String current;
+		private long since;
+		private boolean stealPending;
+
+		Connection(int id) {
+			super("parallel-worker-" + id);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			String prefix = null;
+			try {
+				final Socket socket = server.accept();
+				try {
+					synchronized (this) {
+						out = new ObjectOutputStream(socket.getOutputStream());
+					}
+					send(conf.getArgs());
+					send(properties());
+					final ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+					while ((prefix = next()) != null) {
+						synchronized (this) {
+							current = prefix;
+							since = System.currentTimeMillis();
+						}
+						send(prefix);
+						Object message;
+						while ((message = in.readObject()) instanceof Donation) {
+							synchronized (this) {
+								stealPending = false;
+								since = System.currentTimeMillis();
+							}
+							for (String donation : ((Donation) message).prefixes) {
+								pool.add(donation);
+								donated.incrementAndGet();
+							}
+						}
+						synchronized (results) {
+							results.add((WorkResult) message);
+						}
+						synchronized (this) {
+							current = null;
+							stealPending = false;
+						}
+						pool.done(prefix);
+						prefix = null;
+					}
+					send(null);
+				} finally {
+					socket.close();
+				}
+			} catch (InterruptedException e) {
+				// shut down
+			} catch (Exception e) {
+				synchronized (failures) {
+					failures.add(getName() + ": " + e);
+				}
+			} finally {
+				synchronized (this) {
+					current = null;
+				}
+				if (prefix != null) {
+					pool.retry(prefix);
+				}
+			}
+		}
+
+		/* the next prefix for this worker, or null once there is no work left */
+		private String next() throws InterruptedException {
+			if (!steal) {
+				return pool.take();
+			}
+			String prefix;
+			while ((prefix = pool.take(STEAL_INTERVAL)) == null && !pool.isFinished()) {
+				requestDonation();
+			}
+			return prefix;
+		}
+
+		synchronized void send(Object message) throws IOException {
+			out.writeObject(message);
+			out.flush();
+		}
+
+		/* asks the worker for work if it is busy, returns whether it was asked */
+		synchronized boolean steal() throws IOException {
+			if (current == null || stealPending) {
+				return false;
+			}
+			stealPending = true;
+			send(ParallelWorker.Command.STEAL);
+			stealRequests.incrementAndGet();
+			return true;
+		}
+
+		synchronized long busySince() {
+			return current == null || stealPending ? Long.MAX_VALUE : since;
+		}
+	}
+
+	/*
+	 * asks the worker that has been busy longest, or was asked longest
+	 * ago, to give away work
+	 */
+	private void requestDonation() {
+		Connection victim = null;
+		long oldest = Long.MAX_VALUE;
+		for (Connection c : connections) {
+			final long since = c.busySince();
+			if (since < oldest) {
+				oldest = since;
+				victim = c;
+			}
+		}
+		if (victim != null) {
+			try {
+				victim.steal();
+			} catch (IOException e) {
+				// the victim's own thread notices the broken connection
+			}
+		}
+	}
+
+	private HashMap<String, String> properties() {
+		final HashMap<String, String> properties = new HashMap<String, String>();
+		synchronized (conf) {
+			for (String key : conf.stringPropertyNames()) {
+				properties.put(key, conf.getProperty(key));
+			}
+		}
+		return properties;
+	}
+
+	@Override
+	public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> cg) {
+		if (replay == null) {
+			return;
+		}
+		int index = 0;
+		for (ChoiceGenerator<?> prev = cg.getPreviousChoiceGenerator(); prev != null; prev = prev.getPreviousChoiceGenerator()) {
+			index++;
+		}
+		if (index < replay.length) {
+			// forces the choice, and the CG is done on backtrack
+			cg.select(replay[index]);
+		}
+	}
+
+	/*
+	 * worker: gives away the choices not taken yet at the topmost branch
+	 * below the prefix, and marks that generator done
+	 */
+	private List<String> donate(VM vm) {
+		final List<String> donation = new ArrayList<String>();
+		final ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+		if (cgs == null) {
+			return donation;
+		}
+		for (int i = replay.length; i < cgs.length; i++) {
+			final ChoiceGenerator<?> cg = cgs[i];
+			if (cg instanceof PCChoiceGenerator && cg.hasMoreChoices()) {
+				final int[] choices = new int[i + 1];
+				for (int j = 0; j < i; j++) {
+					choices[j] = cgs[j].getProcessedNumberOfChoices() - 1;
+				}
+				for (int c = cg.getProcessedNumberOfChoices(); c < cg.getTotalNumberOfChoices(); c++) {
+					choices[i] = c;
+					donation.add(WorkPool.encode(choices));
+				}
+				cg.setDone();
+				break;
+			}
+		}
+		return donation;
+	}
+
+	@Override
+	public void stateAdvanced(Search search) {
+		if (replay != null && ParallelWorker.stealRequested()) {
+			// while the prefix is replayed there is nothing to give away yet,
+			// the request is answered at a later state
+			final List<String> donation = donate(search.getVM());
+			if (!donation.isEmpty()) {
+				ParallelWorker.donate(donation);
+			}
+			return;
+		}
+		if (pool == null || search.isEndState() || search.isIgnoredState()) {
+			return;
+		}
+		final ChoiceGenerator<?>[] cgs = search.getVM().getChoiceGenerators();
+		if (cgs == null) {
+			return;
+		}
+		// the PCChoiceGenerators of symbolic method calls have one choice only
+		int pcs = 0;
+		for (ChoiceGenerator<?> cg : cgs) {
+			if (cg instanceof PCChoiceGenerator && cg.getTotalNumberOfChoices() > 1)
+				pcs++;
+		}
+		if (pcs < depth) {
+			return;
+		}
+		final int[] choices = new int[cgs.length];
+		for (int i = 0; i < cgs.length; i++) {
+			choices[i] = cgs[i].getProcessedNumberOfChoices() - 1;
+		}
+		pool.add(WorkPool.encode(choices));
+		search.requestBacktrack();
+	}
+
+	@Override
+	public void searchFinished(Search search) {
+		if (pool == null) {
+			return;
+		}
+		pool.close();
+		try {
+			for (Connection connection : connections) {
+				connection.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		shutdown();
+		merge();
+		report();
+	}
+
+	private void shutdown() {
+		for (Process p : processes) {
+			try {
+				if (!p.waitFor(1, TimeUnit.SECONDS)) {
+					p.destroy();
+				}
+			} catch (InterruptedException e) {
+				p.destroy();
+			}
+		}
+		try {
+			if (server != null) {
+				server.close();
+			}
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	private void merge() {
+		final SymbolicListener summaries = jpf.getListenerOfType(SymbolicListener.class);
+		final Reporter reporter = jpf.getReporter();
+		final Statistics stat = reporter == null ? null : reporter.getStatistics();
+		for (WorkResult result : results) {
+			if (summaries != null) {
+				summaries.mergeSummaryData(result.summaries);
+			}
+			if (stat != null) {
+				result.addStatistics(stat);
+			}
+		}
+	}
+
+	private void report() {
+		long workerTime = 0;
+		for (WorkResult result : results) {
+			workerTime += result.millis;
+		}
+		System.out.println("====================================================== parallel exploration");
+		System.out.println("prefixes at depth " + depth + ": " + (pool.getAdded() - donated.get()) + ", explored by "
+				+ processes.size() + " workers: " + pool.getDone() + ", elapsed time: "
+				+ (System.currentTimeMillis() - start) + " ms, worker time: " + workerTime + " ms");
+		if (steal) {
+			System.out.println("work stealing: requests=" + stealRequests + " prefixes donated=" + donated);
+		}
+		for (WorkResult result : results) {
+			for (String error : result.errors) {
+				System.out.println("## Error: in subtree " + result.prefix + ": " + error);
+			}
+		}
+		for (String failure : failures) {
+			System.out.println("## Warning: worker failed " + failure);
+		}
+		final String[] left = pool.drain();
+		if (left.length > 0) {
+			System.out.println("## Error: " + left.length + " prefixes were not explored, the tree is incomplete");
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.Error;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.symbc.SymbolicListener;
+
+/**
+ * A worker JVM of a parallel run (see ParallelExplorer).
+ *
+ * The worker connects to the driver, receives the driver's command line
+ * and configuration, and then explores one choice prefix after the other
+ * until the driver sends null. Each prefix is explored by a new JPF
+ * instance that replays the prefix and searches the subtree below it.
+ * While it does, the driver can ask it for work (Command.STEAL); the
+ * ParallelExplorer of the running JPF answers with a Donation at the
+ * next state.
+ *
+ * Usage: ParallelWorker &lt;host&gt; &lt;port&gt;
+ */
+public class ParallelWorker {
+
+	public enum Command { STEAL }
+
+	/* marks the end of the work in the queue */
+	private static final Object END = new Object();
+
+	private static final AtomicBoolean steal = new AtomicBoolean();
+	private static ObjectOutputStream out;
+
+	/* the result of the prefix being explored */
+	private static WorkResult current;
+
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err.println("usage: ParallelWorker <host> <port>");
+			System.exit(1);
+		}
+		final Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+		try {
+			out = new ObjectOutputStream(socket.getOutputStream());
+			out.flush();
+			final ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+			final String[] cmdLine = (String[]) in.readObject();
+			final Map<String, String> properties = (Map<String, String>) in.readObject();
+
+			// steal requests have to get through while JPF runs
+			final LinkedBlockingQueue<Object> work = new LinkedBlockingQueue<Object>();
+			final Thread reader = new Thread("driver") {
+				@Override
+				public void run() {
+					try {
+						Object message;
+						while ((message = in.readObject()) != null) {
+							if (message == Command.STEAL) {
+								requestSteal();
+							} else {
+								// a request that came in after the last prefix was done is void
+								steal.set(false);
+								work.add(message);
+							}
+						}
+					} catch (Exception e) {
+						System.err.println("## Error: lost the driver: " + e);
+					}
+					work.add(END);
+				}
+			};
+			reader.setDaemon(true);
+			reader.start();
+
+			Object prefix;
+			while ((prefix = work.take()) != END) {
+				send(explore(cmdLine, properties, (String) prefix));
+			}
+		} finally {
+			socket.close();
+		}
+		// JPF may leave non-daemon threads behind
+		System.exit(0);
+	}
+
+	private static synchronized void send(Object message) throws IOException {
+		out.writeObject(message);
+		out.flush();
+		out.reset();
+	}
+
+	static void requestSteal() {
+		steal.set(true);
+	}
+
+	/* whether the driver asked for work, and no donation answered it yet */
+	static boolean stealRequested() {
+		return steal.get();
+	}
+
+	static void donate(List<String> prefixes) {
+		steal.set(false);
+		if (out == null) {
+			// no driver: the caller of explore() has to explore them
+			if (current != null) {
+				current.donated.addAll(prefixes);
+			}
+			return;
+		}
+		try {
+			send(new Donation(prefixes));
+		} catch (IOException e) {
+			System.err.println("## Error: cannot donate work: " + e);
+		}
+	}
+
+	/**
+	 * Explores the subtree below prefix with the driver's configuration.
+	 * Without a driver (a call in another JVM than the worker's main), the
+	 * prefixes given away on a steal request are left in the result.
+	 */
+	public static WorkResult explore(String[] cmdLine, Map<String, String> properties, String prefix) {
+		final WorkResult result = new WorkResult(prefix);
+		final long start = System.currentTimeMillis();
+		try {
+			final Config conf = new Config(cmdLine);
+			for (Map.Entry<String, String> e : properties.entrySet()) {
+				conf.setProperty(e.getKey(), e.getValue());
+			}
+			conf.setProperty(ParallelExplorer.PREFIX, prefix);
+
+			final JPF jpf = new JPF(conf);
+			current = result;
+			try {
+				jpf.run();
+			} finally {
+				current = null;
+			}
+
+			final SymbolicListener summaries = jpf.getListenerOfType(SymbolicListener.class);
+			if (summaries != null) {
+				result.summaries = summaries.getSummaryData();
+			}
+			final Statistics stat = jpf.getReporter() == null ? null : jpf.getReporter().getStatistics();
+			if (stat != null) {
+				result.setStatistics(stat);
+			}
+			for (Error error : jpf.getSearch().getErrors()) {
+				String details = error.getDetails();
+				if (details != null && details.indexOf('\n') > 0) {
+					details = details.substring(0, details.indexOf('\n'));
+				}
+				result.errors.add(error.getDescription() + (details == null ? "" : ": " + details));
+			}
+		} catch (Throwable t) {
+			result.errors.add("worker failed: " + t);
+		}
+		result.millis = System.currentTimeMillis() - start;
+		return result;
+	}
+
+}
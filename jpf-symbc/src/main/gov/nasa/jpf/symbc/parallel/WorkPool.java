@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.util.ArrayDeque;
+
+/**
+ * The choice prefixes that are waiting for a worker.
+ *
+ * A prefix a worker has taken stays "in flight" until the worker reports
+ * it done, or hands it back because the worker failed. Workers ask for
+ * more work until the pool is closed, empty and nothing is in flight
+ * anymore, so a prefix handed back by a failing worker is still picked
+ * up by the others.
+ */
+public class WorkPool {
+
+	private final ArrayDeque<String> queue = new ArrayDeque<String>();
+	private boolean closed = false;
+	private int inFlight = 0;
+	private int added = 0;
+	private int done = 0;
+
+	public synchronized void add(String prefix) {
+		queue.addLast(prefix);
+		added++;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the next prefix, waiting for one if necessary, or null once
+	 * there is no work left.
+	 */
+	public synchronized String take() throws InterruptedException {
+		while (queue.isEmpty() && (!closed || inFlight > 0)) {
+			wait();
+		}
+		final String prefix = queue.pollFirst();
+		if (prefix != null) {
+			inFlight++;
+		}
+		return prefix;
+	}
+
+	/**
+	 * Like take(), but returns null if there is no prefix within timeout
+	 * milliseconds; isFinished() tells the two cases apart.
+	 */
+	public synchronized String take(long timeout) throws InterruptedException {
+		if (queue.isEmpty() && (!closed || inFlight > 0)) {
+			wait(timeout);
+		}
+		final String prefix = queue.pollFirst();
+		if (prefix != null) {
+			inFlight++;
+		}
+		return prefix;
+	}
+
+	/* closed, and all prefixes explored */
+	public synchronized boolean isFinished() {
+		return closed && queue.isEmpty() && inFlight == 0;
+	}
+
+	public synchronized void done(String prefix) {
+		inFlight--;
+		done++;
+		notifyAll();
+	}
+
+	/* the worker could not explore prefix, let another one try */
+	public synchronized void retry(String prefix) {
+		inFlight--;
+		queue.addFirst(prefix);
+		notifyAll();
+	}
+
+	/* no prefixes are added after this */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	/* returns the prefixes nobody explored (all workers failed) */
+	public synchronized String[] drain() {
+		final String[] left = queue.toArray(new String[queue.size()]);
+		queue.clear();
+		return left;
+	}
+
+	public synchronized int getAdded() {
+		return added;
+	}
+
+	public synchronized int getDone() {
+		return done;
+	}
+
+	/**
+	 * Encodes the choice indices of a path, one per choice generator from
+	 * the root on.
+	 */
+	public static String encode(int[] choices) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < choices.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(choices[i]);
+		}
+		return sb.toString();
+	}
+
+	public static int[] decode(String prefix) {
+		if (prefix.isEmpty())
+			return new int[0];
+		final String[] parts = prefix.split(",");
+		final int[] choices = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			choices[i] = Integer.parseInt(parts[i].trim());
+		}
+		return choices;
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.nasa.jpf.report.Statistics;
+
+/**
+ * What a worker sends back for a choice prefix: the method summaries and
+ * the search statistics of the subtree, and the errors found in it.
+ */
+@SuppressWarnings("serial")
+public class WorkResult implements Serializable {
+
+	public final String prefix;
+
+	/* see SymbolicListener.getSummaryData() */
+	public List<String[]> summaries = new ArrayList<String[]>();
+
+	public final List<String> errors = new ArrayList<String>();
+
+	/*
+	 * the prefixes given away while there was no driver to send them to,
+	 * i.e. explore() was called in the caller's JVM; they are not explored
+	 */
+	public final List<String> donated = new ArrayList<String>();
+
+	public long newStates;
+	public long visitedStates;
+	public long backtracked;
+	public long endStates;
+	public long insns;
+	public int maxDepth;
+
+	/* time the worker spent on the prefix */
+	public long millis;
+
+	public WorkResult(String prefix) {
+		this.prefix = prefix;
+	}
+
+	public void setStatistics(Statistics stat) {
+		newStates = stat.newStates;
+		visitedStates = stat.visitedStates;
+		backtracked = stat.backtracked;
+		endStates = stat.endStates;
+		insns = stat.insns;
+		maxDepth = stat.maxDepth;
+	}
+
+	/* adds the statistics of the subtree to those of the driver */
+	public void addStatistics(Statistics stat) {
+		stat.newStates += newStates;
+		stat.visitedStates += visitedStates;
+		stat.backtracked += backtracked;
+		stat.endStates += endStates;
+		stat.insns += insns;
+		stat.maxDepth = Math.max(stat.maxDepth, maxDepth);
+	}
+
+}
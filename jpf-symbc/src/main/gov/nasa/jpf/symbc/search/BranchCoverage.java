@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.jvm.bytecode.ATHROW;
+import gov.nasa.jpf.jvm.bytecode.GOTO;
+import gov.nasa.jpf.jvm.bytecode.IfInstruction;
+import gov.nasa.jpf.jvm.bytecode.JSR;
+import gov.nasa.jpf.jvm.bytecode.JSR_W;
+import gov.nasa.jpf.jvm.bytecode.RET;
+import gov.nasa.jpf.jvm.bytecode.SwitchInstruction;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.bytecode.ReturnInstruction;
+
+/**
+ * Branch outcome coverage of the methods that have symbolic branches.
+ *
+ * An outcome of a conditional branch (if or switch) is covered once the
+ * branch has been executed on a feasible path and continued with it; a
+ * method counts once a PCChoiceGenerator has been registered in it. The
+ * outcomes that can still be reached from a state are estimated with the
+ * control flow graph of the methods on the stack (calls and exceptions are
+ * not followed): from the current instruction of the top frame, and from
+ * the return points of the frames below it.
+ */
+public class BranchCoverage extends ListenerAdapter {
+
+	private final HashMap<MethodInfo, Branches> methods = new HashMap<MethodInfo, Branches>();
+	private final HashSet<String> symbolicMethods = new HashSet<String>();
+
+	/* over the methods with symbolic branches */
+	private int total = 0;
+	private int covered = 0;
+
+	/*
+	 * the control flow graph of a method, and the outcomes of its branches
+	 * that are covered
+	 */
+	static class Branches {
+		final MethodInfo mi;
+		final Instruction[] code;
+		final int[][] successors;
+		final BitSet branches = new BitSet();
+		final BitSet[] covered;
+		final HashMap<Integer, BitSet> reach = new HashMap<Integer, BitSet>();
+		boolean symbolic = false;
+
+		Branches(MethodInfo mi) {
+			this.mi = mi;
+			code = mi.getInstructions();
+			successors = new int[code.length][];
+			covered = new BitSet[code.length];
+			for (int i = 0; i < code.length; i++) {
+				successors[i] = successors(i);
+				if (code[i] instanceof IfInstruction || code[i] instanceof SwitchInstruction) {
+					branches.set(i);
+					covered[i] = new BitSet();
+				}
+			}
+		}
+
+		private int[] successors(int i) {
+			final Instruction insn = code[i];
+			final BitSet next = new BitSet();
+			if (insn instanceof IfInstruction) {
+				next.set(((IfInstruction) insn).getTarget().getInstructionIndex());
+				addNext(next, i);
+			} else if (insn instanceof GOTO) {
+				next.set(((GOTO) insn).getTarget().getInstructionIndex());
+			} else if (insn instanceof SwitchInstruction) {
+				final SwitchInstruction sw = (SwitchInstruction) insn;
+				addPosition(next, sw.getTarget());
+				for (int target : sw.getTargets()) {
+					addPosition(next, target);
+				}
+			} else if (insn instanceof JSR || insn instanceof JSR_W) {
+				addPosition(next, insn instanceof JSR ? ((JSR) insn).getTarget() : ((JSR_W) insn).getTarget());
+				addNext(next, i);
+			} else if (!(insn instanceof ReturnInstruction || insn instanceof ATHROW || insn instanceof RET)) {
+				addNext(next, i);
+			}
+			final int[] result = new int[next.cardinality()];
+			int n = 0;
+			for (int s = next.nextSetBit(0); s >= 0; s = next.nextSetBit(s + 1)) {
+				result[n++] = s;
+			}
+			return result;
+		}
+
+		private void addNext(BitSet next, int i) {
+			if (i + 1 < code.length)
+				next.set(i + 1);
+		}
+
+		private void addPosition(BitSet next, int position) {
+			final Instruction target = mi.getInstructionAt(position);
+			if (target != null)
+				next.set(target.getInstructionIndex());
+		}
+
+		int outcomes(int branch) {
+			return successors[branch].length;
+		}
+
+		int uncovered(int branch) {
+			return successors[branch].length - covered[branch].cardinality();
+		}
+
+		/* the branches reachable from instruction index start (including it) */
+		BitSet reachable(int start) {
+			BitSet result = reach.get(start);
+			if (result == null) {
+				result = new BitSet();
+				final BitSet visited = new BitSet();
+				final ArrayList<Integer> work = new ArrayList<Integer>();
+				work.add(start);
+				visited.set(start);
+				while (!work.isEmpty()) {
+					final int i = work.remove(work.size() - 1);
+					if (branches.get(i))
+						result.set(i);
+					for (int s : successors[i]) {
+						if (!visited.get(s)) {
+							visited.set(s);
+							work.add(s);
+						}
+					}
+				}
+				reach.put(start, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The branches still to be covered from some state: per method, the
+	 * reachable branches that had uncovered outcomes when it was computed.
+	 */
+	public static class Frontier {
+		private final List<Branches> methods = new ArrayList<Branches>(2);
+		private final List<BitSet> branches = new ArrayList<BitSet>(2);
+	}
+
+	private Branches branches(MethodInfo mi) {
+		Branches b = methods.get(mi);
+		if (b == null) {
+			if (mi.getInstructions() == null) {
+				return null;
+			}
+			b = new Branches(mi);
+			methods.put(mi, b);
+			if (symbolicMethods.contains(mi.getFullName())) {
+				addSymbolic(b);
+			}
+		}
+		return b;
+	}
+
+	private void addSymbolic(Branches b) {
+		b.symbolic = true;
+		for (int i = b.branches.nextSetBit(0); i >= 0; i = b.branches.nextSetBit(i + 1)) {
+			total += b.outcomes(i);
+			covered += b.covered[i].cardinality();
+		}
+	}
+
+	@Override
+	public void choiceGeneratorRegistered(VM vm, ChoiceGenerator<?> cg, ThreadInfo ti, Instruction insn) {
+		// symbolic method calls register PCChoiceGenerators with one choice
+		if (cg instanceof PCChoiceGenerator && cg.getTotalNumberOfChoices() > 1) {
+			final MethodInfo mi = insn.getMethodInfo();
+			if (mi != null && symbolicMethods.add(mi.getFullName())) {
+				final Branches b = methods.get(mi);
+				if (b != null) {
+					addSymbolic(b);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void instructionExecuted(VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn) {
+		if (!(executedInsn instanceof IfInstruction || executedInsn instanceof SwitchInstruction)
+				|| nextInsn == null || nextInsn == executedInsn || vm.getSystemState().isIgnored()) {
+			return; // re-executed (symbolic) or infeasible
+		}
+		final MethodInfo mi = executedInsn.getMethodInfo();
+		if (mi == null || nextInsn.getMethodInfo() != mi) {
+			return;
+		}
+		final Branches b = branches(mi);
+		if (b == null) {
+			return;
+		}
+		final int branch = executedInsn.getInstructionIndex();
+		final int[] successors = b.successors[branch];
+		final int next = nextInsn.getInstructionIndex();
+		for (int o = 0; o < successors.length; o++) {
+			if (successors[o] == next) {
+				if (!b.covered[branch].get(o)) {
+					b.covered[branch].set(o);
+					if (b.symbolic)
+						covered++;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The branches of methods with symbolic branches that can be reached
+	 * from the current state of ti, and have uncovered outcomes.
+	 */
+	public Frontier frontier(ThreadInfo ti) {
+		final Frontier frontier = new Frontier();
+		final Map<Branches, BitSet> seen = new HashMap<Branches, BitSet>();
+		boolean top = true;
+		for (StackFrame frame = ti.getTopFrame(); frame != null; frame = frame.getPrevious()) {
+			final Instruction pc = frame.getPC();
+			final MethodInfo mi = frame.getMethodInfo();
+			if (pc != null && mi != null && symbolicMethods.contains(mi.getFullName())) {
+				final Branches b = branches(mi);
+				if (b != null) {
+					// callers go on after the call returns
+					final int start = top ? pc.getInstructionIndex() : pc.getInstructionIndex() + 1;
+					if (start < b.code.length) {
+						BitSet reachable = seen.get(b);
+						if (reachable == null) {
+							reachable = new BitSet();
+							seen.put(b, reachable);
+							frontier.methods.add(b);
+							frontier.branches.add(reachable);
+						}
+						reachable.or(b.reachable(start));
+					}
+				}
+			}
+			top = false;
+		}
+		for (int m = 0; m < frontier.methods.size(); m++) {
+			final Branches b = frontier.methods.get(m);
+			final BitSet reachable = frontier.branches.get(m);
+			for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+				if (b.uncovered(i) == 0)
+					reachable.clear(i);
+			}
+		}
+		return frontier;
+	}
+
+	/**
+	 * The number of outcomes in frontier that are not covered (yet); it only
+	 * goes down as the search goes on. Outcomes are dropped from the
+	 * frontier once they are covered.
+	 */
+	public int uncovered(Frontier frontier) {
+		int n = 0;
+		for (int m = 0; m < frontier.methods.size(); m++) {
+			final Branches b = frontier.methods.get(m);
+			final BitSet reachable = frontier.branches.get(m);
+			for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+				final int u = b.uncovered(i);
+				if (u == 0)
+					reachable.clear(i);
+				n += u;
+			}
+		}
+		return n;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getCovered() {
+		return covered;
+	}
+
+	public int getMethods() {
+		return symbolicMethods.size();
+	}
+
+	@Override
+	public String toString() {
+		return "branch coverage: outcomes covered=" + covered + " of " + total
+				+ (total > 0 ? " (" + (100 * covered / total) + "%)" : "")
+				+ " in " + symbolicMethods.size() + " methods with symbolic branches";
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.search.heuristic.HeuristicSearch;
+import gov.nasa.jpf.search.heuristic.HeuristicState;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * A heuristic search that explores first the states from which the most
+ * branch outcomes not covered yet can be reached (see BranchCoverage),
+ * so that a coverage goal is met after fewer paths than DFS needs.
+ *
+ * The priority of a state is
+ *   uncovered outcomes - symbolic.coverage.cost_weight * conjuncts of its PC
+ * where the size of the path condition stands in for the cost of solving
+ * the branches below the state (the weight is 0 by default). Priorities
+ * only go down as coverage grows, so they are updated lazily: the best
+ * state is re-rated when it is taken from the queue, and put back if it
+ * is no longer the best. Ties go to the deeper state, which finishes
+ * paths like DFS does.
+ *
+ * With symbolic.coverage.target=N the search stops once N percent of
+ * the outcomes of the methods with symbolic branches are covered.
+ * States are dropped when search.heuristic.queue_limit is reached, which
+ * loses their subtrees, so the queue is unbounded by default.
+ *
+ * Use with {@code search.class=gov.nasa.jpf.symbc.search.CoverageHeuristic}
+ */
+public class CoverageHeuristic extends HeuristicSearch {
+
+	private final BranchCoverage coverage = new BranchCoverage();
+	private final double costWeight;
+	private final int target;
+	private final int queueLimit;
+
+	private final TreeSet<CoverageState> queue = new TreeSet<CoverageState>(new Comparator<CoverageState>() {
+		@Override
+		public int compare(CoverageState a, CoverageState b) {
+			if (a.priority != b.priority)
+				return a.priority > b.priority ? -1 : 1;
+			if (a.depth != b.depth)
+				return b.depth - a.depth;
+			return b.getStateId() - a.getStateId();
+		}
+	});
+
+	private long reRated = 0;
+
+	static class CoverageState extends HeuristicState {
+		final BranchCoverage.Frontier frontier;
+		final int conjuncts;
+		final int depth;
+		final boolean fixed;
+		double priority;
+
+		CoverageState(VM vm, BranchCoverage.Frontier frontier, int conjuncts, double priority, boolean fixed) {
+			super(vm);
+			this.frontier = frontier;
+			this.conjuncts = conjuncts;
+			this.depth = vm.getPathLength();
+			this.priority = priority;
+			this.fixed = fixed;
+		}
+	}
+
+	public CoverageHeuristic(Config config, VM vm) {
+		super(config, vm);
+		costWeight = config.getDouble("symbolic.coverage.cost_weight", 0.0);
+		target = config.getInt("symbolic.coverage.target", 0);
+		final int limit = config.getInt("search.heuristic.queue_limit", -1);
+		queueLimit = limit < 0 ? Integer.MAX_VALUE : limit;
+		vm.addListener(coverage);
+	}
+
+	private double rate(CoverageState s) {
+		return coverage.uncovered(s.frontier) - costWeight * s.conjuncts;
+	}
+
+	@Override
+	protected HeuristicState queueCurrentState() {
+		final BranchCoverage.Frontier frontier = coverage.frontier(vm.getCurrentThread());
+		int conjuncts = 0;
+		final PCChoiceGenerator cg = vm.getLastChoiceGeneratorOfType(PCChoiceGenerator.class);
+		if (cg != null) {
+			final PathCondition pc = cg.getCurrentPC();
+			if (pc != null)
+				conjuncts = pc.count();
+		}
+
+		final CoverageState state;
+		if (vm.isInterestingState()) {
+			state = new CoverageState(vm, frontier, conjuncts, Double.MAX_VALUE, true);
+		} else if (vm.isBoringState()) {
+			state = new CoverageState(vm, frontier, conjuncts, -Double.MAX_VALUE, true);
+		} else {
+			state = new CoverageState(vm, frontier, conjuncts, 0, false);
+			state.priority = rate(state);
+		}
+
+		if (queue.size() >= queueLimit) {
+			final CoverageState last = queue.last();
+			if (queue.comparator().compare(state, last) >= 0) {
+				return null;
+			}
+			queue.remove(last);
+		}
+		queue.add(state);
+		return state;
+	}
+
+	@Override
+	protected HeuristicState getNextQueuedState() {
+		if (target > 0 && coverage.getTotal() > 0 && 100L * coverage.getCovered() >= (long) target * coverage.getTotal()) {
+			notifySearchConstraintHit("coverage target reached: " + target + "%");
+			queue.clear();
+			return null;
+		}
+		while (!queue.isEmpty()) {
+			final CoverageState s = queue.pollFirst();
+			if (!s.fixed) {
+				final double priority = rate(s);
+				if (priority < s.priority) {
+					// the others are rated too high, if anything
+					s.priority = priority;
+					reRated++;
+					if (!queue.isEmpty() && queue.comparator().compare(s, queue.first()) > 0) {
+						queue.add(s);
+						continue;
+					}
+				}
+			}
+			if (isBeamSearch) {
+				queue.clear();
+			}
+			return s;
+		}
+		return null;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@Override
+	public boolean isQueueLimitReached() {
+		return queue.size() >= queueLimit;
+	}
+
+	@Override
+	protected void notifySearchFinished() {
+		System.out.println("====================================================== coverage");
+		System.out.println(coverage + ", states re-rated=" + reRated);
+		super.notifySearchFinished();
+	}
+
+	public BranchCoverage getCoverage() {
+		return coverage;
+	}
+
+}
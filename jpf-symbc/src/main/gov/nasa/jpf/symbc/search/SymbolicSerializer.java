@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.HashMap;
+
+import gov.nasa.jpf.vm.ArrayFields;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.Fields;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.StaticElementInfo;
+import gov.nasa.jpf.vm.serialize.CFSerializer;
+
+/**
+ * A canonicalizing serializer that also serializes the attributes of the
+ * stack slots, fields and objects, i.e. the symbolic values of a state.
+ * Two states only serialize alike if their concrete parts do and their
+ * symbolic values are equal expressions (expressions compare structurally,
+ * symbolic variables by identity).
+ *
+ * Attributes are numbered in the order they are first met, so the numbers
+ * mean the same in all the states of a run. The serializer keeps the
+ * attributes it numbered alive.
+ */
+public class SymbolicSerializer extends CFSerializer {
+
+	private final HashMap<Object, Integer> attrIds = new HashMap<Object, Integer>();
+
+	@Override
+	public int[] getStoringData() {
+		// setting an attribute does not notify the kernel state, so the
+		// data cannot be cached across changes
+		return computeStoringData();
+	}
+
+	@Override
+	protected void serializeFrame(StackFrame frame) {
+		super.serializeFrame(frame);
+
+		if (!frame.hasAttrs()) {
+			buf.add(0);
+		} else {
+			buf.add(1);
+			final int len = frame.getTopPos() + 1;
+			for (int i = 0; i < len; i++) {
+				buf.add(attrId(frame.getSlotAttr(i)));
+			}
+		}
+	}
+
+	@Override
+	public void process(ElementInfo ei) {
+		super.process(ei);
+		final Fields fields = ei.getFields();
+		if (fields instanceof ArrayFields) {
+			serializeAttrs(fields, ((ArrayFields) fields).arrayLength());
+		} else {
+			serializeAttrs(fields, ei.getClassInfo().getNumberOfInstanceFields());
+		}
+	}
+
+	@Override
+	protected void serializeClass(StaticElementInfo sei) {
+		super.serializeClass(sei);
+		serializeAttrs(sei.getFields(), sei.getClassInfo().getNumberOfStaticFields());
+	}
+
+	protected void serializeAttrs(Fields fields, int n) {
+		if (!fields.hasFieldAttr() && !fields.hasObjectAttr()) {
+			buf.add(0);
+		} else {
+			buf.add(1);
+			buf.add(attrId(fields.getObjectAttr()));
+			if (fields.hasFieldAttr()) {
+				for (int i = 0; i < n; i++) {
+					buf.add(attrId(fields.getFieldAttr(i)));
+				}
+			}
+		}
+	}
+
+	protected int attrId(Object attr) {
+		if (attr == null)
+			return 0;
+		Integer id = attrIds.get(attr);
+		if (id == null) {
+			id = attrIds.size() + 1;
+			attrIds.put(attr, id);
+		}
+		return id;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
+import gov.nasa.jpf.symbc.numeric.MixedConstraint;
+import gov.nasa.jpf.symbc.numeric.NonLinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.RealConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.vm.SerializingStateSet;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * State matching with subsumption for symbolic execution.
+ *
+ * A state is serialized with its symbolic values (see SymbolicSerializer),
+ * so the serialization holds the program point, the concrete heap and
+ * stacks and the symbolic store. A new state is matched by an earlier state
+ * with the same serialization whose path condition is implied by the new
+ * one: everything reachable from the new state is reachable from the
+ * earlier one, so the search backtracks. This stops loops with symbolic
+ * bounds once their states repeat, instead of unrolling them up to the
+ * depth limit.
+ *
+ * The implication is checked conjunct by conjunct: a conjunct of the
+ * earlier PC holds if the new PC contains it, or if the new PC together
+ * with its negation is proved unsatisfiable (not with Green). States with
+ * string constraints are never matched.
+ *
+ * Use with {@code vm.storage.class=gov.nasa.jpf.symbc.search.SymbolicStateSet}
+ */
+public class SymbolicStateSet extends SerializingStateSet {
+
+	private VM vm;
+	private int lastStateId = -1;
+
+	// the earlier states by serialization, each with the PCs it was reached with
+	private final HashMap<State, List<Entry>> states = new HashMap<State, List<Entry>>();
+
+	/* statistics of the last run */
+	public static final AtomicLong matched = new AtomicLong();
+	public static final AtomicLong subsumed = new AtomicLong();
+	public static final AtomicLong queries = new AtomicLong();
+
+	public SymbolicStateSet() {
+		matched.set(0);
+		subsumed.set(0);
+		queries.set(0);
+	}
+
+	@Override
+	public void attach(VM vm) {
+		this.vm = vm;
+		serializer = new SymbolicSerializer();
+		serializer.attach(vm);
+	}
+
+	@Override
+	public int size() {
+		return lastStateId + 1;
+	}
+
+	@Override
+	protected int add(int[] data) {
+		final PathCondition pc = PathCondition.getPC(vm);
+		if (pc != null && pc.spc.count() > 0) {
+			return ++lastStateId;
+		}
+
+		final State state = new State(data);
+		List<Entry> entries = states.get(state);
+		if (entries == null) {
+			entries = new ArrayList<Entry>(1);
+			states.put(state, entries);
+		} else {
+			for (Entry e : entries) {
+				if (implies(pc, e.header)) {
+					if (e.header == (pc == null ? null : pc.header))
+						matched.incrementAndGet();
+					else
+						subsumed.incrementAndGet();
+					return e.id;
+				}
+			}
+		}
+
+		entries.add(new Entry(++lastStateId, pc == null ? null : pc.header));
+		return lastStateId;
+	}
+
+	/*
+	 * Returns whether pc implies the conjunction of the constraints from
+	 * header on; a null pc is true
+	 */
+	private static boolean implies(PathCondition pc, Constraint header) {
+		for (Constraint c = header; c != null; c = c.and) {
+			if (pc == null)
+				return false;
+			if (!pc.hasConstraint(c) && !refutes(pc, c))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Returns whether pc and the negation of c are proved unsatisfiable
+	 */
+	private static boolean refutes(PathCondition pc, Constraint c) {
+		if (SymbolicInstructionFactory.greenSolver != null)
+			return false;
+
+		final PathCondition query = pc.make_copy();
+		if (c instanceof LogicalORLinearIntegerConstraints) {
+			for (LinearIntegerConstraint lic : ((LogicalORLinearIntegerConstraints) c).getList()) {
+				query.prependUnlessRepeated(lic.not());
+			}
+		} else if (c instanceof LinearIntegerConstraint || c instanceof NonLinearIntegerConstraint
+				|| c instanceof RealConstraint || c instanceof MixedConstraint) {
+			query.prependUnlessRepeated(c.not());
+		} else {
+			return false;
+		}
+
+		queries.incrementAndGet();
+		final SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+		final boolean refuted = !solver.isSatisfiable(query) && solver.provedUnsatisfiable();
+		solver.cleanup();
+		return refuted;
+	}
+
+	private static class State {
+		final int[] data;
+		final int hash;
+
+		State(int[] data) {
+			this.data = data;
+			this.hash = Arrays.hashCode(data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof State) && ((State) o).hash == hash && Arrays.equals(((State) o).data, data);
+		}
+	}
+
+	private static class Entry {
+		final int id;
+		final Constraint header; // the PC the state was reached with
+
+		Entry(int id, Constraint header) {
+			this.id = id;
+			this.header = header;
+		}
+	}
+
+	public static String statistics() {
+		return "state subsumption: states matched=" + matched + " subsumed=" + subsumed
+				+ " implication queries=" + queries;
+	}
+
+}
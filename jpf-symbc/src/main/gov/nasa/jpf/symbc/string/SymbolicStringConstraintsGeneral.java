@@ -34,6 +34,8 @@ import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
 import gov.nasa.jpf.symbc.numeric.LogicalORLinearIntegerConstraints;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.PersistentPCCache;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverCache;
 import gov.nasa.jpf.symbc.string.graph.Edge;
 import gov.nasa.jpf.symbc.string.graph.EdgeCharAt;
 import gov.nasa.jpf.symbc.string.graph.EdgeConcat;
@@ -140,6 +142,9 @@ public class SymbolicStringConstraintsGeneral {
 	
 	/*Mutex lock on timedOut */
 	public static Object mutexTimedOut = new Object();
+
+	/*Set when the last path condition was given up on, rather than found unsatisfiable */
+	private boolean gaveUp;
 	
 	/*Timing*/
 	public static long timeInvoked = 0;
@@ -368,8 +373,21 @@ public class SymbolicStringConstraintsGeneral {
 		//println ("Path Constraint # " + entered);
 		//println ("CURRENT PATH CONSTRAINT:\n");
 		//println(pc.toString());
+		/* unsatisfiable path conditions found by earlier runs (symbolic.cache.file) */
+		final PersistentPCCache persistent = SymbolicInstructionFactory.persistentCache;
+		final String key = persistent == null || pc == null || pc.header == null ? null : "string|" + pc;
+		if (key != null) {
+			final SolverCache.Entry e = persistent.lookup(key);
+			if (e != null && !e.sat) {
+				entered++;
+				return false;
+			}
+		}
+		gaveUp = false;
 		boolean result = inner_isSatisfiable(pc);
 		entered++;
+		if (key != null && !result && !gaveUp)
+			persistent.put(key, new SolverCache.Entry(false));
 		logger.info("\n");
 		return result;
 	}
@@ -710,6 +728,7 @@ public class SymbolicStringConstraintsGeneral {
 		} catch (SymbolicStringTimedOutException e) {
 			System.err.println("Symbolic String Executioner timed out");
 			timedOut = false;
+			gaveUp = true;
 			
 			if (SymbolicInstructionFactory.regressMode) {
 				String output = "##STRING PC: (TIMEOUT) " + pc;
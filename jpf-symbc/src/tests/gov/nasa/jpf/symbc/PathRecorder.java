@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+
+/**
+ * Writes the paths a search explored, one line per end state: the path
+ * condition and its solution.
+ *
+ * Each instance writes a file of its own to the directory given by
+ * path_recorder.dir, so that the paths of the worker JVMs of a parallel
+ * run can be collected as well. Use with
+ * {@code +listener=gov.nasa.jpf.symbc.PathRecorder +path_recorder.dir=<dir>}.
+ */
+public class PathRecorder extends ListenerAdapter {
+
+  private final PrintWriter out;
+
+  public PathRecorder(Config conf) throws IOException {
+    File dir = new File(conf.getString("path_recorder.dir"));
+    out = new PrintWriter(new FileWriter(File.createTempFile("paths", ".txt", dir)));
+  }
+
+  @Override
+  public void stateAdvanced(Search search) {
+    if (search.isEndState()) {
+      PathCondition pc = PathCondition.getPC(search.getVM());
+      if (pc != null) {
+        // solved as a copy, the path condition of the search stays as it is
+        TreeMap<String, Object> solution = new TreeMap<String, Object>(pc.make_copy().solveWithValuation());
+        out.println(pc.stringPC().replace('\n', ' ') + " => " + solution);
+        out.flush();
+      }
+    }
+  }
+
+  @Override
+  public void searchFinished(Search search) {
+    out.close();
+  }
+
+  // a new directory for the recorders of one run
+  public static File newDirectory() throws IOException {
+    return Files.createTempDirectory("paths").toFile();
+  }
+
+  // the paths the recorders wrote to dir, in no particular order; the
+  // directory is deleted
+  public static List<String> read(File dir) throws IOException {
+    List<String> paths = new ArrayList<String>();
+    for (File f : dir.listFiles()) {
+      paths.addAll(Files.readAllLines(f.toPath(), Charset.defaultCharset()));
+      f.delete();
+    }
+    dir.delete();
+    return paths;
+  }
+}
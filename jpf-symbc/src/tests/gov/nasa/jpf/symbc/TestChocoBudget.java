@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
+
+import org.junit.Test;
+
+public class TestChocoBudget extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testNodeBudget() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {
+          "+symbolic.dp=choco", "+symbolic.choco_node_bound=1"
+      }));
+      assertEquals(1, ProblemChoco.nodeBound);
+
+      // x + y != 30, x != 6 and x != 42 leave holes propagation cannot remove
+      long exhausted = ProblemChoco.exhausted.get();
+      ProblemChoco pb = new ProblemChoco();
+      Object x = pb.makeIntVar("x", -100, 100);
+      Object y = pb.makeIntVar("y", -100, 100);
+      pb.post(pb.gt(x, 5));
+      pb.post(pb.neq(pb.plus(x, y), 30));
+      pb.post(pb.neq(x, 6));
+      pb.post(pb.neq(x, 42));
+      assertNull(pb.solve());
+      assertEquals(exhausted + 1, ProblemChoco.exhausted.get());
+
+      // a budget of its own for one query
+      pb = new ProblemChoco();
+      pb.setBudget(0, 0);
+      x = pb.makeIntVar("x", -100, 100);
+      pb.post(pb.gt(x, 5));
+      pb.post(pb.neq(x, 6));
+      assertEquals(Boolean.TRUE, pb.solve());
+      assertEquals(7, pb.getIntValue(x));
+    }
+  }
+
+  @Test
+  public void testWarmStart() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {
+          "+symbolic.dp=choco", "+symbolic.choco_warm_start=true"
+      }));
+      assertTrue(ProblemChoco.warmStart);
+
+      ProblemChoco pb = new ProblemChoco();
+      Object x = pb.makeIntVar("x", -100, 100);
+      Object y = pb.makeIntVar("y", -100, 100);
+      pb.post(pb.gt(x, 50));
+      pb.post(pb.lt(y, pb.minus(x, 10)));
+      assertEquals(Boolean.TRUE, pb.solve());
+      long vx = pb.getIntValue(x);
+      long vy = pb.getIntValue(y);
+
+      // the previous solution still holds and is found first
+      pb = new ProblemChoco();
+      x = pb.makeIntVar("x", -100, 100);
+      y = pb.makeIntVar("y", -100, 100);
+      pb.post(pb.gt(x, 0));
+      pb.post(pb.lt(y, x));
+      assertEquals(Boolean.TRUE, pb.solve());
+      assertEquals(vx, pb.getIntValue(x));
+      assertEquals(vy, pb.getIntValue(y));
+
+      // it does not, the rest of the domain is searched
+      pb = new ProblemChoco();
+      x = pb.makeIntVar("x", -100, 100);
+      y = pb.makeIntVar("y", -100, 100);
+      pb.post(pb.neq(x, vx));
+      pb.post(pb.eq(pb.plus(x, y), 2 * vx));
+      pb.post(pb.gt(y, vx));
+      assertEquals(Boolean.TRUE, pb.solve());
+      assertTrue(pb.getIntValue(x) != vx);
+      assertEquals(2 * vx, pb.getIntValue(x) + pb.getIntValue(y));
+      assertTrue(pb.getIntValue(y) > vx);
+
+      // unsatisfiable whatever the order
+      pb = new ProblemChoco();
+      x = pb.makeIntVar("x", -100, 100);
+      pb.post(pb.gt(x, 5));
+      pb.post(pb.lt(x, 5));
+      assertEquals(Boolean.FALSE, pb.solve());
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestConcurrentSolving extends InvokeTest {
+
+  private static final int THREADS = 4;
+  private static final int QUERIES = 50;
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // solves lo < x < lo + 2 and checks that x == lo + 1
+  static boolean solveAndCheck(int lo) {
+    SymbolicInteger x = new SymbolicInteger("x_" + lo, -1000, 1000);
+    PathCondition pc = new PathCondition();
+    pc._addDet(Comparator.GT, x, lo);
+    pc._addDet(Comparator.LT, x, lo + 2);
+    SymbolicConstraintsGeneral solver = new SymbolicConstraintsGeneral();
+    boolean sat = solver.solve(pc);
+    solver.cleanup();
+    return sat && x.solution == lo + 1;
+  }
+
+  @Test
+  public void mainTest() throws InterruptedException {
+    new SymbolicInstructionFactory(new Config(new String[] {"+symbolic.dp=choco"}));
+    final boolean[] ok = new boolean[THREADS];
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < THREADS; t++) {
+      final int id = t;
+      Thread thread = new Thread() {
+        public void run() {
+          boolean allOk = true;
+          for (int i = 0; i < QUERIES; i++) {
+            allOk &= solveAndCheck(id * 100 + i);
+          }
+          ok[id] = allOk;
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int t = 0; t < THREADS; t++) {
+      assertTrue("wrong solution on thread " + t, ok[t]);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.ConjunctLiterals;
+
+import org.junit.Test;
+
+public class TestConjunctLiterals extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testIdentity() {
+    if (!isJPFRun()) {
+      SymbolicInteger x = new SymbolicInteger("x", 0, 10);
+      Constraint c1 = new LinearIntegerConstraint(x, Comparator.GT, new IntegerConstant(0));
+      Constraint c2 = new LinearIntegerConstraint(x, Comparator.GT, new IntegerConstant(0));
+      assertEquals(c1, c2);
+
+      ConjunctLiterals<String> literals = new ConjunctLiterals<String>();
+      literals.put(c1, "a");
+      assertEquals("a", literals.get(c1));
+      assertNull(literals.get(c2));
+      literals.put(c2, "b");
+      assertEquals(2, literals.size());
+      assertEquals("b", literals.remove(c2));
+      assertNull(literals.get(c2));
+      assertEquals("a", literals.get(c1));
+      assertEquals(1, literals.size());
+      assertNull(literals.expunged());
+    }
+  }
+
+  @Test
+  public void testRemovedConjuncts() {
+    if (!isJPFRun()) {
+      ConjunctLiterals<String> literals = new ConjunctLiterals<String>();
+      Constraint kept = new LinearIntegerConstraint(new SymbolicInteger("y", 0, 10), Comparator.LT, new IntegerConstant(5));
+      Constraint dropped = new LinearIntegerConstraint(new SymbolicInteger("z", 0, 10), Comparator.LT, new IntegerConstant(5));
+      literals.put(kept, "kept");
+      literals.put(dropped, "dropped");
+
+      // a conjunct the solver discarded, e.g. because it was trivially unsat
+      assertEquals("dropped", literals.remove(dropped));
+      assertNull(literals.remove(dropped));
+      assertNull(literals.get(dropped));
+      assertEquals(1, literals.size());
+      assertEquals("kept", literals.get(kept));
+
+      // its reference is cleared, so it is never handed out as expunged
+      // as well once it is garbage collected
+      List<String> expunged = literals.expunged();
+      assertNull(expunged);
+      assertEquals(1, literals.size());
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestConstraintSlicing extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestConstraintSlicing.independent(sym#sym#sym)";
+  private static final String SLICING = "+symbolic.slicing=true";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, SLICING, MIN_INT, MAX_INT};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // the checks on z do not depend on x and y, the last check links x and z
+  public static void independent(int x, int y, int z) {
+    if (x > 5) {
+      if (y > x) {
+        if (z < 0) {
+          if (z > 3) {
+            assert false : "z < 0 && z > 3 must be pruned";
+          }
+          if (x + z > 100 && y < 7) {
+            assert false : "x + z > 100 && z < 0 && 5 < x < y < 7 must be pruned";
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      independent(1, 2, 3);
+    } else {
+      assertTrue("expected sliced queries", SymbolicInstructionFactory.constraintSlicer.getSlicedQueries() > 0);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestCoverageHeuristic extends InvokeTest {
+
+  private static final String SEARCH = "+search.class=gov.nasa.jpf.symbc.search.CoverageHeuristic";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  public static void deep(int x, int y, int z) {
+    if (x > 5) {
+      if (y > x) {
+        if (z < y) {
+          if (z > x) {
+            assert false : "6 <= x < z < y";
+          }
+        }
+      }
+    }
+  }
+
+  public static void infeasible(int x, int y) {
+    if (x > y) {
+      if (y > 0) {
+        if (x < 0) {
+          assert false : "x > y > 0 && x < 0 must be pruned";
+        }
+      } else {
+        if (x > 10) {
+          if (y == 20) {
+            assert false : "y <= 0 && y == 20 must be pruned";
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFindsDeepError() {
+    if (verifyAssertionError(INSN_FACTORY, SEARCH, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestCoverageHeuristic.deep(sym#sym#sym)")) {
+      deep(1, 2, 3);
+    }
+  }
+
+  @Test
+  public void testPrunesInfeasiblePaths() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, SEARCH, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestCoverageHeuristic.infeasible(sym#sym)")) {
+      infeasible(1, 2);
+    }
+  }
+
+  @Test
+  public void testCoverageTarget() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, SEARCH, MIN_INT, MAX_INT, "+symbolic.coverage.target=50",
+        "+symbolic.method=gov.nasa.jpf.symbc.TestCoverageHeuristic.deep(sym#sym#sym)")) {
+      // the search stops before it gets to the assertion
+      deep(1, 2, 3);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+import org.junit.Test;
+
+public class TestDuplicateConjuncts extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testDeepPath() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition pc = new PathCondition();
+      for (int i = 0; i < 5000; i++) {
+        pc._addDet(Comparator.GT, x, i);
+      }
+      assertEquals(5000, pc.count());
+      for (int i = 0; i < 5000; i += 100) {
+        pc._addDet(Comparator.GT, x, i); // repeated
+        assertTrue(pc.hasConstraint(new LinearIntegerConstraint(x, Comparator.GT, new IntegerConstant(i))));
+      }
+      assertEquals(5000, pc.count());
+      assertFalse(pc.hasConstraint(new LinearIntegerConstraint(x, Comparator.LT, new IntegerConstant(0))));
+    }
+  }
+
+  @Test
+  public void testCopies() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition parent = new PathCondition();
+      parent._addDet(Comparator.GT, x, 0);
+      PathCondition left = parent.make_copy();
+      PathCondition right = parent.make_copy();
+      left._addDet(Comparator.LT, x, 10);
+      right._addDet(Comparator.GE, x, 10);
+
+      assertTrue(left.hasConstraint(parent.header));
+      assertFalse(left.hasConstraint(right.header));
+      assertFalse(right.hasConstraint(left.header));
+      assertFalse(parent.hasConstraint(left.header));
+
+      // adding a repeated conjunct to a copy leaves it unchanged
+      right._addDet(Comparator.GT, x, 0);
+      assertEquals(2, right.count());
+
+      PathCondition other = parent.make_copy();
+      other._addDet(Comparator.LT, x, 10);
+      assertEquals(left, other);
+      assertFalse(left.equals(right));
+    }
+  }
+
+  @Test
+  public void testEquals() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition a = new PathCondition();
+      PathCondition b = new PathCondition();
+      PathCondition reversed = new PathCondition();
+      for (int i = 0; i < 1000; i++) {
+        a._addDet(Comparator.GT, x, i);
+        b._addDet(Comparator.GT, x, i);
+        reversed._addDet(Comparator.GT, x, 999 - i);
+      }
+      assertEquals(a, b);
+      assertEquals(a.hashCode(), b.hashCode());
+
+      // same length, one conjunct differs
+      PathCondition c = b.make_copy();
+      PathCondition d = b.make_copy();
+      c._addDet(Comparator.LT, x, 2000);
+      d._addDet(Comparator.LT, x, 3000);
+      assertFalse(c.equals(d));
+
+      // the same conjuncts in another order
+      assertFalse(a.equals(reversed));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.BinaryLinearIntegerExpression;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.IntegerExpression;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.Operator;
+import gov.nasa.jpf.symbc.numeric.RealExpression;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+import org.junit.Test;
+
+public class TestHashConsing extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestHashConsing.loop(sym#sym)";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+  private static final String HASHCONS = "+symbolic.hashcons=true";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, MIN_INT, MAX_INT, HASHCONS};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // the sums of the iterations share their sub-terms
+  public static void loop(int x, int y) {
+    int s = 0;
+    for (int i = 0; i < 4; i++) {
+      s = s + x * 2 + y;
+      if (s > 100) {
+        if (s < 50) {
+          assert false : "s > 100 && s < 50 must be pruned";
+        }
+        return;
+      }
+    }
+  }
+
+  @Test
+  public void testLoop() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      loop(1, 2);
+    }
+  }
+
+  @Test
+  public void testSharedNodes() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {HASHCONS}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      SymbolicInteger y = new SymbolicInteger("y");
+      IntegerExpression e1 = x._mul(2)._plus(y)._minus(3);
+      IntegerExpression e2 = x._mul(2)._plus(y)._minus(3);
+      assertSame(e1, e2);
+      assertFalse(e1.equals(x._mul(2)._plus(x)._minus(3)));
+      assertEquals(new LinearIntegerConstraint(e1, Comparator.LT, x), new LinearIntegerConstraint(e2, Comparator.LT, x));
+
+      SymbolicReal r = new SymbolicReal("r");
+      RealExpression f1 = r._mul(2.5)._plus(r);
+      assertSame(f1, r._mul(2.5)._plus(r));
+      assertEquals(f1.hashCode(), r._mul(2.5)._plus(r).hashCode());
+    }
+  }
+
+  @Test
+  public void testSharedAcrossThreads() throws InterruptedException {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {HASHCONS}));
+      final SymbolicInteger x = new SymbolicInteger("x");
+      final IntegerExpression[] built = new IntegerExpression[8];
+      final Thread[] threads = new Thread[built.length];
+      for (int i = 0; i < threads.length; i++) {
+        final int n = i;
+        threads[i] = new Thread(new Runnable() {
+          public void run() {
+            built[n] = x._mul(3)._plus(7);
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread t : threads)
+        t.join();
+      for (IntegerExpression e : built)
+        assertSame(built[0], e);
+    }
+  }
+
+  @Test
+  public void testPooledOperandsByReference() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {HASHCONS}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      IntegerExpression sum = x._plus(1);
+      IntegerExpression e1 = new BinaryLinearIntegerExpression(sum, Operator.MUL, new IntegerConstant(2));
+      IntegerExpression e2 = new BinaryLinearIntegerExpression(x._plus(1), Operator.MUL, new IntegerConstant(2));
+      // the pooled operands are the same, the constants are compared by value
+      assertEquals(e1, e2);
+
+      // nodes of an earlier run are compared structurally with the new ones
+      new SymbolicInstructionFactory(new Config(new String[] {HASHCONS}));
+      IntegerExpression sum2 = x._plus(1);
+      assertFalse(sum == sum2);
+      assertEquals(sum, sum2);
+      assertEquals(e1, new BinaryLinearIntegerExpression(sum2, Operator.MUL, new IntegerConstant(2)));
+    }
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      IntegerExpression e1 = x._mul(2)._plus(1);
+      IntegerExpression e2 = x._mul(2)._plus(1);
+      assertFalse(e1 == e2);
+      assertEquals(e1, e2);
+    }
+  }
+}
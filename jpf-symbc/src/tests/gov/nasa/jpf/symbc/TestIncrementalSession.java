@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SolverSession;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.IncrementalSolver;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
+
+import org.junit.Test;
+
+public class TestIncrementalSession extends InvokeTest {
+
+  private static final String DP = "+symbolic.dp=z3inc";
+  private static final String NOT_OPTIMIZED = "+symbolic.optimizechoices=false";
+  private static final String PRUNED = "+symbolic.method=gov.nasa.jpf.symbc.TestIncrementalSession.pruned(sym#sym#sym)";
+  private static final String REACHED = "+symbolic.method=gov.nasa.jpf.symbc.TestIncrementalSession.reached(sym#sym#sym)";
+  private static final String ARRAY_INDEX = "+symbolic.method=gov.nasa.jpf.symbc.TestIncrementalSession.arrayIndex(sym)";
+  private static final String PINNED = "+symbolic.method=gov.nasa.jpf.symbc.TestIncrementalSession.pinned(sym#sym)";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // IFxx, LCMP and switch choices; only infeasible paths reach the asserts
+  public static void pruned(int x, long y, int z) {
+    if (x > 5) {
+      if (y < 3L) {
+        switch (z) {
+        case 1:
+          if (z > 1)
+            assert false : "z == 1 && z > 1 must be pruned";
+          break;
+        case 2:
+          if (x < 5)
+            assert false : "x > 5 && x < 5 must be pruned";
+          break;
+        default:
+          if (y > 3L)
+            assert false : "y < 3 && y > 3 must be pruned";
+        }
+      }
+    } else if (x > 6) {
+      assert false : "x <= 5 && x > 6 must be pruned";
+    }
+  }
+
+  // the only feasible path to the assert is explored after the search
+  // backtracked out of the branches with the opposite conditions
+  public static void reached(int x, long y, int z) {
+    if (x > 5) {
+      if (y < 3L) {
+        if (z == 1) {
+          return;
+        }
+      }
+    }
+    if (x <= 5) {
+      if (y >= 3L) {
+        switch (z) {
+        case 1:
+          assert false : "reachable";
+          break;
+        default:
+        }
+      }
+    }
+  }
+
+  // the index choices of a[i] add their conjuncts to the PC of the choice
+  // generator; only infeasible paths reach the asserts
+  public static void arrayIndex(int i) {
+    int[] a = { 3, 5, 7 };
+    try {
+      if (a[i] == 5) {
+        if (i != 1)
+          assert false : "a[i] == 5 && i != 1 must be pruned";
+      } else if (i == 1) {
+        assert false : "a[i] != 5 && i == 1 must be pruned";
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      if (i >= 0 && i < a.length)
+        assert false : "an index in bounds must not throw";
+    }
+  }
+
+  // every path pins both x and y in [0,2], so each path has one solution;
+  // the paths with x > 1 but not x > 0 (etc.) are pruned
+  public static int pinned(int x, int y) {
+    int r = 0;
+    if (x > 0)
+      r += 3;
+    if (x > 1)
+      r += 3;
+    if (y > 0)
+      r++;
+    if (y > 1)
+      r++;
+    return r;
+  }
+
+  // the target of the JPF runs of testAssumptionsMatchPushPop
+  public void runPinned() {
+    pinned(0, 0);
+  }
+
+  private List<String> pinnedPaths(boolean assumptions) throws IOException {
+    File dir = PathRecorder.newDirectory();
+    noPropertyViolation(setTestMethod("runPinned"), INSN_FACTORY, "+symbolic.dp=z3bitvectorinc",
+        "+symbolic.min_int=0", "+symbolic.max_int=2", "+symbolic.z3.assumptions=" + assumptions, PINNED,
+        "+listener=gov.nasa.jpf.symbc.PathRecorder", "+path_recorder.dir=" + dir);
+    List<String> paths = PathRecorder.read(dir);
+    Collections.sort(paths);
+    return paths;
+  }
+
+  // records the scopes the session opens and closes and the constraints
+  // posted in them, on a choco problem that is never solved
+  private static class RecordingSolver extends ProblemChoco implements IncrementalSolver {
+    private final StringBuilder log = new StringBuilder();
+    private final SolverSession session = new SolverSession(this);
+
+    public void push() {
+      log.append("push ");
+    }
+
+    public void pop() {
+      log.append("pop ");
+    }
+
+    @Override
+    public void post(Object constraint) {
+      log.append("post ");
+      super.post(constraint);
+    }
+
+    public SolverSession getSession() {
+      return session;
+    }
+
+    String takeLog() {
+      String s = log.toString().trim();
+      log.setLength(0);
+      return s;
+    }
+  }
+
+  @Test
+  public void testSessionBookkeeping() {
+    if (!isJPFRun()) {
+      RecordingSolver solver = new RecordingSolver();
+      SymbolicInteger x = new SymbolicInteger("x");
+      SymbolicInteger y = new SymbolicInteger("y");
+      PathCondition root = new PathCondition();
+      root._addDet(Comparator.GT, x, 5);
+
+      PCParser parser = new PCParser();
+      assertTrue(parser.parse(root, solver) == solver);
+      assertEquals("push post", solver.takeLog());
+      assertEquals(1, solver.getSession().depth());
+
+      // a branch of root: only its new conjunct is pushed
+      PathCondition left = root.make_copy();
+      left._addDet(Comparator.LT, y, 3);
+      parser = new PCParser();
+      assertTrue(parser.parse(left, solver) == solver);
+      assertEquals("push post", solver.takeLog());
+      assertEquals(2, solver.getSession().depth());
+      assertTrue(parser.symIntegerVar.containsKey(x));
+      assertTrue(parser.symIntegerVar.containsKey(y));
+
+      // the other branch: the scope of left goes first, and y with it
+      PathCondition right = root.make_copy();
+      right._addDet(Comparator.GT, x, 7);
+      parser = new PCParser();
+      assertTrue(parser.parse(right, solver) == solver);
+      assertEquals("pop push post", solver.takeLog());
+      assertEquals(2, solver.getSession().depth());
+      assertTrue(parser.symIntegerVar.containsKey(x));
+      assertFalse(parser.symIntegerVar.containsKey(y));
+
+      // the same PC again: the stack holds it already
+      parser = new PCParser();
+      assertTrue(parser.parse(right, solver) == solver);
+      assertEquals("", solver.takeLog());
+
+      // the search backtracked to root
+      solver.getSession().retain(root);
+      assertEquals("pop", solver.takeLog());
+      assertEquals(1, solver.getSession().depth());
+
+      // conjuncts are compared by identity: an equal PC built on its own
+      // shares no scope with root
+      PathCondition other = new PathCondition();
+      other._addDet(Comparator.GT, x, 5);
+      parser = new PCParser();
+      assertTrue(parser.parse(other, solver) == solver);
+      assertEquals("pop push post", solver.takeLog());
+      assertEquals(1, solver.getSession().depth());
+    }
+  }
+
+  @Test
+  public void testPruned() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, DP, PRUNED)) {
+      pruned(1, 2L, 3);
+    }
+  }
+
+  @Test
+  public void testPrunedNotOptimized() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, DP, NOT_OPTIMIZED, PRUNED)) {
+      pruned(1, 2L, 3);
+    }
+  }
+
+  @Test
+  public void testReached() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyAssertionError(INSN_FACTORY, DP, REACHED)) {
+      reached(6, 2L, 1);
+    }
+  }
+
+  @Test
+  public void testReachedNotOptimized() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyAssertionError(INSN_FACTORY, DP, NOT_OPTIMIZED, REACHED)) {
+      reached(6, 2L, 1);
+    }
+  }
+
+  @Test
+  public void testArrayIndex() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, DP, ARRAY_INDEX)) {
+      arrayIndex(0);
+    }
+  }
+
+  @Test
+  public void testAssumptionsMatchPushPop() throws IOException {
+    if (!isJPFRun() && Z3TestUtil.z3Available()) {
+      List<String> pushPop = pinnedPaths(false);
+      assertEquals(9, pushPop.size());
+      // the same paths, with the same solutions
+      assertEquals(pushPop, pinnedPaths(true));
+    }
+  }
+}
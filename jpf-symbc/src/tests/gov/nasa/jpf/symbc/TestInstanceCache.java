@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.LinearIntegerConstraint;
+import gov.nasa.jpf.symbc.numeric.IntegerConstant;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.InstanceCache;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverTranslator;
+import za.ac.sun.cs.green.Instance;
+
+import org.junit.Test;
+
+public class TestInstanceCache extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testChildExtendsParent() {
+    if (!isJPFRun()) {
+      SolverTranslator.setCacheSize(100);
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition parent = new PathCondition();
+      parent._addDet(Comparator.GT, x, 5);
+      parent._addDet(Comparator.LT, x, 50);
+      Instance p = SolverTranslator.createInstance(parent.header);
+      assertNotNull(p.getParent());
+      assertNull(p.getParent().getParent());
+
+      PathCondition child = parent.make_copy();
+      child._addDet(Comparator.NE, x, 7);
+      InstanceCache cache = SolverTranslator.getInstanceCache();
+      long hits = cache.getHits();
+      Instance c = SolverTranslator.createInstance(child.header);
+      assertSame(p, c.getParent());
+      assertEquals(hits + 1, cache.getHits());
+      assertEquals(3, cache.size());
+      String full = c.getFullExpression().toString();
+      assertTrue(full, full.contains("7") && full.contains("5") && full.contains("50"));
+
+      // the same conjuncts are translated once
+      assertSame(c, SolverTranslator.createInstance(child.header));
+      assertNull(SolverTranslator.flatten(c).getParent());
+      assertEquals(full, SolverTranslator.flatten(c).getFullExpression().toString());
+    }
+  }
+
+  @Test
+  public void testBounded() {
+    if (!isJPFRun()) {
+      SolverTranslator.setCacheSize(2);
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition pc = new PathCondition();
+      for (int i = 0; i < 5; i++)
+        pc._addDet(Comparator.NE, x, i);
+      SolverTranslator.createInstance(pc.header);
+      InstanceCache cache = SolverTranslator.getInstanceCache();
+      assertEquals(2, cache.size());
+      assertEquals(3, cache.getEvictions());
+    }
+  }
+
+  @Test
+  public void testAppendedConjuncts() {
+    if (!isJPFRun()) {
+      SolverTranslator.setCacheSize(100);
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+      Instance before = SolverTranslator.createInstance(pc.header);
+
+      pc.appendAllConjuncts(new LinearIntegerConstraint(x, Comparator.LT, new IntegerConstant(50)));
+      Instance after = SolverTranslator.createInstance(pc.header);
+      assertTrue(before != after);
+      assertTrue(after.getFullExpression().toString().contains("50"));
+    }
+  }
+
+}
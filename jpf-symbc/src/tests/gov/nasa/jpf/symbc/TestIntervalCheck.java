@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestIntervalCheck extends InvokeTest {
+
+  private static final String INTERVALS = "+symbolic.interval_check=true";
+  private static final String MIN_INT = "+symbolic.min_int=-1000";
+  private static final String MAX_INT = "+symbolic.max_int=1000";
+  private static final String PRUNED = "+symbolic.method=gov.nasa.jpf.symbc.TestIntervalCheck.pruned(sym#sym#sym)";
+  private static final String REACHED = "+symbolic.method=gov.nasa.jpf.symbc.TestIntervalCheck.reached(sym)";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  public static void pruned(int x, int len, double d) {
+    if (x >= 0 && x < len) {
+      if (len <= 0) {
+        assert false : "0 <= x < len <= 0 must be pruned";
+      }
+      if (x + 1 > len) {
+        assert false : "x < len && x + 1 > len must be pruned";
+      }
+    }
+    if (d > 2.5) {
+      if (d < 1.0) {
+        assert false : "d > 2.5 && d < 1.0 must be pruned";
+      }
+    }
+  }
+
+  public static void reached(int x) {
+    if (x > 3 && x < 5) {
+      if (x != 4) {
+        assert false : "3 < x < 5 && x != 4 must be pruned";
+      }
+      assert false : "reachable";
+    }
+  }
+
+  @Test
+  public void testPruned() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, PRUNED, INTERVALS, MIN_INT, MAX_INT)) {
+      pruned(1, 2, 3.0);
+    } else {
+      assertTrue("expected queries decided by the intervals",
+          SymbolicInstructionFactory.intervalChecker.getDecided() > 0);
+    }
+  }
+
+  @Test
+  public void testReached() {
+    if (verifyAssertionErrorDetails("reachable", INSN_FACTORY, REACHED, INTERVALS, MIN_INT, MAX_INT)) {
+      reached(4);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import java.util.Collections;
+import java.util.Map;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.LazyModel;
+
+import org.junit.Test;
+
+public class TestLazyModel extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private static final String[] CONFIG = {
+    "+symbolic.dp=choco", "+symbolic.min_int=-100", "+symbolic.max_int=100"
+  };
+
+  private static final String SUMMARIZED = "+symbolic.method=gov.nasa.jpf.symbc.TestLazyModel.summarized(sym#sym#sym)";
+  private static final String LISTENERS = "+listener=gov.nasa.jpf.symbc.SymbolicListener,gov.nasa.jpf.symbc.SolverStatisticsListener";
+
+  public static int summarized(int x, int y, int z) {
+    if (x > y) {
+      if (y > z) {
+        return x;
+      }
+    }
+    return 0;
+  }
+
+  @Test
+  public void testOnDemand() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      SymbolicInteger y = new SymbolicInteger("y");
+      SymbolicInteger z = new SymbolicInteger("z");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+      pc._addDet(Comparator.LT, y, x);
+      pc._addDet(Comparator.EQ, z, y);
+
+      long read = LazyModel.extracted.get();
+      LazyModel model = new SymbolicConstraintsGeneral().solveLazily(pc);
+      assertNotNull(model);
+      assertEquals(read, LazyModel.extracted.get());
+
+      // only the variable asked for is read from the solver
+      long vx = model.valueOf(x);
+      assertTrue(vx > 5);
+      assertEquals(vx, x.solution);
+      assertEquals(SymbolicInteger.UNDEFINED, y.solution);
+      assertEquals(vx, model.valueOf(x));
+      assertEquals(read + 1, LazyModel.extracted.get());
+
+      model.release();
+      assertEquals(SymbolicInteger.UNDEFINED, model.valueOf(y));
+    }
+  }
+
+  @Test
+  public void testSolveReadsAll() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      SymbolicInteger y = new SymbolicInteger("y");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+      pc._addDet(Comparator.LT, y, x);
+
+      Map<String, Object> valuation = new SymbolicConstraintsGeneral().solveWithSolution(pc);
+      assertEquals(x.solution, valuation.get("x"));
+      assertEquals(y.solution, valuation.get("y"));
+      assertTrue(y.solution < x.solution);
+
+      PathCondition unsat = pc.make_copy();
+      unsat._addDet(Comparator.LT, x, 0);
+      assertNull(new SymbolicConstraintsGeneral().solveLazily(unsat));
+      assertFalse(new SymbolicConstraintsGeneral().solve(unsat));
+    }
+  }
+
+  @Test
+  public void testSolveReadsGiven() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      SymbolicInteger y = new SymbolicInteger("y");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+      pc._addDet(Comparator.LT, y, x);
+
+      long read = LazyModel.extracted.get();
+      Map<String, Object> valuation = pc.solveWithValuation(Collections.singleton(x));
+      assertEquals(read + 1, LazyModel.extracted.get());
+      assertEquals(1, valuation.size());
+      assertEquals(x.solution, valuation.get("x"));
+      assertTrue(x.solution > 5);
+      assertEquals(SymbolicInteger.UNDEFINED, y.solution);
+
+      assertTrue(pc.solve(Collections.singleton(y)));
+      assertEquals(read + 2, LazyModel.extracted.get());
+      assertTrue(y.solution < 100);
+    }
+  }
+
+  @Test
+  public void testSummariesReadShownValues() {
+    long available = 0;
+    long read = 0;
+    if (!isJPFRun()) {
+      available = LazyModel.available.get();
+      read = LazyModel.extracted.get();
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, CONFIG[0], CONFIG[1], CONFIG[2], SUMMARIZED, LISTENERS)) {
+      summarized(1, 2, 3);
+    } else {
+      // the summaries show the returned x only: y and z are never read
+      available = LazyModel.available.get() - available;
+      read = LazyModel.extracted.get() - read;
+      assertTrue(available > 0);
+      assertTrue(read < available);
+    }
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.numeric.solvers.PCModel;
+
+import org.junit.Test;
+
+public class TestModelReuse extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestModelReuse.nested(sym#sym)";
+  private static final String MODEL_REUSE = "+symbolic.model_reuse=true";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, MODEL_REUSE};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // one side of each inner check holds on the model of the outer one
+  public static void nested(int x, int y) {
+    if (x > 10) {
+      if (x > 5) {
+        if (y == x + 1) {
+          if (y < 11) {
+            assert false : "y == x + 1 && x > 10 && y < 11 must be pruned";
+          }
+        }
+      } else {
+        assert false : "x > 10 && x <= 5 must be pruned";
+      }
+    }
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      nested(1, 2);
+    } else {
+      assertTrue("expected solver calls to be avoided", PCModel.reused.get() > 0);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.BranchSession;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+
+import org.junit.Test;
+
+public class TestMultiBranch extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private static final String[] CONFIG = {
+    "+symbolic.dp=choco", "+symbolic.min_int=-100", "+symbolic.max_int=100",
+    "+symbolic.multi_branch=true"
+  };
+
+  private static final String[] Z3_CONFIG = {
+    "+symbolic.dp=z3", "+symbolic.min_int=-100", "+symbolic.max_int=100",
+    "+symbolic.multi_branch=true"
+  };
+
+  private static PathCondition branch(PathCondition parent, Comparator c, SymbolicInteger x, int v) {
+    PathCondition pc = parent.make_copy();
+    pc._addDet(c, x, v);
+    return pc;
+  }
+
+  @Test
+  public void testLastBranchDeduced() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+      assertTrue(pc.simplify());
+
+      long deduced = BranchSession.deduced.get();
+      PathCondition last = branch(pc, Comparator.GT, x, 3);
+      boolean[] sat = PathCondition.simplifyBranches(true,
+          branch(pc, Comparator.LT, x, 3), branch(pc, Comparator.EQ, x, 3), last);
+      assertFalse(sat[0]);
+      assertFalse(sat[1]);
+      assertTrue(sat[2]);
+      assertEquals(deduced + 1, BranchSession.deduced.get());
+
+      // the deduced branch counts as proved for the branches below it
+      assertTrue(branch(last, Comparator.LT, x, 7).extendsProvedPC());
+    }
+  }
+
+  @Test
+  public void testNoDeductionWithoutProvedParent() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      // never checked, e.g. kept although undecided (symbolic.unknown=keep)
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+
+      long deduced = BranchSession.deduced.get();
+      boolean[] sat = PathCondition.simplifyBranches(true,
+          branch(pc, Comparator.LT, x, 3), branch(pc, Comparator.EQ, x, 3), branch(pc, Comparator.GT, x, 3));
+      assertFalse(sat[0]);
+      assertFalse(sat[1]);
+      assertTrue(sat[2]);
+      assertEquals(deduced, BranchSession.deduced.get());
+
+      // nor when the parent is unsatisfiable, but was not checked
+      pc._addDet(Comparator.LT, x, 0);
+      sat = PathCondition.simplifyBranches(true,
+          branch(pc, Comparator.LT, x, 3), branch(pc, Comparator.EQ, x, 3), branch(pc, Comparator.GT, x, 3));
+      assertFalse(sat[0]);
+      assertFalse(sat[1]);
+      assertFalse(sat[2]);
+      assertEquals(deduced, BranchSession.deduced.get());
+    }
+  }
+
+  @Test
+  public void testAllBranchesChecked() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      SymbolicInteger x = new SymbolicInteger("x");
+      PathCondition pc = new PathCondition();
+      pc._addDet(Comparator.GT, x, 5);
+
+      long deduced = BranchSession.deduced.get();
+      boolean[] sat = PathCondition.simplifyBranches(true,
+          branch(pc, Comparator.LT, x, 10), branch(pc, Comparator.EQ, x, 10), branch(pc, Comparator.GT, x, 10));
+      assertTrue(sat[0]);
+      assertTrue(sat[1]);
+      assertTrue(sat[2]);
+
+      // not exhaustive: the last branch is checked as well
+      sat = PathCondition.simplifyBranches(false,
+          branch(pc, Comparator.LT, x, 3), branch(pc, Comparator.EQ, x, 3));
+      assertFalse(sat[0]);
+      assertFalse(sat[1]);
+      assertEquals(deduced, BranchSession.deduced.get());
+    }
+  }
+
+  // the PC already holds x == 5, so the PC of the == branch is the parent's
+  // and it is checked outside the session of the branch point
+  private static void checkRepeatedComparison() {
+    SymbolicInteger x = new SymbolicInteger("x");
+    PathCondition pc = new PathCondition();
+    pc._addDet(Comparator.EQ, x, 5);
+
+    long deduced = BranchSession.deduced.get();
+    for (int i = 0; i < 3; i++) {
+      boolean[] sat = PathCondition.simplifyBranches(true,
+          branch(pc, Comparator.LT, x, 5), branch(pc, Comparator.EQ, x, 5), branch(pc, Comparator.GT, x, 5));
+      assertFalse(sat[0]);
+      assertTrue(sat[1]);
+      assertFalse(sat[2]);
+    }
+    assertEquals(deduced, BranchSession.deduced.get());
+  }
+
+  @Test
+  public void testRepeatedComparison() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(CONFIG));
+      checkRepeatedComparison();
+    }
+  }
+
+  @Test
+  public void testRepeatedComparisonZ3() {
+    if (!isJPFRun() && Z3TestUtil.z3Available()) {
+      new SymbolicInstructionFactory(new Config(Z3_CONFIG));
+      checkRepeatedComparison();
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.bytecode.PathMerger;
+
+import org.junit.Test;
+
+public class TestPathMerging extends InvokeTest {
+
+  private static final String MERGE = "+symbolic.merge=true";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+
+  private static int counter;
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // four diamonds that only assign locals: one path when merged
+  public static int checksum(int a, int b, int c, int d) {
+    int sum = 0;
+    sum += a < 0 ? -a : a;
+    if (b > 10) {
+      sum += 2 * b;
+    } else {
+      sum -= b;
+    }
+    if (c >= d) {
+      sum++;
+    } else if (c == 0) {
+      sum += 3;
+    } else {
+      sum--;
+    }
+    int flag = d != 0 ? 1 : 0;
+    return sum + flag;
+  }
+
+  public static void lowerBound(int a, int b, int c, int d) {
+    assert checksum(a, b, c, d) >= -11 : "below the lower bound";
+  }
+
+  public static void reachesLowerBound(int a, int b, int c, int d) {
+    // a == 0, b == 10, c < d == 0
+    assert checksum(a, b, c, d) != -11 : "lower bound reached";
+  }
+
+  public static void heapWrite(int x) {
+    if (x > 0) {
+      counter++;
+    }
+  }
+
+  @Test
+  public void testMergedDiamonds() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, MERGE, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestPathMerging.lowerBound(sym#sym#sym#sym)")) {
+      lowerBound(1, 2, 3, 4);
+    } else {
+      assertEquals("expected every diamond to be merged", 4, PathMerger.merged.get());
+      assertEquals(0, PathMerger.failed.get());
+    }
+  }
+
+  @Test
+  public void testMergedValuesAreSolved() {
+    if (verifyAssertionError(INSN_FACTORY, MERGE, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestPathMerging.reachesLowerBound(sym#sym#sym#sym)")) {
+      reachesLowerBound(1, 2, 3, 4);
+    }
+  }
+
+  @Test
+  public void testHeapWriteIsNotMerged() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, MERGE, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestPathMerging.heapWrite(sym)")) {
+      heapWrite(1);
+    } else {
+      assertEquals(0, PathMerger.merged.get());
+    }
+  }
+}
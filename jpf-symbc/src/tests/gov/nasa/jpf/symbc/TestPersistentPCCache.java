@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+
+import gov.nasa.jpf.symbc.numeric.solvers.PersistentPCCache;
+import gov.nasa.jpf.symbc.numeric.solvers.SolverCache;
+import gov.nasa.jpf.vm.ClassParseException;
+
+import org.junit.Test;
+
+public class TestPersistentPCCache extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private static File tempFile() throws IOException {
+    File file = File.createTempFile("spf-pccache", ".db");
+    file.delete();
+    file.deleteOnExit();
+    return file;
+  }
+
+  @Test
+  public void testResultsAcrossRuns() throws IOException {
+    if (!isJPFRun()) {
+      File file = tempFile();
+      PersistentPCCache cache = new PersistentPCCache(file, "choco");
+      assertNull(cache.lookup("C.m()V", "d1", "x>0"));
+      SolverCache.Entry model = new SolverCache.Entry(true);
+      model.intModel = new long[] { 1, -7 };
+      model.realModel = new double[] { 0.5 };
+      cache.put("C.m()V", "d1", "x>0", model);
+      cache.put("C.m()V", "d1", "x>0&&x<0", new SolverCache.Entry(false));
+      cache.close();
+
+      cache = new PersistentPCCache(file, "choco");
+      SolverCache.Entry e = cache.lookup("C.m()V", "d1", "x>0");
+      assertTrue(e.sat);
+      assertEquals(-7, e.intModel[1]);
+      assertEquals(0.5, e.realModel[0], 0);
+      assertFalse(cache.lookup("C.m()V", "d1", "x>0&&x<0").sat);
+      assertFalse(cache.lookup("C.m()V", "d1", "x>0&&x<0").hasModel());
+      cache.close();
+
+      // other solver settings
+      cache = new PersistentPCCache(file, "z3");
+      assertNull(cache.lookup("C.m()V", "d1", "x>0"));
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testChangedMethod() throws IOException {
+    if (!isJPFRun()) {
+      File file = tempFile();
+      PersistentPCCache cache = new PersistentPCCache(file, "choco");
+      cache.put("C.m()V", "d1", "x>0", new SolverCache.Entry(true));
+      cache.put("C.n()V", "d1", "x>0", new SolverCache.Entry(true));
+      cache.close();
+
+      cache = new PersistentPCCache(file, "choco");
+      assertNull(cache.lookup("C.m()V", "d2", "x>0"));
+      assertEquals(1, cache.getInvalidated());
+      assertNotNull(cache.lookup("C.n()V", "d1", "x>0"));
+      cache.close();
+
+      // the results of the old version were dropped
+      cache = new PersistentPCCache(file, "choco");
+      assertEquals(3, cache.size());
+      assertNull(cache.lookup("C.m()V", "d2", "x>0"));
+      assertNotNull(cache.lookup("C.n()V", "d1", "x>0"));
+      cache.close();
+    }
+  }
+
+  int twice(int x) {
+    return 2 * x;
+  }
+
+  int thrice(int x) {
+    return 3 * x;
+  }
+
+  @Test
+  public void testMethodDigests() throws IOException, ClassParseException {
+    if (!isJPFRun()) {
+      InputStream in = getClass().getResourceAsStream("TestPersistentPCCache.class");
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int n; (n = in.read(buffer)) > 0;)
+        bytes.write(buffer, 0, n);
+      in.close();
+
+      HashMap<String, String> digests = PersistentPCCache.digests(bytes.toByteArray());
+      assertNotNull(digests.get("twice(I)I"));
+      assertNotNull(digests.get("thrice(I)I"));
+      assertFalse(digests.get("twice(I)I").equals(digests.get("thrice(I)I")));
+      assertEquals(digests, PersistentPCCache.digests(bytes.toByteArray()));
+    }
+  }
+}
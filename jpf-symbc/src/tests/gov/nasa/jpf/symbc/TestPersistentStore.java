@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+
+import gov.nasa.jpf.symbc.numeric.solvers.GreenFileStore;
+import gov.nasa.jpf.symbc.numeric.solvers.PersistentStore;
+import za.ac.sun.cs.green.Green;
+
+import org.junit.Test;
+
+public class TestPersistentStore extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  private static File tempFile() throws IOException {
+    File file = File.createTempFile("spf-store", ".db");
+    file.delete();
+    file.deleteOnExit();
+    return file;
+  }
+
+  @Test
+  public void testAcrossRuns() throws IOException {
+    if (!isJPFRun()) {
+      File file = tempFile();
+      PersistentStore store = new PersistentStore(file);
+      store.put("a", new byte[] { 1 });
+      store.put("b", new byte[] { 2, 3 });
+      store.put("a", new byte[] { 4 });
+      assertEquals(4, store.get("a")[0]);
+      assertNull(store.get("c"));
+      store.close();
+
+      store = new PersistentStore(file);
+      assertEquals(2, store.size());
+      assertEquals(4, store.get("a")[0]);
+      assertEquals(3, store.get("b")[1]);
+      store.close();
+    }
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    if (!isJPFRun()) {
+      File file = tempFile();
+      PersistentStore store = new PersistentStore(file);
+      for (int i = 0; i < 100; i++)
+        store.put("key", new byte[] { (byte) i });
+      long before = file.length();
+      store.close();
+      assertEquals(1, store.getCompactions());
+      assertTrue(file.length() < before / 10);
+
+      store = new PersistentStore(file);
+      assertEquals(99, store.get("key")[0]);
+
+      // another run compacts the file while this one still writes to it
+      PersistentStore other = new PersistentStore(file);
+      other.put("key", new byte[] { 7 });
+      other.put("key", new byte[] { 8 });
+      other.compact();
+      store.put("more", new byte[] { 9 });
+      store.close();
+      other.close();
+
+      store = new PersistentStore(file);
+      assertEquals(8, store.get("key")[0]);
+      assertEquals(9, store.get("more")[0]);
+      store.close();
+    }
+  }
+
+  @Test
+  public void testRecordCutShort() throws IOException {
+    if (!isJPFRun()) {
+      File file = tempFile();
+      PersistentStore store = new PersistentStore(file);
+      store.put("a", new byte[] { 1 });
+      store.put("b", new byte[] { 2 });
+      store.close();
+
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      raf.setLength(raf.length() - 1);
+      raf.close();
+
+      store = new PersistentStore(file);
+      assertEquals(1, store.get("a")[0]);
+      assertNull(store.get("b"));
+      store.put("c", new byte[] { 3 });
+      store.close();
+
+      store = new PersistentStore(file);
+      assertEquals(3, store.get("c")[0]);
+      store.close();
+    }
+  }
+
+  @Test
+  public void testGreenStore() throws IOException {
+    if (!isJPFRun()) {
+      Properties properties = new Properties();
+      properties.setProperty("green.store.file", tempFile().getPath());
+      GreenFileStore store = new GreenFileStore(new Green(), properties);
+      store.put("SAT:x>0", Boolean.TRUE);
+      store.put("SAT:x>0&&x<0", Boolean.FALSE);
+      store.shutdown();
+
+      store = new GreenFileStore(new Green(), properties);
+      assertEquals(Boolean.TRUE, store.getBoolean("SAT:x>0"));
+      assertEquals(Boolean.FALSE, store.getBoolean("SAT:x>0&&x<0"));
+      assertNull(store.getBoolean("SAT:x<0"));
+      store.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemChoco;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemPortfolio;
+
+import org.junit.Test;
+
+public class TestPortfolio extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestPortfolio.branches(sym#sym)";
+  private static final String DP = "+symbolic.dp=portfolio";
+  private static final String PORTFOLIO = "+symbolic.portfolio=choco,z3";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, DP, PORTFOLIO, MIN_INT, MAX_INT};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  public static void branches(int x, int y) {
+    if (x > y) {
+      if (y > 10) {
+        if (x < 12) {
+          assert false : "x > y && y > 10 && x < 12 must be pruned";
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      branches(1, 2);
+    } else {
+      assertTrue("expected portfolio queries", ProblemPortfolio.getQueries() > 0);
+      assertTrue("expected every query to be decided",
+          ProblemPortfolio.getWins("choco") + ProblemPortfolio.getWins("z3") == ProblemPortfolio.getQueries());
+    }
+  }
+
+  @Test
+  public void interruptedChocoGivesUp() {
+    // needs a search, which the interruption ends at its first node
+    ProblemChoco pb = new ProblemChoco();
+    Object x = pb.makeIntVar("x", 0, 10);
+    Object y = pb.makeIntVar("y", 0, 10);
+    pb.post(pb.eq(pb.plus(x, y), 10));
+    pb.post(pb.neq(x, y));
+    pb.interrupt();
+    assertNull("an interrupted query is not decided", pb.solve());
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import gov.nasa.jpf.symbc.numeric.PCParser;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicConstraintsGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.ProblemGeneral;
+import gov.nasa.jpf.symbc.numeric.solvers.QueryRecorder;
+import gov.nasa.jpf.symbc.numeric.solvers.QueryReplay;
+
+import org.junit.Test;
+
+public class TestQueryRecorder extends InvokeTest {
+
+  private static final String CORPUS = new File(System.getProperty("java.io.tmpdir"), "TestQueryRecorder.smt2.gz").getPath();
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestQueryRecorder.branches(sym#sym#sym)";
+  private static final String RECORD = "+symbolic.record=" + CORPUS;
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  public static void branches(int x, int y, double d) {
+    if (x * 2 > y - 3) {
+      if (y > 10 && x < 2) {
+        assert false : "x * 2 > y - 3 && y > 10 && x < 2 must be pruned";
+      }
+    }
+    if (d / 2.5 < -1.25) {
+      if (d > 0) {
+        assert false : "d / 2.5 < -1.25 && d > 0 must be pruned";
+      }
+    }
+  }
+
+  @Test
+  public void testRecordAndReplay() throws Exception {
+    if (!isJPFRun()) {
+      new File(CORPUS).delete();
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, SYM_METHOD, RECORD, MIN_INT, MAX_INT)) {
+      branches(1, 2, 3.0);
+    } else {
+      SymbolicInstructionFactory.queryRecorder.close();
+      List<QueryReplay.Query> queries = QueryReplay.read(CORPUS);
+      assertTrue("expected recorded queries", queries.size() > 0);
+      boolean unsat = false;
+      for (QueryReplay.Query q : queries) {
+        assertEquals("choco", q.dp);
+        PathCondition pc = QueryReplay.parse(q.script);
+        assertEquals(q.script, QueryRecorder.toSMTLIB(pc));
+        ProblemGeneral pb = new PCParser().parse(pc, SymbolicConstraintsGeneral.createProblem("choco"));
+        Boolean result = (pb == null) ? Boolean.FALSE : pb.solve();
+        assertEquals(q.result, result);
+        unsat |= !result;
+      }
+      assertTrue("expected unsatisfiable queries", unsat);
+      new File(CORPUS).delete();
+    }
+  }
+
+  private static String query(String name, int bound) {
+    return "; query dp=choco result=sat time_us=10\n"
+        + "(declare-fun " + name + " () Int)\n"
+        + "(assert (<= (- 100) " + name + " 100))\n"
+        + "(assert (> " + name + " " + bound + "))\n"
+        + "(check-sat)\n";
+  }
+
+  // a run that was killed after recording two queries and a half, followed
+  // by a run that recorded one query and closed the file
+  @Test
+  public void testTruncatedMember() throws Exception {
+    if (!isJPFRun()) {
+      File corpus = new File(System.getProperty("java.io.tmpdir"), "TestQueryRecorder-truncated.smt2.gz");
+      OutputStream file = new FileOutputStream(corpus);
+      GZIPOutputStream killed = new GZIPOutputStream(file, 8192, true);
+      killed.write((query("x", 1) + query("y", 2) + "; query dp=choco result=sat time_us=10\n(declare-fun z () Int)\n")
+          .getBytes(StandardCharsets.UTF_8));
+      killed.flush(); // as after each recorded query; never finished
+      GZIPOutputStream next = new GZIPOutputStream(file, 8192, true);
+      next.write(query("w", 3).getBytes(StandardCharsets.UTF_8));
+      next.close();
+
+      try {
+        // the half query is dropped, the run after the killed one is read
+        List<QueryReplay.Query> queries = QueryReplay.read(corpus.getPath());
+        assertEquals(3, queries.size());
+        assertTrue(queries.get(0).script.contains("(> x 1)"));
+        assertTrue(queries.get(1).script.contains("(> y 2)"));
+        assertTrue(queries.get(2).script.contains("(> w 3)"));
+        assertEquals("choco", queries.get(2).dp);
+        assertEquals(Boolean.TRUE, queries.get(2).result);
+      } finally {
+        corpus.delete();
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    if (!isJPFRun()) {
+      long[] nanos = new long[100];
+      for (int i = 0; i < nanos.length; i++) {
+        nanos[i] = (100 - i) * 1000000L;
+      }
+      assertEquals("(ms): p50=50.000 p90=90.000 p99=99.000 max=100.000", QueryReplay.percentiles(nanos));
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import org.junit.Test;
+
+public class TestSolverCache extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestSolverCache.twoVars(sym#sym)";
+  private static final String CACHE = "+symbolic.cache=true";
+  private static final String[] JPF_ARGS = {INSN_FACTORY, SYM_METHOD, CACHE};
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // the checks on y are the checks on x, up to renaming and constant form
+  public static void twoVars(int x, int y) {
+    if (x > 5) {
+      if (x < 3) {
+        assert false : "x > 5 && x < 3 must be pruned";
+      }
+    }
+    if (y >= 6) {
+      if (3 > y) {
+        assert false : "y >= 6 && y < 3 must be pruned";
+      }
+    }
+  }
+
+  @Test
+  public void mainTest() {
+    if (verifyNoPropertyViolation(JPF_ARGS)) {
+      twoVars(1, 2);
+    } else {
+      assertTrue("expected cache hits", SymbolicInstructionFactory.solverCache.getHits() > 0);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.search.SymbolicStateSet;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+public class TestStateSubsumption extends InvokeTest {
+
+  private static final String SUBSUMPTION = "+vm.storage.class=gov.nasa.jpf.symbc.search.SymbolicStateSet";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // the loop state repeats every other iteration, with a stronger PC
+  public static void toggle(int x, int y) {
+    int t = 0;
+    while (x > y) {
+      t = 1 - t;
+    }
+    assert t == 0 : "the loop is only left before the first iteration";
+  }
+
+  // the second path reaches the join with a PC that implies the first one's
+  public static int join(int x) {
+    int t = 0;
+    if (Verify.getBoolean()) {
+      if (x > 10) {
+        t = 1;
+      } else {
+        return 0;
+      }
+    } else {
+      if (x > 5) {
+        t = 1;
+      } else {
+        return 0;
+      }
+    }
+    if (x > 20) {
+      t++;
+    }
+    return t;
+  }
+
+  public static void joinReaches(int x) {
+    assert join(x) != 2 : "reached";
+  }
+
+  @Test
+  public void testLoopIsCut() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, SUBSUMPTION, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestStateSubsumption.toggle(sym#sym)")) {
+      toggle(1, 2);
+    } else {
+      assertTrue(SymbolicStateSet.matched.get() + SymbolicStateSet.subsumed.get() > 0);
+    }
+  }
+
+  @Test
+  public void testImpliedPCIsSubsumed() {
+    if (verifyNoPropertyViolation(INSN_FACTORY, SUBSUMPTION, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestStateSubsumption.join(sym)")) {
+      join(1);
+    } else {
+      assertEquals(1, SymbolicStateSet.subsumed.get());
+      assertTrue(SymbolicStateSet.queries.get() > 0);
+    }
+  }
+
+  @Test
+  public void testSubsumedStatesKeepErrors() {
+    if (verifyAssertionError(INSN_FACTORY, SUBSUMPTION, MIN_INT, MAX_INT,
+        "+symbolic.method=gov.nasa.jpf.symbc.TestStateSubsumption.joinReaches(sym)")) {
+      joinReaches(1);
+    }
+  }
+}
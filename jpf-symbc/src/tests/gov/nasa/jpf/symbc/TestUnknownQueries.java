@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.solvers.QueryStatistics;
+
+import org.junit.Test;
+
+public class TestUnknownQueries extends InvokeTest {
+
+  private static final String SYM_METHOD = "+symbolic.method=gov.nasa.jpf.symbc.TestUnknownQueries.branches(sym#sym)";
+  // a portfolio of Z3 alone leaves every PC undecided where Z3 cannot be loaded
+  private static final String DP = "+symbolic.dp=portfolio";
+  private static final String PORTFOLIO = "+symbolic.portfolio=z3";
+  private static final String RETRY = "+symbolic.unknown=retry";
+  private static final String FALLBACK = "+symbolic.unknown.fallback=choco";
+  private static final String MIN_INT = "+symbolic.min_int=-100";
+  private static final String MAX_INT = "+symbolic.max_int=100";
+  private static final String STATISTICS = "+symbolic.query_statistics=true";
+  private static final String CUBES = "+symbolic.method=gov.nasa.jpf.symbc.TestUnknownQueries.cubes(sym#sym#sym)";
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  public static void branches(int x, int y) {
+    if (x > y && y > 10 && x < 12) {
+      assert false : "x > y && y > 10 && x < 12 must be pruned";
+    }
+    if (x > y && y > 10) {
+      assert false : "reached";
+    }
+  }
+
+  // far too hard for Z3 in 1 ms
+  public static void cubes(int x, int y, int z) {
+    if (x * x * x + y * y * y + z * z * z == 33) {
+      assert false : "x^3 + y^3 + z^3 == 33 must be undecided";
+    }
+  }
+
+  @Test
+  public void testRetry() {
+    if (verifyAssertionErrorDetails("reached", INSN_FACTORY, SYM_METHOD, DP, PORTFOLIO, RETRY, FALLBACK, MIN_INT, MAX_INT, STATISTICS)) {
+      branches(13, 12);
+    } else {
+      QueryStatistics stats = SymbolicInstructionFactory.queryStatistics;
+      assertTrue("expected solver queries", stats.getQueries() > 0);
+      assertEquals(stats.getUnknown(), stats.getRetried());
+    }
+  }
+
+  @Test
+  public void testTimeout() {
+    if (!isJPFRun() && !Z3TestUtil.z3Available()) {
+      return; // skipped without Z3
+    }
+    if (verifyNoPropertyViolation(INSN_FACTORY, CUBES, "+symbolic.dp=z3", "+symbolic.z3.timeout=1", STATISTICS)) {
+      cubes(1, 2, 3);
+    } else {
+      QueryStatistics stats = SymbolicInstructionFactory.queryStatistics;
+      assertTrue("expected undecided queries", stats.getUnknown() > 0);
+    }
+  }
+
+  @Test
+  public void testNotCollectedByDefault() {
+    if (verifyAssertionErrorDetails("reached", INSN_FACTORY, SYM_METHOD, MIN_INT, MAX_INT)) {
+      branches(13, 12);
+    } else {
+      assertTrue("query statistics are only kept when reported", SymbolicInstructionFactory.queryStatistics == null);
+    }
+  }
+
+  @Test
+  public void testSlowest() {
+    if (!isJPFRun()) {
+      QueryStatistics stats = new QueryStatistics(2);
+      stats.record("z3", new PathCondition(), Boolean.TRUE, 3000000);
+      stats.record("z3", new PathCondition(), null, 9000000);
+      stats.record("z3", new PathCondition(), Boolean.FALSE, 1000000);
+      stats.kept();
+      assertEquals(3, stats.getQueries());
+      assertEquals(1, stats.getUnknown());
+      String s = stats.toString();
+      assertTrue(s, s.startsWith("solver queries: total=3 sat=1 unsat=1 unknown=1 (kept=1"));
+      assertTrue(s, s.contains("\n  9ms [z3]") && s.contains("\n  3ms [z3]") && !s.contains("\n  1ms"));
+      assertTrue(s, s.indexOf("\n  9ms") < s.indexOf("\n  3ms"));
+    }
+  }
+}
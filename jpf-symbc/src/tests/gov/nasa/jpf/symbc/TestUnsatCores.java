@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.symbc;
+
+import java.util.Arrays;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.numeric.Comparator;
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.solvers.UnsatCoreStore;
+
+import org.junit.Test;
+
+public class TestUnsatCores extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testSiblingPaths() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger i = new SymbolicInteger("i");
+      SymbolicInteger n = new SymbolicInteger("n");
+      SymbolicInteger y = new SymbolicInteger("y");
+
+      // i < n && y > 0 && i >= n: the core is {i < n, i >= n}
+      PathCondition unsat = new PathCondition();
+      unsat._addDet(Comparator.LT, i, n);
+      Constraint lt = unsat.header;
+      unsat._addDet(Comparator.GT, y, 0);
+      unsat._addDet(Comparator.GE, i, n);
+      Constraint ge = unsat.header;
+
+      UnsatCoreStore store = new UnsatCoreStore(10);
+      store.add(Arrays.asList(ge, lt));
+
+      // a sibling path with a different y branch hits the same contradiction
+      PathCondition sibling = new PathCondition();
+      sibling._addDet(Comparator.LT, i, n);
+      sibling._addDet(Comparator.LE, y, 0);
+      sibling._addDet(Comparator.GE, i, n);
+      assertTrue(store.subsumes(sibling));
+
+      PathCondition sat = new PathCondition();
+      sat._addDet(Comparator.GE, i, n);
+      sat._addDet(Comparator.LE, y, 0);
+      assertFalse(store.subsumes(sat));
+      assertEquals(1, store.getPruned());
+    }
+  }
+
+  @Test
+  public void testCapacity() {
+    if (!isJPFRun()) {
+      new SymbolicInstructionFactory(new Config(new String[] {}));
+      SymbolicInteger x = new SymbolicInteger("x");
+      UnsatCoreStore store = new UnsatCoreStore(2);
+      PathCondition[] pcs = new PathCondition[3];
+      for (int k = 0; k < pcs.length; k++) {
+        pcs[k] = new PathCondition();
+        pcs[k]._addDet(Comparator.EQ, x, k);
+        store.add(Arrays.asList(pcs[k].header));
+      }
+      assertEquals(2, store.size());
+      assertFalse(store.subsumes(pcs[0])); // the oldest core was dropped
+      assertTrue(store.subsumes(pcs[1]));
+      assertTrue(store.subsumes(pcs[2]));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+import gov.nasa.jpf.symbc.parallel.WorkPool;
+
+import org.junit.Test;
+
+public class TestWorkPool extends InvokeTest {
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  @Test
+  public void testPrefixEncoding() {
+    if (!isJPFRun()) {
+      int[] choices = { 0, 0, 1, 0, 1 };
+      String prefix = WorkPool.encode(choices);
+      assertEquals("0,0,1,0,1", prefix);
+      int[] decoded = WorkPool.decode(prefix);
+      assertEquals(choices.length, decoded.length);
+      for (int i = 0; i < choices.length; i++) {
+        assertEquals(choices[i], decoded[i]);
+      }
+      assertEquals(0, WorkPool.decode("").length);
+    }
+  }
+
+  @Test
+  public void testRetry() throws InterruptedException {
+    if (!isJPFRun()) {
+      WorkPool pool = new WorkPool();
+      pool.add("0,0");
+      pool.add("0,1");
+      pool.close();
+
+      String first = pool.take();
+      assertEquals("0,0", first);
+      String second = pool.take();
+      assertEquals("0,1", second);
+      pool.done(second);
+
+      // the pool is closed and empty, but "0,0" is still in flight
+      pool.retry(first);
+      assertEquals("0,0", pool.take());
+      pool.done("0,0");
+      assertNull(pool.take());
+      assertEquals(2, pool.getAdded());
+      assertEquals(2, pool.getDone());
+      assertEquals(0, pool.drain().length);
+    }
+  }
+
+  @Test
+  public void testDonationWhileInFlight() throws InterruptedException {
+    if (!isJPFRun()) {
+      WorkPool pool = new WorkPool();
+      pool.add("0,1");
+      pool.close();
+
+      String busy = pool.take();
+      // an idle worker times out, but the search is not finished yet
+      assertNull(pool.take(10));
+      assertFalse(pool.isFinished());
+
+      // the busy worker donates the other choice of one of its branches
+      pool.add("0,1,1");
+      assertEquals("0,1,1", pool.take(10));
+      pool.done("0,1,1");
+      assertFalse(pool.isFinished());
+      pool.done(busy);
+      assertTrue(pool.isFinished());
+      assertNull(pool.take(10));
+    }
+  }
+
+}
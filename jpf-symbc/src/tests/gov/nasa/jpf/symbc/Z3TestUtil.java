@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc;
+
+/**
+ * Tells the tests that need Z3 whether they can run here.
+ */
+public class Z3TestUtil {
+
+  private static Boolean available = null;
+
+  private Z3TestUtil() {
+  }
+
+  // whether the Z3 native library can be loaded here; tests that need it
+  // are skipped otherwise
+  public static synchronized boolean z3Available() {
+    if (available == null) {
+      try {
+        new com.microsoft.z3.Context().close();
+        available = true;
+      } catch (Throwable t) {
+        available = false;
+      }
+    }
+    return available;
+  }
+}
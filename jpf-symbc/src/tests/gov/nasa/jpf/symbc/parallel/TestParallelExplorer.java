@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * Symbolic Pathfinder (jpf-symbc) is licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gov.nasa.jpf.symbc.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.symbc.InvokeTest;
+import gov.nasa.jpf.symbc.PathRecorder;
+
+import org.junit.Test;
+
+public class TestParallelExplorer extends InvokeTest {
+
+  private static final String[] CONFIG = {
+    INSN_FACTORY, "+symbolic.dp=choco", "+symbolic.min_int=0", "+symbolic.max_int=2",
+    "+symbolic.method=gov.nasa.jpf.symbc.parallel.TestParallelExplorer.pinned(sym#sym)"
+  };
+
+  public static void main(String[] args) {
+    runTestsOfThisClass(args);
+  }
+
+  // every path pins both x and y in [0,2]: 9 paths, each below 3 or 4
+  // symbolic branches
+  public static int pinned(int x, int y) {
+    int r = 0;
+    if (x > 0)
+      r += 3;
+    if (x > 1)
+      r += 3;
+    if (y > 0)
+      r++;
+    if (y > 1)
+      r++;
+    return r;
+  }
+
+  // the target of the JPF runs of the tests
+  public void runPinned() {
+    pinned(0, 0);
+  }
+
+  private static String[] args(File dir, String... options) {
+    List<String> args = new ArrayList<String>(Arrays.asList(CONFIG));
+    args.addAll(Arrays.asList(options));
+    args.add("+path_recorder.dir=" + dir);
+    return args.toArray(new String[args.size()]);
+  }
+
+  // the paths explored with the given options, sorted
+  private List<String> paths(String... options) throws IOException {
+    File dir = PathRecorder.newDirectory();
+    noPropertyViolation(setTestMethod("runPinned"), args(dir, options));
+    List<String> paths = PathRecorder.read(dir);
+    Collections.sort(paths);
+    return paths;
+  }
+
+  // explores prefix in this JVM, the way a worker does; the paths are
+  // recorded to dir
+  private WorkResult explore(File dir, String prefix) {
+    Config conf = createJPF(setTestMethod("runPinned"), args(dir,
+        "+listener=gov.nasa.jpf.symbc.PathRecorder,gov.nasa.jpf.symbc.parallel.ParallelExplorer")).getConfig();
+    HashMap<String, String> properties = new HashMap<String, String>();
+    for (String key : conf.stringPropertyNames()) {
+      properties.put(key, conf.getProperty(key));
+    }
+    WorkResult result = ParallelWorker.explore(conf.getArgs(), properties, prefix);
+    assertTrue(result.errors.toString(), result.errors.isEmpty());
+    return result;
+  }
+
+  @Test
+  public void testWorkersExploreTheTree() throws IOException {
+    if (!isJPFRun()) {
+      List<String> sequential = paths("+listener=gov.nasa.jpf.symbc.PathRecorder");
+      assertEquals(9, sequential.size());
+
+      // the driver hands out the prefixes at the second branch, and
+      // explores no path itself
+      List<String> parallel = paths(
+          "+listener=gov.nasa.jpf.symbc.PathRecorder,gov.nasa.jpf.symbc.parallel.ParallelExplorer",
+          "+symbolic.parallel.workers=2", "+symbolic.parallel.depth=2");
+      // each path once: none is missing, and no subtree was explored twice
+      assertEquals(sequential, parallel);
+    }
+  }
+
+  @Test
+  public void testDonatedSubtreeExploredOnce() throws IOException {
+    if (!isJPFRun()) {
+      List<String> sequential = paths("+listener=gov.nasa.jpf.symbc.PathRecorder");
+
+      // the worker is asked for work before it starts: the request is
+      // answered once it is below its prefix, at the first branch
+      File donorDir = PathRecorder.newDirectory();
+      ParallelWorker.requestSteal();
+      WorkResult donor = explore(donorDir, "0");
+      assertFalse(ParallelWorker.stealRequested());
+      assertEquals(1, donor.donated.size());
+      List<String> paths = PathRecorder.read(donorDir);
+      assertTrue(paths.size() > 0);
+      assertTrue(paths.size() < sequential.size());
+
+      File donatedDir = PathRecorder.newDirectory();
+      WorkResult donated = explore(donatedDir, donor.donated.get(0));
+      assertEquals(0, donated.donated.size());
+      List<String> donatedPaths = PathRecorder.read(donatedDir);
+      assertTrue(donatedPaths.size() > 0);
+
+      // the donor went on with its own branch only
+      for (String path : donatedPaths) {
+        assertFalse(path, paths.contains(path));
+      }
+      paths.addAll(donatedPaths);
+      Collections.sort(paths);
+      assertEquals(sequential, paths);
+    }
+  }
+}